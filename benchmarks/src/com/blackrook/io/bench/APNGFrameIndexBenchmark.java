@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.container.PNGContainerReader;
+import com.blackrook.io.files.png.APNGFrameIndex;
+import com.blackrook.io.files.png.PNGImageDecoder;
+import com.blackrook.io.files.png.PNGImageHeader;
+
+/**
+ * Benchmarks for decoding the last frame of an animated PNG with {@link APNGFrameIndex}, against
+ * reading every chunk with {@link PNGContainerReader} and buffering the frame's data.
+ * Scores are per frame, including opening the file.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class APNGFrameIndexBenchmark
+{
+	/** Width and height of the frames (RGBA, 8 bits per sample). */
+	@Param({"256"})
+	public int dimension;
+
+	/** Amount of frames. */
+	@Param({"32"})
+	public int frames;
+
+	private File file;
+	private byte[] row;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".png");
+		BenchmarkFixtures.writeAPNG(file, dimension, frames);
+		row = new byte[dimension * 4];
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Benchmark
+	public void indexLastFrame(Blackhole bh) throws IOException
+	{
+		APNGFrameIndex index = new APNGFrameIndex(file);
+		try (PNGImageDecoder decoder = index.openFrameDecoder(index.getFrameCount() - 1))
+		{
+			while (decoder.nextRow(row) >= 0)
+				bh.consume(row);
+		}
+	}
+
+	@Benchmark
+	public void readLastFrame(Blackhole bh) throws IOException
+	{
+		PNGContainerReader reader = new PNGContainerReader(file);
+		PNGImageHeader header = null;
+		ByteArrayOutputStream data = new ByteArrayOutputStream();
+		try {
+			PNGContainerReader.Chunk chunk;
+			while ((chunk = reader.nextChunk()) != null)
+			{
+				if (chunk.getName().equals("IHDR"))
+					header = PNGImageHeader.read(chunk.getData());
+				else if (chunk.getName().equals("fcTL"))
+					data.reset();
+				else if (chunk.getName().equals("fdAT"))
+					data.write(chunk.getData(), 4, chunk.getData().length - 4);
+			}
+		} finally {
+			reader.close();
+		}
+		try (PNGImageDecoder decoder = new PNGImageDecoder(header, new ByteArrayInputStream(data.toByteArray())))
+		{
+			while (decoder.nextRow(row) >= 0)
+				bh.consume(row);
+		}
+	}
+
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import static com.blackrook.io.bench.BenchmarkData.COUNT;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Baselines for {@link SuperReaderBenchmark} and {@link SuperWriterBenchmark}, using
+ * {@link DataInputStream}/{@link DataOutputStream} and {@link ByteBuffer} over the same data.
+ * DataInputStream/DataOutputStream are always big-endian, so little-endian runs reverse the bytes,
+ * as a caller would have to.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BaselineBenchmark
+{
+	@Param({"LITTLE", "BIG"})
+	public String endian;
+
+	private boolean little;
+	private ByteOrder order;
+	private ByteArrayOutputStream out;
+	private ByteBuffer buffer;
+
+	private int[] ints;
+	private long[] longs;
+	private byte[] shortBytes;
+	private byte[] intBytes;
+	private byte[] longBytes;
+	private byte[] doubleBytes;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		boolean endianMode = BenchmarkData.endianMode(endian);
+		little = "LITTLE".equals(endian);
+		order = little ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+		out = new ByteArrayOutputStream(COUNT * 8);
+		buffer = ByteBuffer.allocate(COUNT * 8).order(order);
+
+		final short[] s = BenchmarkData.shorts();
+		final int[] i = ints = BenchmarkData.ints();
+		final long[] l = longs = BenchmarkData.longs();
+		final double[] d = BenchmarkData.doubles();
+		shortBytes = BenchmarkData.encode(endianMode, (sw) -> {for (short v : s) sw.writeShort(v);});
+		intBytes = BenchmarkData.encode(endianMode, (sw) -> {for (int v : i) sw.writeInt(v);});
+		longBytes = BenchmarkData.encode(endianMode, (sw) -> {for (long v : l) sw.writeLong(v);});
+		doubleBytes = BenchmarkData.encode(endianMode, (sw) -> {for (double v : d) sw.writeDouble(v);});
+	}
+
+	private DataInputStream dataIn(byte[] data)
+	{
+		return new DataInputStream(new ByteArrayInputStream(data));
+	}
+
+	private DataOutputStream dataOut()
+	{
+		out.reset();
+		return new DataOutputStream(out);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void dataInputReadShort(Blackhole bh) throws IOException
+	{
+		DataInputStream in = dataIn(shortBytes);
+		for (int x = 0; x < COUNT; x++)
+		{
+			short v = in.readShort();
+			bh.consume(little ? Short.reverseBytes(v) : v);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void dataInputReadInt(Blackhole bh) throws IOException
+	{
+		DataInputStream in = dataIn(intBytes);
+		for (int x = 0; x < COUNT; x++)
+		{
+			int v = in.readInt();
+			bh.consume(little ? Integer.reverseBytes(v) : v);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void dataInputReadLong(Blackhole bh) throws IOException
+	{
+		DataInputStream in = dataIn(longBytes);
+		for (int x = 0; x < COUNT; x++)
+		{
+			long v = in.readLong();
+			bh.consume(little ? Long.reverseBytes(v) : v);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void dataInputReadDouble(Blackhole bh) throws IOException
+	{
+		DataInputStream in = dataIn(doubleBytes);
+		for (int x = 0; x < COUNT; x++)
+		{
+			long v = in.readLong();
+			bh.consume(Double.longBitsToDouble(little ? Long.reverseBytes(v) : v));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int dataOutputWriteInt() throws IOException
+	{
+		DataOutputStream dos = dataOut();
+		for (int x = 0; x < COUNT; x++)
+			dos.writeInt(little ? Integer.reverseBytes(ints[x]) : ints[x]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int dataOutputWriteLong() throws IOException
+	{
+		DataOutputStream dos = dataOut();
+		for (int x = 0; x < COUNT; x++)
+			dos.writeLong(little ? Long.reverseBytes(longs[x]) : longs[x]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void byteBufferGetShort(Blackhole bh)
+	{
+		ByteBuffer buf = ByteBuffer.wrap(shortBytes).order(order);
+		for (int x = 0; x < COUNT; x++)
+			bh.consume(buf.getShort());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void byteBufferGetInt(Blackhole bh)
+	{
+		ByteBuffer buf = ByteBuffer.wrap(intBytes).order(order);
+		for (int x = 0; x < COUNT; x++)
+			bh.consume(buf.getInt());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void byteBufferGetLong(Blackhole bh)
+	{
+		ByteBuffer buf = ByteBuffer.wrap(longBytes).order(order);
+		for (int x = 0; x < COUNT; x++)
+			bh.consume(buf.getLong());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void byteBufferGetDouble(Blackhole bh)
+	{
+		ByteBuffer buf = ByteBuffer.wrap(doubleBytes).order(order);
+		for (int x = 0; x < COUNT; x++)
+			bh.consume(buf.getDouble());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int[] byteBufferGetIntArray()
+	{
+		int[] out = new int[COUNT];
+		ByteBuffer.wrap(intBytes).order(order).asIntBuffer().get(out);
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public double[] byteBufferGetDoubleArray()
+	{
+		double[] out = new double[COUNT];
+		ByteBuffer.wrap(doubleBytes).order(order).asDoubleBuffer().get(out);
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public ByteBuffer byteBufferPutInt()
+	{
+		buffer.clear();
+		for (int x = 0; x < COUNT; x++)
+			buffer.putInt(ints[x]);
+		return buffer;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public ByteBuffer byteBufferPutLong()
+	{
+		buffer.clear();
+		for (int x = 0; x < COUNT; x++)
+			buffer.putLong(longs[x]);
+		return buffer;
+	}
+
+}
@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+import com.blackrook.io.SuperWriter;
+
+/**
+ * Deterministic data sets for the benchmarks.
+ * @author Matthew Tropiano
+ */
+public final class BenchmarkData
+{
+	/** Amount of values read or written per benchmark invocation. */
+	public static final int COUNT = 1024;
+	/** Seed for all random data. */
+	public static final long SEED = 0x426c61636b526f6fL;
+
+	private BenchmarkData() {}
+
+	/**
+	 * Something that writes to a SuperWriter.
+	 */
+	@FunctionalInterface
+	public interface Encoder
+	{
+		/**
+		 * Writes data.
+		 * @param sw the writer to write to.
+		 * @throws IOException if a write error occurs.
+		 */
+		void write(SuperWriter sw) throws IOException;
+	}
+
+	/**
+	 * Returns a new random number generator with the benchmark seed.
+	 */
+	public static Random random()
+	{
+		return new Random(SEED);
+	}
+
+	/**
+	 * Encodes data with a new {@link SuperWriter} and returns the bytes written.
+	 * @param endianMode the endian mode to use.
+	 * @param encoder the encoder.
+	 * @return the encoded bytes.
+	 * @throws IOException if a write error occurs.
+	 */
+	public static byte[] encode(boolean endianMode, Encoder encoder) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		SuperWriter sw = new SuperWriter(bos, endianMode);
+		encoder.write(sw);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Converts an endian parameter name to a SuperReader/SuperWriter endian mode.
+	 * @param name "LITTLE" or "BIG".
+	 * @return the corresponding endian mode.
+	 */
+	public static boolean endianMode(String name)
+	{
+		if ("LITTLE".equals(name))
+			return SuperWriter.LITTLE_ENDIAN;
+		else if ("BIG".equals(name))
+			return SuperWriter.BIG_ENDIAN;
+		else
+			throw new IllegalArgumentException("Bad endian name: " + name);
+	}
+
+	/** Returns {@link #COUNT} random bytes. */
+	public static byte[] bytes()
+	{
+		byte[] out = new byte[COUNT];
+		random().nextBytes(out);
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random shorts. */
+	public static short[] shorts()
+	{
+		Random r = random();
+		short[] out = new short[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = (short)r.nextInt();
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random chars. */
+	public static char[] chars()
+	{
+		Random r = random();
+		char[] out = new char[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = (char)(' ' + r.nextInt(95));
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random ints. */
+	public static int[] ints()
+	{
+		Random r = random();
+		int[] out = new int[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextInt();
+		return out;
+	}
+
+	/**
+	 * Returns {@link #COUNT} random, non-negative ints with a skewed distribution of magnitudes.
+	 * @param bits the maximum amount of significant bits.
+	 */
+	public static int[] smallInts(int bits)
+	{
+		Random r = random();
+		int[] out = new int[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextInt() >>> (32 - 1 - r.nextInt(bits));
+		return out;
+	}
+
+	/**
+	 * Returns {@link #COUNT} ascending ints with small, random gaps (like sorted IDs or timestamps).
+	 */
+	public static int[] sortedInts()
+	{
+		Random r = random();
+		int[] out = new int[COUNT];
+		int v = r.nextInt(1 << 20);
+		for (int i = 0; i < out.length; i++)
+			out[i] = v += 1 + r.nextInt(64);
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random longs. */
+	public static long[] longs()
+	{
+		Random r = random();
+		long[] out = new long[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextLong();
+		return out;
+	}
+
+	/**
+	 * Returns {@link #COUNT} random, non-negative longs with a skewed distribution of magnitudes.
+	 * @param bits the maximum amount of significant bits.
+	 */
+	public static long[] smallLongs(int bits)
+	{
+		Random r = random();
+		long[] out = new long[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextLong() >>> (64 - 1 - r.nextInt(bits));
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random floats. */
+	public static float[] floats()
+	{
+		Random r = random();
+		float[] out = new float[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextFloat();
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random doubles. */
+	public static double[] doubles()
+	{
+		Random r = random();
+		double[] out = new double[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextDouble();
+		return out;
+	}
+
+	/**
+	 * Returns {@link #COUNT} doubles that change slowly, in small steps (like sensor readings).
+	 */
+	public static double[] series()
+	{
+		Random r = random();
+		double[] out = new double[COUNT];
+		double v = 20.0;
+		for (int i = 0; i < out.length; i++)
+		{
+			if (r.nextInt(8) == 0)
+				v += (r.nextInt(3) - 1) * 0.25;
+			out[i] = v;
+		}
+		return out;
+	}
+
+	/** Returns {@link #COUNT} random booleans. */
+	public static boolean[] booleans()
+	{
+		Random r = random();
+		boolean[] out = new boolean[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = r.nextBoolean();
+		return out;
+	}
+
+	/**
+	 * Returns a BitSet of {@link #COUNT} random bits.
+	 * @param oneIn the odds of each bit being set (1 in <code>oneIn</code>).
+	 */
+	public static BitSet bitSet(int oneIn)
+	{
+		Random r = random();
+		BitSet out = new BitSet(COUNT);
+		for (int i = 0; i < COUNT; i++)
+			if (r.nextInt(oneIn) == 0)
+				out.set(i);
+		return out;
+	}
+
+	/**
+	 * Returns {@link #COUNT} random strings.
+	 * @param length the length of each string.
+	 * @param ascii if true, only printable ASCII characters are used.
+	 */
+	public static String[] strings(int length, boolean ascii)
+	{
+		Random r = random();
+		String[] out = new String[COUNT];
+		char[] c = new char[length];
+		for (int i = 0; i < out.length; i++)
+		{
+			for (int x = 0; x < c.length; x++)
+				c[x] = ascii ? (char)(' ' + r.nextInt(95)) : (char)(0x20 + r.nextInt(0x2000));
+			out[i] = new String(c);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns {@link #COUNT} Strings drawn from a small set of labels, with a skewed distribution.
+	 * @param labels the amount of different labels.
+	 */
+	public static String[] labels(int labels)
+	{
+		Random r = random();
+		String[] out = new String[COUNT];
+		for (int i = 0; i < out.length; i++)
+			out[i] = "label-" + Math.min((int)Math.abs(r.nextGaussian() * labels / 4), labels - 1);
+		return out;
+	}
+
+}
@@ -0,0 +1,405 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.container.PNGContainerWriter;
+import com.blackrook.io.files.SoundFileInfo;
+import com.blackrook.io.files.SoundFileInfo.SampleType;
+import com.blackrook.io.files.png.PNGImageHeader;
+import com.blackrook.io.files.wav.WAVWriter;
+
+/**
+ * Generated fixture files for the format benchmarks.
+ * All fixtures are generated from seeded random data, so the same size always
+ * produces the same file.
+ * @author Matthew Tropiano
+ */
+public final class BenchmarkFixtures
+{
+	/** Benchmark cache parameter: leave the page cache warm. */
+	public static final String CACHE_WARM = "warm";
+	/** Benchmark cache parameter: drop the page cache before each invocation. */
+	public static final String CACHE_COLD = "cold";
+
+	/** The Linux page cache control file. */
+	private static final File DROP_CACHES = new File("/proc/sys/vm/drop_caches");
+	/** Ogg page capture pattern. */
+	private static final byte[] OGGS = {0x4f, 0x67, 0x67, 0x53};
+	/** Ogg CRC lookup table (polynomial 0x04c11db7, unreflected). */
+	private static final int[] OGG_CRC_TABLE = new int[256];
+
+	static
+	{
+		for (int i = 0; i < 256; i++)
+		{
+			int r = i << 24;
+			for (int j = 0; j < 8; j++)
+				r = (r & 0x80000000) != 0 ? (r << 1) ^ 0x04c11db7 : r << 1;
+			OGG_CRC_TABLE[i] = r;
+		}
+	}
+
+	private BenchmarkFixtures() {}
+
+	/**
+	 * Creates a temporary file that is deleted on exit.
+	 * @param suffix the file suffix.
+	 * @return the new file.
+	 * @throws IOException if the file could not be created.
+	 */
+	public static File tempFile(String suffix) throws IOException
+	{
+		File out = File.createTempFile("commonio-bench-", suffix);
+		out.deleteOnExit();
+		return out;
+	}
+
+	/**
+	 * Creates a temporary directory.
+	 * @return the new directory.
+	 * @throws IOException if the directory could not be created.
+	 */
+	public static File tempDirectory() throws IOException
+	{
+		File out = tempFile(".dir");
+		if (!out.delete() || !out.mkdirs())
+			throw new IOException("Could not create temporary directory: " + out.getPath());
+		return out;
+	}
+
+	/**
+	 * Drops the operating system's page cache, if the cache parameter calls for it.
+	 * This only works on Linux, and only as root.
+	 * @param cache {@link #CACHE_WARM} or {@link #CACHE_COLD}.
+	 * @throws IOException if the cache could not be dropped.
+	 * @throws IllegalArgumentException if the cache parameter is not recognized.
+	 */
+	public static void prepareCache(String cache) throws IOException
+	{
+		if (CACHE_WARM.equals(cache))
+			return;
+		else if (!CACHE_COLD.equals(cache))
+			throw new IllegalArgumentException("Bad cache parameter: " + cache);
+
+		if (!DROP_CACHES.canWrite())
+			throw new IOException("Cold cache runs need write access to " + DROP_CACHES.getPath() + " (Linux, as root).");
+
+		try {
+			new ProcessBuilder("sync").inheritIO().start().waitFor();
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while syncing.", e);
+		}
+		try (FileWriter writer = new FileWriter(DROP_CACHES))
+		{
+			writer.write("1");
+		}
+	}
+
+	/**
+	 * Writes a PNG container file with a header chunk, a few ancillary chunks, and
+	 * random image data split into IDAT chunks.
+	 * @param file the target file.
+	 * @param size the approximate total size of the image data in bytes.
+	 * @param chunkSize the size of each image data chunk.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writePNG(File file, long size, int chunkSize) throws IOException
+	{
+		Random random = BenchmarkData.random();
+		PNGContainerWriter writer = new PNGContainerWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			byte[] ihdr = BenchmarkData.encode(SuperWriter.BIG_ENDIAN, (sw) -> {
+				sw.writeInt(1024);
+				sw.writeInt((int)Math.max(1, size / (1024 * 4)));
+				sw.writeByte((byte)8);
+				sw.writeByte((byte)6);
+				sw.writeByte((byte)0);
+				sw.writeByte((byte)0);
+				sw.writeByte((byte)0);
+			});
+			writer.writeChunk("IHDR", ihdr);
+			writer.writeChunk("tEXt", "Software\0Black Rook Common I/O Benchmarks".getBytes("ISO-8859-1"));
+			writer.writeChunk("pHYs", new byte[]{0, 0, 0x0b, 0x13, 0, 0, 0x0b, 0x13, 1});
+			byte[] data = new byte[chunkSize];
+			for (long written = 0; written < size; written += chunkSize)
+			{
+				random.nextBytes(data);
+				writer.writeChunk("IDAT", data);
+			}
+			writer.writeChunk("IEND", new byte[0]);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes a PNG image file with noisy gradients, which filters and compresses
+	 * more like a photograph than random data does.
+	 * @param file the target file.
+	 * @param width the image width in pixels.
+	 * @param height the image height in pixels.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writePNGImage(File file, int width, int height) throws IOException
+	{
+		Random random = BenchmarkData.random();
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		for (int y = 0; y < height; y++)
+			for (int x = 0; x < width; x++)
+			{
+				int noise = random.nextInt(16);
+				int r = (x * 255 / width + noise) & 0x0ff;
+				int g = (y * 255 / height + noise) & 0x0ff;
+				int b = ((x + y) * 127 / (width + height) + noise) & 0x0ff;
+				image.setRGB(x, y, 0xff000000 | r << 16 | g << 8 | b);
+			}
+		if (!ImageIO.write(image, "png", file))
+			throw new IOException("No PNG image writer available.");
+	}
+
+	/**
+	 * Writes an animated PNG (APNG) file of full-size RGBA frames with random pixels.
+	 * The first frame is the default image (IDAT), and the rest are stored in fdAT chunks of up to 64 KB.
+	 * @param file the target file.
+	 * @param dimension the width and height of the image in pixels.
+	 * @param frames the amount of frames.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeAPNG(File file, int dimension, int frames) throws IOException
+	{
+		Random random = BenchmarkData.random();
+		int stride = dimension * 4 + 1;
+		byte[] raw = new byte[stride * dimension];
+		byte[] compressed = new byte[raw.length + raw.length / 100 + 64];
+		byte[] row = new byte[stride - 1];
+		int sequence = 0;
+		PNGContainerWriter writer = new PNGContainerWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			writer.writeChunk("IHDR", new PNGImageHeader(dimension, dimension, 8, PNGImageHeader.COLOR_RGBA, 0).toByteArray());
+			writer.writeChunk("acTL", BenchmarkData.encode(SuperWriter.BIG_ENDIAN, (sw) -> {
+				sw.writeInt(frames);
+				sw.writeInt(0);
+			}));
+			for (int f = 0; f < frames; f++)
+			{
+				for (int y = 0; y < dimension; y++)
+				{
+					random.nextBytes(row);
+					System.arraycopy(row, 0, raw, y * stride + 1, row.length);
+				}
+				Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+				deflater.setInput(raw);
+				deflater.finish();
+				int length = deflater.deflate(compressed);
+				deflater.end();
+
+				final int fcTL = sequence++;
+				writer.writeChunk("fcTL", BenchmarkData.encode(SuperWriter.BIG_ENDIAN, (sw) -> {
+					sw.writeInt(fcTL);
+					sw.writeInt(dimension);
+					sw.writeInt(dimension);
+					sw.writeInt(0);
+					sw.writeInt(0);
+					sw.writeShort((short)1);
+					sw.writeShort((short)30);
+					sw.writeByte((byte)0);
+					sw.writeByte((byte)0);
+				}));
+				for (int offset = 0; offset < length; offset += 65536)
+				{
+					int chunkLength = Math.min(65536, length - offset);
+					if (f == 0)
+					{
+						writer.writeChunk("IDAT", Arrays.copyOfRange(compressed, offset, offset + chunkLength));
+					}
+					else
+					{
+						writer.beginChunk("fdAT", chunkLength + 4);
+						writer.writeChunkData(new byte[]{(byte)(sequence >>> 24), (byte)(sequence >>> 16), (byte)(sequence >>> 8), (byte)sequence});
+						writer.writeChunkData(compressed, offset, chunkLength);
+						writer.endChunk();
+						sequence++;
+					}
+				}
+			}
+			writer.writeChunk("IEND", new byte[0]);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes an Ogg container file with a single logical stream of random packets.
+	 * @param file the target file.
+	 * @param size the approximate total size of the packet data in bytes.
+	 * @param maxPacketSize the maximum size of a single packet.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeOgg(File file, long size, int maxPacketSize) throws IOException
+	{
+		Random random = BenchmarkData.random();
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+		{
+			int sequence = 0;
+			long written = 0;
+			while (written < size)
+			{
+				// up to 255 segments per page, with only whole packets in each page.
+				byte[] lacing = new byte[255];
+				byte[] body = new byte[255 * 255];
+				int segments = 0;
+				int bodyLength = 0;
+				while (true)
+				{
+					int packetSize = 1 + random.nextInt(maxPacketSize);
+					int packetSegments = packetSize / 255 + 1;
+					if (segments + packetSegments > 255)
+						break;
+					for (int i = 0; i < packetSegments - 1; i++)
+						lacing[segments++] = (byte)255;
+					lacing[segments++] = (byte)(packetSize % 255);
+					byte[] packet = new byte[packetSize];
+					random.nextBytes(packet);
+					System.arraycopy(packet, 0, body, bodyLength, packetSize);
+					bodyLength += packetSize;
+				}
+				written += bodyLength;
+				int flags = (sequence == 0 ? 0x02 : 0) | (written >= size ? 0x04 : 0);
+				writeOggPage(out, flags, written, 0x0b1ac4, sequence++, lacing, segments, body, bodyLength);
+			}
+		}
+	}
+
+	/**
+	 * Writes a single Ogg page.
+	 * @param out the output stream.
+	 * @param flags the header type flags.
+	 * @param granule the granule position.
+	 * @param serial the stream serial number.
+	 * @param sequence the page sequence number.
+	 * @param lacing the lacing values.
+	 * @param segments the amount of lacing values to use.
+	 * @param body the page body.
+	 * @param bodyLength the amount of body bytes to use.
+	 * @throws IOException if the page could not be written.
+	 */
+	public static void writeOggPage(OutputStream out, int flags, long granule, int serial, int sequence, byte[] lacing, int segments, byte[] body, int bodyLength) throws IOException
+	{
+		byte[] page = BenchmarkData.encode(SuperWriter.LITTLE_ENDIAN, (sw) -> {
+			sw.writeBytes(OGGS);
+			sw.writeByte((byte)0);
+			sw.writeByte((byte)flags);
+			sw.writeLong(granule);
+			sw.writeInt(serial);
+			sw.writeInt(sequence);
+			sw.writeInt(0);
+			sw.writeByte((byte)segments);
+			for (int i = 0; i < segments; i++)
+				sw.writeByte(lacing[i]);
+			for (int i = 0; i < bodyLength; i++)
+				sw.writeByte(body[i]);
+		});
+		int crc = 0;
+		for (int i = 0; i < page.length; i++)
+			crc = (crc << 8) ^ OGG_CRC_TABLE[((crc >>> 24) & 0xff) ^ (page[i] & 0xff)];
+		page[22] = (byte)crc;
+		page[23] = (byte)(crc >>> 8);
+		page[24] = (byte)(crc >>> 16);
+		page[25] = (byte)(crc >>> 24);
+		out.write(page);
+	}
+
+	/**
+	 * Writes a 16-bit stereo PCM WAV file of random samples.
+	 * @param file the target file.
+	 * @param size the approximate size of the sample data in bytes.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeWAV(File file, long size) throws IOException
+	{
+		Random random = BenchmarkData.random();
+		SoundFileInfo info = new SoundFileInfo();
+		info.setChannels(2);
+		info.setSampleRate(44100);
+		info.setBitsPerSample(16);
+		info.setSampleType(SampleType.INTEGER_SIGNED);
+		try (WAVWriter writer = new WAVWriter(file, info))
+		{
+			double[][] samples = new double[2][2048];
+			for (long frames = size / 4; frames > 0; frames -= samples[0].length)
+			{
+				int count = (int)Math.min(samples[0].length, frames);
+				for (int i = 0; i < count; i++)
+				{
+					samples[0][i] = random.nextDouble() * 2.0 - 1.0;
+					samples[1][i] = random.nextDouble() * 2.0 - 1.0;
+				}
+				writer.writeSamples(count, samples);
+			}
+		}
+	}
+
+	/**
+	 * Writes a zip file with a mix of compressible and incompressible entries.
+	 * Every other entry is stored, not compressed.
+	 * @param file the target file.
+	 * @param size the approximate total uncompressed size of the entries in bytes.
+	 * @param entrySize the uncompressed size of each entry.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeZip(File file, long size, int entrySize) throws IOException
+	{
+		Random random = BenchmarkData.random();
+		try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			byte[] data = new byte[entrySize];
+			int n = 0;
+			for (long written = 0; written < size; written += entrySize)
+			{
+				boolean stored = (n % 2) != 0;
+				if (stored)
+					random.nextBytes(data);
+				else for (int i = 0; i < data.length; i++)
+					data[i] = (byte)('a' + random.nextInt(4));
+
+				ZipEntry entry = new ZipEntry(String.format("dir%02d/entry%06d.bin", n % 16, n));
+				if (stored)
+				{
+					CRC32 crc = new CRC32();
+					crc.update(data);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(data.length);
+					entry.setCompressedSize(data.length);
+					entry.setCrc(crc.getValue());
+				}
+				out.putNextEntry(entry);
+				out.write(data);
+				out.closeEntry();
+				n++;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import static com.blackrook.io.bench.BenchmarkData.COUNT;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.codec.BigEndian;
+import com.blackrook.io.codec.BinaryCodec;
+import com.blackrook.io.codec.BinaryType;
+import com.blackrook.io.codec.Bits;
+import com.blackrook.io.codec.CodecSupport;
+import com.blackrook.io.codec.VarInt;
+import com.blackrook.io.codec.VarLength;
+
+/**
+ * Benchmarks for codecs generated from {@link BinaryType} classes, against the equivalent
+ * hand-written {@link SuperReader}/{@link SuperWriter} calls.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CodecBenchmark
+{
+	/** Entry kinds. */
+	public enum Kind
+	{
+		SMALL,
+		MEDIUM,
+		LARGE;
+	}
+
+	/** Sample annotated type. */
+	@BinaryType
+	public static class Entry
+	{
+		@VarInt
+		public int id;
+		@BigEndian
+		public long timestamp;
+		@Bits(4)
+		public int flags;
+		@Bits(1)
+		public boolean deleted;
+		public Kind kind;
+		public Kind previousKind;
+		@VarLength
+		public String name;
+		@VarInt(zigzag = true) @VarLength
+		public int[] values;
+	}
+
+	private static final BinaryCodec<Entry> CODEC = CodecBenchmark_EntryCodec.INSTANCE;
+
+	private Entry[] entries;
+	private byte[] encoded;
+	private ByteArrayOutputStream out;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		Random random = BenchmarkData.random();
+		Kind[] kinds = Kind.values();
+		entries = new Entry[COUNT];
+		for (int i = 0; i < COUNT; i++)
+		{
+			Entry e = new Entry();
+			e.id = i;
+			e.timestamp = 1500000000000L + random.nextInt(Integer.MAX_VALUE);
+			e.flags = random.nextInt(16);
+			e.deleted = random.nextInt(8) == 0;
+			e.kind = kinds[random.nextInt(kinds.length)];
+			e.previousKind = random.nextInt(4) == 0 ? null : kinds[random.nextInt(kinds.length)];
+			e.name = "entry-" + Integer.toHexString(random.nextInt());
+			e.values = new int[random.nextInt(8)];
+			for (int j = 0; j < e.values.length; j++)
+				e.values[j] = random.nextInt(2000) - 1000;
+			entries[i] = e;
+		}
+		out = new ByteArrayOutputStream(COUNT * 64);
+		encoded = BenchmarkData.encode(SuperWriter.LITTLE_ENDIAN, (sw) -> {for (Entry e : entries) CODEC.write(sw, e);});
+	}
+
+	private static void writeByHand(SuperWriter sw, Entry e) throws IOException
+	{
+		sw.writeVariableLengthInt(e.id);
+		sw.setEndianMode(SuperWriter.BIG_ENDIAN);
+		sw.writeLong(e.timestamp);
+		sw.setEndianMode(SuperWriter.LITTLE_ENDIAN);
+		sw.writeIntBits(4, e.flags);
+		sw.writeBit(e.deleted);
+		sw.byteAlign();
+		sw.writeVariableLengthInt(e.kind == null ? 0 : e.kind.ordinal() + 1);
+		sw.writeVariableLengthInt(e.previousKind == null ? 0 : e.previousKind.ordinal() + 1);
+		CodecSupport.writeString(sw, e.name, true);
+		CodecSupport.writeLength(sw, e.values == null ? -1 : e.values.length, true);
+		if (e.values != null)
+			for (int v : e.values)
+				CodecSupport.writeZigZagInt(sw, v);
+	}
+
+	private static Entry readByHand(SuperReader sr, Kind[] kinds) throws IOException
+	{
+		Entry e = new Entry();
+		e.id = sr.readVariableLengthInt();
+		sr.setEndianMode(SuperReader.BIG_ENDIAN);
+		e.timestamp = sr.readLong();
+		sr.setEndianMode(SuperReader.LITTLE_ENDIAN);
+		sr.byteAlign();
+		e.flags = sr.readIntBits(4);
+		e.deleted = sr.readBit();
+		sr.byteAlign();
+		int kind = sr.readVariableLengthInt();
+		e.kind = kind == 0 ? null : kinds[kind - 1];
+		int previousKind = sr.readVariableLengthInt();
+		e.previousKind = previousKind == 0 ? null : kinds[previousKind - 1];
+		e.name = CodecSupport.readString(sr, true);
+		int n = CodecSupport.readLength(sr, true);
+		if (n >= 0)
+		{
+			e.values = new int[n];
+			for (int i = 0; i < n; i++)
+				e.values[i] = CodecSupport.readZigZagInt(sr);
+		}
+		return e;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeGenerated() throws IOException
+	{
+		out.reset();
+		SuperWriter sw = new SuperWriter(out, SuperWriter.LITTLE_ENDIAN);
+		for (int i = 0; i < COUNT; i++)
+			CODEC.write(sw, entries[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeHandWritten() throws IOException
+	{
+		out.reset();
+		SuperWriter sw = new SuperWriter(out, SuperWriter.LITTLE_ENDIAN);
+		for (int i = 0; i < COUNT; i++)
+			writeByHand(sw, entries[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public long readGenerated() throws IOException
+	{
+		SuperReader sr = new SuperReader(new ByteArrayInputStream(encoded), SuperReader.LITTLE_ENDIAN);
+		long out = 0;
+		for (int i = 0; i < COUNT; i++)
+			out += CODEC.read(sr).timestamp;
+		return out;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public long readHandWritten() throws IOException
+	{
+		SuperReader sr = new SuperReader(new ByteArrayInputStream(encoded), SuperReader.LITTLE_ENDIAN);
+		Kind[] kinds = Kind.values();
+		long out = 0;
+		for (int i = 0; i < COUNT; i++)
+			out += readByHand(sr, kinds).timestamp;
+		return out;
+	}
+
+}
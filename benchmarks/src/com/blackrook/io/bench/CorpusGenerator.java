@@ -0,0 +1,631 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.container.PNGContainerWriter;
+import com.blackrook.io.files.SoundFileInfo;
+import com.blackrook.io.files.SoundFileInfo.SampleType;
+import com.blackrook.io.files.wav.WAVWriter;
+
+/**
+ * Generates a deterministic synthetic corpus of PNG, Ogg, WAV and zip files
+ * for benchmarks and soak tests.
+ * <p>Every file is generated from its own random number generator, seeded from the corpus seed
+ * and the file's name, so the same seed and profile always produce byte-identical files, 
+ * and any single file can be regenerated on its own.
+ * <p>Usage: <code>CorpusGenerator [directory] [seed] [small|full]</code>
+ * @author Matthew Tropiano
+ */
+public final class CorpusGenerator
+{
+	/** Default corpus seed. */
+	public static final long DEFAULT_SEED = BenchmarkData.SEED;
+
+	/** Private, unregistered ancillary PNG chunk types (lowercase first letter). */
+	private static final String[] PNG_PRIVATE_CHUNKS = {"brKs", "brMd", "prVt", "niCe"};
+	/** Text keywords for PNG text chunks. */
+	private static final String[] PNG_KEYWORDS = {"Title", "Author", "Description", "Copyright", "Creation Time", "Software", "Disclaimer", "Warning", "Source", "Comment"};
+	/** Modified time of zip entries (midnight, January 1, 2019, in the local time zone, so the stored DOS time is the same everywhere). */
+	private static final long ZIP_ENTRY_TIME = LocalDateTime.of(2019, 1, 1, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	/** Words for generated text. */
+	private static final String[] WORDS = {"black", "rook", "common", "stream", "chunk", "page", "sample", "entry", "reader", "writer", "buffer", "packet", "lorem", "ipsum"};
+
+	/**
+	 * Corpus size profiles.
+	 */
+	public static enum Profile
+	{
+		/** A corpus of a few hundred megabytes. */
+		SMALL(16, 8, 16L << 20, 2, 2000),
+		/** A corpus of several gigabytes, with multi-gigabyte WAVs. */
+		FULL(64, 32, 3L << 30, 4, 10000);
+
+		private final int pngFiles;
+		private final int oggFiles;
+		private final long wavBytes;
+		private final int zipFiles;
+		private final int zipEntries;
+
+		private Profile(int pngFiles, int oggFiles, long wavBytes, int zipFiles, int zipEntries)
+		{
+			this.pngFiles = pngFiles;
+			this.oggFiles = oggFiles;
+			this.wavBytes = wavBytes;
+			this.zipFiles = zipFiles;
+			this.zipEntries = zipEntries;
+		}
+	}
+
+	/** WAV sample formats: bits per sample and sample type. */
+	private static final Object[][] WAV_FORMATS = {
+		{8, SampleType.INTEGER_UNSIGNED},
+		{16, SampleType.INTEGER_SIGNED},
+		{24, SampleType.INTEGER_SIGNED},
+		{32, SampleType.INTEGER_SIGNED},
+		{32, SampleType.FLOATING_POINT},
+	};
+
+	private final File directory;
+	private final long seed;
+	private final Profile profile;
+	private final PrintStream log;
+
+	/**
+	 * Creates a new generator.
+	 * @param directory the output directory.
+	 * @param seed the corpus seed.
+	 * @param profile the size profile.
+	 * @param log the stream to print progress to, or null for none.
+	 */
+	public CorpusGenerator(File directory, long seed, Profile profile, PrintStream log)
+	{
+		this.directory = directory;
+		this.seed = seed;
+		this.profile = profile;
+		this.log = log;
+	}
+
+	/**
+	 * Generates the whole corpus.
+	 * @throws IOException if a file could not be written.
+	 */
+	public void generate() throws IOException
+	{
+		File pngDir = directory("png");
+		File oggDir = directory("ogg");
+		File wavDir = directory("wav");
+		File zipDir = directory("zip");
+
+		for (int i = 0; i < profile.pngFiles; i++)
+		{
+			File f = new File(pngDir, String.format("image%04d.png", i));
+			writePNG(f, random(f));
+			progress(f);
+		}
+		for (int i = 0; i < profile.oggFiles; i++)
+		{
+			File f = new File(oggDir, String.format("streams%04d.ogg", i));
+			Random r = random(f);
+			writeOgg(f, r, 1 + r.nextInt(4), (1L << 20) + r.nextInt(16 << 20));
+			progress(f);
+		}
+		for (Object[] format : WAV_FORMATS)
+		{
+			int bits = (Integer)format[0];
+			SampleType type = (SampleType)format[1];
+			for (int channels = 1; channels <= 2; channels++)
+			{
+				File f = new File(wavDir, String.format("%s-%dbit-%dch.wav", type.name().toLowerCase(), bits, channels));
+				SoundFileInfo info = new SoundFileInfo();
+				info.setChannels(channels);
+				info.setSampleRate(channels == 1 ? 22050 : 44100);
+				info.setBitsPerSample(bits);
+				info.setSampleType(type);
+				writeWAV(f, random(f), info, profile.wavBytes);
+				progress(f);
+			}
+		}
+		for (int i = 0; i < profile.zipFiles; i++)
+		{
+			File f = new File(zipDir, String.format("archive%04d.zip", i));
+			writeZip(f, random(f), profile.zipEntries);
+			progress(f);
+		}
+	}
+
+	private File directory(String name) throws IOException
+	{
+		File out = new File(directory, name);
+		if (!out.isDirectory() && !out.mkdirs())
+			throw new IOException("Could not create directory: " + out.getPath());
+		return out;
+	}
+
+	// Each file gets its own generator, so it doesn't depend on the files before it.
+	private Random random(File file)
+	{
+		return new Random(seed * 31L + file.getName().hashCode());
+	}
+
+	private void progress(File file)
+	{
+		if (log != null)
+			log.printf("%12d %s\n", file.length(), file.getPath());
+	}
+
+	/**
+	 * Writes a valid 8-bit RGBA PNG of a noisy gradient with many ancillary chunks,
+	 * varied row filters, and image data split into IDAT chunks of varied size.
+	 * @param file the target file.
+	 * @param random the random number generator.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writePNG(File file, Random random) throws IOException
+	{
+		final int width = 16 + random.nextInt(1009);
+		final int height = 16 + random.nextInt(1009);
+		PNGContainerWriter writer = new PNGContainerWriter(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			writer.writeChunk("IHDR", BenchmarkData.encode(SuperWriter.BIG_ENDIAN, (sw) -> {
+				sw.writeInt(width);
+				sw.writeInt(height);
+				sw.writeByte((byte)8);
+				sw.writeByte((byte)6);
+				sw.writeByte((byte)0);
+				sw.writeByte((byte)0);
+				sw.writeByte((byte)0);
+			}));
+			writer.writeChunk("gAMA", BenchmarkData.encode(SuperWriter.BIG_ENDIAN, (sw) -> sw.writeInt(45455)));
+			writer.writeChunk("cHRM", BenchmarkData.encode(SuperWriter.BIG_ENDIAN, (sw) -> {
+				for (int v : new int[]{31270, 32900, 64000, 33000, 30000, 60000, 15000, 6000})
+					sw.writeInt(v);
+			}));
+			writer.writeChunk("sRGB", new byte[]{0});
+			writer.writeChunk("bKGD", new byte[]{0, (byte)random.nextInt(256), 0, (byte)random.nextInt(256), 0, (byte)random.nextInt(256)});
+			writer.writeChunk("pHYs", new byte[]{0, 0, 0x0b, 0x13, 0, 0, 0x0b, 0x13, 1});
+			writer.writeChunk("tIME", new byte[]{0x07, (byte)0xe3, 1, 1, 0, 0, 0});
+			writeAncillaryChunks(writer, random, 8 + random.nextInt(56));
+
+			byte[] data = imageData(random, width, height);
+			int offset = 0;
+			while (offset < data.length)
+			{
+				int len = Math.min(data.length - offset, 1024 + random.nextInt(64 * 1024));
+				byte[] chunk = new byte[len];
+				System.arraycopy(data, offset, chunk, 0, len);
+				writer.writeChunk("IDAT", chunk);
+				offset += len;
+			}
+
+			writeAncillaryChunks(writer, random, random.nextInt(8));
+			writer.writeChunk("IEND", new byte[0]);
+		} finally {
+			writer.close();
+		}
+	}
+
+	// Writes text and private ancillary chunks.
+	private static void writeAncillaryChunks(PNGContainerWriter writer, Random random, int count) throws IOException
+	{
+		for (int i = 0; i < count; i++)
+		{
+			String keyword = PNG_KEYWORDS[random.nextInt(PNG_KEYWORDS.length)];
+			byte[] text = text(random, 1 + random.nextInt(random.nextInt(8) == 0 ? 16384 : 256)).getBytes("UTF-8");
+			switch (random.nextInt(4))
+			{
+				case 0:
+				{
+					ByteArrayOutputStream bos = new ByteArrayOutputStream();
+					bos.write(keyword.getBytes("ISO-8859-1"));
+					bos.write(0);
+					bos.write(text);
+					writer.writeChunk("tEXt", bos.toByteArray());
+					break;
+				}
+				case 1:
+				{
+					ByteArrayOutputStream bos = new ByteArrayOutputStream();
+					bos.write(keyword.getBytes("ISO-8859-1"));
+					bos.write(0);
+					bos.write(0);
+					bos.write(deflate(text, Deflater.DEFAULT_COMPRESSION));
+					writer.writeChunk("zTXt", bos.toByteArray());
+					break;
+				}
+				case 2:
+				{
+					boolean compressed = random.nextBoolean();
+					ByteArrayOutputStream bos = new ByteArrayOutputStream();
+					bos.write(keyword.getBytes("ISO-8859-1"));
+					bos.write(0);
+					bos.write(compressed ? 1 : 0);
+					bos.write(0);
+					bos.write("en".getBytes("ISO-8859-1"));
+					bos.write(0);
+					bos.write(keyword.getBytes("UTF-8"));
+					bos.write(0);
+					bos.write(compressed ? deflate(text, Deflater.DEFAULT_COMPRESSION) : text);
+					writer.writeChunk("iTXt", bos.toByteArray());
+					break;
+				}
+				default:
+				{
+					byte[] data = new byte[random.nextInt(4096)];
+					random.nextBytes(data);
+					writer.writeChunk(PNG_PRIVATE_CHUNKS[random.nextInt(PNG_PRIVATE_CHUNKS.length)], data);
+					break;
+				}
+			}
+		}
+	}
+
+	// Generates compressed, filtered RGBA image data.
+	private static byte[] imageData(Random random, int width, int height) throws IOException
+	{
+		final int bpp = 4;
+		final int stride = width * bpp;
+		int noise = 1 + random.nextInt(64);
+		byte[] previous = new byte[stride];
+		byte[] row = new byte[stride];
+		byte[] filtered = new byte[stride + 1];
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(random.nextInt(10));
+		try (DeflaterOutputStream out = new DeflaterOutputStream(bos, deflater))
+		{
+			for (int y = 0; y < height; y++)
+			{
+				for (int x = 0; x < width; x++)
+				{
+					int i = x * bpp;
+					row[i] = (byte)(x * 255 / width + random.nextInt(noise));
+					row[i + 1] = (byte)(y * 255 / height + random.nextInt(noise));
+					row[i + 2] = (byte)((x ^ y) + random.nextInt(noise));
+					row[i + 3] = (byte)(255 - random.nextInt(noise));
+				}
+
+				int type = random.nextInt(5);
+				filtered[0] = (byte)type;
+				for (int i = 0; i < stride; i++)
+				{
+					int a = i >= bpp ? row[i - bpp] & 0xff : 0;
+					int b = previous[i] & 0xff;
+					int c = i >= bpp ? previous[i - bpp] & 0xff : 0;
+					int predictor;
+					switch (type)
+					{
+						default:
+						case 0:
+							predictor = 0;
+							break;
+						case 1:
+							predictor = a;
+							break;
+						case 2:
+							predictor = b;
+							break;
+						case 3:
+							predictor = (a + b) >>> 1;
+							break;
+						case 4:
+						{
+							int p = a + b - c;
+							int pa = Math.abs(p - a), pb = Math.abs(p - b), pc = Math.abs(p - c);
+							predictor = pa <= pb && pa <= pc ? a : (pb <= pc ? b : c);
+							break;
+						}
+					}
+					filtered[i + 1] = (byte)(row[i] - predictor);
+				}
+				out.write(filtered);
+
+				byte[] swap = previous;
+				previous = row;
+				row = swap;
+			}
+		} finally {
+			deflater.end();
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Writes an Ogg container file with one or more interleaved logical streams.
+	 * Packet sizes vary from empty, to exact multiples of 255 (zero-terminated lacing), to
+	 * packets that span several pages, and pages are filled to varied segment counts.
+	 * @param file the target file.
+	 * @param random the random number generator.
+	 * @param streams the amount of logical streams.
+	 * @param size the approximate total size of the packet data in bytes.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeOgg(File file, Random random, int streams, long size) throws IOException
+	{
+		OggStream[] stream = new OggStream[streams];
+		for (int i = 0; i < streams; i++)
+			stream[i] = new OggStream(random.nextInt());
+
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file)))
+		{
+			// all beginning-of-stream pages come first.
+			for (OggStream s : stream)
+				s.writePage(out, random, false);
+
+			long written = 0;
+			int open = streams;
+			while (open > 0)
+			{
+				OggStream s = stream[random.nextInt(streams)];
+				if (s.ended)
+					continue;
+				boolean last = written >= size;
+				written += s.writePage(out, random, last);
+				if (last)
+					open--;
+			}
+		}
+	}
+
+	/**
+	 * Single logical Ogg stream state.
+	 */
+	private static class OggStream
+	{
+		private final int serial;
+		private final byte[] lacing;
+		private final byte[] body;
+		private int sequence;
+		private long granule;
+		private boolean ended;
+		// current packet state.
+		private boolean packetOpen;
+		private int packetRemaining;
+
+		OggStream(int serial)
+		{
+			this.serial = serial;
+			this.lacing = new byte[255];
+			this.body = new byte[255 * 255];
+			this.sequence = 0;
+			this.granule = 0;
+			this.ended = false;
+			this.packetOpen = false;
+			this.packetRemaining = 0;
+		}
+
+		int writePage(OutputStream out, Random random, boolean last) throws IOException
+		{
+			boolean continued = packetOpen;
+			boolean packetEnded = false;
+			int target = sequence == 0 ? 1 : 1 + random.nextInt(255);
+			// leave room for a terminating lacing value on the last page.
+			if (last)
+				target = Math.min(target, 254);
+			int segments = 0;
+			int bodyLength = 0;
+			while (segments < target)
+			{
+				if (!packetOpen)
+				{
+					if (last && segments > 0)
+						break;
+					packetOpen = true;
+					packetRemaining = packetSize(random);
+				}
+				int len = Math.min(255, packetRemaining);
+				lacing[segments++] = (byte)len;
+				for (int i = 0; i < len; i++)
+					body[bodyLength++] = (byte)random.nextInt(256);
+				packetRemaining -= len;
+				if (len < 255)
+				{
+					packetOpen = false;
+					packetEnded = true;
+					granule += 1024;
+				}
+			}
+			if (last && packetOpen)
+			{
+				// cut the packet short, so the stream ends on a complete packet.
+				lacing[segments++] = 0;
+				packetOpen = false;
+				packetEnded = true;
+				granule += 1024;
+			}
+
+			int flags = (continued ? 0x01 : 0) | (sequence == 0 ? 0x02 : 0) | (last ? 0x04 : 0);
+			BenchmarkFixtures.writeOggPage(out, flags, packetEnded ? granule : -1L, serial, sequence++, lacing, segments, body, bodyLength);
+			ended = last;
+			return bodyLength;
+		}
+
+		private static int packetSize(Random random)
+		{
+			switch (random.nextInt(5))
+			{
+				case 0:
+					return random.nextInt(8);
+				case 1:
+					return 255 * (1 + random.nextInt(4));
+				case 2:
+					return 256 + random.nextInt(255 * 255 * 2);
+				default:
+					return random.nextInt(1024);
+			}
+		}
+	}
+
+	/**
+	 * Writes a WAV file of a noisy sine sweep.
+	 * @param file the target file.
+	 * @param random the random number generator.
+	 * @param info the sample format (channels, sample rate, bits per sample, sample type).
+	 * @param size the approximate size of the sample data in bytes.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeWAV(File file, Random random, SoundFileInfo info, long size) throws IOException
+	{
+		final int blockFrames = 4096;
+		try (WAVWriter writer = new WAVWriter(file, info))
+		{
+			int channels = info.getChannels();
+			long frameBytes = channels * writer.getSoundInfo().getBytesPerSample();
+			long frames = size / frameBytes;
+			double rate = info.getSampleRate();
+			double[][] samples = new double[channels][blockFrames];
+			double[] phase = new double[channels];
+			double noise = 0.01 + random.nextDouble() * 0.1;
+			for (long f = 0; f < frames; f += blockFrames)
+			{
+				int count = (int)Math.min(blockFrames, frames - f);
+				for (int c = 0; c < channels; c++)
+					for (int i = 0; i < count; i++)
+					{
+						double t = (f + i) / rate;
+						double frequency = 110.0 * (c + 1) * (1.0 + (t % 10.0) / 2.5);
+						phase[c] += 2.0 * Math.PI * frequency / rate;
+						samples[c][i] = 0.8 * Math.sin(phase[c]) + noise * (random.nextDouble() * 2.0 - 1.0);
+					}
+				writer.writeSamples(count, samples);
+			}
+		}
+	}
+
+	/**
+	 * Writes a zip file with many entries of varied size and content.
+	 * Entries are deflated at varied levels or stored, and include empty files and directories.
+	 * @param file the target file.
+	 * @param random the random number generator.
+	 * @param entries the amount of file entries.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void writeZip(File file, Random random, int entries) throws IOException
+	{
+		try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+		{
+			int directories = 1 + entries / 100;
+			for (int d = 0; d < directories; d++)
+			{
+				out.putNextEntry(zipEntry(directoryName(d)));
+				out.closeEntry();
+			}
+
+			for (int n = 0; n < entries; n++)
+			{
+				// mostly small entries, with the occasional large one.
+				int size;
+				int kind = random.nextInt(100);
+				if (kind < 5)
+					size = 0;
+				else if (kind < 95)
+					size = random.nextInt(16384);
+				else
+					size = random.nextInt(4 << 20);
+
+				boolean textual = random.nextBoolean();
+				byte[] data;
+				if (textual)
+					data = text(random, size).getBytes("UTF-8");
+				else
+				{
+					data = new byte[size];
+					random.nextBytes(data);
+				}
+
+				ZipEntry entry = zipEntry(directoryName(random.nextInt(directories)) + String.format("entry%06d.%s", n, textual ? "txt" : "bin"));
+				if (!textual || random.nextInt(4) == 0)
+				{
+					CRC32 crc = new CRC32();
+					crc.update(data);
+					entry.setMethod(ZipEntry.STORED);
+					entry.setSize(data.length);
+					entry.setCompressedSize(data.length);
+					entry.setCrc(crc.getValue());
+				}
+				else
+				{
+					entry.setMethod(ZipEntry.DEFLATED);
+					out.setLevel(1 + random.nextInt(9));
+				}
+				out.putNextEntry(entry);
+				out.write(data);
+				out.closeEntry();
+			}
+		}
+	}
+
+	// Creates a zip entry with a fixed modified time, so that zips are the same from run to run.
+	private static ZipEntry zipEntry(String name)
+	{
+		ZipEntry out = new ZipEntry(name);
+		out.setTime(ZIP_ENTRY_TIME);
+		return out;
+	}
+
+	private static String directoryName(int d)
+	{
+		return String.format("dir%03d/sub%02d/", d / 16, d % 16);
+	}
+
+	// Generates word-salad text of a length.
+	private static String text(Random random, int length)
+	{
+		StringBuilder sb = new StringBuilder(length + 16);
+		while (sb.length() < length)
+		{
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+			sb.append(random.nextInt(12) == 0 ? '\n' : ' ');
+		}
+		sb.setLength(length);
+		return sb.toString();
+	}
+
+	private static byte[] deflate(byte[] data, int level) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(level);
+		try (DeflaterOutputStream out = new DeflaterOutputStream(bos, deflater))
+		{
+			out.write(data);
+		} finally {
+			deflater.end();
+		}
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Generates the corpus.
+	 * @param args [directory] [seed] [small|full]
+	 * @throws IOException if a file could not be written.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		File directory = new File(args.length > 0 ? args[0] : "corpus");
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+		Profile profile = args.length > 2 ? Profile.valueOf(args[2].toUpperCase()) : Profile.SMALL;
+		System.out.println("Generating " + profile.name().toLowerCase() + " corpus in " + directory.getPath() + " (seed " + seed + ")");
+		new CorpusGenerator(directory, seed, profile, System.out).generate();
+	}
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.bench.CodecBenchmark.Entry;
+import com.blackrook.io.bench.CodecBenchmark.Kind;
+import com.blackrook.io.log.LogSyncMode;
+import com.blackrook.io.log.LogWriter;
+
+/**
+ * Benchmarks for {@link LogWriter}: appending {@link CodecBenchmark.Entry}s from several threads at once,
+ * each waiting for its append to complete, compared to each thread encoding, writing and syncing on its own.
+ * Scores are per append.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LogWriterBenchmark
+{
+	/** Sync mode ({@link LogSyncMode} name). */
+	@Param({"BATCH", "NONE"})
+	public String syncMode;
+
+	private File logFile;
+	private LogWriter<Entry> log;
+	private File syncFile;
+	private FileChannel syncChannel;
+	private Entry entry;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		logFile = BenchmarkFixtures.tempFile(".brlg");
+		log = new LogWriter<Entry>(logFile, CodecBenchmark_EntryCodec.INSTANCE, SuperWriter.LITTLE_ENDIAN, 
+			LogSyncMode.valueOf(syncMode), LogWriter.DEFAULT_SYNC_DELAY_MILLIS);
+		syncFile = BenchmarkFixtures.tempFile(".bin");
+		syncChannel = FileChannel.open(syncFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		entry = new Entry();
+		entry.id = 1234;
+		entry.timestamp = 1500000000000L;
+		entry.flags = 5;
+		entry.kind = Kind.values()[0];
+		entry.name = "entry-12345678";
+		entry.values = new int[]{1, 2, 3, 4};
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		log.close();
+		syncChannel.close();
+		logFile.delete();
+		syncFile.delete();
+	}
+
+	@Benchmark
+	public long groupCommit() throws IOException
+	{
+		return log.append(entry).join();
+	}
+
+	@Benchmark
+	public long syncEach() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		CodecBenchmark_EntryCodec.INSTANCE.write(new SuperWriter(out, SuperWriter.LITTLE_ENDIAN), entry);
+		ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+		synchronized (syncChannel)
+		{
+			while (buffer.hasRemaining())
+				syncChannel.write(buffer);
+			if (!"NONE".equals(syncMode))
+				syncChannel.force(false);
+			return syncChannel.position();
+		}
+	}
+
+}
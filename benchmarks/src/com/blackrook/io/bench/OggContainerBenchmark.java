@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.container.OggContainerReader;
+import com.blackrook.io.container.OggPageReader;
+
+/**
+ * Benchmarks for Ogg page and packet iteration with {@link OggContainerReader}, 
+ * and page header scans with {@link OggPageReader}.
+ * Scores are per whole file.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OggContainerBenchmark
+{
+	/** Approximate size of the fixture payload, in bytes. */
+	@Param({"65536", "1048576", "16777216"})
+	public long size;
+
+	/** Page cache state: "warm", or "cold" (Linux, root only). */
+	@Param({BenchmarkFixtures.CACHE_WARM})
+	public String cache;
+
+	/** Maximum packet size. */
+	@Param({"4096"})
+	public int maxPacketSize;
+
+	private File file;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".ogg");
+		BenchmarkFixtures.writeOgg(file, size, maxPacketSize);
+	}
+
+	@Setup(Level.Invocation)
+	public void cache() throws IOException
+	{
+		BenchmarkFixtures.prepareCache(cache);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Benchmark
+	public void readPages(Blackhole bh) throws IOException
+	{
+		OggContainerReader reader = new OggContainerReader(file);
+		try {
+			OggContainerReader.OggPage page;
+			while ((page = reader.nextChunk()) != null)
+				bh.consume(page);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public void scanPages(Blackhole bh) throws IOException
+	{
+		OggPageReader reader = new OggPageReader(file);
+		try {
+			OggPageReader.Page page;
+			while ((page = reader.getNextChunk()) != null)
+				bh.consume(page.getGranule());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public void readPackets(Blackhole bh) throws IOException
+	{
+		OggContainerReader reader = new OggContainerReader(file);
+		try {
+			OggContainerReader.OggPage page;
+			while ((page = reader.nextChunk()) != null)
+			{
+				while (page.hasBitsLeft())
+				{
+					while (page.hasBitsLeft())
+						bh.consume(page.readByte());
+					page.nextPacket();
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+}
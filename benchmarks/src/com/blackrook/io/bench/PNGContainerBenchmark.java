@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.container.PNGChunkIndex;
+import com.blackrook.io.container.PNGChunkReader;
+import com.blackrook.io.container.PNGContainerReader;
+import com.blackrook.io.container.PNGContainerWriter;
+import com.blackrook.io.container.PNGValidationMode;
+
+/**
+ * Benchmarks for PNG chunk iteration with {@link PNGContainerReader} (with and without CRC checks, 
+ * and batch CRC checks of chunks in memory), chunk header scans
+ * with {@link PNGChunkReader}, indexed chunk lookup with {@link PNGChunkIndex}, and chunk writing 
+ * with {@link PNGContainerWriter}, whole or through its IDAT-splitting image data stream.
+ * Scores are per whole file.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PNGContainerBenchmark
+{
+	/** Approximate size of the fixture payload, in bytes. */
+	@Param({"65536", "1048576", "16777216"})
+	public long size;
+
+	/** Page cache state: "warm", or "cold" (Linux, root only). */
+	@Param({BenchmarkFixtures.CACHE_WARM})
+	public String cache;
+
+	/** Size of each IDAT chunk. */
+	@Param({"65536"})
+	public int chunkSize;
+
+	private File file;
+	private PNGContainerReader.Chunk[] chunks;
+	private byte[] block;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".png");
+		BenchmarkFixtures.writePNG(file, size, chunkSize);
+		
+		PNGContainerReader reader = new PNGContainerReader(file);
+		try {
+			List<PNGContainerReader.Chunk> list = new ArrayList<PNGContainerReader.Chunk>();
+			PNGContainerReader.Chunk chunk;
+			while ((chunk = reader.nextChunk()) != null)
+				list.add(chunk);
+			chunks = list.toArray(new PNGContainerReader.Chunk[list.size()]);
+		} finally {
+			reader.close();
+		}
+
+		block = new byte[8192];
+		BenchmarkData.random().nextBytes(block);
+	}
+
+	@Setup(Level.Invocation)
+	public void cache() throws IOException
+	{
+		BenchmarkFixtures.prepareCache(cache);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Benchmark
+	public void readChunks(Blackhole bh) throws IOException
+	{
+		PNGContainerReader reader = new PNGContainerReader(file);
+		try {
+			PNGContainerReader.Chunk chunk;
+			while ((chunk = reader.nextChunk()) != null)
+				bh.consume(chunk);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public void readChunksValidated(Blackhole bh) throws IOException
+	{
+		PNGContainerReader reader = new PNGContainerReader(file, PNGValidationMode.ALL);
+		try {
+			PNGContainerReader.Chunk chunk;
+			while ((chunk = reader.nextChunk()) != null)
+				bh.consume(chunk);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public void findCorrupt(Blackhole bh)
+	{
+		bh.consume(PNGContainerReader.findCorrupt(Arrays.asList(chunks), PNGValidationMode.ALL));
+	}
+
+	@Benchmark
+	public void scanChunks(Blackhole bh) throws IOException
+	{
+		PNGChunkReader reader = new PNGChunkReader(file);
+		try {
+			PNGChunkReader.Chunk chunk;
+			while ((chunk = reader.getNextChunk()) != null)
+				bh.consume(chunk.getName());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Benchmark
+	public void indexText(Blackhole bh) throws IOException
+	{
+		bh.consume(new PNGChunkIndex(file).getPayload("tEXt"));
+	}
+
+	@Benchmark
+	public void writeChunks(Blackhole bh) throws IOException
+	{
+		PNGContainerWriter writer = new PNGContainerWriter(new BlackholeOutputStream(bh));
+		for (PNGContainerReader.Chunk chunk : chunks)
+			writer.writeChunk(chunk.getName(), chunk.getData());
+		writer.close();
+	}
+
+	@Benchmark
+	public void writeImageData(Blackhole bh) throws IOException
+	{
+		PNGContainerWriter writer = new PNGContainerWriter(new BlackholeOutputStream(bh));
+		writer.writeChunk(chunks[0].getName(), chunks[0].getData());
+		try (OutputStream out = writer.openImageDataStream(chunkSize))
+		{
+			for (long written = 0; written < size; written += block.length)
+				out.write(block);
+		}
+		writer.writeChunk("IEND", new byte[0]);
+		writer.close();
+	}
+
+	/**
+	 * An output stream that writes to a Blackhole.
+	 */
+	static class BlackholeOutputStream extends OutputStream
+	{
+		private Blackhole bh;
+
+		BlackholeOutputStream(Blackhole bh)
+		{
+			this.bh = bh;
+		}
+
+		@Override
+		public void write(int b)
+		{
+			bh.consume(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			bh.consume(b);
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.container.PNGContainerReader;
+import com.blackrook.io.files.png.PNGMetadata;
+import com.blackrook.io.files.png.PNGMetadataProbe;
+import com.blackrook.io.files.png.PNGProbeListener;
+
+/**
+ * Benchmarks for reading the metadata of a directory tree of PNG files with {@link PNGMetadataProbe},
+ * walking the tree or probing a list of files one at a time, against reading each file's chunks 
+ * with {@link PNGContainerReader} up to the first IDAT chunk.
+ * Scores are per whole tree.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PNGMetadataProbeBenchmark
+{
+	/** Amount of files in the tree. */
+	@Param({"256"})
+	public int files;
+
+	/** Page cache state: "warm", or "cold" (Linux, root only). */
+	@Param({BenchmarkFixtures.CACHE_WARM})
+	public String cache;
+
+	/** Amount of probe threads. */
+	@Param({"1", "8"})
+	public int parallelism;
+
+	private File directory;
+	private File[] pngs;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		directory = BenchmarkFixtures.tempDirectory();
+		pngs = new File[files];
+		for (int i = 0; i < files; i++)
+		{
+			File subdirectory = new File(directory, "d" + (i % 16));
+			if (!subdirectory.isDirectory() && !subdirectory.mkdirs())
+				throw new IOException("Could not create directory: " + subdirectory.getPath());
+			pngs[i] = new File(subdirectory, "image" + i + ".png");
+			BenchmarkFixtures.writePNG(pngs[i], 262144, 65536);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void cache() throws IOException
+	{
+		BenchmarkFixtures.prepareCache(cache);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		for (File file : pngs)
+			file.delete();
+		for (int i = 0; i < 16; i++)
+			new File(directory, "d" + i).delete();
+		directory.delete();
+	}
+
+	@Benchmark
+	public int probeTree(final Blackhole bh) throws IOException
+	{
+		return PNGMetadataProbe.probeTree(directory, parallelism, new PNGProbeListener()
+		{
+			@Override
+			public void onMetadata(PNGMetadata metadata)
+			{
+				bh.consume(metadata);
+			}
+
+			@Override
+			public void onError(File file, IOException exception)
+			{
+				bh.consume(exception);
+			}
+		});
+	}
+
+	@Benchmark
+	public void probeFiles(Blackhole bh) throws IOException
+	{
+		for (File file : pngs)
+			bh.consume(PNGMetadataProbe.probe(file));
+	}
+
+	@Benchmark
+	public void readContainers(Blackhole bh) throws IOException
+	{
+		for (File file : pngs)
+		{
+			PNGContainerReader reader = new PNGContainerReader(file);
+			try {
+				PNGContainerReader.Chunk chunk;
+				while ((chunk = reader.nextChunk()) != null && !chunk.getName().equals("IDAT"))
+					bh.consume(chunk);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+}
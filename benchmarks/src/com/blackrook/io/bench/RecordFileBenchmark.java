@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.bench.CodecBenchmark.Entry;
+import com.blackrook.io.bench.CodecBenchmark.Kind;
+import com.blackrook.io.record.RecordCursor;
+import com.blackrook.io.record.RecordFileReader;
+import com.blackrook.io.record.RecordFileWriter;
+
+/**
+ * Benchmarks for {@link RecordFileReader}: sequential cursor decoding, sequential and parallel
+ * stream decoding, and random access by record number. Records are {@link CodecBenchmark.Entry}s 
+ * with the generated codec. Scores are per whole file, except for random reads.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordFileBenchmark
+{
+	/** Amount of records in the file. */
+	@Param({"100000", "1000000"})
+	public int records;
+
+	private File file;
+	private RecordFileReader<Entry> reader;
+	private Random random;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".brrf");
+		Random r = BenchmarkData.random();
+		Kind[] kinds = Kind.values();
+		try (RecordFileWriter<Entry> writer = new RecordFileWriter<Entry>(file, CodecBenchmark_EntryCodec.INSTANCE))
+		{
+			Entry e = new Entry();
+			for (int i = 0; i < records; i++)
+			{
+				e.id = i;
+				e.timestamp = 1500000000000L + r.nextInt(Integer.MAX_VALUE);
+				e.flags = r.nextInt(16);
+				e.kind = kinds[r.nextInt(kinds.length)];
+				e.name = "entry-" + Integer.toHexString(r.nextInt());
+				e.values = new int[r.nextInt(8)];
+				writer.write(e);
+			}
+		}
+		reader = new RecordFileReader<Entry>(file, CodecBenchmark_EntryCodec.INSTANCE);
+		random = BenchmarkData.random();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		reader.close();
+		file.delete();
+	}
+
+	@Benchmark
+	public long cursor() throws IOException
+	{
+		long out = 0;
+		try (RecordCursor<Entry> cursor = reader.cursor())
+		{
+			while (cursor.hasNext())
+				out += cursor.next().timestamp;
+		}
+		return out;
+	}
+
+	@Benchmark
+	public long streamSequential()
+	{
+		return reader.stream(false).mapToLong((e) -> e.timestamp).sum();
+	}
+
+	@Benchmark
+	public long streamParallel()
+	{
+		return reader.stream(true).mapToLong((e) -> e.timestamp).sum();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public void randomRead(Blackhole bh) throws IOException
+	{
+		bh.consume(reader.read(random.nextInt(records)));
+	}
+
+}
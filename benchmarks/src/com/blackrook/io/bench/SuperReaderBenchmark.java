@@ -0,0 +1,389 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import static com.blackrook.io.bench.BenchmarkData.COUNT;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * Benchmarks for each {@link SuperReader} primitive, array, variable-length, bit and string path.
+ * Scores are per value (or per array element) decoded.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SuperReaderBenchmark
+{
+	@Param({"LITTLE", "BIG"})
+	public String endian;
+
+	private boolean endianMode;
+
+	private byte[] bytes;
+	private byte[] booleans;
+	private byte[] shorts;
+	private byte[] int24s;
+	private byte[] ints;
+	private byte[] longs;
+	private byte[] floats;
+	private byte[] doubles;
+	private byte[] variableInts;
+	private byte[] variableLongs;
+	private byte[] bits;
+	private byte[] strings;
+	private byte[] utf8Strings;
+	private byte[] asciiStrings;
+	private byte[] byteArray;
+	private byte[] booleanArray;
+	private byte[] bitSet;
+	private byte[] sparseBitSet;
+	private byte[] shortArray;
+	private byte[] charArray;
+	private byte[] intArray;
+	private byte[] compactIntArray;
+	private byte[] longArray;
+	private byte[] floatArray;
+	private byte[] doubleArray;
+	private byte[] compactDoubleArray;
+	private byte[] stringArray;
+	private byte[] labelArray;
+	private byte[] dictionaryStringArray;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		endianMode = BenchmarkData.endianMode(endian);
+
+		final byte[] b = BenchmarkData.bytes();
+		final boolean[] z = BenchmarkData.booleans();
+		final short[] s = BenchmarkData.shorts();
+		final char[] c = BenchmarkData.chars();
+		final int[] i = BenchmarkData.ints();
+		final int[] si = BenchmarkData.sortedInts();
+		final long[] l = BenchmarkData.longs();
+		final float[] f = BenchmarkData.floats();
+		final double[] d = BenchmarkData.doubles();
+		final double[] sd = BenchmarkData.series();
+		final int[] vi = BenchmarkData.smallInts(28);
+		final long[] vl = BenchmarkData.smallLongs(63);
+		final String[] str = BenchmarkData.strings(16, false);
+		final String[] ascii = BenchmarkData.strings(16, true);
+		final String[] labels = BenchmarkData.labels(64);
+		final BitSet bs = BenchmarkData.bitSet(2);
+		final BitSet sbs = BenchmarkData.bitSet(64);
+
+		bytes = b;
+		booleans = BenchmarkData.encode(endianMode, (sw) -> {for (boolean v : z) sw.writeBoolean(v);});
+		shorts = BenchmarkData.encode(endianMode, (sw) -> {for (short v : s) sw.writeShort(v);});
+		int24s = BenchmarkData.encode(endianMode, (sw) -> {for (int v : i) sw.writeBytes(new byte[]{(byte)v, (byte)(v >> 8), (byte)(v >> 16)});});
+		ints = BenchmarkData.encode(endianMode, (sw) -> {for (int v : i) sw.writeInt(v);});
+		longs = BenchmarkData.encode(endianMode, (sw) -> {for (long v : l) sw.writeLong(v);});
+		floats = BenchmarkData.encode(endianMode, (sw) -> {for (float v : f) sw.writeFloat(v);});
+		doubles = BenchmarkData.encode(endianMode, (sw) -> {for (double v : d) sw.writeDouble(v);});
+		variableInts = BenchmarkData.encode(endianMode, (sw) -> {for (int v : vi) sw.writeVariableLengthInt(v);});
+		variableLongs = BenchmarkData.encode(endianMode, (sw) -> {for (long v : vl) sw.writeVariableLengthLong(v);});
+		bits = b;
+		strings = BenchmarkData.encode(endianMode, (sw) -> {for (String v : str) sw.writeString(v);});
+		utf8Strings = BenchmarkData.encode(endianMode, (sw) -> {for (String v : str) sw.writeString(v, "UTF-8");});
+		asciiStrings = BenchmarkData.encode(endianMode, (sw) -> {for (String v : ascii) sw.writeASCIIString(v);});
+		byteArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeByteArray(b));
+		booleanArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeBooleanArray(z));
+		bitSet = BenchmarkData.encode(endianMode, (sw) -> sw.writeBitSet(bs));
+		sparseBitSet = BenchmarkData.encode(endianMode, (sw) -> sw.writeBitSet(sbs));
+		shortArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeShortArray(s));
+		charArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeCharArray(c));
+		intArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeIntArray(i));
+		compactIntArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeCompactIntArray(si));
+		longArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeLongArray(l));
+		floatArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeFloatArray(f));
+		doubleArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeDoubleArray(d));
+		compactDoubleArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeCompactDoubleArray(sd));
+		stringArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeStringArray(str));
+		labelArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeStringArray(labels));
+		dictionaryStringArray = BenchmarkData.encode(endianMode, (sw) -> sw.writeDictionaryStringArray(labels));
+	}
+
+	private SuperReader reader(byte[] data)
+	{
+		return new SuperReader(new ByteArrayInputStream(data), endianMode);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readByte(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(bytes);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readByte());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readBoolean(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(booleans);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readBoolean());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readShort(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(shorts);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readShort());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readChar(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(shorts);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readChar());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void read24BitInt(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(int24s);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.read24BitInt());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readInt(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(ints);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readInt());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readLong(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(longs);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readLong());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readFloat(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(floats);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readFloat());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readDouble(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(doubles);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readDouble());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readVariableLengthInt(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(variableInts);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readVariableLengthInt());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readVariableLengthLong(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(variableLongs);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readVariableLengthLong());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readBit(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(bits);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readBit());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readIntBits(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(bits);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readIntBits(5));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readString(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(strings);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readString());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readStringUTF8(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(utf8Strings);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readString("UTF-8"));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readASCIIString(Blackhole bh) throws IOException
+	{
+		SuperReader sr = reader(asciiStrings);
+		for (int i = 0; i < COUNT; i++)
+			bh.consume(sr.readASCIIString(16));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public byte[] readByteArray() throws IOException
+	{
+		return reader(byteArray).readByteArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public boolean[] readBooleanArray() throws IOException
+	{
+		return reader(booleanArray).readBooleanArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public BitSet readBitSet() throws IOException
+	{
+		return reader(bitSet).readBitSet();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public BitSet readSparseBitSet() throws IOException
+	{
+		return reader(sparseBitSet).readBitSet();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public short[] readShortArray() throws IOException
+	{
+		return reader(shortArray).readShortArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public char[] readCharArray() throws IOException
+	{
+		return reader(charArray).readCharArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int[] readIntArray() throws IOException
+	{
+		return reader(intArray).readIntArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int[] readCompactIntArray() throws IOException
+	{
+		return reader(compactIntArray).readCompactIntArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public long[] readLongArray() throws IOException
+	{
+		return reader(longArray).readLongArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public float[] readFloatArray() throws IOException
+	{
+		return reader(floatArray).readFloatArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public double[] readDoubleArray() throws IOException
+	{
+		return reader(doubleArray).readDoubleArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public double[] readCompactDoubleArray() throws IOException
+	{
+		return reader(compactDoubleArray).readCompactDoubleArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public String[] readStringArray() throws IOException
+	{
+		return reader(stringArray).readStringArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public String[] readLabelStringArray() throws IOException
+	{
+		return reader(labelArray).readStringArray();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public String[] readDictionaryStringArray() throws IOException
+	{
+		return reader(dictionaryStringArray).readDictionaryStringArray();
+	}
+
+}
@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import static com.blackrook.io.bench.BenchmarkData.COUNT;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.blackrook.io.SuperWriter;
+
+/**
+ * Benchmarks for each {@link SuperWriter} primitive, array, variable-length, bit and string path.
+ * Scores are per value (or per array element) encoded.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SuperWriterBenchmark
+{
+	@Param({"LITTLE", "BIG"})
+	public String endian;
+
+	private boolean endianMode;
+	private ByteArrayOutputStream out;
+
+	private byte[] bytes;
+	private boolean[] booleans;
+	private BitSet bitSet;
+	private BitSet sparseBitSet;
+	private short[] shorts;
+	private char[] chars;
+	private int[] ints;
+	private int[] sortedInts;
+	private long[] longs;
+	private float[] floats;
+	private double[] doubles;
+	private double[] series;
+	private int[] variableInts;
+	private long[] variableLongs;
+	private String[] strings;
+	private String[] asciiStrings;
+	private String[] labels;
+
+	@Setup
+	public void setup()
+	{
+		endianMode = BenchmarkData.endianMode(endian);
+		out = new ByteArrayOutputStream(COUNT * 64);
+		bytes = BenchmarkData.bytes();
+		booleans = BenchmarkData.booleans();
+		bitSet = BenchmarkData.bitSet(2);
+		sparseBitSet = BenchmarkData.bitSet(64);
+		shorts = BenchmarkData.shorts();
+		chars = BenchmarkData.chars();
+		ints = BenchmarkData.ints();
+		sortedInts = BenchmarkData.sortedInts();
+		longs = BenchmarkData.longs();
+		floats = BenchmarkData.floats();
+		doubles = BenchmarkData.doubles();
+		series = BenchmarkData.series();
+		variableInts = BenchmarkData.smallInts(28);
+		variableLongs = BenchmarkData.smallLongs(63);
+		strings = BenchmarkData.strings(16, false);
+		labels = BenchmarkData.labels(64);
+		asciiStrings = BenchmarkData.strings(16, true);
+	}
+
+	private SuperWriter writer()
+	{
+		out.reset();
+		return new SuperWriter(out, endianMode);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeByte() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeByte(bytes[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeBoolean() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeBoolean(booleans[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeShort() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeShort(shorts[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeChar() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeChar(chars[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeInt() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeInt(ints[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeLong() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeLong(longs[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeFloat() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeFloat(floats[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeDouble() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeDouble(doubles[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeVariableLengthInt() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeVariableLengthInt(variableInts[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeVariableLengthLong() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeVariableLengthLong(variableLongs[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeBit() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeBit(booleans[i]);
+		sw.flushBits();
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeIntBits() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeIntBits(5, ints[i] & 0x1f);
+		sw.flushBits();
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeString() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeString(strings[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeStringUTF8() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeString(strings[i], "UTF-8");
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeASCIIString() throws IOException
+	{
+		SuperWriter sw = writer();
+		for (int i = 0; i < COUNT; i++)
+			sw.writeASCIIString(asciiStrings[i]);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeByteArray() throws IOException
+	{
+		writer().writeByteArray(bytes);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeBooleanArray() throws IOException
+	{
+		writer().writeBooleanArray(booleans);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeBitSet() throws IOException
+	{
+		writer().writeBitSet(bitSet);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeSparseBitSet() throws IOException
+	{
+		writer().writeBitSet(sparseBitSet);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeShortArray() throws IOException
+	{
+		writer().writeShortArray(shorts);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeCharArray() throws IOException
+	{
+		writer().writeCharArray(chars);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeIntArray() throws IOException
+	{
+		writer().writeIntArray(ints);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeCompactIntArray() throws IOException
+	{
+		writer().writeCompactIntArray(sortedInts);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeLongArray() throws IOException
+	{
+		writer().writeLongArray(longs);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeFloatArray() throws IOException
+	{
+		writer().writeFloatArray(floats);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeDoubleArray() throws IOException
+	{
+		writer().writeDoubleArray(doubles);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeCompactDoubleArray() throws IOException
+	{
+		writer().writeCompactDoubleArray(series);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeStringArray() throws IOException
+	{
+		writer().writeStringArray(strings);
+		return out.size();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeDictionaryStringArray() throws IOException
+	{
+		writer().writeDictionaryStringArray(labels);
+		return out.size();
+	}
+
+}
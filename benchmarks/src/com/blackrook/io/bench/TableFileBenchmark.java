@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.bench.CodecBenchmark.Entry;
+import com.blackrook.io.bench.CodecBenchmark.Kind;
+import com.blackrook.io.table.TableCursor;
+import com.blackrook.io.table.TableFileReader;
+import com.blackrook.io.table.TableFileWriter;
+
+/**
+ * Benchmarks for {@link TableFileReader}: point lookups of present and missing keys, and short range scans.
+ * Values are {@link CodecBenchmark.Entry}s with the generated codec, and keys are the entry ids as 
+ * zero-padded Strings (even ids only, so odd ids are missing).
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TableFileBenchmark
+{
+	/** Amount of entries in the table. */
+	@Param({"100000", "1000000"})
+	public int entries;
+
+	private File file;
+	private TableFileReader<Entry> reader;
+	private Random random;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".brst");
+		Random r = BenchmarkData.random();
+		Kind[] kinds = Kind.values();
+		try (TableFileWriter<Entry> writer = new TableFileWriter<Entry>(file, CodecBenchmark_EntryCodec.INSTANCE))
+		{
+			Entry e = new Entry();
+			for (int i = 0; i < entries; i++)
+			{
+				e.id = i * 2;
+				e.timestamp = 1500000000000L + r.nextInt(Integer.MAX_VALUE);
+				e.flags = r.nextInt(16);
+				e.kind = kinds[r.nextInt(kinds.length)];
+				e.name = "entry-" + Integer.toHexString(r.nextInt());
+				e.values = new int[r.nextInt(8)];
+				writer.put(key(e.id), e);
+			}
+		}
+		reader = new TableFileReader<Entry>(file, CodecBenchmark_EntryCodec.INSTANCE);
+		random = BenchmarkData.random();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		reader.close();
+		file.delete();
+	}
+
+	// Id as a zero-padded, 10-digit key.
+	private static byte[] key(int id)
+	{
+		byte[] out = new byte[10];
+		for (int i = out.length - 1; i >= 0; i--, id /= 10)
+			out[i] = (byte)('0' + id % 10);
+		return out;
+	}
+
+	@Benchmark
+	public void get(Blackhole bh) throws IOException
+	{
+		bh.consume(reader.get(key(random.nextInt(entries) * 2)));
+	}
+
+	@Benchmark
+	public void getMissing(Blackhole bh) throws IOException
+	{
+		bh.consume(reader.get(key(random.nextInt(entries) * 2 + 1)));
+	}
+
+	@Benchmark
+	public long scan100() throws IOException
+	{
+		int start = random.nextInt(entries - 100) * 2;
+		long out = 0;
+		TableCursor<Entry> cursor = reader.cursor(key(start), key(start + 200));
+		while (cursor.next())
+			out += cursor.getValue().timestamp;
+		return out;
+	}
+
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.files.wav.WAVFile;
+
+/**
+ * Benchmarks for {@link WAVFile#readSamples(double[]...)} over a 16-bit stereo file.
+ * Scores are per whole file; the "samples" counter gives time per sample frame
+ * (its inverse is samples per second).
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WAVFileBenchmark
+{
+	/** Approximate size of the fixture payload, in bytes. */
+	@Param({"65536", "1048576", "16777216"})
+	public long size;
+
+	/** Page cache state: "warm", or "cold" (Linux, root only). */
+	@Param({BenchmarkFixtures.CACHE_WARM})
+	public String cache;
+
+	/** Amount of sample frames read per call. */
+	@Param({"4096"})
+	public int bufferSize;
+
+	private File file;
+	private double[][] buffer;
+
+	/**
+	 * Sample counter.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters
+	{
+		/** Sample frames read. */
+		public long samples;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			samples = 0;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".wav");
+		BenchmarkFixtures.writeWAV(file, size);
+		buffer = new double[2][bufferSize];
+	}
+
+	@Setup(Level.Invocation)
+	public void cache() throws IOException
+	{
+		BenchmarkFixtures.prepareCache(cache);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	@Benchmark
+	public void readSamples(Blackhole bh, Counters counters) throws IOException
+	{
+		WAVFile wav = new WAVFile(file);
+		try {
+			int n;
+			while ((n = wav.readSamples(buffer)) > 0)
+			{
+				counters.samples += n;
+				bh.consume(buffer);
+			}
+		} finally {
+			wav.close();
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.blackrook.io.ZipFileHandler;
+
+/**
+ * Benchmarks for {@link ZipFileHandler#unzipAllFiles(ZipFile)}, half stored and half deflated entries.
+ * Scores are per whole file; the "megabytes" counter gives time per uncompressed megabyte.
+ * @author Matthew Tropiano
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ZipFileHandlerBenchmark
+{
+	/** Approximate size of the fixture payload, in bytes. */
+	@Param({"65536", "1048576", "16777216"})
+	public long size;
+
+	/** Page cache state: "warm", or "cold" (Linux, root only). */
+	@Param({BenchmarkFixtures.CACHE_WARM})
+	public String cache;
+
+	/** Uncompressed size of each entry. */
+	@Param({"65536"})
+	public int entrySize;
+
+	private File file;
+	private File tempDir;
+	private ZipFile zipFile;
+	private long uncompressedBytes;
+
+	/**
+	 * Byte counter.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Counters
+	{
+		/** Uncompressed megabytes written. */
+		public double megabytes;
+
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			megabytes = 0;
+		}
+	}
+
+	@Setup
+	public void setup() throws IOException
+	{
+		file = BenchmarkFixtures.tempFile(".zip");
+		tempDir = BenchmarkFixtures.tempDirectory();
+		BenchmarkFixtures.writeZip(file, size, entrySize);
+		zipFile = new ZipFile(file);
+		uncompressedBytes = 0;
+		for (Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); )
+			uncompressedBytes += e.nextElement().getSize();
+	}
+
+	@Setup(Level.Invocation)
+	public void cache() throws IOException
+	{
+		BenchmarkFixtures.prepareCache(cache);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		zipFile.close();
+		file.delete();
+		tempDir.delete();
+	}
+
+	@Benchmark
+	public void unzipAllFiles(Blackhole bh, Counters counters) throws IOException
+	{
+		ZipFileHandler handler = new ZipFileHandler(tempDir);
+		try {
+			bh.consume(handler.unzipAllFiles(zipFile));
+			counters.megabytes += uncompressedBytes / (1024.0 * 1024.0);
+		} finally {
+			handler.close();
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/**
+ * Contains JMH benchmarks for this library.
+ * These are built and run with the <code>benchmark</code> target in the Ant build script.
+ */
+package com.blackrook.io.bench;
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A pool of byte arrays and {@link ByteBuffer}s used for temporary storage by readers, writers 
+ * and containers, so that steady-state decoding does not allocate new buffers for every 
+ * chunk, page, or packet.
+ * <p>Buffers acquired from a pool may be larger than requested, and may contain garbage
+ * from previous uses. A buffer must not be used after it is released, and must only be released once.
+ * Releasing a buffer that did not come from the pool is allowed - the pool may keep it or discard it.
+ * <p>Implementations must be thread-safe. The library uses {@link BufferPools#getDefault()}, 
+ * which can be replaced through {@link java.util.ServiceLoader} or {@link BufferPools#setDefault(BufferPool)}.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public interface BufferPool
+{
+	/** A pool that does not pool: it allocates on every acquire and discards on every release. */
+	public static final BufferPool UNPOOLED = new BufferPool()
+	{
+		@Override
+		public byte[] acquireArray(int length)
+		{
+			return new byte[length];
+		}
+
+		@Override
+		public void release(byte[] array)
+		{
+			// Do nothing.
+		}
+
+		@Override
+		public ByteBuffer acquire(int capacity)
+		{
+			return ByteBuffer.allocate(capacity);
+		}
+
+		@Override
+		public ByteBuffer acquireDirect(int capacity)
+		{
+			return ByteBuffer.allocateDirect(capacity);
+		}
+
+		@Override
+		public void release(ByteBuffer buffer)
+		{
+			// Do nothing.
+		}
+	};
+
+	/**
+	 * Acquires a byte array.
+	 * @param length the minimum length of the array.
+	 * @return an array of at least <code>length</code> bytes.
+	 * @throws IllegalArgumentException if length is less than 0.
+	 */
+	public byte[] acquireArray(int length);
+
+	/**
+	 * Returns a byte array to the pool.
+	 * @param array the array to release.
+	 */
+	public void release(byte[] array);
+
+	/**
+	 * Acquires a heap buffer, positioned at 0 with its limit set to <code>capacity</code>.
+	 * @param capacity the minimum capacity of the buffer.
+	 * @return a heap buffer.
+	 * @throws IllegalArgumentException if capacity is less than 0.
+	 */
+	public ByteBuffer acquire(int capacity);
+
+	/**
+	 * Acquires a direct buffer, positioned at 0 with its limit set to <code>capacity</code>.
+	 * @param capacity the minimum capacity of the buffer.
+	 * @return a direct buffer.
+	 * @throws IllegalArgumentException if capacity is less than 0.
+	 */
+	public ByteBuffer acquireDirect(int capacity);
+
+	/**
+	 * Returns a heap or direct buffer to the pool.
+	 * @param buffer the buffer to release.
+	 */
+	public void release(ByteBuffer buffer);
+
+}
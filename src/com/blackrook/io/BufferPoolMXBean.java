@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+/**
+ * JMX management interface for {@link SizeClassedBufferPool}.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public interface BufferPoolMXBean
+{
+	/** Returns the amount of acquires satisfied by the calling thread's cache. */
+	public long getLocalHitCount();
+
+	/** Returns the amount of acquires satisfied by the shared pool. */
+	public long getSharedHitCount();
+
+	/** Returns the amount of acquires that had to allocate a new buffer. */
+	public long getMissCount();
+
+	/** Returns the amount of buffers released to the pool and kept. */
+	public long getReleaseCount();
+
+	/** Returns the amount of buffers released to the pool and discarded (pool full, or wrong size). */
+	public long getDiscardCount();
+
+	/** Returns the fraction of acquires that did not allocate, from 0 to 1. */
+	public double getHitRatio();
+
+	/** Returns the total size of the buffers held in the shared pool, in bytes. */
+	public long getSharedBytes();
+
+	/** Resets all counters to zero. */
+	public void reset();
+
+}
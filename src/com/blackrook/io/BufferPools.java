@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Holds the default {@link BufferPool} used by the library.
+ * <p>The default is the first {@link BufferPool} implementation found by {@link ServiceLoader}
+ * (registered under <code>META-INF/services/com.blackrook.io.BufferPool</code>), or a new
+ * {@link SizeClassedBufferPool} if there are none. It can also be replaced at runtime.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public final class BufferPools
+{
+	/** The default pool. */
+	private static volatile BufferPool defaultPool = null;
+
+	private BufferPools() {}
+
+	/**
+	 * Returns the default buffer pool, loading it if it has not been set.
+	 */
+	public static BufferPool getDefault()
+	{
+		BufferPool out = defaultPool;
+		if (out == null)
+		{
+			synchronized (BufferPools.class)
+			{
+				if ((out = defaultPool) == null)
+					defaultPool = out = loadDefault();
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Sets the default buffer pool. 
+	 * Readers and writers created afterward use the new pool. Existing ones keep theirs.
+	 * @param pool the pool to use, or null to reload the default.
+	 */
+	public static void setDefault(BufferPool pool)
+	{
+		synchronized (BufferPools.class)
+		{
+			defaultPool = pool;
+		}
+	}
+
+	private static BufferPool loadDefault()
+	{
+		Iterator<BufferPool> it = ServiceLoader.load(BufferPool.class).iterator();
+		return it.hasNext() ? it.next() : new SizeClassedBufferPool();
+	}
+
+}
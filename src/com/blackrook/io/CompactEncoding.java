@@ -0,0 +1,498 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.io.IOException;
+
+/**
+ * Constants and block encoding routines shared by the compact array methods 
+ * of {@link SuperWriter} and {@link SuperReader}.
+ * <p>Compact arrays are a length (as an unsigned variable-length integer, least significant
+ * group first), followed by blocks of up to {@link #BLOCK_SIZE} values. Each block starts with
+ * a mode byte, chosen by the writer as whichever is smallest for that block.
+ * <p>Compact floating-point arrays are the same, except that blocks are up to {@link #XOR_BLOCK_SIZE} 
+ * values, and are either raw, or XOR-encoded (Gorilla-style): the first value's bits, then for each 
+ * value after it, its XOR with the previous value, as a single 0 bit for no change, or a window of 
+ * the meaningful (non-zero) bits, reusing the previous window if it fits.
+ * <p>Bitmaps are a length in 64-bit words, then a mode byte: either raw words, or a run count
+ * followed by (gap, length) pairs for each run of set bits, where the gap is the amount of clear bits 
+ * since the end of the previous run.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+final class CompactEncoding
+{
+	/** Maximum amount of values in a block. */
+	static final int BLOCK_SIZE = 128;
+
+	/** Block mode: each value as a 32-bit integer in the current endian mode. */
+	static final int MODE_RAW = 0;
+	/** Block mode: each value ZigZag-encoded as an unsigned variable-length integer. */
+	static final int MODE_ZIGZAG = 1;
+	/** Block mode: frame of reference. Minimum value (ZigZag), bit width (byte), then (value - minimum) bit-packed. */
+	static final int MODE_FOR = 2;
+	/** Block mode: first value (ZigZag), minimum delta (ZigZag), bit width (byte), then (delta - minimum delta) bit-packed. */
+	static final int MODE_DELTA = 3;
+
+	/** Block mode: values XOR-encoded against the previous value. Byte length (unsigned variable-length), then the bits. */
+	static final int MODE_XOR = 4;
+
+	/** Bitmap mode: runs of set bits. Run count, then a (gap, length) pair for each run, as unsigned variable-length integers. */
+	static final int MODE_RUNS = 5;
+
+	/** Largest possible encoded block, in bytes. */
+	static final int MAX_BLOCK_BYTES = 1 + BLOCK_SIZE * Integer.BYTES;
+
+	/** Maximum amount of values in a floating-point block. */
+	static final int XOR_BLOCK_SIZE = 1024;
+	/** Largest XOR-encoded value, in bits (control bits, leading zero count, length, 64 bits). */
+	private static final int MAX_XOR_VALUE_BITS = 2 + 5 + 6 + Long.SIZE;
+	/** Largest possible encoded floating-point block data, in bytes. */
+	static final int MAX_XOR_BLOCK_BYTES = (XOR_BLOCK_SIZE * MAX_XOR_VALUE_BITS + 7) / 8;
+
+	/** Maximum amount of 64-bit words in a bitmap (so that bit positions fit in 32 unsigned bits). */
+	static final int MAX_BITMAP_WORDS = 1 << 25;
+	/** Size of the buffer used for bulk bitmap reads and writes, in bytes. */
+	static final int BITMAP_CHUNK_BYTES = 4096;
+
+	private CompactEncoding() {}
+
+	/**
+	 * Finds the next set bit in a bitmap.
+	 * @param words the bitmap words.
+	 * @param from the bit index to start from.
+	 * @return the index of the next set bit, or -1 if there are none.
+	 */
+	static long nextSetBit(long[] words, long from)
+	{
+		int u = (int)(from >>> 6);
+		if (u >= words.length)
+			return -1L;
+		long word = words[u] & (-1L << from);
+		while (true)
+		{
+			if (word != 0L)
+				return ((long)u << 6) + Long.numberOfTrailingZeros(word);
+			if (++u == words.length)
+				return -1L;
+			word = words[u];
+		}
+	}
+
+	/**
+	 * Finds the next clear bit in a bitmap.
+	 * @param words the bitmap words.
+	 * @param from the bit index to start from.
+	 * @return the index of the next clear bit, or the length of the bitmap in bits if there are none.
+	 */
+	static long nextClearBit(long[] words, long from)
+	{
+		int u = (int)(from >>> 6);
+		if (u >= words.length)
+			return from;
+		long word = ~words[u] & (-1L << from);
+		while (true)
+		{
+			if (word != 0L)
+				return ((long)u << 6) + Long.numberOfTrailingZeros(word);
+			if (++u == words.length)
+				return (long)words.length << 6;
+			word = ~words[u];
+		}
+	}
+
+	/**
+	 * Sets a range of bits in a bitmap.
+	 * @param words the bitmap words.
+	 * @param from the first bit index (inclusive).
+	 * @param to the last bit index (exclusive).
+	 */
+	static void setRange(long[] words, long from, long to)
+	{
+		if (from >= to)
+			return;
+		int u = (int)(from >>> 6);
+		int v = (int)((to - 1) >>> 6);
+		long first = -1L << from;
+		long last = -1L >>> -to;
+		if (u == v)
+		{
+			words[u] |= first & last;
+			return;
+		}
+		words[u] |= first;
+		for (int i = u + 1; i < v; i++)
+			words[i] = -1L;
+		words[v] |= last;
+	}
+
+	/**
+	 * ZigZag-encodes a value so that small negative values become small unsigned values.
+	 * @param value the value.
+	 * @return the encoded value.
+	 */
+	static int zigzag(int value)
+	{
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Decodes a ZigZag-encoded value.
+	 * @param value the encoded value.
+	 * @return the decoded value.
+	 */
+	static int unzigzag(int value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Returns the amount of bytes that an unsigned variable-length integer takes.
+	 * @param value the value (as unsigned).
+	 * @return the size in bytes, 1 to 5.
+	 */
+	static int varIntSize(int value)
+	{
+		return 1 + (31 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+	}
+
+	/**
+	 * Writes an unsigned variable-length integer (least significant group first) into an array.
+	 * @param value the value (as unsigned).
+	 * @param b the target array.
+	 * @param offset the offset into the array.
+	 * @return the offset after the written bytes.
+	 */
+	static int putVarInt(int value, byte[] b, int offset)
+	{
+		while ((value & ~0x7f) != 0)
+		{
+			b[offset++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		b[offset++] = (byte)value;
+		return offset;
+	}
+
+	/**
+	 * Returns the amount of bits needed to store an unsigned range of values.
+	 * @param range the difference between the largest and smallest value, 0 to 2^32 - 1.
+	 * @return the width in bits, 0 to 32.
+	 */
+	static int bitWidth(long range)
+	{
+		return Long.SIZE - Long.numberOfLeadingZeros(range);
+	}
+
+	/**
+	 * Returns the amount of bytes that bit-packed values take.
+	 * @param count the amount of values.
+	 * @param bits the width of each value in bits.
+	 * @return the size in bytes.
+	 */
+	static int packedSize(int count, int bits)
+	{
+		return (count * bits + 7) >>> 3;
+	}
+
+	/**
+	 * Bit-packs values (least significant bit first) into an array.
+	 * Each value is stored as <code>value - base</code>, or if <code>delta</code> is true,
+	 * <code>value - previousValue - base</code>.
+	 * @param values the source values.
+	 * @param start the index of the first value.
+	 * @param count the amount of values.
+	 * @param delta if true, pack the difference between each value and the one before it.
+	 * @param base the value to subtract.
+	 * @param bits the width of each value in bits.
+	 * @param b the target array.
+	 * @param offset the offset into the array.
+	 * @return the offset after the written bytes.
+	 */
+	static int pack(int[] values, int start, int count, boolean delta, int base, int bits, byte[] b, int offset)
+	{
+		if (bits == 0)
+			return offset;
+		long mask = (1L << bits) - 1;
+		long acc = 0L;
+		int accBits = 0;
+		for (int i = start; i < start + count; i++)
+		{
+			int v = (delta ? values[i] - values[i - 1] : values[i]) - base;
+			acc |= (v & mask) << accBits;
+			accBits += bits;
+			while (accBits >= 8)
+			{
+				b[offset++] = (byte)acc;
+				acc >>>= 8;
+				accBits -= 8;
+			}
+		}
+		if (accBits > 0)
+			b[offset++] = (byte)acc;
+		return offset;
+	}
+
+	/**
+	 * Unpacks bit-packed values written by {@link #pack(int[], int, int, boolean, int, int, byte[], int)},
+	 * adding a base value to each.
+	 * @param b the source array.
+	 * @param offset the offset into the source array.
+	 * @param bits the width of each value in bits.
+	 * @param base the value to add.
+	 * @param values the target array.
+	 * @param start the index of the first value.
+	 * @param count the amount of values.
+	 */
+	static void unpack(byte[] b, int offset, int bits, int base, int[] values, int start, int count)
+	{
+		int end = start + count;
+		if (bits == 0)
+		{
+			for (int i = start; i < end; i++)
+				values[i] = base;
+			return;
+		}
+		long mask = (1L << bits) - 1;
+		long acc = 0L;
+		int accBits = 0;
+		for (int i = start; i < end; i++)
+		{
+			while (accBits < bits)
+			{
+				acc |= (b[offset++] & 0xffL) << accBits;
+				accBits += 8;
+			}
+			values[i] = (int)(acc & mask) + base;
+			acc >>>= bits;
+			accBits -= bits;
+		}
+	}
+
+	/**
+	 * Writes bits into an array, most significant bit first.
+	 */
+	static class BitWriter
+	{
+		private byte[] buffer;
+		private int position;
+		private long acc;
+		private int accBits;
+
+		/**
+		 * Starts writing into an array.
+		 * @param buffer the target array.
+		 */
+		void reset(byte[] buffer)
+		{
+			this.buffer = buffer;
+			this.position = 0;
+			this.acc = 0L;
+			this.accBits = 0;
+		}
+
+		/**
+		 * Writes the lowest bits of a value.
+		 * @param value the value.
+		 * @param bits the amount of bits, 1 to 64.
+		 */
+		void put(long value, int bits)
+		{
+			if (bits > Integer.SIZE)
+			{
+				put(value >>> Integer.SIZE, bits - Integer.SIZE);
+				bits = Integer.SIZE;
+			}
+			acc = (acc << bits) | (value & (-1L >>> (Long.SIZE - bits)));
+			accBits += bits;
+			while (accBits >= 8)
+			{
+				accBits -= 8;
+				buffer[position++] = (byte)(acc >>> accBits);
+			}
+		}
+
+		/**
+		 * Writes any partial byte.
+		 * @return the amount of bytes written.
+		 */
+		int finish()
+		{
+			if (accBits > 0)
+			{
+				buffer[position++] = (byte)(acc << (8 - accBits));
+				accBits = 0;
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * Reads bits from an array, most significant bit first.
+	 */
+	static class BitReader
+	{
+		private byte[] buffer;
+		private int position;
+		private int limit;
+		private long acc;
+		private int accBits;
+
+		/**
+		 * Starts reading from an array.
+		 * @param buffer the source array.
+		 * @param limit the amount of readable bytes.
+		 */
+		void reset(byte[] buffer, int limit)
+		{
+			this.buffer = buffer;
+			this.position = 0;
+			this.limit = limit;
+			this.acc = 0L;
+			this.accBits = 0;
+		}
+
+		/**
+		 * Reads bits as the lowest bits of a value.
+		 * @param bits the amount of bits, 1 to 64.
+		 * @return the value.
+		 * @throws IOException if there are not enough bits left.
+		 */
+		long get(int bits) throws IOException
+		{
+			if (bits > Integer.SIZE)
+			{
+				long high = get(bits - Integer.SIZE);
+				return (high << Integer.SIZE) | get(Integer.SIZE);
+			}
+			while (accBits < bits)
+			{
+				if (position >= limit)
+					throw new IOException("Truncated compact array block.");
+				acc = (acc << 8) | (buffer[position++] & 0xff);
+				accBits += 8;
+			}
+			accBits -= bits;
+			return (acc >>> accBits) & (-1L >>> (Long.SIZE - bits));
+		}
+	}
+
+	/**
+	 * XOR (Gorilla-style) encoding state for a run of floating-point values, as raw bits.
+	 */
+	static class XORState
+	{
+		/** Width of the values in bits (32 or 64). */
+		private final int width;
+		/** Width of the length field in bits. */
+		private final int lengthBits;
+		private boolean first;
+		private long previous;
+		private int leading;
+		private int trailing;
+
+		/**
+		 * Creates new state.
+		 * @param width the width of the values in bits (32 or 64).
+		 */
+		XORState(int width)
+		{
+			this.width = width;
+			this.lengthBits = width == Long.SIZE ? 6 : 5;
+		}
+
+		/**
+		 * Starts a new block.
+		 */
+		void reset()
+		{
+			first = true;
+			previous = 0L;
+			leading = -1;
+			trailing = 0;
+		}
+
+		/**
+		 * Encodes the next value.
+		 * @param out the bit writer.
+		 * @param value the value bits, in the lowest bits.
+		 */
+		void encode(BitWriter out, long value)
+		{
+			if (first)
+			{
+				out.put(value, width);
+				previous = value;
+				first = false;
+				return;
+			}
+
+			long xor = value ^ previous;
+			previous = value;
+			if (xor == 0L)
+			{
+				out.put(0, 1);
+				return;
+			}
+
+			int lead = Math.min(Long.numberOfLeadingZeros(xor) - (Long.SIZE - width), 31);
+			int trail = Long.numberOfTrailingZeros(xor);
+			if (leading >= 0 && lead >= leading && trail >= trailing)
+			{
+				out.put(0x2, 2);
+				out.put(xor >>> trailing, width - leading - trailing);
+			}
+			else
+			{
+				int length = width - lead - trail;
+				out.put(0x3, 2);
+				out.put(lead, 5);
+				out.put(length == width ? 0 : length, lengthBits);
+				out.put(xor >>> trail, length);
+				leading = lead;
+				trailing = trail;
+			}
+		}
+
+		/**
+		 * Decodes the next value.
+		 * @param in the bit reader.
+		 * @return the value bits, in the lowest bits.
+		 * @throws IOException if the block is truncated or malformed.
+		 */
+		long decode(BitReader in) throws IOException
+		{
+			if (first)
+			{
+				first = false;
+				return previous = in.get(width);
+			}
+
+			if (in.get(1) == 0)
+				return previous;
+
+			if (in.get(1) != 0)
+			{
+				int lead = (int)in.get(5);
+				int length = (int)in.get(lengthBits);
+				if (length == 0)
+					length = width;
+				if (lead + length > width)
+					throw new IOException("Malformed compact array block.");
+				leading = lead;
+				trailing = width - lead - length;
+			}
+			else if (leading < 0)
+				throw new IOException("Malformed compact array block.");
+
+			previous ^= in.get(width - leading - trailing) << trailing;
+			return previous;
+		}
+	}
+
+}
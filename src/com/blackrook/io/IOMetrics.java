@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A thread-safe metrics listener that keeps running totals of I/O activity,
+ * and can be exposed through JMX.
+ * <p>One instance can be shared between many readers and writers:
+ * <pre>
+ * IOMetrics metrics = new IOMetrics();
+ * metrics.register("com.blackrook.io:type=IOMetrics,name=decoder");
+ * reader.setMetricsListener(metrics);
+ * </pre>
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class IOMetrics implements IOMetricsListener, IOMetricsMXBean
+{
+	private static final DataType[] DATA_TYPES = DataType.values();
+
+	private final LongAdder bytesRead;
+	private final LongAdder bytesWritten;
+	private final LongAdder streamReads;
+	private final LongAdder streamWrites;
+	private final LongAdder readNanos;
+	private final LongAdder writeNanos;
+	private final LongAdder[] readCalls;
+	private final LongAdder[] writeCalls;
+
+	/**
+	 * Creates a new set of metrics with all counters at zero.
+	 */
+	public IOMetrics()
+	{
+		bytesRead = new LongAdder();
+		bytesWritten = new LongAdder();
+		streamReads = new LongAdder();
+		streamWrites = new LongAdder();
+		readNanos = new LongAdder();
+		writeNanos = new LongAdder();
+		readCalls = new LongAdder[DATA_TYPES.length];
+		writeCalls = new LongAdder[DATA_TYPES.length];
+		for (int i = 0; i < DATA_TYPES.length; i++)
+		{
+			readCalls[i] = new LongAdder();
+			writeCalls[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Registers this object with the platform MBean server.
+	 * @param name the object name to register this under.
+	 * @return the object name used.
+	 * @throws IllegalArgumentException if the name is malformed or already registered.
+	 */
+	public ObjectName register(String name)
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = new ObjectName(name);
+			server.registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Could not register I/O metrics as \"" + name + "\".", e);
+		}
+	}
+
+	/**
+	 * Removes an object registered with {@link #register(String)} from the platform MBean server.
+	 * @param objectName the name returned from {@link #register(String)}.
+	 * @throws IllegalArgumentException if the name is not registered.
+	 */
+	public static void unregister(ObjectName objectName)
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Could not unregister I/O metrics \"" + objectName + "\".", e);
+		}
+	}
+
+	@Override
+	public void onRead(DataType type)
+	{
+		readCalls[type.ordinal()].increment();
+	}
+
+	@Override
+	public void onWrite(DataType type)
+	{
+		writeCalls[type.ordinal()].increment();
+	}
+
+	@Override
+	public void onStreamRead(int bytes, long nanos)
+	{
+		streamReads.increment();
+		readNanos.add(nanos);
+		if (bytes > 0)
+			bytesRead.add(bytes);
+	}
+
+	@Override
+	public void onStreamWrite(int bytes, long nanos)
+	{
+		streamWrites.increment();
+		writeNanos.add(nanos);
+		bytesWritten.add(bytes);
+	}
+
+	@Override
+	public long getBytesRead()
+	{
+		return bytesRead.sum();
+	}
+
+	@Override
+	public long getBytesWritten()
+	{
+		return bytesWritten.sum();
+	}
+
+	@Override
+	public long getStreamReadCount()
+	{
+		return streamReads.sum();
+	}
+
+	@Override
+	public long getStreamWriteCount()
+	{
+		return streamWrites.sum();
+	}
+
+	@Override
+	public long getReadBlockedNanos()
+	{
+		return readNanos.sum();
+	}
+
+	@Override
+	public long getWriteBlockedNanos()
+	{
+		return writeNanos.sum();
+	}
+
+	/**
+	 * Returns the amount of read calls made for a specific data type.
+	 * @param type the data type.
+	 * @return the amount of calls.
+	 */
+	public long getReadCallCount(DataType type)
+	{
+		return readCalls[type.ordinal()].sum();
+	}
+
+	/**
+	 * Returns the amount of write calls made for a specific data type.
+	 * @param type the data type.
+	 * @return the amount of calls.
+	 */
+	public long getWriteCallCount(DataType type)
+	{
+		return writeCalls[type.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getReadCallCounts()
+	{
+		return toMap(readCalls);
+	}
+
+	@Override
+	public Map<String, Long> getWriteCallCounts()
+	{
+		return toMap(writeCalls);
+	}
+
+	@Override
+	public void reset()
+	{
+		bytesRead.reset();
+		bytesWritten.reset();
+		streamReads.reset();
+		streamWrites.reset();
+		readNanos.reset();
+		writeNanos.reset();
+		for (int i = 0; i < DATA_TYPES.length; i++)
+		{
+			readCalls[i].reset();
+			writeCalls[i].reset();
+		}
+	}
+
+	private static Map<String, Long> toMap(LongAdder[] counters)
+	{
+		Map<String, Long> out = new TreeMap<String, Long>();
+		for (int i = 0; i < DATA_TYPES.length; i++)
+			out.put(DATA_TYPES[i].name(), counters[i].sum());
+		return out;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "IOMetrics Read: " + getBytesRead() + " bytes in " + getStreamReadCount() + " reads (" + getReadBlockedNanos() + " ns)"
+			+ ", Written: " + getBytesWritten() + " bytes in " + getStreamWriteCount() + " writes (" + getWriteBlockedNanos() + " ns)";
+	}
+
+}
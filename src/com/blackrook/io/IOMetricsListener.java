@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+/**
+ * A listener that receives I/O events from {@link SuperReader}s and {@link SuperWriter}s
+ * (and anything that extends them).
+ * <p>Readers and writers use {@link #NONE} by default, which does nothing and is cheap enough
+ * for the JIT to eliminate entirely. Stream timing is only measured if a listener other than
+ * {@link #NONE} is attached.
+ * <p>Implementations should be thread-safe if they are shared between readers or writers
+ * used by different threads.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public interface IOMetricsListener
+{
+	/** A listener that does nothing. This is the default listener on all readers and writers. */
+	public static final IOMetricsListener NONE = new IOMetricsListener()
+	{
+		@Override
+		public void onRead(DataType type)
+		{
+			// Do nothing.
+		}
+
+		@Override
+		public void onWrite(DataType type)
+		{
+			// Do nothing.
+		}
+
+		@Override
+		public void onStreamRead(int bytes, long nanos)
+		{
+			// Do nothing.
+		}
+
+		@Override
+		public void onStreamWrite(int bytes, long nanos)
+		{
+			// Do nothing.
+		}
+	};
+
+	/**
+	 * Types of data read or written by the reader/writer calls.
+	 * Calls that are made up of other calls (for instance, arrays, or floats written as ints)
+	 * are reported at each level.
+	 */
+	public static enum DataType
+	{
+		/** Single bits. */
+		BIT,
+		/** Single bytes. */
+		BYTE,
+		/** Raw, unprefixed runs of bytes. */
+		BYTES,
+		/** Booleans stored as bytes. */
+		BOOLEAN,
+		/** Shorts and characters. */
+		SHORT,
+		/** 24-bit integers. */
+		INT24,
+		/** 32-bit integers. */
+		INT,
+		/** 64-bit integers. */
+		LONG,
+		/** 32-bit floats. */
+		FLOAT,
+		/** 64-bit floats. */
+		DOUBLE,
+		/** Variable-length encoded integers and longs. */
+		VARIABLE_LENGTH,
+		/** Strings, in any encoding. */
+		STRING,
+		/** Arrays of any type. */
+		ARRAY;
+	}
+
+	/**
+	 * Called when a reader decodes a value.
+	 * @param type the type of value read.
+	 */
+	public void onRead(DataType type);
+
+	/**
+	 * Called when a writer encodes a value.
+	 * @param type the type of value written.
+	 */
+	public void onWrite(DataType type);
+
+	/**
+	 * Called after a read from the underlying stream.
+	 * @param bytes the amount of bytes read, or -1 if the end of the stream was reached.
+	 * @param nanos the amount of time spent blocked on the read, in nanoseconds.
+	 */
+	public void onStreamRead(int bytes, long nanos);
+
+	/**
+	 * Called after a write to the underlying stream.
+	 * @param bytes the amount of bytes written.
+	 * @param nanos the amount of time spent blocked on the write, in nanoseconds.
+	 */
+	public void onStreamWrite(int bytes, long nanos);
+
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.util.Map;
+
+/**
+ * JMX management interface for {@link IOMetrics}.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public interface IOMetricsMXBean
+{
+	/** Returns the total amount of bytes read from underlying streams. */
+	public long getBytesRead();
+
+	/** Returns the total amount of bytes written to underlying streams. */
+	public long getBytesWritten();
+
+	/** Returns the amount of reads made on underlying streams. */
+	public long getStreamReadCount();
+
+	/** Returns the amount of writes made on underlying streams. */
+	public long getStreamWriteCount();
+
+	/** Returns the total time spent blocked on underlying stream reads, in nanoseconds. */
+	public long getReadBlockedNanos();
+
+	/** Returns the total time spent blocked on underlying stream writes, in nanoseconds. */
+	public long getWriteBlockedNanos();
+
+	/** Returns the amount of read calls made per data type name. */
+	public Map<String, Long> getReadCallCounts();
+
+	/** Returns the amount of write calls made per data type name. */
+	public Map<String, Long> getWriteCallCounts();
+
+	/** Resets all counters to zero. */
+	public void reset();
+
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * A {@link ByteArrayInputStream} that can be pointed at a different byte array
+ * after it is created, so that one stream can be reused for many buffers.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class ReusableByteArrayInputStream extends ByteArrayInputStream
+{
+	/** Empty buffer. */
+	private static final byte[] EMPTY = new byte[0];
+
+	/**
+	 * Creates a new stream with nothing to read.
+	 */
+	public ReusableByteArrayInputStream()
+	{
+		super(EMPTY);
+	}
+
+	/**
+	 * Creates a new stream that reads an entire byte array.
+	 * @param buf the byte array to read.
+	 */
+	public ReusableByteArrayInputStream(byte[] buf)
+	{
+		super(buf);
+	}
+
+	/**
+	 * Points this stream at an entire byte array, and resets the position and mark.
+	 * The array is not copied.
+	 * @param buf the byte array to read.
+	 */
+	public void setBuffer(byte[] buf)
+	{
+		setBuffer(buf, 0, buf.length);
+	}
+
+	/**
+	 * Points this stream at part of a byte array, and resets the position and mark.
+	 * The array is not copied.
+	 * @param buf the byte array to read.
+	 * @param offset the offset into the array to start reading from.
+	 * @param length the amount of bytes to read.
+	 * @throws IndexOutOfBoundsException if the offset and length are outside of the array.
+	 */
+	public void setBuffer(byte[] buf, int offset, int length)
+	{
+		if (offset < 0 || length < 0 || offset + length > buf.length)
+			throw new IndexOutOfBoundsException("Offset and length are outside of the array.");
+		this.buf = buf;
+		this.pos = offset;
+		this.count = offset + length;
+		this.mark = offset;
+	}
+
+	/**
+	 * Releases the reference to the current byte array.
+	 */
+	public void clear()
+	{
+		setBuffer(EMPTY);
+	}
+
+}
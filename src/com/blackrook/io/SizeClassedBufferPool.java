@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A {@link BufferPool} that sorts buffers into power-of-two size classes.
+ * <p>Each thread keeps a small cache of buffers per size class, which is checked first,
+ * so buffers acquired and released by the same thread don't contend with other threads.
+ * Each thread's cache also has a byte limit, so that long-lived threads (such as pool threads) don't
+ * hold on to many large buffers.
+ * Past that, buffers go to a shared pool with a byte limit. Requests larger than the largest 
+ * size class are always allocated, and never kept.
+ * <p>Heap arrays/buffers and direct buffers are pooled separately. Heap buffers are wrappers 
+ * around pooled arrays. This pool can be exposed through JMX for hit/miss statistics:
+ * <pre>
+ * SizeClassedBufferPool pool = new SizeClassedBufferPool();
+ * pool.register("com.blackrook.io:type=BufferPool,name=default");
+ * BufferPools.setDefault(pool);
+ * </pre>
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class SizeClassedBufferPool implements BufferPool, BufferPoolMXBean
+{
+	/** Default smallest size class, as a power of two (64 bytes). */
+	public static final int DEFAULT_MIN_SHIFT = 6;
+	/** Default largest size class, as a power of two (4 megabytes). */
+	public static final int DEFAULT_MAX_SHIFT = 22;
+	/** Default amount of buffers per size class kept by each thread. */
+	public static final int DEFAULT_LOCAL_CAPACITY = 4;
+	/** Default limit on the total size of the buffers kept by each thread, in bytes (1 megabyte). */
+	public static final long DEFAULT_MAX_LOCAL_BYTES = 1024L * 1024L;
+	/** Default limit on the total size of the shared pool, in bytes (64 megabytes). */
+	public static final long DEFAULT_MAX_SHARED_BYTES = 64L * 1024L * 1024L;
+
+	/** Smallest size class shift. */
+	private final int minShift;
+	/** Largest size class shift. */
+	private final int maxShift;
+	/** Buffers per size class per thread. */
+	private final int localCapacity;
+	/** Per-thread byte limit. */
+	private final long maxLocalBytes;
+	/** Shared pool byte limit. */
+	private final long maxSharedBytes;
+
+	/** Shared arrays, per size class. */
+	private final ConcurrentLinkedQueue<byte[]>[] sharedArrays;
+	/** Shared direct buffers, per size class. */
+	private final ConcurrentLinkedQueue<ByteBuffer>[] sharedDirect;
+	/** Bytes held in the shared pool. */
+	private final AtomicLong sharedBytes;
+	/** Per-thread caches. */
+	private final ThreadLocal<LocalCache> localCache;
+
+	private final LongAdder localHits;
+	private final LongAdder sharedHits;
+	private final LongAdder misses;
+	private final LongAdder releases;
+	private final LongAdder discards;
+
+	/**
+	 * Creates a new pool with the default size classes and limits.
+	 */
+	public SizeClassedBufferPool()
+	{
+		this(DEFAULT_MIN_SHIFT, DEFAULT_MAX_SHIFT, DEFAULT_LOCAL_CAPACITY, DEFAULT_MAX_LOCAL_BYTES, DEFAULT_MAX_SHARED_BYTES);
+	}
+
+	/**
+	 * Creates a new pool with the default per-thread byte limit.
+	 * @param minShift the smallest size class, as a power of two.
+	 * @param maxShift the largest size class, as a power of two.
+	 * @param localCapacity the amount of buffers per size class kept by each thread (0 for no thread caching).
+	 * @param maxSharedBytes the limit on the total size of buffers in the shared pool, in bytes.
+	 * @throws IllegalArgumentException if minShift is less than 0, maxShift is less than minShift or greater than 30, 
+	 * 		or localCapacity or maxSharedBytes are less than 0.
+	 */
+	public SizeClassedBufferPool(int minShift, int maxShift, int localCapacity, long maxSharedBytes)
+	{
+		this(minShift, maxShift, localCapacity, DEFAULT_MAX_LOCAL_BYTES, maxSharedBytes);
+	}
+
+	/**
+	 * Creates a new pool.
+	 * @param minShift the smallest size class, as a power of two.
+	 * @param maxShift the largest size class, as a power of two.
+	 * @param localCapacity the amount of buffers per size class kept by each thread (0 for no thread caching).
+	 * @param maxLocalBytes the limit on the total size of buffers kept by each thread, in bytes 
+	 * 		(heap and direct together). Buffers that don't fit go to the shared pool.
+	 * @param maxSharedBytes the limit on the total size of buffers in the shared pool, in bytes.
+	 * @throws IllegalArgumentException if minShift is less than 0, maxShift is less than minShift or greater than 30, 
+	 * 		or localCapacity, maxLocalBytes or maxSharedBytes are less than 0.
+	 * @since 2.7.0
+	 */
+	@SuppressWarnings("unchecked")
+	public SizeClassedBufferPool(int minShift, int maxShift, int localCapacity, long maxLocalBytes, long maxSharedBytes)
+	{
+		if (minShift < 0 || maxShift < minShift || maxShift > 30)
+			throw new IllegalArgumentException("Size class shifts must be from 0 to 30, and min must not be greater than max.");
+		if (localCapacity < 0)
+			throw new IllegalArgumentException("Local capacity cannot be less than 0.");
+		if (maxLocalBytes < 0)
+			throw new IllegalArgumentException("Max local bytes cannot be less than 0.");
+		if (maxSharedBytes < 0)
+			throw new IllegalArgumentException("Max shared bytes cannot be less than 0.");
+
+		this.minShift = minShift;
+		this.maxShift = maxShift;
+		this.localCapacity = localCapacity;
+		this.maxLocalBytes = maxLocalBytes;
+		this.maxSharedBytes = maxSharedBytes;
+
+		int classes = maxShift - minShift + 1;
+		this.sharedArrays = (ConcurrentLinkedQueue<byte[]>[])new ConcurrentLinkedQueue<?>[classes];
+		this.sharedDirect = (ConcurrentLinkedQueue<ByteBuffer>[])new ConcurrentLinkedQueue<?>[classes];
+		for (int i = 0; i < classes; i++)
+		{
+			sharedArrays[i] = new ConcurrentLinkedQueue<byte[]>();
+			sharedDirect[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+		}
+		this.sharedBytes = new AtomicLong(0L);
+		this.localCache = new ThreadLocal<LocalCache>()
+		{
+			@Override
+			protected LocalCache initialValue()
+			{
+				return new LocalCache(sharedArrays.length, SizeClassedBufferPool.this.localCapacity);
+			}
+		};
+
+		this.localHits = new LongAdder();
+		this.sharedHits = new LongAdder();
+		this.misses = new LongAdder();
+		this.releases = new LongAdder();
+		this.discards = new LongAdder();
+	}
+
+	/**
+	 * Registers this object with the platform MBean server.
+	 * @param name the object name to register this under.
+	 * @return the object name used.
+	 * @throws IllegalArgumentException if the name is malformed or already registered.
+	 */
+	public ObjectName register(String name)
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName objectName = new ObjectName(name);
+			server.registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalArgumentException("Could not register buffer pool as \"" + name + "\".", e);
+		}
+	}
+
+	// Returns the size class for a requested length, or -1 if too large.
+	private int sizeClass(int length)
+	{
+		if (length <= (1 << minShift))
+			return 0;
+		int shift = Integer.SIZE - Integer.numberOfLeadingZeros(length - 1);
+		return shift > maxShift ? -1 : shift - minShift;
+	}
+
+	// Returns the size class for an exact capacity, or -1 if not a size class.
+	private int exactClass(int capacity)
+	{
+		if (Integer.bitCount(capacity) != 1)
+			return -1;
+		int shift = Integer.numberOfTrailingZeros(capacity);
+		return shift < minShift || shift > maxShift ? -1 : shift - minShift;
+	}
+
+	// Reserves room in the shared pool.
+	private boolean reserveShared(int bytes)
+	{
+		if (sharedBytes.addAndGet(bytes) <= maxSharedBytes)
+			return true;
+		sharedBytes.addAndGet(-bytes);
+		return false;
+	}
+
+	@Override
+	public byte[] acquireArray(int length)
+	{
+		if (length < 0)
+			throw new IllegalArgumentException("Length cannot be less than 0.");
+		int c = sizeClass(length);
+		if (c < 0)
+		{
+			misses.increment();
+			return new byte[length];
+		}
+
+		LocalCache cache = localCache.get();
+		if (cache.arrayCount[c] > 0)
+		{
+			localHits.increment();
+			byte[] out = cache.arrays[c][--cache.arrayCount[c]];
+			cache.arrays[c][cache.arrayCount[c]] = null;
+			cache.bytes -= out.length;
+			return out;
+		}
+
+		byte[] out = sharedArrays[c].poll();
+		if (out != null)
+		{
+			sharedBytes.addAndGet(-out.length);
+			sharedHits.increment();
+			return out;
+		}
+
+		misses.increment();
+		return new byte[1 << (c + minShift)];
+	}
+
+	@Override
+	public void release(byte[] array)
+	{
+		int c = exactClass(array.length);
+		if (c < 0)
+		{
+			discards.increment();
+			return;
+		}
+
+		LocalCache cache = localCache.get();
+		if (cache.arrayCount[c] < localCapacity && cache.bytes + array.length <= maxLocalBytes)
+		{
+			cache.arrays[c][cache.arrayCount[c]++] = array;
+			cache.bytes += array.length;
+			releases.increment();
+		}
+		else if (reserveShared(array.length))
+		{
+			sharedArrays[c].offer(array);
+			releases.increment();
+		}
+		else
+			discards.increment();
+	}
+
+	@Override
+	public ByteBuffer acquire(int capacity)
+	{
+		return ByteBuffer.wrap(acquireArray(capacity), 0, capacity);
+	}
+
+	@Override
+	public ByteBuffer acquireDirect(int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity cannot be less than 0.");
+		int c = sizeClass(capacity);
+		if (c < 0)
+		{
+			misses.increment();
+			return ByteBuffer.allocateDirect(capacity);
+		}
+
+		ByteBuffer out;
+		LocalCache cache = localCache.get();
+		if (cache.directCount[c] > 0)
+		{
+			localHits.increment();
+			out = cache.direct[c][--cache.directCount[c]];
+			cache.direct[c][cache.directCount[c]] = null;
+			cache.bytes -= out.capacity();
+		}
+		else if ((out = sharedDirect[c].poll()) != null)
+		{
+			sharedBytes.addAndGet(-out.capacity());
+			sharedHits.increment();
+		}
+		else
+		{
+			misses.increment();
+			out = ByteBuffer.allocateDirect(1 << (c + minShift));
+		}
+
+		out.clear();
+		out.limit(capacity);
+		return out;
+	}
+
+	@Override
+	public void release(ByteBuffer buffer)
+	{
+		if (buffer.isReadOnly())
+		{
+			discards.increment();
+			return;
+		}
+		if (!buffer.isDirect())
+		{
+			if (buffer.hasArray() && buffer.arrayOffset() == 0)
+				release(buffer.array());
+			else
+				discards.increment();
+			return;
+		}
+
+		int c = exactClass(buffer.capacity());
+		if (c < 0)
+		{
+			discards.increment();
+			return;
+		}
+
+		LocalCache cache = localCache.get();
+		if (cache.directCount[c] < localCapacity && cache.bytes + buffer.capacity() <= maxLocalBytes)
+		{
+			cache.direct[c][cache.directCount[c]++] = buffer;
+			cache.bytes += buffer.capacity();
+			releases.increment();
+		}
+		else if (reserveShared(buffer.capacity()))
+		{
+			sharedDirect[c].offer(buffer);
+			releases.increment();
+		}
+		else
+			discards.increment();
+	}
+
+	@Override
+	public long getLocalHitCount()
+	{
+		return localHits.sum();
+	}
+
+	@Override
+	public long getSharedHitCount()
+	{
+		return sharedHits.sum();
+	}
+
+	@Override
+	public long getMissCount()
+	{
+		return misses.sum();
+	}
+
+	@Override
+	public long getReleaseCount()
+	{
+		return releases.sum();
+	}
+
+	@Override
+	public long getDiscardCount()
+	{
+		return discards.sum();
+	}
+
+	@Override
+	public double getHitRatio()
+	{
+		long hits = getLocalHitCount() + getSharedHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0.0 : (double)hits / total;
+	}
+
+	@Override
+	public long getSharedBytes()
+	{
+		return sharedBytes.get();
+	}
+
+	@Override
+	public void reset()
+	{
+		localHits.reset();
+		sharedHits.reset();
+		misses.reset();
+		releases.reset();
+		discards.reset();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "SizeClassedBufferPool Hits: " + getLocalHitCount() + " local, " + getSharedHitCount() + " shared"
+			+ ", Misses: " + getMissCount() + ", Releases: " + getReleaseCount() + ", Discards: " + getDiscardCount()
+			+ ", Shared: " + getSharedBytes() + " bytes";
+	}
+
+	/**
+	 * A thread's buffer cache.
+	 */
+	private static class LocalCache
+	{
+		private final byte[][][] arrays;
+		private final int[] arrayCount;
+		private final ByteBuffer[][] direct;
+		private final int[] directCount;
+		/** Total bytes held, heap and direct. */
+		private long bytes;
+
+		LocalCache(int classes, int capacity)
+		{
+			bytes = 0L;
+			arrays = new byte[classes][capacity][];
+			arrayCount = new int[classes];
+			direct = new ByteBuffer[classes][capacity];
+			directCount = new int[classes];
+		}
+	}
+
+}
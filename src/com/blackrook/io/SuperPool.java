@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * A pool of {@link SuperReader}s, {@link SuperWriter}s and the byte array streams
+ * used with them, so that decoders that read lots of small pieces (pages, packets, chunks)
+ * don't create new objects for each one.
+ * <p>Pools are not thread-safe. Use {@link #local()} to get a pool for the current thread,
+ * or create one and keep it confined to one thread.
+ * <pre>
+ * SuperPool pool = SuperPool.local();
+ * SuperReader sr = pool.acquireReader(in, SuperReader.LITTLE_ENDIAN);
+ * try {
+ *     ...
+ * } finally {
+ *     pool.release(sr);
+ * }
+ * </pre>
+ * Objects must not be used after they are released.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class SuperPool
+{
+	/** Default amount of objects of each kind to keep. */
+	public static final int DEFAULT_CAPACITY = 16;
+	/** Default largest output buffer size to keep, in bytes. */
+	public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+
+	/** Per-thread pools. */
+	private static final ThreadLocal<SuperPool> LOCAL = new ThreadLocal<SuperPool>()
+	{
+		@Override
+		protected SuperPool initialValue()
+		{
+			return new SuperPool();
+		}
+	};
+
+	/** The amount of objects of each kind to keep. */
+	private int capacity;
+	/** The largest output buffer to keep. */
+	private int maxBufferSize;
+
+	private ArrayDeque<SuperReader> readers;
+	private ArrayDeque<SuperWriter> writers;
+	private ArrayDeque<ReusableByteArrayInputStream> inputStreams;
+	private ArrayDeque<ByteArrayOutputStream> outputStreams;
+
+	/**
+	 * Creates a new pool with the default capacity and maximum buffer size.
+	 */
+	public SuperPool()
+	{
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a new pool.
+	 * @param capacity the amount of objects of each kind to keep. Objects released past this are discarded.
+	 * @param maxBufferSize the largest output buffer to keep, in bytes. Larger buffers are discarded on release.
+	 * @throws IllegalArgumentException if capacity or maxBufferSize is less than 0.
+	 */
+	public SuperPool(int capacity, int maxBufferSize)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("Capacity cannot be less than 0.");
+		if (maxBufferSize < 0)
+			throw new IllegalArgumentException("Max buffer size cannot be less than 0.");
+		this.capacity = capacity;
+		this.maxBufferSize = maxBufferSize;
+		this.readers = new ArrayDeque<SuperReader>();
+		this.writers = new ArrayDeque<SuperWriter>();
+		this.inputStreams = new ArrayDeque<ReusableByteArrayInputStream>();
+		this.outputStreams = new ArrayDeque<ByteArrayOutputStream>();
+	}
+
+	/**
+	 * Returns the pool for the current thread.
+	 */
+	public static SuperPool local()
+	{
+		return LOCAL.get();
+	}
+
+	/**
+	 * Gets a reader from the pool (or a new one, if the pool is empty), bound to an input stream.
+	 * @param in the input stream to read from.
+	 * @param endianMode the endian mode to use.
+	 * @return a reader.
+	 */
+	public SuperReader acquireReader(InputStream in, boolean endianMode)
+	{
+		if (readers.isEmpty())
+			return new SuperReader(in, endianMode);
+		SuperReader out = readers.pop();
+		out.reset(in, endianMode);
+		return out;
+	}
+
+	/**
+	 * Returns a reader to the pool. 
+	 * The reader's stream is not closed, and its metrics listener and buffer pool are reset.
+	 * Only plain {@link SuperReader}s are kept, not subclasses.
+	 * @param reader the reader to release.
+	 */
+	public void release(SuperReader reader)
+	{
+		if (reader.getClass() != SuperReader.class || readers.size() >= capacity)
+			return;
+		reader.reset(null);
+		reader.setMetricsListener(null);
+		reader.setBufferPool(null);
+		readers.push(reader);
+	}
+
+	/**
+	 * Gets a writer from the pool (or a new one, if the pool is empty), bound to an output stream.
+	 * @param out the output stream to write to.
+	 * @param endianMode the endian mode to use.
+	 * @return a writer.
+	 */
+	public SuperWriter acquireWriter(OutputStream out, boolean endianMode)
+	{
+		if (writers.isEmpty())
+			return new SuperWriter(out, endianMode);
+		SuperWriter sw = writers.pop();
+		sw.reset(out, endianMode);
+		return sw;
+	}
+
+	/**
+	 * Returns a writer to the pool. 
+	 * The writer's stream is not flushed nor closed, unwritten bits are discarded, 
+	 * and its metrics listener and buffer pool are reset. Only plain {@link SuperWriter}s are kept, not subclasses.
+	 * @param writer the writer to release.
+	 */
+	public void release(SuperWriter writer)
+	{
+		if (writer.getClass() != SuperWriter.class || writers.size() >= capacity)
+			return;
+		writer.reset(null);
+		writer.setMetricsListener(null);
+		writer.setBufferPool(null);
+		writers.push(writer);
+	}
+
+	/**
+	 * Gets a byte array input stream from the pool (or a new one, if the pool is empty), reading a whole array.
+	 * @param buf the array to read. It is not copied.
+	 * @return an input stream.
+	 */
+	public ReusableByteArrayInputStream acquireInputStream(byte[] buf)
+	{
+		return acquireInputStream(buf, 0, buf.length);
+	}
+
+	/**
+	 * Gets a byte array input stream from the pool (or a new one, if the pool is empty), reading part of an array.
+	 * @param buf the array to read. It is not copied.
+	 * @param offset the offset into the array.
+	 * @param length the amount of bytes to read.
+	 * @return an input stream.
+	 * @throws IndexOutOfBoundsException if the offset and length are outside of the array.
+	 */
+	public ReusableByteArrayInputStream acquireInputStream(byte[] buf, int offset, int length)
+	{
+		ReusableByteArrayInputStream out = inputStreams.isEmpty() ? new ReusableByteArrayInputStream() : inputStreams.pop();
+		out.setBuffer(buf, offset, length);
+		return out;
+	}
+
+	/**
+	 * Returns a byte array input stream to the pool.
+	 * @param in the stream to release.
+	 */
+	public void release(ReusableByteArrayInputStream in)
+	{
+		if (inputStreams.size() >= capacity)
+			return;
+		in.clear();
+		inputStreams.push(in);
+	}
+
+	/**
+	 * Gets an empty byte array output stream from the pool (or a new one, if the pool is empty).
+	 * @return an output stream.
+	 */
+	public ByteArrayOutputStream acquireOutputStream()
+	{
+		return outputStreams.isEmpty() ? new ByteArrayOutputStream() : outputStreams.pop();
+	}
+
+	/**
+	 * Returns a byte array output stream to the pool. 
+	 * Streams that have grown past the maximum buffer size are discarded.
+	 * @param out the stream to release.
+	 */
+	public void release(ByteArrayOutputStream out)
+	{
+		if (outputStreams.size() >= capacity || out.size() > maxBufferSize)
+			return;
+		out.reset();
+		outputStreams.push(out);
+	}
+
+}
@@ -9,7 +9,10 @@ package com.blackrook.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
 
+import com.blackrook.io.IOMetricsListener.DataType;
 import com.blackrook.commons.util.BitUtils;
 import com.blackrook.commons.util.BufferUtils;
 
@@ -38,18 +41,90 @@ public class SuperReader
 	private static byte[] BITMASK = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, (byte)0x80};
 	private byte currentBitByte;
 
+	/** Metrics listener. */
+	private IOMetricsListener metrics;
+	/** Scratch buffer for primitive reads. */
+	private final byte[] scratch = new byte[BufferUtils.SIZEOF_LONG];
+	/** Pool for temporary buffers. */
+	private BufferPool bufferPool;
+
 	/**
-	 * Wraps a super reader around an InputStream.  
+	 * Wraps a super reader around an InputStream.
 	 * @param i				the input stream to use.
 	 * @param endianMode	the endian mode to use.
 	 */
 	public SuperReader(InputStream i, boolean endianMode)
 	{
 		in = i;
+		metrics = IOMetricsListener.NONE;
+		bufferPool = BufferPools.getDefault();
 		setEndianMode(endianMode);
 		byteAlign();
 	}
-	
+
+	/**
+	 * Rebinds this reader to another InputStream, keeping the endian mode and metrics listener.
+	 * Any partially-read bits are discarded. The previous stream is not closed.
+	 * @param i	the input stream to use.
+	 * @since 2.7.0
+	 */
+	public void reset(InputStream i)
+	{
+		in = i;
+		byteAlign();
+	}
+
+	/**
+	 * Rebinds this reader to another InputStream, keeping the metrics listener.
+	 * Any partially-read bits are discarded. The previous stream is not closed.
+	 * @param i				the input stream to use.
+	 * @param endianMode	the endian mode to use.
+	 * @since 2.7.0
+	 */
+	public void reset(InputStream i, boolean endianMode)
+	{
+		setEndianMode(endianMode);
+		reset(i);
+	}
+
+	/**
+	 * Sets the listener that receives metrics events from this reader.
+	 * @param listener the listener to use, or null for {@link IOMetricsListener#NONE}.
+	 * @since 2.7.0
+	 */
+	public void setMetricsListener(IOMetricsListener listener)
+	{
+		metrics = listener != null ? listener : IOMetricsListener.NONE;
+	}
+
+	/**
+	 * Returns the listener that receives metrics events from this reader.
+	 * @since 2.7.0
+	 */
+	public IOMetricsListener getMetricsListener()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Sets the pool that this reader gets temporary buffers from.
+	 * @param pool the pool to use, or null for {@link BufferPools#getDefault()}.
+	 * @since 2.7.0
+	 */
+	public void setBufferPool(BufferPool pool)
+	{
+		bufferPool = pool != null ? pool : BufferPools.getDefault();
+	}
+
+	/**
+	 * Returns the pool that this reader gets temporary buffers from.
+	 * @since 2.7.0
+	 */
+	public BufferPool getBufferPool()
+	{
+		return bufferPool;
+	}
+
 	/**
 	 * Sets the byte endian mode for the byte conversion methods.
 	 * LITTLE_ENDIAN (Intel), the default, orients values from lowest byte to highest, while
@@ -60,6 +135,17 @@ public class SuperReader
 	{
 		endianMode = mode;
 	}
+
+	/**
+	 * Gets the byte endian mode for the byte conversion methods.
+	 * @return the current endian mode, either LITTLE_ENDIAN or BIG_ENDIAN.
+	 * @see #setEndianMode(boolean)
+	 * @since 2.7.0
+	 */
+	public boolean getEndianMode()
+	{
+		return endianMode;
+	}
 	
 	/**
 	 * Reads a byte from the bound stream.
@@ -68,7 +154,12 @@ public class SuperReader
 	protected synchronized int byteRead() throws IOException
 	{
 		byteAlign();
-		return in.read();
+		if (metrics == IOMetricsListener.NONE)
+			return in.read();
+		long time = System.nanoTime();
+		int out = in.read();
+		metrics.onStreamRead(out < 0 ? out : 1, System.nanoTime() - time);
+		return out;
 	}
 	
 	/**
@@ -92,9 +183,230 @@ public class SuperReader
 	 * 			is reached before a single byte is read.
 	 */
 	protected int byteRead(byte[] b, int maxlen) throws IOException
+	{
+		return byteRead(b, 0, maxlen);
+	}
+
+	/**
+	 * Reads a series of bytes from the bound stream into a byte array until end of 
+	 * stream is reached or <code>maxlen</code> bytes have been read.
+	 * @param b 		the target array to fill with bytes.
+	 * @param offset	the offset into the array to start filling from.
+	 * @param maxlen	the maximum amount of bytes to read.
+	 * @return	the amount of bytes read or END_OF_STREAM if the end of the stream 
+	 * 			is reached before a single byte is read.
+	 * @since 2.7.0
+	 */
+	protected int byteRead(byte[] b, int offset, int maxlen) throws IOException
 	{
 		byteAlign();
-		return in.read(b, 0, maxlen);
+		int total = 0;
+		while (total < maxlen)
+		{
+			int n;
+			if (metrics == IOMetricsListener.NONE)
+				n = in.read(b, offset + total, maxlen - total);
+			else
+			{
+				long time = System.nanoTime();
+				n = in.read(b, offset + total, maxlen - total);
+				metrics.onStreamRead(n, System.nanoTime() - time);
+			}
+			if (n < 0)
+				return total > 0 ? total : END_OF_STREAM;
+			total += n;
+		}
+		return total;
+	}
+
+	// Reads bytes into the scratch buffer and assembles them in the current endian mode.
+	private long scratchRead(int bytes) throws IOException
+	{
+		if (byteRead(scratch, bytes) < bytes)
+			throw new EOSException();
+		long out = 0L;
+		for (int x = 0; x < bytes; x++)
+			out |= (scratch[x] & 0xFFL) << (Byte.SIZE * (endianMode ? x : bytes - 1 - x));
+		return out;
+	}
+
+	// Reads a length-prefixed byte vector as a String through a pooled buffer, or null at end of stream.
+	private String readPooledString(String encoding) throws IOException
+	{
+		metrics.onRead(DataType.ARRAY);
+		int len;
+		try {
+			len = readInt();
+		} catch (EOSException e) {
+			return null;
+		}
+		if (len == 0)
+			return "";
+		byte[] b = bufferPool.acquireArray(len);
+		try {
+			if (byteRead(b, len) < len)
+				throw new IOException("Not enough bytes for byte array.");
+			return new String(b, 0, len, encoding);
+		} finally {
+			bufferPool.release(b);
+		}
+	}
+
+	// Reads an unsigned variable-length integer, least significant group first.
+	private int readUnsignedVarInt() throws IOException
+	{
+		int out = 0;
+		for (int shift = 0; shift < Integer.SIZE; shift += 7)
+		{
+			int b = byteRead();
+			if (b < 0)
+				throw new EOSException();
+			out |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return out;
+		}
+		throw new IOException("Malformed variable-length integer.");
+	}
+
+	// Reads the length of a compact array, or -1 if the end of the stream was reached.
+	private int readCompactArrayLength() throws IOException
+	{
+		int length;
+		try {
+			length = readUnsignedVarInt();
+		} catch (EOSException e) {
+			return -1;
+		}
+		if (length < 0)
+			throw new IOException("Bad compact array length: " + (length & 0xffffffffL));
+		return length;
+	}
+
+	// Reads a compact floating-point array into one of two arrays.
+	private void readXORArray(float[] f, double[] d, int length, int width) throws IOException
+	{
+		if (length == 0)
+			return;
+
+		int bytes = width / Byte.SIZE;
+		byte[] block = bufferPool.acquireArray(CompactEncoding.MAX_XOR_BLOCK_BYTES);
+		CompactEncoding.BitReader bits = new CompactEncoding.BitReader();
+		CompactEncoding.XORState state = new CompactEncoding.XORState(width);
+		try {
+			for (int start = 0; start < length; start += CompactEncoding.XOR_BLOCK_SIZE)
+			{
+				int end = Math.min(start + CompactEncoding.XOR_BLOCK_SIZE, length);
+				int mode = byteRead();
+				switch (mode)
+				{
+					case CompactEncoding.MODE_RAW:
+					{
+						readFully(block, (end - start) * bytes);
+						for (int x = start, off = 0; x < end; x++, off += bytes)
+						{
+							long v = 0L;
+							for (int n = 0; n < bytes; n++)
+								v |= (block[off + n] & 0xffL) << (Byte.SIZE * (endianMode ? n : bytes - 1 - n));
+							if (f != null)
+								f[x] = Float.intBitsToFloat((int)v);
+							else
+								d[x] = Double.longBitsToDouble(v);
+						}
+						break;
+					}
+					case CompactEncoding.MODE_XOR:
+					{
+						int len = readUnsignedVarInt();
+						if (len < 0 || len > CompactEncoding.MAX_XOR_BLOCK_BYTES)
+							throw new IOException("Bad compact array block length: " + (len & 0xffffffffL));
+						readFully(block, len);
+						bits.reset(block, len);
+						state.reset();
+						if (f != null)
+							for (int x = start; x < end; x++)
+								f[x] = Float.intBitsToFloat((int)state.decode(bits));
+						else
+							for (int x = start; x < end; x++)
+								d[x] = Double.longBitsToDouble(state.decode(bits));
+						break;
+					}
+					case END_OF_STREAM:
+						throw new EOSException();
+					default:
+						throw new IOException("Bad compact array block mode: " + mode);
+				}
+			}
+		} finally {
+			bufferPool.release(block);
+		}
+	}
+
+	// Reads exactly len bytes into an array.
+	private void readFully(byte[] b, int len) throws IOException
+	{
+		if (byteRead(b, len) < len)
+			throw new EOSException();
+	}
+
+	// Decodes a block of a compact integer array.
+	private void decodeCompactBlock(int[] values, int start, int count, byte[] b) throws IOException
+	{
+		int mode = byteRead();
+		int end = start + count;
+		switch (mode)
+		{
+			case CompactEncoding.MODE_RAW:
+			{
+				readFully(b, count * Integer.BYTES);
+				for (int x = start, off = 0; x < end; x++, off += Integer.BYTES)
+				{
+					int v = 0;
+					for (int n = 0; n < Integer.BYTES; n++)
+						v |= (b[off + n] & 0xff) << (Byte.SIZE * (endianMode ? n : Integer.BYTES - 1 - n));
+					values[x] = v;
+				}
+				break;
+			}
+			case CompactEncoding.MODE_ZIGZAG:
+			{
+				for (int x = start; x < end; x++)
+					values[x] = CompactEncoding.unzigzag(readUnsignedVarInt());
+				break;
+			}
+			case CompactEncoding.MODE_FOR:
+			{
+				int base = CompactEncoding.unzigzag(readUnsignedVarInt());
+				int bits = readPackedBits(b, count);
+				CompactEncoding.unpack(b, 0, bits, base, values, start, count);
+				break;
+			}
+			case CompactEncoding.MODE_DELTA:
+			{
+				values[start] = CompactEncoding.unzigzag(readUnsignedVarInt());
+				int base = CompactEncoding.unzigzag(readUnsignedVarInt());
+				int bits = readPackedBits(b, count - 1);
+				CompactEncoding.unpack(b, 0, bits, base, values, start + 1, count - 1);
+				for (int x = start + 1; x < end; x++)
+					values[x] += values[x - 1];
+				break;
+			}
+			case END_OF_STREAM:
+				throw new EOSException();
+			default:
+				throw new IOException("Bad compact array block mode: " + mode);
+		}
+	}
+
+	// Reads a bit width and the bit-packed values after it. Returns the bit width.
+	private int readPackedBits(byte[] b, int count) throws IOException
+	{
+		int bits = byteRead();
+		if (bits < 0)
+			throw new EOSException();
+		if (bits > Integer.SIZE)
+			throw new IOException("Bad bit width in compact array: " + bits);
+		readFully(b, CompactEncoding.packedSize(count, bits));
+		return bits;
 	}
 
 	// Casts a short to a char.
@@ -193,12 +505,17 @@ public class SuperReader
 	 */
 	public boolean readFor(byte[] b) throws IOException
 	{
-		byte[] read = new byte[b.length];
-		byteRead(read);
-		for (int i = 0; i < b.length; i++)
-			if (read[i] != b[i])
+		byte[] read = bufferPool.acquireArray(b.length);
+		try {
+			if (byteRead(read, b.length) < b.length)
 				return false;
-		return true;
+			for (int i = 0; i < b.length; i++)
+				if (read[i] != b[i])
+					return false;
+			return true;
+		} finally {
+			bufferPool.release(read);
+		}
 	}
 	
 	/**
@@ -219,6 +536,7 @@ public class SuperReader
 	 */
 	public boolean readBit() throws IOException
 	{
+		metrics.onRead(DataType.BIT);
 		if (bitsLeft == 0)
 		{
 			currentBitByte = readByte();
@@ -261,7 +579,7 @@ public class SuperReader
 		while ((bits--) > 0)
 		{
 			if (readBit())
-				out |= (1 << i);
+				out |= (1L << i);
 			i++;
 		}
 		return out;
@@ -273,6 +591,7 @@ public class SuperReader
 	 */
 	public byte[] readByteArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 		byte[] out = null;
 		try {
 			out = new byte[readInt()];
@@ -295,6 +614,7 @@ public class SuperReader
 	 */
 	public String readString() throws IOException
 	{
+		metrics.onRead(DataType.STRING);
 		char[] c = readCharArray();
 		if (c == null)
 			return null;
@@ -309,10 +629,8 @@ public class SuperReader
 	 */
 	public String readString(String encoding) throws IOException
 	{
-		byte[] b = readByteArray();
-		if (b == null)
-			return null;
-	    return new String(b,encoding);
+		metrics.onRead(DataType.STRING);
+	    return readPooledString(encoding);
 	}
 
 	/**
@@ -322,10 +640,8 @@ public class SuperReader
 	 */
 	public String readASCIIString() throws IOException
 	{
-		byte[] b = readByteArray();
-		if (b == null)
-			return null;
-	    return new String(b,"ASCII");
+		metrics.onRead(DataType.STRING);
+	    return readPooledString("ASCII");
 	}
 
 	/**
@@ -336,11 +652,16 @@ public class SuperReader
 	 */
 	public String readASCIIString(int bytes) throws IOException
 	{
-		byte[] b = new byte[bytes];
-		int buf = byteRead(b);
-	    if (buf < b.length)
-			throw new IOException("Not enough bytes to read.");
-	    return new String(b,"ASCII");
+		metrics.onRead(DataType.STRING);
+		byte[] b = bufferPool.acquireArray(bytes);
+		try {
+			int buf = byteRead(b, bytes);
+		    if (buf < bytes)
+				throw new IOException("Not enough bytes to read.");
+		    return new String(b, 0, bytes, "ASCII");
+		} finally {
+			bufferPool.release(b);
+		}
 	}
 
 	/**
@@ -349,6 +670,7 @@ public class SuperReader
 	 */
 	public String readEncryptedString() throws IOException
 	{
+		metrics.onRead(DataType.STRING);
 		short key = readShort();
 		char[] c = readCharArray();
 		for (int i = 0; i < c.length; i++)
@@ -363,6 +685,7 @@ public class SuperReader
 	 */
 	public String[] readStringArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    String[] out = null;
 	    try {
 	    	out = new String[readInt()];
@@ -375,6 +698,63 @@ public class SuperReader
 	    return out;
 	}
 
+	/**
+	 * Reads in a String array written by {@link SuperWriter#writeDictionaryStringArray(String[])}.
+	 * Each unique String is decoded once, and elements with the same value share the same instance.
+	 * @return the array read, or null if the end of the stream was reached before the length.
+	 * @throws IOException	if an error occurred during the read, or the data is malformed.
+	 * @since 2.7.0
+	 */
+	public String[] readDictionaryStringArray() throws IOException
+	{
+		metrics.onRead(DataType.ARRAY);
+		int length = readCompactArrayLength();
+		if (length < 0)
+			return null;
+		String[] out = new String[length];
+		if (length == 0)
+			return out;
+
+		int size = readUnsignedVarInt();
+		if (size < 0 || size > length)
+			throw new IOException("Bad string dictionary size: " + (size & 0xffffffffL));
+		String[] dictionary = new String[size + 1];
+		for (int i = 1; i <= size; i++)
+		{
+			metrics.onRead(DataType.STRING);
+			int len = readUnsignedVarInt();
+			if (len < 0)
+				throw new IOException("Bad string length: " + (len & 0xffffffffL));
+			byte[] b = bufferPool.acquireArray(len);
+			try {
+				readFully(b, len);
+				dictionary[i] = new String(b, 0, len, StandardCharsets.UTF_8);
+			} finally {
+				bufferPool.release(b);
+			}
+		}
+
+		int[] values = new int[CompactEncoding.BLOCK_SIZE];
+		byte[] block = bufferPool.acquireArray(CompactEncoding.MAX_BLOCK_BYTES);
+		try {
+			for (int start = 0; start < length; start += CompactEncoding.BLOCK_SIZE)
+			{
+				int count = Math.min(CompactEncoding.BLOCK_SIZE, length - start);
+				decodeCompactBlock(values, 0, count, block);
+				for (int x = 0; x < count; x++)
+				{
+					int index = values[x];
+					if (index < 0 || index > size)
+						throw new IOException("Bad string dictionary index: " + (index & 0xffffffffL));
+					out[start + x] = dictionary[index];
+				}
+			}
+		} finally {
+			bufferPool.release(block);
+		}
+		return out;
+	}
+
 	/**
 	 * Reads in an array of strings encrypted by SuperWriter.writeEncryptedStringArray().
 	 * Basically reads an integer length which is the length of the array and then reads that many encrypted strings.
@@ -382,6 +762,7 @@ public class SuperReader
 	 */
 	public String[] readEncryptedStringArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    String[] out = null;
 	    try {
 	    	out = new String[readInt()];
@@ -400,12 +781,8 @@ public class SuperReader
 	 */
 	public boolean readBoolean() throws IOException
 	{
-	    byte[] buffer = new byte[1];	    
-	    int buf = byteRead(buffer);
-	    if (buf < 1)
-	    	throw new EOSException();
-	    else if (buf < 1) throw new IOException("Not enough bytes for a boolean.");
-	    return (buffer[0] != 0) ? true : false;
+		metrics.onRead(DataType.BOOLEAN);
+	    return readByte() != 0;
 	}
 
 	/**
@@ -416,6 +793,7 @@ public class SuperReader
 	 */
 	public boolean[] readBooleanArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 		boolean[] out = null;
 		try {
 			out = new boolean[readInt()];
@@ -434,16 +812,92 @@ public class SuperReader
 		return out;
 	}
 
+	/**
+	 * Reads in a {@link BitSet} written by {@link SuperWriter#writeBitSet(BitSet)} or {@link SuperWriter#writeBitmap(long[])}.
+	 * @return the BitSet read, or null if the end of the stream was reached before the length.
+	 * @throws IOException	if an error occurred during the read, or the data is malformed.
+	 * @since 2.7.0
+	 */
+	public BitSet readBitSet() throws IOException
+	{
+		long[] words = readBitmap();
+		return words != null ? BitSet.valueOf(words) : null;
+	}
+
+	/**
+	 * Reads in a bitmap of 64-bit words written by {@link SuperWriter#writeBitmap(long[])} or {@link SuperWriter#writeBitSet(BitSet)}.
+	 * @return the bitmap words read, or null if the end of the stream was reached before the length.
+	 * @throws IOException	if an error occurred during the read, or the data is malformed.
+	 * @since 2.7.0
+	 */
+	public long[] readBitmap() throws IOException
+	{
+		metrics.onRead(DataType.ARRAY);
+		int length = readCompactArrayLength();
+		if (length < 0)
+			return null;
+		if (length > CompactEncoding.MAX_BITMAP_WORDS)
+			throw new IOException("Bad bitmap length: " + length);
+		long[] out = new long[length];
+		if (length == 0)
+			return out;
+
+		int mode = byteRead();
+		switch (mode)
+		{
+			case CompactEncoding.MODE_RAW:
+			{
+				byte[] chunk = bufferPool.acquireArray(CompactEncoding.BITMAP_CHUNK_BYTES);
+				try {
+					int chunkWords = CompactEncoding.BITMAP_CHUNK_BYTES / Long.BYTES;
+					for (int start = 0; start < length; start += chunkWords)
+					{
+						int count = Math.min(chunkWords, length - start);
+						readFully(chunk, count * Long.BYTES);
+						for (int x = 0, off = 0; x < count; x++, off += Long.BYTES)
+						{
+							long v = 0L;
+							for (int n = 0; n < Long.BYTES; n++)
+								v |= (chunk[off + n] & 0xffL) << (Byte.SIZE * (endianMode ? n : Long.BYTES - 1 - n));
+							out[start + x] = v;
+						}
+					}
+				} finally {
+					bufferPool.release(chunk);
+				}
+				break;
+			}
+			case CompactEncoding.MODE_RUNS:
+			{
+				long bits = (long)length << 6;
+				int runs = readUnsignedVarInt();
+				long end = 0L;
+				for (int r = 0; r < runs; r++)
+				{
+					long start = end + (readUnsignedVarInt() & 0xffffffffL);
+					end = start + (readUnsignedVarInt() & 0xffffffffL);
+					if (end > bits)
+						throw new IOException("Bitmap run past the end of the bitmap.");
+					CompactEncoding.setRange(out, start, end);
+				}
+				break;
+			}
+			case END_OF_STREAM:
+				throw new EOSException();
+			default:
+				throw new IOException("Bad bitmap mode: " + mode);
+		}
+		return out;
+	}
+
 	/**
 	 * Reads in a long value.
 	 * @throws IOException	if an error occurred during the read.
 	 */
 	public long readLong() throws IOException
 	{
-	    byte[] buffer = new byte[BufferUtils.SIZEOF_LONG];
-	    int buf = byteRead(buffer);
-	    if (buf < BufferUtils.SIZEOF_LONG) throw new IOException("Not enough bytes for a long.");
-	    return bytesToLong(buffer,endianMode);
+		metrics.onRead(DataType.LONG);
+	    return scratchRead(BufferUtils.SIZEOF_LONG);
 	}
 
 	/**
@@ -452,6 +906,7 @@ public class SuperReader
 	 */
 	public long[] readLongs(int n) throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    long[] out = new long[n];
 	    for (int i = 0; i < out.length; i++)
 	    	out[i] = readLong();
@@ -465,6 +920,7 @@ public class SuperReader
 	 */
 	public long[] readLongArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    long[] out = new long[readInt()];
 	    for (int i = 0; i < out.length; i++)
 	        out[i] = readLong();
@@ -477,6 +933,7 @@ public class SuperReader
 	 */
 	public byte readByte() throws IOException
 	{
+		metrics.onRead(DataType.BYTE);
 	    int buf = byteRead(singleByteBuffer);
 	    if (buf < 1)
 	    	throw new EOSException();
@@ -502,6 +959,7 @@ public class SuperReader
 	 */
 	public int readBytes(byte[] b) throws IOException
 	{
+		metrics.onRead(DataType.BYTES);
 		return byteRead(b);
 	}
 
@@ -515,15 +973,33 @@ public class SuperReader
 	 */
 	public int readBytes(byte[] b, int maxlen) throws IOException
 	{
+		metrics.onRead(DataType.BYTES);
 		return byteRead(b, maxlen);
 	}
 
+	/**
+	 * Reads a series of bytes from the bound stream into a byte array until end of 
+	 * stream is reached or <code>maxlen</code> bytes have been read.
+	 * @param b 		the target array to fill with bytes.
+	 * @param offset	the offset into the array to start filling from.
+	 * @param maxlen	the maximum amount of bytes to read.
+	 * @return	the amount of bytes read or END_OF_STREAM if the end of the stream 
+	 * 			is reached before a single byte is read.
+	 * @since 2.7.0
+	 */
+	public int readBytes(byte[] b, int offset, int maxlen) throws IOException
+	{
+		metrics.onRead(DataType.BYTES);
+		return byteRead(b, offset, maxlen);
+	}
+
 	/**
 	 * Reads in a specified amount of bytes, returned as an array.
 	 * @throws IOException	if an error occurred during the read.
 	 */
 	public byte[] readBytes(int n) throws IOException
 	{
+		metrics.onRead(DataType.BYTES);
 	    byte[] out = new byte[n];
 	    int buf = byteRead(out);
 	    if (buf < n)
@@ -547,12 +1023,8 @@ public class SuperReader
 	 */
 	public int readInt() throws IOException
 	{
-	    byte[] buffer = new byte[BufferUtils.SIZEOF_INT];
-	    int buf = byteRead(buffer);
-	    if (buf < BufferUtils.SIZEOF_INT)
-	    	throw new EOSException();
-	    else if (buf < BufferUtils.SIZEOF_INT) throw new IOException("Not enough bytes for an int.");
-	    return bytesToInt(buffer,endianMode);
+		metrics.onRead(DataType.INT);
+	    return (int)scratchRead(BufferUtils.SIZEOF_INT);
 	}
 
 	/**
@@ -561,17 +1033,8 @@ public class SuperReader
 	 */
 	public int read24BitInt() throws IOException
 	{
-		byte[] bbu = new byte[3];
-	    byte[] buffer = new byte[BufferUtils.SIZEOF_INT];
-	    int buf = byteRead(bbu,3);
-	    if (buf < 3)
-	    	throw new EOSException();
-	    else if (buf < bbu.length) throw new IOException("Not enough bytes for a 24-bit int.");
-	    if (endianMode == BIG_ENDIAN)
-	    	System.arraycopy(bbu, 0, buffer, 1, 3);
-	    else if (endianMode == LITTLE_ENDIAN)
-	    	System.arraycopy(bbu, 0, buffer, 0, 3);
-	    return bytesToInt(buffer,endianMode);
+		metrics.onRead(DataType.INT24);
+	    return (int)scratchRead(3);
 	}
 
 	/**
@@ -580,6 +1043,7 @@ public class SuperReader
 	 */
 	public int[] readInts(int n) throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    int[] out = new int[n];
 	    for (int i = 0; i < out.length; i++)
 	    	out[i] = readInt();
@@ -593,6 +1057,7 @@ public class SuperReader
 	 */
 	public int[] readIntArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    int[] out = null;
 	    try {
 	    	out = new int[readInt()];
@@ -612,6 +1077,7 @@ public class SuperReader
 	 */
 	public int[][] readDoubleIntArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    int[][] out = null;
 	    try {
 	    	out = new int[readInt()][];
@@ -631,6 +1097,7 @@ public class SuperReader
 	 */
 	public int[][][] readTripleIntArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    int[][][] out = null;
 	    try {
 	    	out = new int[readInt()][][];
@@ -643,18 +1110,40 @@ public class SuperReader
 	    return out;	    
 	}
 
+	/**
+	 * Reads in an integer array written by {@link SuperWriter#writeCompactIntArray(int[])}.
+	 * @return the array read, or null if the end of the stream was reached before the length.
+	 * @throws IOException	if an error occurred during the read, or the data is malformed.
+	 * @since 2.7.0
+	 */
+	public int[] readCompactIntArray() throws IOException
+	{
+		metrics.onRead(DataType.ARRAY);
+		int length = readCompactArrayLength();
+		if (length < 0)
+			return null;
+
+		int[] out = new int[length];
+		if (length == 0)
+			return out;
+		byte[] block = bufferPool.acquireArray(CompactEncoding.MAX_BLOCK_BYTES);
+		try {
+			for (int start = 0; start < length; start += CompactEncoding.BLOCK_SIZE)
+				decodeCompactBlock(out, start, Math.min(CompactEncoding.BLOCK_SIZE, length - start), block);
+		} finally {
+			bufferPool.release(block);
+		}
+		return out;
+	}
+
 	/**
 	 * Reads in a 32-bit float.
 	 * @throws IOException	if an error occurred during the read.
 	 */
 	public float readFloat() throws IOException
 	{
-	    byte[] buffer = new byte[BufferUtils.SIZEOF_FLOAT];
-	    int buf = byteRead(buffer);
-	    if (buf < BufferUtils.SIZEOF_FLOAT)
-	    	throw new EOSException();
-	    else if (buf < BufferUtils.SIZEOF_FLOAT) throw new IOException("Not enough bytes for a float.");
-	    return bytesToFloat(buffer,endianMode);
+		metrics.onRead(DataType.FLOAT);
+	    return Float.intBitsToFloat(readInt());
 	}
 
 	/**
@@ -663,6 +1152,7 @@ public class SuperReader
 	 */
 	public float[] readFloats(int n) throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    float[] out = new float[n];
 	    for (int i = 0; i < out.length; i++)
 	    	out[i] = readFloat();
@@ -676,6 +1166,7 @@ public class SuperReader
 	 */
 	public float[] readFloatArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 		int[] nums = null;
 		float[] out = null;
 		try{
@@ -696,12 +1187,8 @@ public class SuperReader
 	 */
 	public double readDouble() throws IOException
 	{
-	    byte[] buffer = new byte[BufferUtils.SIZEOF_DOUBLE];
-	    int buf = byteRead(buffer);
-	    if (buf < BufferUtils.SIZEOF_DOUBLE)
-	    	throw new EOSException();
-	    else if (buf < BufferUtils.SIZEOF_DOUBLE) throw new IOException("Not enough bytes for a double.");
-	    return Double.longBitsToDouble(bytesToLong(buffer,endianMode));
+		metrics.onRead(DataType.DOUBLE);
+	    return Double.longBitsToDouble(readLong());
 	}
 
 	/**
@@ -710,6 +1197,7 @@ public class SuperReader
 	 */
 	public double[] readDoubles(int n) throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    double[] out = new double[n];
 	    for (int i = 0; i < out.length; i++)
 	    	out[i] = readDouble();
@@ -723,6 +1211,7 @@ public class SuperReader
 	 */
 	public double[] readDoubleArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 		long[] nums = null;
 		double[] out = null;
 		try{
@@ -737,18 +1226,48 @@ public class SuperReader
 	    return out;
 	}
 
+	/**
+	 * Reads in a float array written by {@link SuperWriter#writeCompactFloatArray(float[])}.
+	 * @return the array read, or null if the end of the stream was reached before the length.
+	 * @throws IOException	if an error occurred during the read, or the data is malformed.
+	 * @since 2.7.0
+	 */
+	public float[] readCompactFloatArray() throws IOException
+	{
+		metrics.onRead(DataType.ARRAY);
+		int length = readCompactArrayLength();
+		if (length < 0)
+			return null;
+		float[] out = new float[length];
+		readXORArray(out, null, length, Integer.SIZE);
+		return out;
+	}
+
+	/**
+	 * Reads in a double array written by {@link SuperWriter#writeCompactDoubleArray(double[])}.
+	 * @return the array read, or null if the end of the stream was reached before the length.
+	 * @throws IOException	if an error occurred during the read, or the data is malformed.
+	 * @since 2.7.0
+	 */
+	public double[] readCompactDoubleArray() throws IOException
+	{
+		metrics.onRead(DataType.ARRAY);
+		int length = readCompactArrayLength();
+		if (length < 0)
+			return null;
+		double[] out = new double[length];
+		readXORArray(null, out, length, Long.SIZE);
+		return out;
+	}
+
 	/**
 	 * Reads in a short.
 	 * @throws IOException	if an error occurred during the read.
 	 */
 	public short readShort() throws IOException
 	{
-	    byte[] buffer = new byte[BufferUtils.SIZEOF_SHORT];
-	    int buf = byteRead(buffer);
-	    if (buf < BufferUtils.SIZEOF_SHORT)
-	    	throw new EOSException();
-	    else if (buf < BufferUtils.SIZEOF_SHORT) throw new IOException("Not enough bytes for a short.");
-	    return bytesToShort(buffer,endianMode);
+		metrics.onRead(DataType.SHORT);
+	    return (short)scratchRead(BufferUtils.SIZEOF_SHORT);
 	}
 
 	/**
@@ -766,6 +1285,7 @@ public class SuperReader
 	 */
 	public short[] readShorts(int n) throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    short[] out = new short[n];
 	    for (int i = 0; i < out.length; i++)
 	    	out[i] = readShort();
@@ -779,6 +1299,7 @@ public class SuperReader
 	 */
 	public short[] readShortArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    short[] out = null;
 	    try {
 	    	out = new short[readInt()];
@@ -798,6 +1319,7 @@ public class SuperReader
 	 */
 	public short[][] readDoubleShortArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    short[][] out = null;
 	    try {
 	    	out = new short[readInt()][];
@@ -817,6 +1339,7 @@ public class SuperReader
 	 */
 	public short[][][] readTripleShortArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    short[][][] out = null;
 	    try {
 	    	out = new short[readInt()][][];
@@ -844,6 +1367,7 @@ public class SuperReader
 	 */
 	public char[] readChars(int n) throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    char[] out = new char[n];
 	    for (int i = 0; i < out.length; i++)
 	    	out[i] = readChar();
@@ -857,6 +1381,7 @@ public class SuperReader
 	 */
 	public char[] readCharArray() throws IOException
 	{
+		metrics.onRead(DataType.ARRAY);
 	    short[] s = readShortArray();
 		if (s == null)
 			return null;
@@ -876,6 +1401,7 @@ public class SuperReader
 	 */
 	public int readVariableLengthInt() throws IOException
 	{
+		metrics.onRead(DataType.VARIABLE_LENGTH);
 		int out = 0;
 		byte b = 0;
 		do {
@@ -897,6 +1423,7 @@ public class SuperReader
 	 */
 	public long readVariableLengthLong() throws IOException
 	{
+		metrics.onRead(DataType.VARIABLE_LENGTH);
 		long out = 0;
 		byte b = 0;
 		do {
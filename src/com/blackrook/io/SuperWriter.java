@@ -9,8 +9,15 @@ package com.blackrook.io;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
+import com.blackrook.io.IOMetricsListener.DataType;
 import com.blackrook.commons.math.RMath;
 import com.blackrook.commons.util.BufferUtils;
 
@@ -36,6 +43,13 @@ public class SuperWriter
 	private static byte[] BITMASK = {0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, (byte)0x80};
 	private byte currentBitByte;
 
+	/** Metrics listener. */
+	private IOMetricsListener metrics;
+	/** Scratch buffer for primitive and variable-length writes. */
+	private final byte[] scratch = new byte[10];
+	/** Pool for temporary buffers. */
+	private BufferPool bufferPool;
+
 	/**
 	 * Wraps a super writer around an OutputStream.  
 	 * @param o				the output stream to use.
@@ -44,9 +58,77 @@ public class SuperWriter
 	public SuperWriter(OutputStream o, boolean endianMode)
 	{
 		out = o;
+		metrics = IOMetricsListener.NONE;
+		bufferPool = BufferPools.getDefault();
 		setEndianMode(endianMode);
 		bitsLeft = 8;
 	}
+
+	/**
+	 * Rebinds this writer to another OutputStream, keeping the endian mode and metrics listener.
+	 * Any unwritten bits are discarded (call {@link #flushBits()} first to keep them).
+	 * The previous stream is not flushed nor closed.
+	 * @param o	the output stream to use.
+	 * @since 2.7.0
+	 */
+	public void reset(OutputStream o)
+	{
+		out = o;
+		bitsLeft = 8;
+		currentBitByte = 0;
+	}
+
+	/**
+	 * Rebinds this writer to another OutputStream, keeping the metrics listener.
+	 * Any unwritten bits are discarded (call {@link #flushBits()} first to keep them).
+	 * The previous stream is not flushed nor closed.
+	 * @param o				the output stream to use.
+	 * @param endianMode	the endian mode to use.
+	 * @since 2.7.0
+	 */
+	public void reset(OutputStream o, boolean endianMode)
+	{
+		setEndianMode(endianMode);
+		reset(o);
+	}
+
+	/**
+	 * Sets the listener that receives metrics events from this writer.
+	 * @param listener the listener to use, or null for {@link IOMetricsListener#NONE}.
+	 * @since 2.7.0
+	 */
+	public void setMetricsListener(IOMetricsListener listener)
+	{
+		metrics = listener != null ? listener : IOMetricsListener.NONE;
+	}
+
+	/**
+	 * Returns the listener that receives metrics events from this writer.
+	 * @since 2.7.0
+	 */
+	public IOMetricsListener getMetricsListener()
+	{
+		return metrics;
+	}
+
+	/**
+	 * Sets the pool that this writer gets temporary buffers from.
+	 * @param pool the pool to use, or null for {@link BufferPools#getDefault()}.
+	 * @since 2.7.0
+	 */
+	public void setBufferPool(BufferPool pool)
+	{
+		bufferPool = pool != null ? pool : BufferPools.getDefault();
+	}
+
+	/**
+	 * Returns the pool that this writer gets temporary buffers from.
+	 * @since 2.7.0
+	 */
+	public BufferPool getBufferPool()
+	{
+		return bufferPool;
+	}
 	
 	/**
 	 * Sets the byte endian mode for the byte conversion methods.
@@ -58,7 +140,189 @@ public class SuperWriter
 	{
 		endianMode = mode;
 	}
+
+	/**
+	 * Gets the byte endian mode for the byte conversion methods.
+	 * @return the current endian mode, either LITTLE_ENDIAN or BIG_ENDIAN.
+	 * @see #setEndianMode(boolean)
+	 * @since 2.7.0
+	 */
+	public boolean getEndianMode()
+	{
+		return endianMode;
+	}
 	
+	/**
+	 * Writes a byte to the bound stream.
+	 * @param b the byte to write (lower 8 bits are written).
+	 * @throws IOException	if an error occurred during the write.
+	 * @since 2.7.0
+	 */
+	protected void byteWrite(int b) throws IOException
+	{
+		if (metrics == IOMetricsListener.NONE)
+		{
+			out.write(b);
+			return;
+		}
+		long time = System.nanoTime();
+		out.write(b);
+		metrics.onStreamWrite(1, System.nanoTime() - time);
+	}
+
+	/**
+	 * Writes a series of bytes to the bound stream.
+	 * @param b		the source array of bytes.
+	 * @param off	the starting offset into the array.
+	 * @param len	the amount of bytes to write.
+	 * @throws IOException	if an error occurred during the write.
+	 * @since 2.7.0
+	 */
+	protected void byteWrite(byte[] b, int off, int len) throws IOException
+	{
+		if (metrics == IOMetricsListener.NONE)
+		{
+			out.write(b, off, len);
+			return;
+		}
+		long time = System.nanoTime();
+		out.write(b, off, len);
+		metrics.onStreamWrite(len, System.nanoTime() - time);
+	}
+
+	/**
+	 * Writes the lowest bytes of a value from the scratch buffer in the current endian mode.
+	 */
+	private void scratchWrite(long value, int bytes) throws IOException
+	{
+		for (int x = 0; x < bytes; x++)
+			scratch[endianMode ? x : bytes - 1 - x] = (byte)(value >>> (Byte.SIZE * x));
+		byteWrite(scratch, 0, bytes);
+	}
+
+	/**
+	 * Writes an unsigned variable-length integer, least significant group first.
+	 */
+	private void writeUnsignedVarInt(int value) throws IOException
+	{
+		byteWrite(scratch, 0, CompactEncoding.putVarInt(value, scratch, 0));
+	}
+
+	/**
+	 * Encodes a block of a compact integer array, using the smallest block mode.
+	 * Returns the length of the encoded block.
+	 */
+	private int encodeCompactBlock(int[] values, int start, int count, byte[] b)
+	{
+		int end = start + count;
+		int min = values[start];
+		int max = min;
+		int zigzagSize = 0;
+		int minDelta = 0;
+		int maxDelta = 0;
+		for (int x = start; x < end; x++)
+		{
+			int v = values[x];
+			min = Math.min(min, v);
+			max = Math.max(max, v);
+			zigzagSize += CompactEncoding.varIntSize(CompactEncoding.zigzag(v));
+			if (x == start + 1)
+				minDelta = maxDelta = v - values[x - 1];
+			else if (x > start + 1)
+			{
+				int d = v - values[x - 1];
+				minDelta = Math.min(minDelta, d);
+				maxDelta = Math.max(maxDelta, d);
+			}
+		}
+
+		int forBits = CompactEncoding.bitWidth((long)max - min);
+		int deltaBits = CompactEncoding.bitWidth((long)maxDelta - minDelta);
+		int rawSize = count * Integer.BYTES;
+		int forSize = CompactEncoding.varIntSize(CompactEncoding.zigzag(min)) + 1 + CompactEncoding.packedSize(count, forBits);
+		int deltaSize = count < 2 ? Integer.MAX_VALUE : CompactEncoding.varIntSize(CompactEncoding.zigzag(values[start])) 
+			+ CompactEncoding.varIntSize(CompactEncoding.zigzag(minDelta)) + 1 + CompactEncoding.packedSize(count - 1, deltaBits);
+
+		// ties go to the faster mode to decode.
+		int off = 1;
+		if (rawSize <= forSize && rawSize <= deltaSize && rawSize <= zigzagSize)
+		{
+			b[0] = CompactEncoding.MODE_RAW;
+			for (int x = start; x < end; x++, off += Integer.BYTES)
+				for (int n = 0; n < Integer.BYTES; n++)
+					b[off + (endianMode ? n : Integer.BYTES - 1 - n)] = (byte)(values[x] >>> (Byte.SIZE * n));
+		}
+		else if (forSize <= deltaSize && forSize <= zigzagSize)
+		{
+			b[0] = CompactEncoding.MODE_FOR;
+			off = CompactEncoding.putVarInt(CompactEncoding.zigzag(min), b, off);
+			b[off++] = (byte)forBits;
+			off = CompactEncoding.pack(values, start, count, false, min, forBits, b, off);
+		}
+		else if (deltaSize <= zigzagSize)
+		{
+			b[0] = CompactEncoding.MODE_DELTA;
+			off = CompactEncoding.putVarInt(CompactEncoding.zigzag(values[start]), b, off);
+			off = CompactEncoding.putVarInt(CompactEncoding.zigzag(minDelta), b, off);
+			b[off++] = (byte)deltaBits;
+			off = CompactEncoding.pack(values, start + 1, count - 1, true, minDelta, deltaBits, b, off);
+		}
+		else
+		{
+			b[0] = CompactEncoding.MODE_ZIGZAG;
+			for (int x = start; x < end; x++)
+				off = CompactEncoding.putVarInt(CompactEncoding.zigzag(values[x]), b, off);
+		}
+		return off;
+	}
+
+	/**
+	 * Writes a compact floating-point array from one of two arrays.
+	 */
+	private void writeXORArray(float[] f, double[] d, int length, int width) throws IOException
+	{
+		writeUnsignedVarInt(length);
+		if (length == 0)
+			return;
+
+		int bytes = width / Byte.SIZE;
+		byte[] block = bufferPool.acquireArray(CompactEncoding.MAX_XOR_BLOCK_BYTES);
+		CompactEncoding.BitWriter bits = new CompactEncoding.BitWriter();
+		CompactEncoding.XORState state = new CompactEncoding.XORState(width);
+		try {
+			for (int start = 0; start < length; start += CompactEncoding.XOR_BLOCK_SIZE)
+			{
+				int end = Math.min(start + CompactEncoding.XOR_BLOCK_SIZE, length);
+				bits.reset(block);
+				state.reset();
+				for (int x = start; x < end; x++)
+					state.encode(bits, f != null ? Float.floatToRawIntBits(f[x]) & 0xffffffffL : Double.doubleToRawLongBits(d[x]));
+				int len = bits.finish();
+
+				if (len < (end - start) * bytes)
+				{
+					scratch[0] = CompactEncoding.MODE_XOR;
+					byteWrite(scratch, 0, CompactEncoding.putVarInt(len, scratch, 1));
+					byteWrite(block, 0, len);
+				}
+				else
+				{
+					scratch[0] = CompactEncoding.MODE_RAW;
+					byteWrite(scratch, 0, 1);
+					for (int x = start, off = 0; x < end; x++, off += bytes)
+					{
+						long v = f != null ? Float.floatToRawIntBits(f[x]) : Double.doubleToRawLongBits(d[x]);
+						for (int n = 0; n < bytes; n++)
+							block[off + (endianMode ? n : bytes - 1 - n)] = (byte)(v >>> (Byte.SIZE * n));
+					}
+					byteWrite(block, 0, (end - start) * bytes);
+				}
+			}
+		} finally {
+			bufferPool.release(block);
+		}
+	}
+
 	/**
 	 * Casts a char to a short.
 	 */
@@ -114,6 +378,7 @@ public class SuperWriter
 	 */
 	public void writeString(String s) throws IOException
 	{
+		metrics.onWrite(DataType.STRING);
 		writeCharArray(s.toCharArray());
 	}
 
@@ -125,6 +390,7 @@ public class SuperWriter
 	 */
 	public void writeString(String s, String encodingType) throws IOException
 	{
+		metrics.onWrite(DataType.STRING);
 		writeByteArray(s.getBytes(encodingType));
 	}
 	
@@ -135,18 +401,88 @@ public class SuperWriter
 	 */
 	public void writeStringArray(String[] s) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(s.length);
 		for (int i = 0; i < s.length; i++)
 			writeString(s[i]);
 	}
 
+	/**
+	 * Writes a String array to the bound stream in a dictionary-encoded form:
+	 * each unique String once (as UTF-8), in order of first appearance, followed by each element 
+	 * as an index into that table, block-encoded like {@link #writeCompactIntArray(int[])}.
+	 * Arrays that repeat a small set of values (labels, categories, units) take a fraction of 
+	 * the space of {@link #writeStringArray(String[])}, and are read back as shared String instances.
+	 * Null elements are allowed.
+	 * @param s the array to write.
+	 * @throws IOException	if an error occurred during the write.
+	 * @see SuperReader#readDictionaryStringArray()
+	 * @since 2.7.0
+	 */
+	public void writeDictionaryStringArray(String[] s) throws IOException
+	{
+		metrics.onWrite(DataType.ARRAY);
+		writeUnsignedVarInt(s.length);
+		if (s.length == 0)
+			return;
+
+		// index 0 is null, so dictionary entries start at 1.
+		Map<String, Integer> indices = new HashMap<String, Integer>();
+		List<String> dictionary = new ArrayList<String>();
+		int[] values = new int[CompactEncoding.BLOCK_SIZE];
+		for (int i = 0; i < s.length; i++)
+			if (s[i] != null && !indices.containsKey(s[i]))
+			{
+				dictionary.add(s[i]);
+				indices.put(s[i], dictionary.size());
+			}
+
+		writeUnsignedVarInt(dictionary.size());
+		for (String str : dictionary)
+		{
+			metrics.onWrite(DataType.STRING);
+			byte[] b = str.getBytes(StandardCharsets.UTF_8);
+			writeUnsignedVarInt(b.length);
+			byteWrite(b, 0, b.length);
+		}
+
+		byte[] block = bufferPool.acquireArray(CompactEncoding.MAX_BLOCK_BYTES);
+		try {
+			for (int start = 0; start < s.length; start += CompactEncoding.BLOCK_SIZE)
+			{
+				int count = Math.min(CompactEncoding.BLOCK_SIZE, s.length - start);
+				for (int x = 0; x < count; x++)
+					values[x] = s[start + x] != null ? indices.get(s[start + x]) : 0;
+				byteWrite(block, 0, encodeCompactBlock(values, 0, count, block));
+			}
+		} finally {
+			bufferPool.release(block);
+		}
+	}
+
 	/**
 	 * Writes a String to the bound output stream encoded in ASCII.
 	 * @throws IOException	if an error occurred during the write.
 	 */
 	public void writeASCIIString(String s) throws IOException
 	{
-		out.write(s.getBytes("ASCII"));
+		metrics.onWrite(DataType.STRING);
+		int len = s.length();
+		byte[] b = bufferPool.acquireArray(len);
+		try {
+			// same as String.getBytes("ASCII"): unmappable characters (or surrogate pairs) become '?'.
+			int n = 0;
+			for (int i = 0; i < len; i++)
+			{
+				char c = s.charAt(i);
+				if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1)))
+					i++;
+				b[n++] = c < 0x80 ? (byte)c : (byte)'?';
+			}
+			byteWrite(b, 0, n);
+		} finally {
+			bufferPool.release(b);
+		}
 	}
 
 	/**
@@ -155,6 +491,7 @@ public class SuperWriter
 	 */
 	public void writeEncryptedString(String s) throws IOException
 	{
+		metrics.onWrite(DataType.STRING);
 		short key = (short)(RMath.randShort(new Random(),Short.MIN_VALUE,Short.MAX_VALUE) & 0x7fff);
 		if (key == 0) key = 0x0001;
 		char[] c = s.toCharArray();
@@ -176,12 +513,25 @@ public class SuperWriter
 		bitsLeft = 8;
 	}
 
+	/**
+	 * If we started writing bits, this will write the partially-filled byte and align the writer to the next byte.
+	 * If no bits have been written since the last byte, it doesn't do anything (unlike {@link #flushBits()}).
+	 * @throws IOException	if the bits cannot be written.
+	 * @since 2.7.0
+	 */
+	public void byteAlign() throws IOException
+	{
+		if (bitsLeft < 8)
+			flushBits();
+	}
+
     /**
 	 * Writes a bit. Writes least significant bit to most significant bit of the current byte.
 	 * @throws IOException	if the bit cannot be written.
 	 */
 	public void writeBit(boolean bit) throws IOException
 	{
+		metrics.onWrite(DataType.BIT);
 		if (bitsLeft == 0)
 			flushBits();
 		if (bit)
@@ -195,12 +545,11 @@ public class SuperWriter
 	 */
 	public void writeIntBits(int bitcount, int bits) throws IOException
 	{
-		if (bits < 0 || bits > 32)
+		if (bitcount < 0 || bitcount > 32)
 			throw new IllegalArgumentException("Bits should be between 0 and 32.");
 	
-		int i = 0;
-		while ((bits--) > 0)
-			writeBit((bits & (1 << i++)) != 0);
+		for (int i = 0; i < bitcount; i++)
+			writeBit((bits & (1 << i)) != 0);
 	}
 
 	/**
@@ -209,12 +558,11 @@ public class SuperWriter
 	 */
 	public void writeLongBits(int bitcount, long bits) throws IOException
 	{
-		if (bits < 0 || bits > 64)
+		if (bitcount < 0 || bitcount > 64)
 			throw new IllegalArgumentException("Bits should be between 0 and 64.");
 	
-		int i = 0;
-		while ((bits--) > 0)
-			writeBit((bits & (1 << i++)) != 0);
+		for (int i = 0; i < bitcount; i++)
+			writeBit((bits & (1L << i)) != 0);
 	}
 
 	/**
@@ -223,8 +571,9 @@ public class SuperWriter
 	 */
 	public void writeByte(byte b) throws IOException
 	{
+		metrics.onWrite(DataType.BYTE);
 		singleByteBuffer[0] = b;
-		out.write(singleByteBuffer);
+		byteWrite(singleByteBuffer, 0, 1);
 	}
 
 	/**
@@ -252,7 +601,8 @@ public class SuperWriter
 	 */
 	public void writeBytes(byte[] b) throws IOException
 	{
-		out.write(b);
+		metrics.onWrite(DataType.BYTES);
+		byteWrite(b, 0, b.length);
 	}
 
 	/**
@@ -262,8 +612,9 @@ public class SuperWriter
 	 */
 	public void writeByteArray(byte[] b) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(b.length);
-		out.write(b);
+		byteWrite(b, 0, b.length);
 	}
 
 	/**
@@ -272,6 +623,7 @@ public class SuperWriter
 	 */
 	public void writeBoolean(boolean b) throws IOException
 	{
+		metrics.onWrite(DataType.BOOLEAN);
 		writeByte((byte)(b?1:0));
 	}
 
@@ -290,7 +642,8 @@ public class SuperWriter
 	 */
 	public void writeInt(int i) throws IOException
 	{
-		out.write(intToBytes(i,endianMode));
+		metrics.onWrite(DataType.INT);
+		scratchWrite(i, BufferUtils.SIZEOF_INT);
 	}
 
 	/**
@@ -302,17 +655,17 @@ public class SuperWriter
 	 */
 	public void writeVariableLengthInt(int i) throws IOException
 	{
+		metrics.onWrite(DataType.VARIABLE_LENGTH);
 		if ((i & 0xf0000000) != 0)
 			throw new IllegalArgumentException("Int value out of bounds.");
 		if (i == 0)
 		{
-			out.write(0);
+			byteWrite(0);
 			return;
 		}
-		byte[] b;
+		byte[] b = scratch;
 		int z = i, x = 0;
 		while (z > 0) {z >>= 7; x++;}
-		b = new byte[x];
 		for (int n = x-1; n >= 0; n--)
 		{
 			b[n] = (byte)(i & 0x7f);
@@ -320,7 +673,7 @@ public class SuperWriter
 	    	if (n != x-1)
 	    		b[n] |= (byte)(0x80);
 		}
-		out.write(b);
+		byteWrite(b, 0, x);
 	}
 
 	/**
@@ -333,18 +686,18 @@ public class SuperWriter
 	 */
 	public void writeVariableLengthLong(long i) throws IOException
 	{
+		metrics.onWrite(DataType.VARIABLE_LENGTH);
 		if ((i & 0x8000000000000000L) != 0)
 			throw new IllegalArgumentException("Long value too large.");
 		if (i == 0)
 		{
-			out.write(0);
+			byteWrite(0);
 			return;
 		}
-		byte[] b;
+		byte[] b = scratch;
 		long z = i;
 		int x = 0;
 		while (z > 0) {z >>= 7; x++;}
-		b = new byte[x];
 		
 		for (int n = x-1; n >= 0; n--)
 		{
@@ -353,7 +706,7 @@ public class SuperWriter
 	    	if (n != x-1)
 	    		b[n] |= (byte)(0x80);
 		}
-		out.write(b);
+		byteWrite(b, 0, x);
 	}
 
 	/**
@@ -363,6 +716,7 @@ public class SuperWriter
 	 */
 	public void writeIntArray(int[] i) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(i.length);
 	    for (int x = 0; x < i.length; x++)
 	    	writeInt(i[x]);
@@ -375,6 +729,7 @@ public class SuperWriter
 	 */
 	public void writeIntArray(int[][] i) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(i.length);
 		for (int x = 0; x < i.length; x++)
 			writeIntArray(i[x]);
@@ -387,18 +742,47 @@ public class SuperWriter
 	 */
 	public void writeIntArray(int[][][] i) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(i.length);
 		for (int x = 0; x < i.length; x++)
 			writeIntArray(i[x]);
 	}
 
+	/**
+	 * Writes an integer array to the bound stream in a compact, block-encoded form.
+	 * The array is split into blocks of 128 integers, and each block is written in whichever
+	 * of these is smallest: raw integers, ZigZag variable-length integers, frame-of-reference
+	 * bit-packing (offsets from the block's minimum), or delta bit-packing (offsets from the 
+	 * block's minimum difference between neighbors). Sorted IDs, timestamps, and small values
+	 * take a fraction of the space of {@link #writeIntArray(int[])}.
+	 * @param i the array to write.
+	 * @throws IOException	if an error occurred during the write.
+	 * @see SuperReader#readCompactIntArray()
+	 * @since 2.7.0
+	 */
+	public void writeCompactIntArray(int[] i) throws IOException
+	{
+		metrics.onWrite(DataType.ARRAY);
+		writeUnsignedVarInt(i.length);
+		if (i.length == 0)
+			return;
+		byte[] block = bufferPool.acquireArray(CompactEncoding.MAX_BLOCK_BYTES);
+		try {
+			for (int start = 0; start < i.length; start += CompactEncoding.BLOCK_SIZE)
+				byteWrite(block, 0, encodeCompactBlock(i, start, Math.min(CompactEncoding.BLOCK_SIZE, i.length - start), block));
+		} finally {
+			bufferPool.release(block);
+		}
+	}
+
 	/**
 	 * Writes a long to the bound stream.
 	 * @throws IOException	if an error occurred during the write.
 	 */
 	public void writeLong(long l) throws IOException
 	{
-		out.write(longToBytes(l,endianMode));
+		metrics.onWrite(DataType.LONG);
+		scratchWrite(l, BufferUtils.SIZEOF_LONG);
 	}
 
 	/**
@@ -408,6 +792,7 @@ public class SuperWriter
 	 */
 	public void writeLongArray(long[] l) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(l.length);
 		for (int x = 0; x < l.length; x++)
 			writeLong(l[x]);
@@ -420,6 +805,7 @@ public class SuperWriter
 	 */
 	public void writeFloatArray(float[] f) throws IOException
 	{	
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(f.length);
 		for (int x = 0; x < f.length; x++)
 			writeFloat(f[x]);
@@ -431,6 +817,7 @@ public class SuperWriter
 	 */
 	public void writeFloat(float f) throws IOException
 	{
+		metrics.onWrite(DataType.FLOAT);
 	    writeInt(Float.floatToIntBits(f));
 	}
 
@@ -440,6 +827,7 @@ public class SuperWriter
 	 */
 	public void writeDouble(double d) throws IOException
 	{
+		metrics.onWrite(DataType.DOUBLE);
 	    writeLong(Double.doubleToLongBits(d));
 	}
 
@@ -450,18 +838,54 @@ public class SuperWriter
 	 */
 	public void writeDoubleArray(double[] d) throws IOException
 	{	
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(d.length);
 		for (int x = 0; x < d.length; x++)
 			writeDouble(d[x]);
 	}
 
+	/**
+	 * Writes a float array to the bound stream in a compact, XOR-encoded (Gorilla-style) form.
+	 * Each value is stored as the difference in bits from the value before it, so slowly-changing
+	 * or repeating series (sensor readings, prices, counters) take a fraction of the space of
+	 * {@link #writeFloatArray(float[])}. Blocks that would not get smaller are written raw.
+	 * Values (including NaNs) are stored bit-exact.
+	 * @param f the array to write.
+	 * @throws IOException	if an error occurred during the write.
+	 * @see SuperReader#readCompactFloatArray()
+	 * @since 2.7.0
+	 */
+	public void writeCompactFloatArray(float[] f) throws IOException
+	{
+		metrics.onWrite(DataType.ARRAY);
+		writeXORArray(f, null, f.length, Integer.SIZE);
+	}
+
+	/**
+	 * Writes a double array to the bound stream in a compact, XOR-encoded (Gorilla-style) form.
+	 * Each value is stored as the difference in bits from the value before it, so slowly-changing
+	 * or repeating series (sensor readings, prices, counters) take a fraction of the space of
+	 * {@link #writeDoubleArray(double[])}. Blocks that would not get smaller are written raw.
+	 * Values (including NaNs) are stored bit-exact.
+	 * @param d the array to write.
+	 * @throws IOException	if an error occurred during the write.
+	 * @see SuperReader#readCompactDoubleArray()
+	 * @since 2.7.0
+	 */
+	public void writeCompactDoubleArray(double[] d) throws IOException
+	{
+		metrics.onWrite(DataType.ARRAY);
+		writeXORArray(null, d, d.length, Long.SIZE);
+	}
+
 	/**
 	 * Writes a short to the bound stream.
 	 * @throws IOException	if an error occurred during the write.
 	 */
 	public void writeShort(short s) throws IOException
 	{
-		out.write(shortToBytes(s,endianMode));
+		metrics.onWrite(DataType.SHORT);
+		scratchWrite(s, BufferUtils.SIZEOF_SHORT);
 	}
 
 	/**
@@ -480,6 +904,7 @@ public class SuperWriter
 	 */
 	public void writeShortArray(short[] s) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(s.length);
 		for (int x = 0; x < s.length; x++)
 			writeShort(s[x]);
@@ -492,6 +917,7 @@ public class SuperWriter
 	 */
 	public void writeShortArray(short[][] s) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(s.length);
 		for (int x = 0; x < s.length; x++)
 			writeShortArray(s[x]);
@@ -504,6 +930,7 @@ public class SuperWriter
 	 */
 	public void writeShortArray(short[][][] s) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(s.length);
 		for (int x = 0; x < s.length; x++)
 			writeShortArray(s[x]);
@@ -525,6 +952,7 @@ public class SuperWriter
 	 */
 	public void writeCharArray(char[] c) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		writeInt(c.length);
 		for (int x = 0; x < c.length; x++)
 			writeChar(c[x]);
@@ -537,6 +965,7 @@ public class SuperWriter
 	 */
 	public void writeBooleanArray(boolean ... b) throws IOException
 	{
+		metrics.onWrite(DataType.ARRAY);
 		int[] bbits = new int[(b.length/Integer.SIZE)+((b.length%Integer.SIZE)!=0?1:0)];
 		for (int i = 0; i < b.length; i++)
 			if (b[i])
@@ -547,6 +976,94 @@ public class SuperWriter
 			writeInt(bbits[i]);
 	}
 
+	/**
+	 * Writes a {@link BitSet} to the bound stream. See {@link #writeBitmap(long[])} for the format.
+	 * @param bits the BitSet to write.
+	 * @throws IOException	if an error occurred during the write.
+	 * @throws IllegalArgumentException if the highest set bit is past 2^31.
+	 * @see SuperReader#readBitSet()
+	 * @since 2.7.0
+	 */
+	public void writeBitSet(BitSet bits) throws IOException
+	{
+		writeBitmap(bits.toLongArray());
+	}
+
+	/**
+	 * Writes a bitmap of 64-bit words to the bound stream (bit <code>n</code> is bit <code>n % 64</code> 
+	 * of word <code>n / 64</code>, like {@link BitSet#toLongArray()}).
+	 * This is written as whole words, or if smaller, as runs of set bits (gap and length of each run), 
+	 * so sparse bitmaps take space in proportion to their runs, not their length.
+	 * @param words the bitmap words.
+	 * @throws IOException	if an error occurred during the write.
+	 * @throws IllegalArgumentException if the bitmap is longer than 2^25 words (2^31 bits).
+	 * @see SuperReader#readBitmap()
+	 * @since 2.7.0
+	 */
+	public void writeBitmap(long[] words) throws IOException
+	{
+		metrics.onWrite(DataType.ARRAY);
+		if (words.length > CompactEncoding.MAX_BITMAP_WORDS)
+			throw new IllegalArgumentException("Bitmap is too long: " + words.length + " words.");
+		writeUnsignedVarInt(words.length);
+		if (words.length == 0)
+			return;
+
+		// size of the runs, stopping once it's no better than raw.
+		long rawSize = words.length * (long)Long.BYTES;
+		long runSize = 0L;
+		int runs = 0;
+		long end = 0L;
+		for (long start = CompactEncoding.nextSetBit(words, 0L); start >= 0L && runSize < rawSize; start = CompactEncoding.nextSetBit(words, end))
+		{
+			long runEnd = CompactEncoding.nextClearBit(words, start);
+			runSize += CompactEncoding.varIntSize((int)(start - end)) + CompactEncoding.varIntSize((int)(runEnd - start));
+			runs++;
+			end = runEnd;
+		}
+		runSize += CompactEncoding.varIntSize(runs);
+
+		byte[] chunk = bufferPool.acquireArray(CompactEncoding.BITMAP_CHUNK_BYTES);
+		try {
+			if (runSize < rawSize)
+			{
+				scratch[0] = CompactEncoding.MODE_RUNS;
+				byteWrite(scratch, 0, CompactEncoding.putVarInt(runs, scratch, 1));
+				int off = 0;
+				end = 0L;
+				for (long start = CompactEncoding.nextSetBit(words, 0L); start >= 0L; start = CompactEncoding.nextSetBit(words, end))
+				{
+					long runEnd = CompactEncoding.nextClearBit(words, start);
+					off = CompactEncoding.putVarInt((int)(start - end), chunk, off);
+					off = CompactEncoding.putVarInt((int)(runEnd - start), chunk, off);
+					end = runEnd;
+					if (off > CompactEncoding.BITMAP_CHUNK_BYTES - 10)
+					{
+						byteWrite(chunk, 0, off);
+						off = 0;
+					}
+				}
+				byteWrite(chunk, 0, off);
+			}
+			else
+			{
+				scratch[0] = CompactEncoding.MODE_RAW;
+				byteWrite(scratch, 0, 1);
+				int chunkWords = CompactEncoding.BITMAP_CHUNK_BYTES / Long.BYTES;
+				for (int start = 0; start < words.length; start += chunkWords)
+				{
+					int count = Math.min(chunkWords, words.length - start);
+					for (int x = 0, off = 0; x < count; x++, off += Long.BYTES)
+						for (int n = 0; n < Long.BYTES; n++)
+							chunk[off + (endianMode ? n : Long.BYTES - 1 - n)] = (byte)(words[start + x] >>> (Byte.SIZE * n));
+					byteWrite(chunk, 0, count * Long.BYTES);
+				}
+			}
+		} finally {
+			bufferPool.release(chunk);
+		}
+	}
+
 	/**
 	 * Closes the stream bound to this writer.
 	 * @throws IOException	if an error occurs closing the stream.
@@ -556,5 +1073,4 @@ public class SuperWriter
 		out.close();
 	}
 
-
 }
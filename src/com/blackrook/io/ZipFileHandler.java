@@ -16,11 +16,13 @@ import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.zip.*;
 
+import com.blackrook.io.jfr.EventSupport;
+import com.blackrook.io.jfr.ZipUnzipAllEvent;
+import com.blackrook.io.jfr.ZipUnzipEvent;
 import com.blackrook.commons.hash.CaseInsensitiveHashMap;
 import com.blackrook.commons.hash.HashMap;
 import com.blackrook.commons.list.List;
 import com.blackrook.commons.util.FileUtils;
-import com.blackrook.commons.util.IOUtils;
 import com.blackrook.commons.util.OSUtils;
 
 
@@ -37,6 +39,8 @@ import com.blackrook.commons.util.OSUtils;
 public class ZipFileHandler implements AutoCloseable
 {
 	private static final File WORK_DIR = new File(OSUtils.getWorkingDirectoryPath());
+	/** Size of the buffer used for copying unzipped data. */
+	private static final int RELAY_BUFFER_SIZE = 65536;
 	
 	/** FileFilter that accepts all files. */
 	public static final EntryFilter ALL_FILES = new EntryFilter()
@@ -159,17 +163,35 @@ public class ZipFileHandler implements AutoCloseable
 	public File[] unzipAllFiles(String key, ZipFile zf, EntryFilter filter, 
 			File targetDirectory, boolean preservePath) throws IOException
 	{
+		ZipUnzipAllEvent event = EventSupport.ENABLED ? new ZipUnzipAllEvent() : null;
+		if (event != null)
+			event.begin();
+
 		List<File> list = new List<File>(zf.size());
 		Enumeration<? extends ZipEntry> entries = zf.entries();
+		long bytes = 0L;
 		while (entries.hasMoreElements())
 		{
 			ZipEntry ze = entries.nextElement();
 			if (filter.accept(ze))
+			{
 				list.add(unzip(key,zf,ze,targetDirectory,preservePath));
+				bytes += Math.max(ze.getSize(), 0L);
+			}
 		}
 		
 		File[] out = new File[list.size()];
 		list.toArray(out);
+
+		if (event != null)
+			event.end();
+		if (event != null && event.shouldCommit())
+		{
+			event.zipFile = zf.getName();
+			event.entries = out.length;
+			event.bytes = bytes;
+			event.commit();
+		}
 		return out;
 	}
 	
@@ -288,14 +310,37 @@ public class ZipFileHandler implements AutoCloseable
 		if (!FileUtils.createPathForFile(outFile))
 			return null;
 		
+		ZipUnzipEvent event = EventSupport.ENABLED ? new ZipUnzipEvent() : null;
+		if (event != null)
+			event.begin();
+
 		InputStream inStream = zf.getInputStream(ze);
 		OutputStream outStream = new FileOutputStream(outFile);
 
-		IOUtils.relay(inStream, outStream);
+		BufferPool pool = BufferPools.getDefault();
+		byte[] buffer = pool.acquireArray(RELAY_BUFFER_SIZE);
+		try {
+			int buf;
+			while ((buf = inStream.read(buffer)) > 0)
+				outStream.write(buffer, 0, buf);
+		} finally {
+			pool.release(buffer);
+		}
 		
 		inStream.close();
 		outStream.close();
 		
+		if (event != null)
+			event.end();
+		if (event != null && event.shouldCommit())
+		{
+			event.zipFile = zf.getName();
+			event.entryName = ze.getName();
+			event.compressedBytes = ze.getCompressedSize();
+			event.bytes = outFile.length();
+			event.commit();
+		}
+
 		unzipTable.put(key, outFile);
 		
 		return outFile;
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.io.IOException;
+
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.SuperWriter;
+
+/**
+ * Reads and writes objects of a specific type through {@link SuperReader}s and {@link SuperWriter}s.
+ * Implementations are generated for classes annotated with {@link BinaryType}, but can be written by hand.
+ * @param <T> the type that this reads and writes.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public interface BinaryCodec<T>
+{
+	/**
+	 * Reads an object.
+	 * @param reader the reader to read from.
+	 * @return the object read.
+	 * @throws IOException if the object could not be read.
+	 */
+	public T read(SuperReader reader) throws IOException;
+
+	/**
+	 * Writes an object.
+	 * @param writer the writer to write to.
+	 * @param value the object to write.
+	 * @throws IOException if the object could not be written.
+	 * @throws IllegalArgumentException if the object contains a value that cannot be written.
+	 */
+	public void write(SuperWriter writer, T value) throws IOException;
+
+}
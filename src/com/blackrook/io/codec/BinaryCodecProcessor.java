@@ -0,0 +1,707 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor that generates {@link BinaryCodec} classes for classes annotated with {@link BinaryType}.
+ * <p>This is registered as a service in the library JAR, so it runs automatically when the library
+ * is on the compile classpath (unless processing is turned off). The generated code is straight-line
+ * calls to {@link com.blackrook.io.SuperReader} and {@link com.blackrook.io.SuperWriter} methods, and 
+ * calls to other generated codecs through their static <code>INSTANCE</code> fields - no reflection.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@SupportedAnnotationTypes({
+	"com.blackrook.io.codec.BinaryType",
+	"com.blackrook.io.codec.BigEndian",
+	"com.blackrook.io.codec.LittleEndian",
+	"com.blackrook.io.codec.Bits",
+	"com.blackrook.io.codec.VarInt",
+	"com.blackrook.io.codec.VarLength",
+})
+public class BinaryCodecProcessor extends AbstractProcessor
+{
+	/** Effective endian mode: the reader/writer's own. */
+	private static final int ENDIAN_CALLER = 0;
+	/** Effective endian mode: little. */
+	private static final int ENDIAN_LITTLE = 1;
+	/** Effective endian mode: big. */
+	private static final int ENDIAN_BIG = 2;
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		for (Element element : roundEnv.getElementsAnnotatedWith(BinaryType.class))
+		{
+			try {
+				generate(element);
+			} catch (CodecException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write codec: " + e.getMessage(), element);
+			}
+		}
+		return true;
+	}
+
+	// Generates the codec for a type.
+	private void generate(Element element) throws IOException
+	{
+		boolean record = element.getKind().name().equals("RECORD");
+		if (element.getKind() != ElementKind.CLASS && !record)
+			throw new CodecException(element, "@BinaryType can only be used on classes and records.");
+
+		TypeElement type = (TypeElement)element;
+		if (type.getModifiers().contains(Modifier.ABSTRACT))
+			throw new CodecException(type, "@BinaryType classes cannot be abstract.");
+		if (type.getModifiers().contains(Modifier.PRIVATE))
+			throw new CodecException(type, "@BinaryType classes cannot be private.");
+		if (type.getNestingKind() != NestingKind.TOP_LEVEL && (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC)))
+			throw new CodecException(type, "@BinaryType classes must be top-level or static member classes.");
+		if (!type.getTypeParameters().isEmpty())
+			throw new CodecException(type, "@BinaryType classes cannot be generic.");
+
+		int typeEndian = endianOf(type, ENDIAN_CALLER);
+		List<FieldInfo> fields = new ArrayList<>();
+		for (Element e : type.getEnclosedElements())
+		{
+			if (e.getKind() != ElementKind.FIELD)
+				continue;
+			if (e.getModifiers().contains(Modifier.STATIC) || e.getModifiers().contains(Modifier.TRANSIENT))
+				continue;
+			fields.add(fieldInfo(type, (VariableElement)e, record, typeEndian));
+		}
+		if (!record)
+			checkConstructor(type);
+
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String codecName = codecSimpleName(type);
+		String typeName = type.getQualifiedName().toString();
+
+		Code code = new Code();
+		if (!packageName.isEmpty())
+			code.line("package " + packageName + ";").line();
+		code.line("import java.io.IOException;").line();
+		code.line("import com.blackrook.io.SuperReader;");
+		code.line("import com.blackrook.io.SuperWriter;");
+		code.line("import com.blackrook.io.codec.BinaryCodec;");
+		code.line("import com.blackrook.io.codec.CodecSupport;").line();
+		code.line("/**");
+		code.line(" * Generated codec for {@link " + typeName + "}.");
+		code.line(" * Generated by " + BinaryCodecProcessor.class.getName() + ". Do not edit.");
+		code.line(" */");
+		code.line("public final class " + codecName + " implements BinaryCodec<" + typeName + ">");
+		code.open();
+		code.line("/** The codec instance. */");
+		code.line("public static final " + codecName + " INSTANCE = new " + codecName + "();").line();
+
+		// cached enum constants.
+		Map<String, String> enumValues = new LinkedHashMap<>();
+		for (FieldInfo f : fields)
+			collectEnums(f.type, enumValues);
+		for (Map.Entry<String, String> entry : enumValues.entrySet())
+			code.line("private static final " + entry.getKey() + "[] " + entry.getValue() + " = " + entry.getKey() + ".values();");
+		if (!enumValues.isEmpty())
+			code.line();
+
+		code.line("private " + codecName + "() {}").line();
+
+		boolean switchesEndian = false;
+		for (FieldInfo f : fields)
+			switchesEndian |= f.endian != ENDIAN_CALLER;
+
+		generateRead(code, type, typeName, fields, record, switchesEndian, enumValues);
+		code.line();
+		generateWrite(code, typeName, fields, switchesEndian);
+		code.close();
+
+		JavaFileObject file = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? codecName : packageName + "." + codecName, type);
+		try (Writer writer = file.openWriter())
+		{
+			writer.write(code.toString());
+		}
+	}
+
+	private void generateRead(Code code, TypeElement type, String typeName, List<FieldInfo> fields, boolean record, boolean switchesEndian, Map<String, String> enumValues)
+	{
+		code.line("@Override");
+		code.line("public " + typeName + " read(SuperReader reader) throws IOException");
+		code.open();
+		if (switchesEndian)
+		{
+			code.line("boolean endian = reader.getEndianMode();");
+			code.line("try {").indent();
+		}
+
+		int endian = ENDIAN_CALLER;
+		boolean bits = false;
+		for (int i = 0; i < fields.size(); i++)
+		{
+			FieldInfo f = fields.get(i);
+			if (f.endian != endian)
+			{
+				code.line("reader.setEndianMode(" + endianExpression("SuperReader", f.endian) + ");");
+				endian = f.endian;
+			}
+			boolean bitField = f.bits > 0;
+			if (bitField && (!bits || f.type.getKind() == TypeKind.ARRAY))
+				code.line("reader.byteAlign();");
+			String local = "f" + i;
+			code.line(f.type + " " + local + ";");
+			readValue(code, f, f.type, local, 0, enumValues);
+			bits = bitField;
+		}
+		if (bits)
+			code.line("reader.byteAlign();");
+
+		if (record)
+		{
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < fields.size(); i++)
+				sb.append(i > 0 ? ", " : "").append("f").append(i);
+			code.line("return new " + typeName + "(" + sb + ");");
+		}
+		else
+		{
+			code.line(typeName + " value = new " + typeName + "();");
+			for (int i = 0; i < fields.size(); i++)
+			{
+				FieldInfo f = fields.get(i);
+				if (f.setter != null)
+					code.line("value." + f.setter + "(f" + i + ");");
+				else
+					code.line("value." + f.name + " = f" + i + ";");
+			}
+			code.line("return value;");
+		}
+
+		if (switchesEndian)
+		{
+			code.outdent().line("} finally {").indent();
+			code.line("reader.setEndianMode(endian);");
+			code.outdent().line("}");
+		}
+		code.close();
+	}
+
+	private void generateWrite(Code code, String typeName, List<FieldInfo> fields, boolean switchesEndian)
+	{
+		code.line("@Override");
+		code.line("public void write(SuperWriter writer, " + typeName + " value) throws IOException");
+		code.open();
+		if (switchesEndian)
+		{
+			code.line("boolean endian = writer.getEndianMode();");
+			code.line("try {").indent();
+		}
+
+		int endian = ENDIAN_CALLER;
+		boolean bits = false;
+		for (int i = 0; i < fields.size(); i++)
+		{
+			FieldInfo f = fields.get(i);
+			boolean bitField = f.bits > 0;
+			// pending bits must be written before anything byte-sized.
+			if (bits && (!bitField || f.type.getKind() == TypeKind.ARRAY))
+				code.line("writer.byteAlign();");
+			if (f.endian != endian)
+			{
+				code.line("writer.setEndianMode(" + endianExpression("SuperWriter", f.endian) + ");");
+				endian = f.endian;
+			}
+			String local = "w" + i;
+			code.line(f.type + " " + local + " = value." + f.getter + ";");
+			writeValue(code, f, f.type, local, 0);
+			bits = bitField;
+		}
+		if (bits)
+			code.line("writer.byteAlign();");
+
+		if (switchesEndian)
+		{
+			code.outdent().line("} finally {").indent();
+			code.line("writer.setEndianMode(endian);");
+			code.outdent().line("}");
+		}
+		code.close();
+	}
+
+	// Emits statements that read a value of a type into a target.
+	private void readValue(Code code, FieldInfo f, TypeMirror type, String target, int depth, Map<String, String> enumValues)
+	{
+		if (type.getKind() == TypeKind.ARRAY)
+		{
+			TypeMirror component = ((ArrayType)type).getComponentType();
+			String len = "n" + depth;
+			String index = "i" + depth;
+			// nested arrays are already in a loop body.
+			if (depth == 0)
+				code.open();
+			code.line("int " + len + " = CodecSupport.readLength(reader, " + f.varLength + ");");
+			code.line("if (" + len + " < 0)").indent().line(target + " = null;").outdent();
+			code.line("else").open();
+			code.line(target + " = " + newArrayExpression(type, len) + ";");
+			if (component.getKind() == TypeKind.BYTE && f.bits == 0)
+				code.line("CodecSupport.readBytes(reader, " + target + ", " + len + ");");
+			else
+			{
+				code.line("for (int " + index + " = 0; " + index + " < " + len + "; " + index + "++)").open();
+				readValue(code, f, component, target + "[" + index + "]", depth + 1, enumValues);
+				code.close();
+			}
+			code.close();
+			if (depth == 0)
+				code.close();
+			return;
+		}
+
+		int n = f.bits;
+		switch (type.getKind())
+		{
+			case BOOLEAN:
+				code.line(target + " = " + (n > 0 ? "reader.readBit()" : "reader.readBoolean()") + ";");
+				return;
+			case BYTE:
+				code.line(target + " = " + (n > 0 ? "(byte)reader.readIntBits(" + n + ")" : "reader.readByte()") + ";");
+				return;
+			case SHORT:
+				code.line(target + " = " + (n > 0 ? "(short)reader.readIntBits(" + n + ")" : "reader.readShort()") + ";");
+				return;
+			case CHAR:
+				code.line(target + " = " + (n > 0 ? "(char)reader.readIntBits(" + n + ")" : "reader.readChar()") + ";");
+				return;
+			case INT:
+				if (n > 0)
+					code.line(target + " = reader.readIntBits(" + n + ");");
+				else if (f.varInt)
+					code.line(target + " = " + (f.zigzag ? "CodecSupport.readZigZagInt(reader)" : "reader.readVariableLengthInt()") + ";");
+				else
+					code.line(target + " = reader.readInt();");
+				return;
+			case LONG:
+				if (n > 0)
+					code.line(target + " = reader.readLongBits(" + n + ");");
+				else if (f.varInt)
+					code.line(target + " = " + (f.zigzag ? "CodecSupport.readZigZagLong(reader)" : "reader.readVariableLengthLong()") + ";");
+				else
+					code.line(target + " = reader.readLong();");
+				return;
+			case FLOAT:
+				code.line(target + " = reader.readFloat();");
+				return;
+			case DOUBLE:
+				code.line(target + " = reader.readDouble();");
+				return;
+			default:
+				break;
+		}
+
+		TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+		if (isString(type))
+			code.line(target + " = CodecSupport.readString(reader, " + f.varLength + ");");
+		else if (element.getKind() == ElementKind.ENUM)
+		{
+			String ordinal = "o" + depth;
+			// scalar fields get their own block, so that the local does not clash with another field's.
+			if (depth == 0)
+				code.open();
+			code.line("int " + ordinal + " = reader.readVariableLengthInt();");
+			code.line(target + " = " + ordinal + " == 0 ? null : " + enumValues.get(element.getQualifiedName().toString()) + "[" + ordinal + " - 1];");
+			if (depth == 0)
+				code.close();
+		}
+		else
+			code.line(target + " = " + codecReference(element) + ".read(reader);");
+	}
+
+	// Emits statements that write a value of a type from an expression.
+	private void writeValue(Code code, FieldInfo f, TypeMirror type, String value, int depth)
+	{
+		if (type.getKind() == TypeKind.ARRAY)
+		{
+			TypeMirror component = ((ArrayType)type).getComponentType();
+			String index = "i" + depth;
+			code.line("CodecSupport.writeLength(writer, " + value + " == null ? -1 : " + value + ".length, " + f.varLength + ");");
+			if (component.getKind() == TypeKind.BYTE && f.bits == 0)
+			{
+				code.line("if (" + value + " != null)").indent();
+				code.line("writer.writeBytes(" + value + ");").outdent();
+			}
+			else
+			{
+				code.line("if (" + value + " != null)").indent();
+				code.line("for (int " + index + " = 0; " + index + " < " + value + ".length; " + index + "++)").open();
+				writeValue(code, f, component, value + "[" + index + "]", depth + 1);
+				code.close().outdent();
+			}
+			return;
+		}
+
+		int n = f.bits;
+		switch (type.getKind())
+		{
+			case BOOLEAN:
+				code.line(n > 0 ? "writer.writeBit(" + value + ");" : "writer.writeBoolean(" + value + ");");
+				return;
+			case BYTE:
+				code.line(n > 0 ? "writer.writeIntBits(" + n + ", " + value + ");" : "writer.writeByte(" + value + ");");
+				return;
+			case SHORT:
+				code.line(n > 0 ? "writer.writeIntBits(" + n + ", " + value + ");" : "writer.writeShort(" + value + ");");
+				return;
+			case CHAR:
+				code.line(n > 0 ? "writer.writeIntBits(" + n + ", " + value + ");" : "writer.writeChar(" + value + ");");
+				return;
+			case INT:
+				if (n > 0)
+					code.line("writer.writeIntBits(" + n + ", " + value + ");");
+				else if (f.varInt)
+					code.line(f.zigzag ? "CodecSupport.writeZigZagInt(writer, " + value + ");" : "writer.writeVariableLengthInt(" + value + ");");
+				else
+					code.line("writer.writeInt(" + value + ");");
+				return;
+			case LONG:
+				if (n > 0)
+					code.line("writer.writeLongBits(" + n + ", " + value + ");");
+				else if (f.varInt)
+					code.line(f.zigzag ? "CodecSupport.writeZigZagLong(writer, " + value + ");" : "writer.writeVariableLengthLong(" + value + ");");
+				else
+					code.line("writer.writeLong(" + value + ");");
+				return;
+			case FLOAT:
+				code.line("writer.writeFloat(" + value + ");");
+				return;
+			case DOUBLE:
+				code.line("writer.writeDouble(" + value + ");");
+				return;
+			default:
+				break;
+		}
+
+		TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+		if (isString(type))
+			code.line("CodecSupport.writeString(writer, " + value + ", " + f.varLength + ");");
+		else if (element.getKind() == ElementKind.ENUM)
+			code.line("writer.writeVariableLengthInt(" + value + " == null ? 0 : " + value + ".ordinal() + 1);");
+		else
+		{
+			code.line("if (" + value + " == null)").indent();
+			code.line("throw new IllegalArgumentException(\"" + f.owner + "." + f.name + " cannot contain null.\");").outdent();
+			code.line(codecReference(element) + ".write(writer, " + value + ");");
+		}
+	}
+
+	// Reads and checks the annotations on a field.
+	private FieldInfo fieldInfo(TypeElement owner, VariableElement field, boolean record, int typeEndian)
+	{
+		FieldInfo out = new FieldInfo();
+		out.owner = owner.getSimpleName().toString();
+		out.name = field.getSimpleName().toString();
+		out.type = field.asType();
+		out.endian = endianOf(field, typeEndian);
+
+		TypeMirror base = out.type;
+		int dimensions = 0;
+		while (base.getKind() == TypeKind.ARRAY)
+		{
+			base = ((ArrayType)base).getComponentType();
+			dimensions++;
+		}
+		checkType(field, base);
+
+		VarInt varInt = field.getAnnotation(VarInt.class);
+		if (varInt != null)
+		{
+			if (base.getKind() != TypeKind.INT && base.getKind() != TypeKind.LONG)
+				throw new CodecException(field, "@VarInt can only be used on int and long fields (or arrays of them).");
+			out.varInt = true;
+			out.zigzag = varInt.zigzag();
+		}
+
+		Bits bits = field.getAnnotation(Bits.class);
+		if (bits != null)
+		{
+			int max = bitSize(base.getKind());
+			if (max == 0 || dimensions > 1)
+				throw new CodecException(field, "@Bits can only be used on boolean, byte, short, char, int and long fields (or arrays of them).");
+			if (bits.value() < 1 || bits.value() > max || (base.getKind() == TypeKind.BOOLEAN && bits.value() != 1))
+				throw new CodecException(field, "@Bits must be from 1 to " + max + " for this type.");
+			if (varInt != null)
+				throw new CodecException(field, "@Bits and @VarInt cannot be used together.");
+			out.bits = bits.value();
+		}
+
+		if (field.getAnnotation(VarLength.class) != null)
+		{
+			if (dimensions == 0 && !isString(base))
+				throw new CodecException(field, "@VarLength can only be used on array and String fields.");
+			out.varLength = true;
+		}
+
+		if (record)
+			out.getter = out.name + "()";
+		else if (!field.getModifiers().contains(Modifier.PRIVATE))
+		{
+			if (field.getModifiers().contains(Modifier.FINAL))
+				throw new CodecException(field, "Fields of @BinaryType classes cannot be final.");
+			out.getter = out.name;
+		}
+		else
+		{
+			String suffix = Character.toUpperCase(out.name.charAt(0)) + out.name.substring(1);
+			String getter = findMethod(owner, out.type.getKind() == TypeKind.BOOLEAN ? "is" + suffix : "get" + suffix, null);
+			if (getter == null)
+				getter = findMethod(owner, "get" + suffix, null);
+			String setter = findMethod(owner, "set" + suffix, out.type);
+			if (getter == null || setter == null)
+				throw new CodecException(field, "Private fields of @BinaryType classes need non-private getters and setters.");
+			out.getter = getter + "()";
+			out.setter = setter;
+		}
+		return out;
+	}
+
+	// Checks that a (non-array) field type is supported.
+	private void checkType(VariableElement field, TypeMirror type)
+	{
+		if (type.getKind().isPrimitive() || isString(type))
+			return;
+		if (type.getKind() == TypeKind.DECLARED)
+		{
+			Element element = ((DeclaredType)type).asElement();
+			if (element.getKind() == ElementKind.ENUM || element.getAnnotation(BinaryType.class) != null)
+				return;
+		}
+		throw new CodecException(field, "Unsupported field type: " + type + ". Fields must be primitives, Strings, enums, @BinaryType classes, or arrays of them.");
+	}
+
+	// Finds a non-private, non-static method with no parameters (or one parameter of a type).
+	private String findMethod(TypeElement owner, String name, TypeMirror parameter)
+	{
+		for (Element e : processingEnv.getElementUtils().getAllMembers(owner))
+		{
+			if (e.getKind() != ElementKind.METHOD || !e.getSimpleName().contentEquals(name))
+				continue;
+			if (e.getModifiers().contains(Modifier.PRIVATE) || e.getModifiers().contains(Modifier.STATIC))
+				continue;
+			ExecutableElement method = (ExecutableElement)e;
+			if (parameter == null ? method.getParameters().isEmpty() 
+					: method.getParameters().size() == 1 && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), parameter))
+				return name;
+		}
+		return null;
+	}
+
+	// Checks for a usable constructor with no parameters.
+	private void checkConstructor(TypeElement type)
+	{
+		for (Element e : type.getEnclosedElements())
+			if (e.getKind() == ElementKind.CONSTRUCTOR && ((ExecutableElement)e).getParameters().isEmpty() && !e.getModifiers().contains(Modifier.PRIVATE))
+				return;
+		throw new CodecException(type, "@BinaryType classes need a non-private constructor with no parameters.");
+	}
+
+	// Collects the enum types used in a field.
+	private void collectEnums(TypeMirror type, Map<String, String> enumValues)
+	{
+		while (type.getKind() == TypeKind.ARRAY)
+			type = ((ArrayType)type).getComponentType();
+		if (type.getKind() != TypeKind.DECLARED)
+			return;
+		TypeElement element = (TypeElement)((DeclaredType)type).asElement();
+		String name = element.getQualifiedName().toString();
+		if (element.getKind() == ElementKind.ENUM && !enumValues.containsKey(name))
+			enumValues.put(name, "ENUM_VALUES_" + enumValues.size());
+	}
+
+	private int endianOf(Element element, int defaultEndian)
+	{
+		boolean little = element.getAnnotation(LittleEndian.class) != null;
+		boolean big = element.getAnnotation(BigEndian.class) != null;
+		if (little && big)
+			throw new CodecException(element, "@LittleEndian and @BigEndian cannot be used together.");
+		return little ? ENDIAN_LITTLE : (big ? ENDIAN_BIG : defaultEndian);
+	}
+
+	private boolean isString(TypeMirror type)
+	{
+		return type.getKind() == TypeKind.DECLARED 
+			&& ((TypeElement)((DeclaredType)type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+	}
+
+	private String codecSimpleName(TypeElement type)
+	{
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String codecName = BinaryCodecs.codecClassName(binaryName);
+		return codecName.substring(codecName.lastIndexOf('.') + 1);
+	}
+
+	private String codecReference(TypeElement type)
+	{
+		return BinaryCodecs.codecClassName(processingEnv.getElementUtils().getBinaryName(type).toString()) + ".INSTANCE";
+	}
+
+	private static int bitSize(TypeKind kind)
+	{
+		switch (kind)
+		{
+			case BOOLEAN:
+				return 1;
+			case BYTE:
+				return Byte.SIZE;
+			case SHORT:
+				return Short.SIZE;
+			case CHAR:
+				return Character.SIZE;
+			case INT:
+				return Integer.SIZE;
+			case LONG:
+				return Long.SIZE;
+			default:
+				return 0;
+		}
+	}
+
+	private static String endianExpression(String className, int endian)
+	{
+		switch (endian)
+		{
+			case ENDIAN_LITTLE:
+				return className + ".LITTLE_ENDIAN";
+			case ENDIAN_BIG:
+				return className + ".BIG_ENDIAN";
+			default:
+				return "endian";
+		}
+	}
+
+	// "new int[n][]" for "int[][]".
+	private static String newArrayExpression(TypeMirror arrayType, String length)
+	{
+		String name = arrayType.toString();
+		int bracket = name.indexOf("[]");
+		return "new " + name.substring(0, bracket) + "[" + length + "]" + name.substring(bracket + 2);
+	}
+
+	/**
+	 * Field information.
+	 */
+	private static class FieldInfo
+	{
+		private String owner;
+		private String name;
+		private TypeMirror type;
+		private String getter;
+		private String setter;
+		private int endian;
+		private int bits;
+		private boolean varInt;
+		private boolean zigzag;
+		private boolean varLength;
+	}
+
+	/**
+	 * Thrown on a bad annotated element.
+	 */
+	private static class CodecException extends RuntimeException
+	{
+		private static final long serialVersionUID = -6383460947016524553L;
+
+		private final transient Element element;
+
+		CodecException(Element element, String message)
+		{
+			super(message);
+			this.element = element;
+		}
+	}
+
+	/**
+	 * Source code builder.
+	 */
+	private static class Code
+	{
+		private StringBuilder sb = new StringBuilder();
+		private int indent = 0;
+
+		Code line(String line)
+		{
+			for (int i = 0; i < indent; i++)
+				sb.append('\t');
+			sb.append(line).append('\n');
+			return this;
+		}
+
+		Code line()
+		{
+			sb.append('\n');
+			return this;
+		}
+
+		Code indent()
+		{
+			indent++;
+			return this;
+		}
+
+		Code outdent()
+		{
+			indent--;
+			return this;
+		}
+
+		Code open()
+		{
+			return line("{").indent();
+		}
+
+		Code close()
+		{
+			return outdent().line("}");
+		}
+
+		@Override
+		public String toString()
+		{
+			return sb.toString();
+		}
+	}
+
+}
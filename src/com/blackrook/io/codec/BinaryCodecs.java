@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+/**
+ * Finds the generated codecs for classes annotated with {@link BinaryType}.
+ * <p>Where the type is known at compile time, using the generated class's <code>INSTANCE</code> field
+ * directly is preferred. This looks it up once per class.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public final class BinaryCodecs
+{
+	/** Codec cache. */
+	private static final ClassValue<BinaryCodec<?>> CODECS = new ClassValue<BinaryCodec<?>>()
+	{
+		@Override
+		protected BinaryCodec<?> computeValue(Class<?> type)
+		{
+			String name = codecClassName(type.getName());
+			try {
+				return (BinaryCodec<?>)Class.forName(name, true, type.getClassLoader()).getField("INSTANCE").get(null);
+			} catch (ReflectiveOperationException | ClassCastException e) {
+				throw new IllegalArgumentException("No generated codec for " + type.getName() + " (expected " + name + ").", e);
+			}
+		}
+	};
+
+	private BinaryCodecs() {}
+
+	/**
+	 * Returns the generated codec for a class.
+	 * @param <T> the class type.
+	 * @param type the class annotated with {@link BinaryType}.
+	 * @return the codec.
+	 * @throws IllegalArgumentException if no generated codec could be found.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> BinaryCodec<T> get(Class<T> type)
+	{
+		return (BinaryCodec<T>)CODECS.get(type);
+	}
+
+	/**
+	 * Returns the name of the generated codec class for a class.
+	 * @param binaryName the binary name of the class (as in {@link Class#getName()}).
+	 * @return the fully-qualified name of the codec class.
+	 */
+	public static String codecClassName(String binaryName)
+	{
+		int dot = binaryName.lastIndexOf('.');
+		String pkg = dot >= 0 ? binaryName.substring(0, dot + 1) : "";
+		return pkg + binaryName.substring(dot + 1).replace('$', '_') + "Codec";
+	}
+
+}
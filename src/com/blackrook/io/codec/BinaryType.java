@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for codec generation. At compile time, {@link BinaryCodecProcessor} generates a 
+ * class called <code>&lt;Name&gt;Codec</code> in the same package (<code>Outer_InnerCodec</code> for nested classes)
+ * that implements {@link BinaryCodec} for this class, and has a static <code>INSTANCE</code> field.
+ * <p>Each non-static, non-transient field is read and written in declaration order. Fields are accessed directly
+ * if they are not private, or through their getters and setters if they are. Classes must have a non-private 
+ * constructor with no parameters. Records (if compiled on Java 16 or later) are read and written through their 
+ * accessors and canonical constructor.
+ * <p>Supported field types are primitives, Strings (UTF-8), enums (as a variable-length ordinal),
+ * other classes annotated with {@link BinaryType}, and arrays of any of these. 
+ * Arrays and Strings are prefixed with their length (-1 for null). Fields of other annotated classes cannot be null.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see LittleEndian
+ * @see BigEndian
+ * @see VarInt
+ * @see Bits
+ * @see VarLength
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface BinaryType
+{
+}
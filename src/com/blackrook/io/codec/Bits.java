@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Writes a boolean, byte, short, char, int or long field (or the elements of an array of them)
+ * as a bit field, using {@link com.blackrook.io.SuperWriter#writeIntBits(int, int)} and 
+ * {@link com.blackrook.io.SuperWriter#writeLongBits(int, long)}.
+ * Consecutive bit fields are packed together, and the last byte is padded to a byte boundary
+ * before the next field that isn't a bit field. Bit field arrays start after their length, on a byte boundary. Values are read back unsigned (not sign-extended), 
+ * unless all of their bits are used. Booleans must use 1 bit.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface Bits
+{
+	/** The amount of bits (1 to the size of the type). */
+	int value();
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.blackrook.io.BufferPool;
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.SuperWriter;
+
+/**
+ * Helper methods called by generated codecs.
+ * They are public so that generated code in other packages can call them,
+ * but they can be used by hand-written codecs, too.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public final class CodecSupport
+{
+	private CodecSupport() {}
+
+	/**
+	 * Writes a length prefix.
+	 * @param writer the writer to use.
+	 * @param length the length to write, or -1 for null.
+	 * @param variable if true, write as a variable-length integer (plus one), else write a 32-bit integer.
+	 * @throws IOException if the length could not be written.
+	 * @throws IllegalArgumentException if variable is true and the length is 2^28 - 1 or greater.
+	 */
+	public static void writeLength(SuperWriter writer, int length, boolean variable) throws IOException
+	{
+		if (variable)
+			writer.writeVariableLengthInt(length + 1);
+		else
+			writer.writeInt(length);
+	}
+
+	/**
+	 * Reads a length prefix.
+	 * @param reader the reader to use.
+	 * @param variable if true, read as a variable-length integer (plus one), else read a 32-bit integer.
+	 * @return the length read, or -1 for null.
+	 * @throws IOException if the length could not be read, or is invalid.
+	 */
+	public static int readLength(SuperReader reader, boolean variable) throws IOException
+	{
+		int out = variable ? reader.readVariableLengthInt() - 1 : reader.readInt();
+		if (out < -1)
+			throw new IOException("Bad length prefix: " + out);
+		return out;
+	}
+
+	/**
+	 * Writes a length-prefixed UTF-8 String.
+	 * @param writer the writer to use.
+	 * @param value the String to write (can be null).
+	 * @param variable if true, write the length as a variable-length integer.
+	 * @throws IOException if the String could not be written.
+	 */
+	public static void writeString(SuperWriter writer, String value, boolean variable) throws IOException
+	{
+		if (value == null)
+		{
+			writeLength(writer, -1, variable);
+			return;
+		}
+		byte[] b = value.getBytes(StandardCharsets.UTF_8);
+		writeLength(writer, b.length, variable);
+		writer.writeBytes(b);
+	}
+
+	/**
+	 * Reads a length-prefixed UTF-8 String.
+	 * @param reader the reader to use.
+	 * @param variable if true, read the length as a variable-length integer.
+	 * @return the String read (can be null).
+	 * @throws IOException if the String could not be read.
+	 */
+	public static String readString(SuperReader reader, boolean variable) throws IOException
+	{
+		int len = readLength(reader, variable);
+		if (len < 0)
+			return null;
+		else if (len == 0)
+			return "";
+		BufferPool pool = reader.getBufferPool();
+		byte[] b = pool.acquireArray(len);
+		try {
+			readBytes(reader, b, len);
+			return new String(b, 0, len, StandardCharsets.UTF_8);
+		} finally {
+			pool.release(b);
+		}
+	}
+
+	/**
+	 * Reads bytes until an amount is read.
+	 * @param reader the reader to use.
+	 * @param b the array to fill.
+	 * @param length the amount of bytes to read into the start of the array.
+	 * @throws IOException if the bytes could not be read.
+	 * @throws SuperReader.EOSException if the end of the stream is reached first.
+	 */
+	public static void readBytes(SuperReader reader, byte[] b, int length) throws IOException
+	{
+		int off = 0;
+		while (off < length)
+		{
+			int buf = reader.readBytes(b, off, length - off);
+			if (buf <= 0)
+				throw new SuperReader.EOSException();
+			off += buf;
+		}
+	}
+
+	/**
+	 * Writes a ZigZag-encoded int in seven-bit groups, least significant first.
+	 * @param writer the writer to use.
+	 * @param value the value to write.
+	 * @throws IOException if the value could not be written.
+	 */
+	public static void writeZigZagInt(SuperWriter writer, int value) throws IOException
+	{
+		writeUnsignedGroups(writer, ((value << 1) ^ (value >> 31)) & 0x0ffffffffL);
+	}
+
+	/**
+	 * Reads a ZigZag-encoded int in seven-bit groups, least significant first.
+	 * @param reader the reader to use.
+	 * @return the value read.
+	 * @throws IOException if the value could not be read.
+	 */
+	public static int readZigZagInt(SuperReader reader) throws IOException
+	{
+		int z = (int)readUnsignedGroups(reader);
+		return (z >>> 1) ^ -(z & 1);
+	}
+
+	/**
+	 * Writes a ZigZag-encoded long in seven-bit groups, least significant first.
+	 * @param writer the writer to use.
+	 * @param value the value to write.
+	 * @throws IOException if the value could not be written.
+	 */
+	public static void writeZigZagLong(SuperWriter writer, long value) throws IOException
+	{
+		writeUnsignedGroups(writer, (value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Reads a ZigZag-encoded long in seven-bit groups, least significant first.
+	 * @param reader the reader to use.
+	 * @return the value read.
+	 * @throws IOException if the value could not be read.
+	 */
+	public static long readZigZagLong(SuperReader reader) throws IOException
+	{
+		long z = readUnsignedGroups(reader);
+		return (z >>> 1) ^ -(z & 1L);
+	}
+
+	// Writes an unsigned 64-bit value in seven-bit groups, least significant first.
+	private static void writeUnsignedGroups(SuperWriter writer, long value) throws IOException
+	{
+		while ((value & ~0x7fL) != 0)
+		{
+			writer.writeByte((byte)((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		writer.writeByte((byte)value);
+	}
+
+	// Reads an unsigned 64-bit value in seven-bit groups, least significant first.
+	private static long readUnsignedGroups(SuperReader reader) throws IOException
+	{
+		long out = 0L;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			byte b = reader.readByte();
+			out |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return out;
+		}
+		throw new IOException("Variable-length value is too long.");
+	}
+
+}
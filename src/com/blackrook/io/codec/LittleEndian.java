@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads and writes a field (or every field of a {@link BinaryType}) in little-endian order, 
+ * no matter what the reader's or writer's endian mode is. The mode is restored afterward.
+ * Fields that are neither little- nor big-endian use the reader's or writer's mode.
+ * On a field of another {@link BinaryType}, it sets the mode for that type's unannotated fields.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target({ElementType.TYPE, ElementType.FIELD})
+public @interface LittleEndian
+{
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Writes an int or long field (or the elements of an int or long array field) as a variable-length integer.
+ * <p>By default, this uses {@link com.blackrook.io.SuperWriter#writeVariableLengthInt(int)} and
+ * {@link com.blackrook.io.SuperWriter#writeVariableLengthLong(long)}, which cannot write negative values
+ * (and ints must be less than 2^28). With {@link #zigzag()}, values are ZigZag-encoded and written 
+ * in seven-bit groups, least significant first (the same as Protocol Buffers' <code>sint32</code>/<code>sint64</code>),
+ * which handles any value, and writes small negative values in few bytes.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface VarInt
+{
+	/** If true, use ZigZag encoding, for signed values. */
+	boolean zigzag() default false;
+}
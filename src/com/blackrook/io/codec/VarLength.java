@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.codec;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Writes the length prefix of an array or String field as a variable-length integer
+ * (see {@link com.blackrook.io.SuperWriter#writeVariableLengthInt(int)}) instead of a 32-bit integer.
+ * Lengths are written plus one, so that 0 can mean null. For arrays of arrays or Strings, 
+ * this applies to every length prefix in the field.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface VarLength
+{
+}
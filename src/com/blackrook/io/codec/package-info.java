@@ -0,0 +1,13 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/**
+ * Compile-time generated binary codecs for {@link com.blackrook.io.SuperReader} and {@link com.blackrook.io.SuperWriter}.
+ * Classes annotated with {@link com.blackrook.io.codec.BinaryType} get a generated <code>&lt;Name&gt;Codec</code>
+ * class from {@link com.blackrook.io.codec.BinaryCodecProcessor} at compile time.
+ */
+package com.blackrook.io.codec;
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.container;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * A container chunk whose payload is not read until it is asked for.
+ * The chunk's header information and offset are available as soon as the chunk is returned by its reader,
+ * but the payload is only read on {@link #getPayload()} or {@link #getStream()}. If neither is called before
+ * the reader moves to the next chunk, the payload is skipped, which is a seek for file streams.
+ * <p>A payload that was read with {@link #getPayload()} stays available after the reader moves on.
+ * Otherwise, the payload can only be read while this is the reader's current chunk, and
+ * only once, through either method.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public abstract class LazyContainerChunk implements GenericContainerChunk
+{
+	/** The reader's stream. */
+	private PositionInputStream in;
+	/** Offset of the chunk in the container. */
+	private long offset;
+	/** Offset of the payload in the container. */
+	private long payloadOffset;
+	/** Payload length. */
+	private int length;
+	/** The payload, once read. */
+	private byte[] payload;
+	/** If true, the reader has moved past this chunk's payload. */
+	private boolean passed;
+
+	/**
+	 * Creates a new lazy chunk. The stream must be at the start of the payload.
+	 * @param in the reader's stream.
+	 * @param offset the offset of the chunk in the container.
+	 * @param length the payload length.
+	 */
+	LazyContainerChunk(PositionInputStream in, long offset, int length)
+	{
+		this.in = in;
+		this.offset = offset;
+		this.payloadOffset = in.position();
+		this.length = length;
+		this.payload = null;
+		this.passed = false;
+	}
+
+	/**
+	 * @return the offset of the start of this chunk in the container, in bytes.
+	 */
+	public long getOffset()
+	{
+		return offset;
+	}
+
+	/**
+	 * @return the offset of the start of this chunk's payload in the container, in bytes.
+	 */
+	public long getPayloadOffset()
+	{
+		return payloadOffset;
+	}
+
+	/**
+	 * @return the length of this chunk's payload in bytes.
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return true if the payload has been read into memory, false if not.
+	 */
+	public boolean isPayloadLoaded()
+	{
+		return payload != null;
+	}
+
+	/**
+	 * Returns this chunk's payload, reading it if it hasn't been read yet.
+	 * @throws UncheckedIOException if the payload can't be read.
+	 * @throws IllegalStateException if the payload was not read before the reader moved past it, 
+	 * 		or was partly read with {@link #getStream()}.
+	 */
+	@Override
+	public byte[] getPayload()
+	{
+		if (payload != null)
+			return payload;
+		checkUnread();
+		byte[] out = new byte[length];
+		try {
+			if (in.readFully(out, 0, length) < length)
+				throw new SuperReader.EOSException("Unexpected end of chunk payload.");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		payload = out;
+		return payload;
+	}
+
+	/**
+	 * Returns a stream over this chunk's payload. If the payload hasn't been read yet, 
+	 * this reads directly from the container, and must be read before the reader moves to the next chunk.
+	 * @throws IOException if the payload was not read before the reader moved past it, 
+	 * 		or was already partly read with this method.
+	 */
+	@Override
+	public InputStream getStream() throws IOException
+	{
+		if (payload != null)
+			return new ByteArrayInputStream(payload);
+		try {
+			checkUnread();
+		} catch (IllegalStateException e) {
+			throw new IOException(e.getMessage());
+		}
+		return new PayloadInputStream();
+	}
+
+	@Override
+	public byte[] toByteArray()
+	{
+		byte[] header = getHeaderBytes();
+		byte[] payload = getPayload();
+		byte[] trailer = getTrailerBytes();
+		byte[] out = new byte[header.length + payload.length + trailer.length];
+		System.arraycopy(header, 0, out, 0, header.length);
+		System.arraycopy(payload, 0, out, header.length, payload.length);
+		System.arraycopy(trailer, 0, out, header.length + payload.length, trailer.length);
+		return out;
+	}
+
+	/**
+	 * @return the bytes of this chunk that come before the payload, for {@link #toByteArray()}.
+	 */
+	protected abstract byte[] getHeaderBytes();
+
+	/**
+	 * @return the bytes of this chunk that come after the payload, for {@link #toByteArray()}.
+	 */
+	protected abstract byte[] getTrailerBytes();
+
+	/**
+	 * @return true if the payload can still be read from the container (it has not been passed or partly read).
+	 */
+	boolean isPayloadReadable()
+	{
+		return !passed && in.position() == payloadOffset;
+	}
+
+	/**
+	 * Called by the reader when moving to the next chunk: skips whatever is left of the payload.
+	 * @throws IOException if the payload can't be skipped.
+	 */
+	void finish() throws IOException
+	{
+		if (passed)
+			return;
+		long end = payloadOffset + length;
+		if (in.position() < end)
+			in.skipFully(end - in.position());
+		passed = true;
+	}
+
+	private void checkUnread()
+	{
+		if (passed)
+			throw new IllegalStateException("The reader has moved past this chunk's payload.");
+		if (in.position() != payloadOffset)
+			throw new IllegalStateException("This chunk's payload was already partly read from a stream.");
+	}
+
+	/**
+	 * A stream over the unread payload in the container.
+	 */
+	private class PayloadInputStream extends InputStream
+	{
+		private long remaining()
+		{
+			return passed ? 0L : payloadOffset + length - in.position();
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (remaining() <= 0)
+				return -1;
+			int out = in.read();
+			if (out < 0)
+				throw new SuperReader.EOSException("Unexpected end of chunk payload.");
+			return out;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			long remaining = remaining();
+			if (remaining <= 0)
+				return -1;
+			int out = in.read(b, off, (int)Math.min(len, remaining));
+			if (out < 0)
+				throw new SuperReader.EOSException("Unexpected end of chunk payload.");
+			return out;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			long out = Math.min(Math.max(n, 0L), remaining());
+			in.skipFully(out);
+			return out;
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return (int)Math.min(in.available(), remaining());
+		}
+	}
+
+}
@@ -7,14 +7,18 @@
  ******************************************************************************/
 package com.blackrook.io.container;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
+import com.blackrook.io.BufferPool;
+import com.blackrook.io.ReusableByteArrayInputStream;
+import com.blackrook.io.SuperPool;
 import com.blackrook.io.SuperReader;
+import com.blackrook.io.jfr.EventSupport;
+import com.blackrook.io.jfr.OggPageReadEvent;
 import com.blackrook.commons.linkedlist.Queue;
 
 /**
@@ -49,7 +53,21 @@ public class OggContainerReader extends SuperReader
 	 */
 	public OggPage nextChunk() throws IOException
 	{
-		return readNextPage(getInputStream());
+		OggPageReadEvent event = EventSupport.ENABLED ? new OggPageReadEvent() : null;
+		if (event != null)
+			event.begin();
+		OggPage page = readNextPage(getInputStream());
+		if (event != null)
+			event.end();
+		if (event != null && page != null && event.shouldCommit())
+		{
+			event.serialNumber = page.serialNumber;
+			event.sequenceNumber = page.sequenceNumber;
+			event.segments = page.segments;
+			event.bytes = page.length;
+			event.commit();
+		}
+		return page;
 	}
 
 	/**
@@ -60,7 +78,15 @@ public class OggContainerReader extends SuperReader
 	{
 		if (!seekToPattern(OggS))
 			return null;
-		return new OggPage(new SuperReader(in,SuperReader.LITTLE_ENDIAN));
+		SuperPool pool = SuperPool.local();
+		SuperReader sr = pool.acquireReader(in, SuperReader.LITTLE_ENDIAN);
+		try {
+			sr.setMetricsListener(getMetricsListener());
+			sr.setBufferPool(getBufferPool());
+			return new OggPage(sr);
+		} finally {
+			pool.release(sr);
+		}
 	}
 	
 
@@ -83,9 +109,11 @@ public class OggContainerReader extends SuperReader
 		private int CRC;
 		/** Page segments. */
 		private short segments;
+		/** Payload length in bytes. */
+		private int length;
 
 		/** The current reader/input stream. */
-		ByteArrayInputStream currentPacketInputStream;
+		ReusableByteArrayInputStream currentPacketInputStream;
 		SuperReader packetReader;
 		int currentPacketBits;
 		
@@ -121,23 +149,35 @@ public class OggContainerReader extends SuperReader
 		
 		private void readPayload(SuperReader sr, short[] lacingValues) throws IOException
 		{
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			byte[] b = new byte[255];
+			int total = 0;
 			for (int i = 0; i < lacingValues.length; i++)
-			{
-				int buf = sr.readBytes(b, lacingValues[i]);
-				if (buf < 0)
-					break;
-				bos.write(b, 0, buf);
-				
-				if (buf < 255)
+				total += lacingValues[i];
+
+			// read the whole page body into one pooled buffer, then cut it into packets.
+			BufferPool pool = sr.getBufferPool();
+			byte[] b = pool.acquireArray(total);
+			try {
+				int buf;
+				while (length < total && (buf = sr.readBytes(b, length, total - length)) > 0)
+					length += buf;
+
+				int start = 0;
+				int end = 0;
+				// every lacing value below 255 ends a packet, even an empty one; only the copy is cut short.
+				for (int i = 0; i < lacingValues.length; i++)
 				{
-					addPacket(bos.toByteArray());
-					bos.reset();
+					end = Math.min(end + lacingValues[i], length);
+					if (lacingValues[i] < 255)
+					{
+						addPacket(Arrays.copyOfRange(b, start, end));
+						start = end;
+					}
 				}
+				if (end > start)
+					addPacket(Arrays.copyOfRange(b, start, end));
+			} finally {
+				pool.release(b);
 			}
-			if (bos.size() > 0)
-				addPacket(bos.toByteArray());
 		}
 
 		/**
@@ -218,14 +258,23 @@ public class OggContainerReader extends SuperReader
 			byte[] b = getPacket();
 			if (b != null)
 			{
-				currentPacketInputStream = new ByteArrayInputStream(b);
-				packetReader = new SuperReader(currentPacketInputStream,SuperReader.LITTLE_ENDIAN);
+				// one stream and reader per page, pointed at each packet in turn.
+				if (currentPacketInputStream == null)
+				{
+					currentPacketInputStream = new ReusableByteArrayInputStream(b);
+					packetReader = new SuperReader(currentPacketInputStream,SuperReader.LITTLE_ENDIAN);
+				}
+				else
+				{
+					currentPacketInputStream.setBuffer(b);
+					packetReader.reset(currentPacketInputStream);
+				}
 				currentPacketBits = b.length*8;
 			}
 			else
 			{
-				currentPacketInputStream = null;
-				packetReader = null;
+				if (currentPacketInputStream != null)
+					currentPacketInputStream.clear();
 				currentPacketBits = 0;
 			}
 		}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.container;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * An Ogg stream reader that reads page headers, but not payloads, until they are asked for.
+ * Page header fields, segment tables and offsets are available right away, and payloads that are 
+ * never read are skipped (a seek, for files), so scanning an Ogg stream's pages (for instance, to find 
+ * a granule position) doesn't read its packets.
+ * <p>Like {@link OggContainerReader}, this skips any bytes before the next page's capture pattern.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see OggContainerReader
+ */
+public class OggPageReader extends GenericContainerReader<OggPageReader.Header, OggPageReader.Page>
+{
+	/** Size of the file read buffer. Small, since most of a file is skipped. */
+	private static final int BUFFER_SIZE = 8192;
+	/** Page capture pattern. */
+	private static final byte[] OggS = new byte[]{0x4f,0x67,0x67,0x53};
+	/** Length of a page header, without the segment table. */
+	private static final int PAGE_HEADER_LENGTH = 27;
+
+	/** The current page. */
+	private Page current;
+
+	/**
+	 * Creates a new Ogg page reader from a file.
+	 * @param f the file to read.
+	 * @throws IOException if the file can't be read.
+	 */
+	public OggPageReader(File f) throws IOException
+	{
+		this(new BufferedInputStream(new FileInputStream(f), BUFFER_SIZE));
+	}
+
+	/**
+	 * Creates a new Ogg page reader using an input stream.
+	 * Payloads are skipped with the stream's {@link InputStream#skip(long)}.
+	 * @param in the stream to read.
+	 * @throws IOException if the stream can't be read.
+	 */
+	public OggPageReader(InputStream in) throws IOException
+	{
+		super(new PositionInputStream(in));
+	}
+
+	@Override
+	protected Header readHeader(InputStream in) throws IOException
+	{
+		return new Header();
+	}
+
+	/**
+	 * Reads the next page's header and segment table. The previous page's payload is skipped if it wasn't read.
+	 * @return the next page, or null if the end of the stream has been reached.
+	 * @throws IOException if the previous page can't be skipped, or the next page header can't be read.
+	 */
+	@Override
+	public Page getNextChunk() throws IOException
+	{
+		PositionInputStream in = (PositionInputStream)inStream;
+		if (current != null)
+		{
+			current.finish();
+			current = null;
+		}
+
+		byte[] header = new byte[PAGE_HEADER_LENGTH];
+		int n = in.readFully(header, 0, OggS.length);
+		if (n < OggS.length)
+			return null;
+		// find the capture pattern.
+		while (!startsWithCapturePattern(header))
+		{
+			System.arraycopy(header, 1, header, 0, OggS.length - 1);
+			int b = in.read();
+			if (b < 0)
+				return null;
+			header[OggS.length - 1] = (byte)b;
+		}
+		long offset = in.position() - OggS.length;
+
+		if (in.readFully(header, OggS.length, PAGE_HEADER_LENGTH - OggS.length) < PAGE_HEADER_LENGTH - OggS.length)
+			throw new SuperReader.EOSException("Incomplete Ogg page header.");
+		byte[] lacingValues = new byte[header[PAGE_HEADER_LENGTH - 1] & 0x0ff];
+		if (in.readFully(lacingValues, 0, lacingValues.length) < lacingValues.length)
+			throw new SuperReader.EOSException("Incomplete Ogg page segment table.");
+
+		current = new Page(in, offset, header, lacingValues);
+		return current;
+	}
+
+	private static boolean startsWithCapturePattern(byte[] b)
+	{
+		for (int i = 0; i < OggS.length; i++)
+			if (b[i] != OggS[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Ogg header. Ogg streams have no container header, so this is empty.
+	 */
+	public static class Header implements GenericContainerHeader
+	{
+		@Override
+		public byte[] toByteArray()
+		{
+			return new byte[0];
+		}
+	}
+
+	/**
+	 * Ogg page with a lazily-read payload.
+	 */
+	public static class Page extends LazyContainerChunk
+	{
+		/** Page header bytes. */
+		private byte[] header;
+		/** Segment table. */
+		private byte[] lacingValues;
+		/** End offset of each packet (or packet part) in the payload. */
+		private int[] packetEnds;
+
+		Page(PositionInputStream in, long offset, byte[] header, byte[] lacingValues)
+		{
+			super(in, offset, payloadLength(lacingValues));
+			this.header = header;
+			this.lacingValues = lacingValues;
+			this.packetEnds = null;
+		}
+
+		private static int payloadLength(byte[] lacingValues)
+		{
+			int out = 0;
+			for (int i = 0; i < lacingValues.length; i++)
+				out += lacingValues[i] & 0x0ff;
+			return out;
+		}
+
+		// Little-endian value from the header.
+		private long headerValue(int offset, int length)
+		{
+			long out = 0L;
+			for (int i = 0; i < length; i++)
+				out |= (header[offset + i] & 0x0ffL) << (8 * i);
+			return out;
+		}
+
+		public int getVersion()				{return header[4];}
+		public long getGranule()			{return headerValue(6, 8);}
+		public int getSerialNumber()		{return (int)headerValue(14, 4);}
+		public int getSequenceNumber()		{return (int)headerValue(18, 4);}
+		public int getCRC()					{return (int)headerValue(22, 4);}
+		public int getNumSegments()			{return lacingValues.length;}
+
+		public boolean isContinuingPacket()	{return (header[5] & 0x01) != 0;}
+		public boolean isFirstPage()		{return (header[5] & 0x02) != 0;}
+		public boolean isLastPage()			{return (header[5] & 0x04) != 0;}
+
+		/**
+		 * Returns the amount of packets (or packet parts) on this page. 
+		 * The first one continues a packet from the previous page if {@link #isContinuingPacket()} is true, 
+		 * and the last one continues on the next page if {@link #isLastPacketIncomplete()} is true.
+		 * This does not read the payload.
+		 */
+		public int getPacketCount()
+		{
+			return getPacketEnds().length;
+		}
+
+		/**
+		 * Returns true if the last packet on this page continues on the next page.
+		 * This does not read the payload.
+		 */
+		public boolean isLastPacketIncomplete()
+		{
+			return lacingValues.length > 0 && (lacingValues[lacingValues.length - 1] & 0x0ff) == 255;
+		}
+
+		/**
+		 * Returns a packet (or packet part) from this page. This reads the payload, if it hasn't been read.
+		 * @param index the packet index.
+		 * @return a copy of the packet data.
+		 * @throws IndexOutOfBoundsException if the index is less than 0 or greater than or equal to the packet count.
+		 * @throws java.io.UncheckedIOException if the payload can't be read.
+		 * @throws IllegalStateException if the payload was not read before the reader moved past it.
+		 */
+		public byte[] getPacket(int index)
+		{
+			int[] ends = getPacketEnds();
+			if (index < 0 || index >= ends.length)
+				throw new IndexOutOfBoundsException("Bad packet index: " + index);
+			return Arrays.copyOfRange(getPayload(), index > 0 ? ends[index - 1] : 0, ends[index]);
+		}
+
+		private int[] getPacketEnds()
+		{
+			if (packetEnds != null)
+				return packetEnds;
+			int[] ends = new int[lacingValues.length];
+			int count = 0;
+			int end = 0;
+			for (int i = 0; i < lacingValues.length; i++)
+			{
+				int v = lacingValues[i] & 0x0ff;
+				end += v;
+				if (v < 255 || i == lacingValues.length - 1)
+					ends[count++] = end;
+			}
+			packetEnds = Arrays.copyOf(ends, count);
+			return packetEnds;
+		}
+
+		@Override
+		protected byte[] getHeaderBytes()
+		{
+			byte[] out = Arrays.copyOf(header, header.length + lacingValues.length);
+			System.arraycopy(lacingValues, 0, out, header.length, lacingValues.length);
+			return out;
+		}
+
+		@Override
+		protected byte[] getTrailerBytes()
+		{
+			return new byte[0];
+		}
+
+		@Override
+		public String toString()
+		{
+			return String.format("OggS v%d, h%d, Granule %016x, Serial %08x, Seq %d, CRC %08x, Offset %d, Length %d",
+				getVersion(), header[5], getGranule(), getSerialNumber(), getSequenceNumber(), getCRC(), getOffset(), getLength());
+		}
+	}
+
+}
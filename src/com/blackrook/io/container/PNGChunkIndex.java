@@ -0,0 +1,290 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.container;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * An index of the chunks in a PNG file, for random access by chunk type or position.
+ * <p>Building the index only reads each chunk's length and type (8 bytes), and jumps over the rest, so 
+ * it costs one read per chunk, not per byte. Chunk payloads are returned as read-only {@link ByteBuffer} 
+ * slices of the file's memory mapping (or of the buffer passed in), so nothing is copied until the 
+ * caller reads from them.
+ * <pre>
+ * PNGChunkIndex index = new PNGChunkIndex(file);
+ * ByteBuffer ihdr = index.getPayload("IHDR");
+ * int width = ihdr.getInt(0);
+ * </pre>
+ * <p>Indexing stops after the IEND chunk. This class is thread-safe (returned buffers are not shared).
+ * Mapped memory is released when this object and its returned buffers are garbage-collected.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see PNGChunkReader
+ */
+public class PNGChunkIndex
+{
+	/** PNG file signature. */
+	private static final byte[] SIGNATURE = {
+		(byte)0x089, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A
+	};
+	/** Length of a chunk's length and type. */
+	private static final int CHUNK_HEADER_LENGTH = 8;
+	/** Length of a chunk's CRC. */
+	private static final int CHUNK_CRC_LENGTH = 4;
+	/** The IEND chunk type. */
+	private static final int IEND = type("IEND");
+
+	/** The PNG data. */
+	private ByteBuffer data;
+	/** Amount of chunks. */
+	private int count;
+	/** Chunk offsets. */
+	private int[] offsets;
+	/** Chunk payload lengths. */
+	private int[] lengths;
+	/** Chunk types, as big-endian ints. */
+	private int[] types;
+
+	/**
+	 * Maps and indexes a PNG file.
+	 * @param file the file to index.
+	 * @throws IOException if the file can't be read or mapped, is larger than 2 GB, or is not a PNG file.
+	 */
+	public PNGChunkIndex(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("PNG file is too large to map: " + size + " bytes.");
+			build(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+		}
+	}
+
+	/**
+	 * Indexes PNG data in a buffer, from its position to its limit. The buffer's position is not changed.
+	 * @param buffer the buffer containing the PNG data.
+	 * @throws IOException if the data is not PNG data.
+	 */
+	public PNGChunkIndex(ByteBuffer buffer) throws IOException
+	{
+		build(buffer.slice());
+	}
+
+	private void build(ByteBuffer buffer) throws IOException
+	{
+		data = buffer.order(ByteOrder.BIG_ENDIAN);
+		int size = data.limit();
+		if (size < SIGNATURE.length)
+			throw new IOException("Not a PNG file. Header may be corrupt.");
+		for (int i = 0; i < SIGNATURE.length; i++)
+			if (data.get(i) != SIGNATURE[i])
+				throw new IOException("Not a PNG file. Header may be corrupt.");
+
+		count = 0;
+		offsets = new int[16];
+		lengths = new int[16];
+		types = new int[16];
+		int offset = SIGNATURE.length;
+		while (offset < size)
+		{
+			if (size - offset < CHUNK_HEADER_LENGTH)
+				throw new SuperReader.EOSException("Incomplete PNG chunk header at offset " + offset + ".");
+			int length = data.getInt(offset);
+			int type = data.getInt(offset + 4);
+			if (length < 0)
+				throw new IOException("Bad PNG chunk length at offset " + offset + ": " + (length & 0xffffffffL));
+			if ((long)length + CHUNK_HEADER_LENGTH + CHUNK_CRC_LENGTH > size - offset)
+				throw new SuperReader.EOSException("Incomplete PNG chunk at offset " + offset + ".");
+
+			if (count == offsets.length)
+			{
+				offsets = Arrays.copyOf(offsets, count * 2);
+				lengths = Arrays.copyOf(lengths, count * 2);
+				types = Arrays.copyOf(types, count * 2);
+			}
+			offsets[count] = offset;
+			lengths[count] = length;
+			types[count] = type;
+			count++;
+
+			offset += CHUNK_HEADER_LENGTH + length + CHUNK_CRC_LENGTH;
+			if (type == IEND)
+				break;
+		}
+	}
+
+	// Chunk type name as a big-endian int.
+	private static int type(String name)
+	{
+		byte[] b = name.getBytes(StandardCharsets.US_ASCII);
+		if (b.length != 4)
+			throw new IllegalArgumentException("PNG chunk types are 4 characters long: \"" + name + "\"");
+		return (b[0] & 0x0ff) << 24 | (b[1] & 0x0ff) << 16 | (b[2] & 0x0ff) << 8 | (b[3] & 0x0ff);
+	}
+
+	/**
+	 * @return the amount of chunks in the index.
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Gets a chunk's type name.
+	 * @param index the chunk index.
+	 * @return the type name.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the chunk count.
+	 */
+	public String getName(int index)
+	{
+		checkIndex(index);
+		int t = types[index];
+		return new String(new byte[]{(byte)(t >>> 24), (byte)(t >>> 16), (byte)(t >>> 8), (byte)t}, StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Gets a chunk's offset in the file (the start of its length field).
+	 * @param index the chunk index.
+	 * @return the offset in bytes.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the chunk count.
+	 */
+	public int getOffset(int index)
+	{
+		checkIndex(index);
+		return offsets[index];
+	}
+
+	/**
+	 * Gets a chunk's payload length.
+	 * @param index the chunk index.
+	 * @return the length in bytes.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the chunk count.
+	 */
+	public int getLength(int index)
+	{
+		checkIndex(index);
+		return lengths[index];
+	}
+
+	/**
+	 * Gets a chunk's stored CRC value.
+	 * @param index the chunk index.
+	 * @return the CRC value.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the chunk count.
+	 */
+	public int getCRCNumber(int index)
+	{
+		checkIndex(index);
+		return data.getInt(offsets[index] + CHUNK_HEADER_LENGTH + lengths[index]);
+	}
+
+	/**
+	 * Gets a chunk's payload, without copying it.
+	 * @param index the chunk index.
+	 * @return a new read-only, big-endian buffer over the payload.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the chunk count.
+	 */
+	public ByteBuffer getPayload(int index)
+	{
+		checkIndex(index);
+		return slice(offsets[index] + CHUNK_HEADER_LENGTH, lengths[index]);
+	}
+
+	/**
+	 * Gets a whole chunk (length, type, payload and CRC), without copying it.
+	 * @param index the chunk index.
+	 * @return a new read-only, big-endian buffer over the chunk.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the chunk count.
+	 */
+	public ByteBuffer getChunk(int index)
+	{
+		checkIndex(index);
+		return slice(offsets[index], CHUNK_HEADER_LENGTH + lengths[index] + CHUNK_CRC_LENGTH);
+	}
+
+	/**
+	 * Finds the first chunk of a type.
+	 * @param name the chunk type name (for example, "IHDR").
+	 * @return the chunk index, or -1 if there is no chunk of that type.
+	 * @throws IllegalArgumentException if the name is not 4 characters long.
+	 */
+	public int indexOf(String name)
+	{
+		return indexOf(name, 0);
+	}
+
+	/**
+	 * Finds the next chunk of a type.
+	 * @param name the chunk type name (for example, "IDAT").
+	 * @param fromIndex the chunk index to start searching from.
+	 * @return the chunk index, or -1 if there are no more chunks of that type.
+	 * @throws IllegalArgumentException if the name is not 4 characters long.
+	 */
+	public int indexOf(String name, int fromIndex)
+	{
+		int t = type(name);
+		for (int i = Math.max(fromIndex, 0); i < count; i++)
+			if (types[i] == t)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Gets the payload of the first chunk of a type, without copying it.
+	 * @param name the chunk type name (for example, "IHDR").
+	 * @return a new read-only, big-endian buffer over the payload, or null if there is no chunk of that type.
+	 * @throws IllegalArgumentException if the name is not 4 characters long.
+	 */
+	public ByteBuffer getPayload(String name)
+	{
+		int index = indexOf(name);
+		return index >= 0 ? getPayload(index) : null;
+	}
+
+	/**
+	 * Gets the payloads of all chunks of a type, in file order, without copying them.
+	 * @param name the chunk type name (for example, "tEXt").
+	 * @return a list of new read-only, big-endian buffers over the payloads (empty if there are none).
+	 * @throws IllegalArgumentException if the name is not 4 characters long.
+	 */
+	public List<ByteBuffer> getPayloads(String name)
+	{
+		List<ByteBuffer> out = new ArrayList<ByteBuffer>();
+		for (int i = indexOf(name); i >= 0; i = indexOf(name, i + 1))
+			out.add(getPayload(i));
+		return out;
+	}
+
+	private ByteBuffer slice(int offset, int length)
+	{
+		ByteBuffer out = data.duplicate();
+		out.limit(offset + length);
+		out.position(offset);
+		return out.slice().asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+	}
+
+	private void checkIndex(int index)
+	{
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException("Bad chunk index: " + index + " of " + count);
+	}
+
+}
@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.container;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * A PNG container reader that reads chunk headers, but not payloads, until they are asked for.
+ * Chunk names, lengths and offsets are available right away, and payloads that are never read are skipped
+ * (a seek, for files), so scanning a PNG's metadata doesn't read its image data.
+ * <pre>
+ * PNGChunkReader reader = new PNGChunkReader(file);
+ * PNGChunkReader.Chunk chunk;
+ * while ((chunk = reader.getNextChunk()) != null)
+ *     if (chunk.getName().equals("tEXt"))
+ *         process(chunk.getPayload());
+ * </pre>
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see PNGContainerReader
+ */
+public class PNGChunkReader extends GenericContainerReader<PNGChunkReader.Header, PNGChunkReader.Chunk>
+{
+	/** Size of the file read buffer. Small, since most of a file is skipped. */
+	private static final int BUFFER_SIZE = 8192;
+	/** Length of a chunk's length and name. */
+	private static final int CHUNK_HEADER_LENGTH = 8;
+
+	/** The current chunk. */
+	private Chunk current;
+
+	/**
+	 * Creates a new PNG chunk reader from a file.
+	 * @param f the file to read.
+	 * @throws IOException if the file can't be read, or is not a PNG file.
+	 */
+	public PNGChunkReader(File f) throws IOException
+	{
+		this(new BufferedInputStream(new FileInputStream(f), BUFFER_SIZE));
+	}
+
+	/**
+	 * Creates a new PNG chunk reader using an input stream.
+	 * Payloads are skipped with the stream's {@link InputStream#skip(long)}.
+	 * @param in the stream to read.
+	 * @throws IOException if the stream can't be read, or is not a PNG file.
+	 */
+	public PNGChunkReader(InputStream in) throws IOException
+	{
+		super(new PositionInputStream(in));
+	}
+
+	@Override
+	protected Header readHeader(InputStream in) throws IOException
+	{
+		byte[] b = new byte[Header.SIGNATURE.length];
+		if (((PositionInputStream)in).readFully(b, 0, b.length) < b.length || !Arrays.equals(b, Header.SIGNATURE))
+			throw new IOException("Not a PNG file. Header may be corrupt.");
+		return new Header();
+	}
+
+	/**
+	 * Reads the next chunk's header. The previous chunk's payload is skipped if it wasn't read.
+	 * @return the next chunk, or null if the end of the stream has been reached.
+	 * @throws IOException if the previous chunk can't be skipped, or the next chunk header can't be read.
+	 */
+	@Override
+	public Chunk getNextChunk() throws IOException
+	{
+		PositionInputStream in = (PositionInputStream)inStream;
+		if (current != null)
+		{
+			current.finish();
+			current = null;
+		}
+
+		long offset = in.position();
+		byte[] b = new byte[CHUNK_HEADER_LENGTH];
+		int n = in.readFully(b, 0, b.length);
+		if (n == 0)
+			return null;
+		if (n < b.length)
+			throw new SuperReader.EOSException("Incomplete PNG chunk header.");
+		int length = (b[0] & 0x0ff) << 24 | (b[1] & 0x0ff) << 16 | (b[2] & 0x0ff) << 8 | (b[3] & 0x0ff);
+		if (length < 0)
+			throw new IOException("Bad PNG chunk length: " + (length & 0xffffffffL));
+		current = new Chunk(in, offset, length, new String(b, 4, 4, StandardCharsets.US_ASCII));
+		return current;
+	}
+
+	/**
+	 * PNG header (the file signature).
+	 */
+	public static class Header implements GenericContainerHeader
+	{
+		/** PNG file signature. */
+		private static final byte[] SIGNATURE = {
+			(byte)0x089, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A
+		};
+
+		@Override
+		public byte[] toByteArray()
+		{
+			return SIGNATURE.clone();
+		}
+	}
+
+	/**
+	 * PNG chunk with a lazily-read payload.
+	 */
+	public static class Chunk extends LazyContainerChunk
+	{
+		/** Chunk name. */
+		private String name;
+		/** CRC number. */
+		private int crcNumber;
+		/** If true, the CRC has been read. */
+		private boolean crcRead;
+		/** The reader's stream. */
+		private PositionInputStream in;
+
+		Chunk(PositionInputStream in, long offset, int length, String name)
+		{
+			super(in, offset, length);
+			this.in = in;
+			this.name = name;
+			this.crcRead = false;
+		}
+
+		/**
+		 * Gets this chunk's identifier.
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * Gets this chunk's CRC value. The CRC comes after the payload, so if this is still the reader's 
+		 * current chunk, this reads the payload first (see {@link #getPayload()}).
+		 * @throws UncheckedIOException if the payload or CRC can't be read.
+		 */
+		public int getCRCNumber()
+		{
+			if (!crcRead)
+			{
+				if (isPayloadReadable())
+					getPayload();
+				try {
+					finish();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return crcNumber;
+		}
+
+		@Override
+		void finish() throws IOException
+		{
+			super.finish();
+			if (crcRead)
+				return;
+			byte[] b = new byte[4];
+			if (in.readFully(b, 0, b.length) < b.length)
+				throw new SuperReader.EOSException("Incomplete PNG chunk CRC.");
+			crcNumber = (b[0] & 0x0ff) << 24 | (b[1] & 0x0ff) << 16 | (b[2] & 0x0ff) << 8 | (b[3] & 0x0ff);
+			crcRead = true;
+		}
+
+		@Override
+		protected byte[] getHeaderBytes()
+		{
+			int length = getLength();
+			byte[] out = new byte[CHUNK_HEADER_LENGTH];
+			out[0] = (byte)(length >>> 24);
+			out[1] = (byte)(length >>> 16);
+			out[2] = (byte)(length >>> 8);
+			out[3] = (byte)length;
+			for (int i = 0; i < 4; i++)
+				out[4 + i] = (byte)name.charAt(i);
+			return out;
+		}
+
+		@Override
+		protected byte[] getTrailerBytes()
+		{
+			int crc = getCRCNumber();
+			return new byte[]{(byte)(crc >>> 24), (byte)(crc >>> 16), (byte)(crc >>> 8), (byte)crc};
+		}
+
+		@Override
+		public String toString()
+		{
+			return name + " Offset: " + getOffset() + " Length: " + getLength();
+		}
+
+		/**
+		 * Is this chunk not a part of the required image chunks?
+		 */
+		public boolean isAncillary()
+		{
+			return Character.isLowerCase(name.charAt(0));
+		}
+
+		/**
+		 * Is this chunk part of a non-public specification?
+		 */
+		public boolean isPrivate()
+		{
+			return Character.isLowerCase(name.charAt(1));
+		}
+
+		/**
+		 * Does this chunk have the reserved bit set?
+		 */
+		public boolean isReserved()
+		{
+			return Character.isLowerCase(name.charAt(2));
+		}
+
+		/**
+		 * Is this chunk safe to blindly copy, requiring no
+		 * other chunks and contains no image-centric data?
+		 */
+		public boolean isSafeToCopy()
+		{
+			return Character.isLowerCase(name.charAt(3));
+		}
+	}
+
+}
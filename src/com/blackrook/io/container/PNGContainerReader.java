@@ -7,14 +7,27 @@
  ******************************************************************************/
 package com.blackrook.io.container;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import com.blackrook.io.SuperReader;
+import com.blackrook.io.jfr.EventSupport;
+import com.blackrook.io.jfr.PNGChunkReadEvent;
 
+/**
+ * A reader for PNG containers that reads whole chunks.
+ * Chunk CRCs can be checked as chunks are read (see {@link #setValidationMode(PNGValidationMode)}),
+ * or afterward, a few at a time or many at once with {@link #findCorrupt(Collection, PNGValidationMode)}.
+ * @author Matthew Tropiano
+ */
 public class PNGContainerReader extends SuperReader
 {
 	/** PNG Header. */
@@ -22,6 +35,11 @@ public class PNGContainerReader extends SuperReader
 		(byte)0x089, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A
 	};
 	
+	/** Which chunks to check the CRCs of. */
+	private PNGValidationMode validationMode;
+	/** CRC generator for validation. */
+	private CRC32 crc;
+	
 	/**
 	 * Creates a new PNG container reader from a file.
 	 */
@@ -34,9 +52,54 @@ public class PNGContainerReader extends SuperReader
 	 * Creates a new PNG container reader using an input stream.
 	 */
 	public PNGContainerReader(InputStream i) throws IOException
+	{
+		this(i, PNGValidationMode.NONE);
+	}
+	
+	/**
+	 * Creates a new PNG container reader from a file that checks chunk CRCs.
+	 * @param f the file to read.
+	 * @param validationMode which chunks to check the CRCs of.
+	 * @throws IOException if the file can't be read, or is not a PNG file.
+	 * @since 2.7.0
+	 */
+	public PNGContainerReader(File f, PNGValidationMode validationMode) throws IOException
+	{
+		this(new FileInputStream(f), validationMode);
+	}
+	
+	/**
+	 * Creates a new PNG container reader using an input stream that checks chunk CRCs.
+	 * @param i the stream to read.
+	 * @param validationMode which chunks to check the CRCs of.
+	 * @throws IOException if the stream can't be read, or is not a PNG file.
+	 * @since 2.7.0
+	 */
+	public PNGContainerReader(InputStream i, PNGValidationMode validationMode) throws IOException
 	{
 		super(i, SuperReader.BIG_ENDIAN);
 		checkHeader();
+		this.validationMode = validationMode;
+		this.crc = new CRC32();
+	}
+	
+	/**
+	 * Sets which chunks have their CRCs checked by {@link #nextChunk()}. Default is {@link PNGValidationMode#NONE}.
+	 * @param validationMode the validation mode.
+	 * @since 2.7.0
+	 */
+	public void setValidationMode(PNGValidationMode validationMode)
+	{
+		this.validationMode = validationMode;
+	}
+	
+	/**
+	 * Returns which chunks have their CRCs checked by {@link #nextChunk()}.
+	 * @since 2.7.0
+	 */
+	public PNGValidationMode getValidationMode()
+	{
+		return validationMode;
 	}
 	
 	/** Checks the PNG header. Throws an Exception if bad. */
@@ -48,18 +111,59 @@ public class PNGContainerReader extends SuperReader
 
 	/**
 	 * Reads the next chunk in this container stream.
+	 * The chunk's CRC is checked if the validation mode calls for it.
+	 * @return the next chunk, or null if the end of the stream was reached.
+	 * @throws IOException if the chunk can't be read, or it is checked and its CRC does not match.
 	 */
 	public Chunk nextChunk() throws IOException
 	{
+		PNGChunkReadEvent event = EventSupport.ENABLED ? new PNGChunkReadEvent() : null;
+		if (event != null)
+			event.begin();
 		Chunk chunk = null;
 		try {chunk = new Chunk(this);	} catch (EOSException e) {}
+		int calculated = 0;
+		boolean badCRC = false;
+		if (chunk != null && validationMode.validates(chunk.name))
+		{
+			calculated = chunk.calculateCRCNumber(crc);
+			badCRC = calculated != chunk.crcNumber;
+		}
+		if (event != null)
+			event.end();
+		if (event != null && chunk != null && event.shouldCommit())
+		{
+			event.chunkName = chunk.name;
+			event.bytes = chunk.data.length;
+			event.badCRC = badCRC;
+			event.commit();
+		}
+		if (badCRC)
+			throw new IOException("Bad CRC in " + chunk.name + " chunk: expected " + String.format("%08x", chunk.crcNumber) 
+				+ ", calculated " + String.format("%08x", calculated) + ".");
 		return chunk;
 	}
 
+	/**
+	 * Checks the CRCs of many chunks in parallel, on the common fork-join pool.
+	 * Each chunk's CRC is calculated over its name and data (already in memory), so the work splits 
+	 * cleanly between threads, which pays off for large batches of chunks or large chunks.
+	 * @param chunks the chunks to check.
+	 * @param validationMode which chunks to check. Chunks that the mode does not cover are skipped.
+	 * @return the chunks whose CRCs do not match, in their original order. Empty if all of them match.
+	 * @since 2.7.0
+	 */
+	public static List<Chunk> findCorrupt(Collection<? extends Chunk> chunks, PNGValidationMode validationMode)
+	{
+		return chunks.parallelStream()
+			.filter((chunk) -> validationMode.validates(chunk.getName()) && !chunk.isCRCValid())
+			.collect(Collectors.toList());
+	}
+
 	/**
 	 * PNG Chunk data.
 	 */
-	public static class Chunk
+	public static class Chunk implements GenericContainerChunk
 	{
 		/** Chunk name. */
 		private String name;
@@ -67,15 +171,43 @@ public class PNGContainerReader extends SuperReader
 		private int crcNumber;
 		/** Data. */
 		private byte[] data;
+		/** The chunk name as stored, for CRC calculation. */
+		private String storedName;
 		
 		Chunk(SuperReader sr) throws IOException
 		{
 			int len = sr.readInt();
-			name = sr.readASCIIString(4).trim();
+			storedName = sr.readASCIIString(4);
+			name = storedName.trim();
 			data = sr.readBytes(len);
 			crcNumber = sr.readInt();
 		}
 
+		/**
+		 * Calculates the CRC of this chunk's name and data.
+		 * @param crc the CRC generator to use. It is reset first.
+		 * @return the calculated CRC value.
+		 */
+		int calculateCRCNumber(CRC32 crc)
+		{
+			crc.reset();
+			for (int i = 0; i < storedName.length(); i++)
+				crc.update(storedName.charAt(i));
+			crc.update(data, 0, data.length);
+			return (int)crc.getValue();
+		}
+
+		/**
+		 * Calculates this chunk's CRC and compares it to the stored one.
+		 * This is done on every call, whatever validation mode the chunk was read with.
+		 * @return true if the calculated CRC matches the stored CRC, false if not.
+		 * @since 2.7.0
+		 */
+		public boolean isCRCValid()
+		{
+			return calculateCRCNumber(new CRC32()) == crcNumber;
+		}
+
 		/**
 		 * Gets this chunk's identifier.
 		 */
@@ -100,6 +232,44 @@ public class PNGContainerReader extends SuperReader
 			return data;
 		}
 		
+		/**
+		 * Gets the data in this chunk (same as {@link #getData()}).
+		 * @since 2.7.0
+		 */
+		@Override
+		public byte[] getPayload()
+		{
+			return data;
+		}
+
+		/**
+		 * Gets the data in this chunk as an input stream.
+		 * @since 2.7.0
+		 */
+		@Override
+		public InputStream getStream()
+		{
+			return new ByteArrayInputStream(data);
+		}
+
+		/**
+		 * Gets this whole chunk as it appears in the file: length, name, data and CRC.
+		 * @since 2.7.0
+		 */
+		@Override
+		public byte[] toByteArray()
+		{
+			byte[] out = new byte[data.length + 12];
+			for (int i = 0; i < 4; i++)
+			{
+				out[i] = (byte)(data.length >>> (24 - 8 * i));
+				out[4 + i] = (byte)name.charAt(i);
+				out[data.length + 8 + i] = (byte)(crcNumber >>> (24 - 8 * i));
+			}
+			System.arraycopy(data, 0, out, 8, data.length);
+			return out;
+		}
+
 		@Override
 		public String toString()
 		{
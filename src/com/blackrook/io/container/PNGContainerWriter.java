@@ -7,29 +7,56 @@
  ******************************************************************************/
 package com.blackrook.io.container;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.CRC32;
 
+import com.blackrook.io.IOMetricsListener;
 import com.blackrook.io.SuperReader;
 import com.blackrook.io.SuperWriter;
-import com.blackrook.commons.math.CRC32;
 
+/**
+ * A writer for PNG containers. Chunks can be written whole with {@link #writeChunk(String, byte[])},
+ * or streamed with {@link #beginChunk(String, int)}, {@link #writeChunkData(byte[], int, int)} and
+ * {@link #endChunk()}, which compute the CRC as the payload passes through:
+ * <pre>
+ * writer.beginChunk("tEXt", length);
+ * writer.writeChunkData(keyword);
+ * writer.writeChunkData(text);
+ * writer.endChunk();
+ * </pre>
+ * Compressed image data of unknown length can be written to {@link #openImageDataStream(int)},
+ * which splits it into IDAT chunks as it is written.
+ * @author Matthew Tropiano
+ */
 public class PNGContainerWriter extends SuperWriter
 {
+	/** 
+	 * Default IDAT chunk length for {@link #openImageDataStream()}.
+	 * @since 2.7.0
+	 */
+	public static final int DEFAULT_IMAGE_DATA_LENGTH = 65536;
+
 	/** PNG Header. */
 	private static final byte[] PNG_HEADER = {
 		(byte)0x089, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A
 	};
 	
-	/** PNG CRC32 generator. */
-	private static final CRC32 PNG_CRC = new CRC32(CRC32.POLYNOMIAL_IEEE);
+	/** PNG CRC32 generator (IEEE polynomial). */
+	private CRC32 crc;
 	
 	/** Did we write the header, yet? */
 	private boolean wroteHeader;
 	
+	/** The name of the open chunk, or null if no chunk is open. */
+	private String chunkName;
+	/** Payload bytes left to write in the open chunk. */
+	private int chunkRemaining;
+	/** The open image data stream, or null if none is open. */
+	private ImageDataOutputStream imageDataStream;
+	
 	/**
 	 * Creates a new PNG container reader from a file.
 	 */
@@ -44,6 +71,10 @@ public class PNGContainerWriter extends SuperWriter
 	public PNGContainerWriter(OutputStream out) throws IOException
 	{
 		super(out, SuperReader.BIG_ENDIAN);
+		crc = new CRC32();
+		chunkName = null;
+		chunkRemaining = 0;
+		imageDataStream = null;
 	}
 	
 	/** Starts the PNG header. Called if not called yet. */
@@ -58,11 +89,43 @@ public class PNGContainerWriter extends SuperWriter
 	 * 				and follow the guidelines for naming necessary/private/etc. chunks.
 	 * @param data	the data to write.
 	 * @throws IOException	if the write could not occur.
+	 * @throws IllegalStateException if another chunk or an image data stream is open.
 	 */
 	public void writeChunk(String name, byte[] data) throws IOException
+	{
+		beginChunk(name, data.length);
+		writeChunkData(data, 0, data.length);
+		endChunk();
+	}
+
+	/**
+	 * Starts a chunk whose payload is written afterward with {@link #writeChunkData(byte[], int, int)}.
+	 * The chunk's length and name are written immediately, and the payload must be exactly 
+	 * <code>length</code> bytes long before {@link #endChunk()} is called.
+	 * @param name	the name of the chunk. Must be length 4 (excluding whitespace), 
+	 * 				and follow the guidelines for naming necessary/private/etc. chunks.
+	 * @param length the length of the payload in bytes.
+	 * @throws IOException if the write could not occur.
+	 * @throws IllegalArgumentException if the name is not 4 characters long, or the length is negative.
+	 * @throws IllegalStateException if another chunk or an image data stream is open.
+	 * @since 2.7.0
+	 */
+	public void beginChunk(String name, int length) throws IOException
+	{
+		if (imageDataStream != null)
+			throw new IllegalStateException("An image data stream is still open.");
+		startChunk(name, length);
+	}
+
+	// Starts a chunk, without checking for an open image data stream.
+	private void startChunk(String name, int length) throws IOException
 	{
 		if (name.trim().length() != 4)
 			throw new IllegalArgumentException("Name must be 4 alphabetical characters long.");
+		if (length < 0)
+			throw new IllegalArgumentException("Chunk length cannot be negative.");
+		if (chunkName != null)
+			throw new IllegalStateException("Chunk " + chunkName + " is still open.");
 		
 		if (!wroteHeader)
 		{
@@ -70,14 +133,187 @@ public class PNGContainerWriter extends SuperWriter
 			wroteHeader = true;
 		}
 		
-		writeInt(data.length);
-		ByteArrayOutputStream out = new ByteArrayOutputStream();
-		SuperWriter sw = new SuperWriter(out, SuperWriter.BIG_ENDIAN);
-		sw.writeASCIIString(name);
-		sw.writeBytes(data);
-		byte[] bytes = out.toByteArray();
-		writeBytes(bytes);
-		writeInt(PNG_CRC.createCRC32(bytes));
+		writeInt(length);
+		writeASCIIString(name);
+
+		// the CRC covers the name and the data.
+		crc.reset();
+		for (int i = 0; i < name.length(); i++)
+			crc.update(name.charAt(i));
+		chunkName = name;
+		chunkRemaining = length;
+	}
+
+	/**
+	 * Writes part of the open chunk's payload.
+	 * @param data the data to write.
+	 * @throws IOException if the write could not occur.
+	 * @throws IllegalStateException if no chunk is open, or the data would go past the chunk's length.
+	 * @since 2.7.0
+	 */
+	public void writeChunkData(byte[] data) throws IOException
+	{
+		writeChunkData(data, 0, data.length);
+	}
+
+	/**
+	 * Writes part of the open chunk's payload.
+	 * @param data the array containing the data to write.
+	 * @param offset the offset into the array.
+	 * @param length the amount of bytes to write.
+	 * @throws IOException if the write could not occur.
+	 * @throws IndexOutOfBoundsException if the offset and length are outside of the array.
+	 * @throws IllegalStateException if no chunk is open, or the data would go past the chunk's length.
+	 * @since 2.7.0
+	 */
+	public void writeChunkData(byte[] data, int offset, int length) throws IOException
+	{
+		if (offset < 0 || length < 0 || offset > data.length - length)
+			throw new IndexOutOfBoundsException("Offset " + offset + " and length " + length + " are outside of the array.");
+		if (chunkName == null)
+			throw new IllegalStateException("No chunk is open.");
+		if (length > chunkRemaining)
+			throw new IllegalStateException("Chunk " + chunkName + " has only " + chunkRemaining + " bytes left, tried to write " + length + ".");
+		getMetricsListener().onWrite(IOMetricsListener.DataType.BYTES);
+		byteWrite(data, offset, length);
+		crc.update(data, offset, length);
+		chunkRemaining -= length;
+	}
+
+	/**
+	 * Ends the open chunk, writing its CRC.
+	 * @throws IOException if the write could not occur.
+	 * @throws IllegalStateException if no chunk is open, or the chunk's payload is incomplete.
+	 * @since 2.7.0
+	 */
+	public void endChunk() throws IOException
+	{
+		if (chunkName == null)
+			throw new IllegalStateException("No chunk is open.");
+		if (chunkRemaining > 0)
+			throw new IllegalStateException("Chunk " + chunkName + " is missing " + chunkRemaining + " bytes of its payload.");
+		writeInt((int)crc.getValue());
+		chunkName = null;
+	}
+
+	/**
+	 * Opens a stream for compressed image data that is split into IDAT chunks of 
+	 * {@link #DEFAULT_IMAGE_DATA_LENGTH} bytes.
+	 * @return a new output stream.
+	 * @see #openImageDataStream(int)
+	 * @since 2.7.0
+	 */
+	public OutputStream openImageDataStream()
+	{
+		return openImageDataStream(DEFAULT_IMAGE_DATA_LENGTH);
+	}
+
+	/**
+	 * Opens a stream for compressed image data that is split into IDAT chunks as it is written.
+	 * Data is buffered until a full chunk can be written, so at most one chunk's worth is held in memory.
+	 * Closing the stream writes the last (possibly short) chunk, or an empty one if nothing was written,
+	 * but does not close this writer. No other chunks can be written while the stream is open.
+	 * @param chunkLength the payload length of each IDAT chunk.
+	 * @return a new output stream.
+	 * @throws IllegalArgumentException if chunkLength is less than 1.
+	 * @throws IllegalStateException if a chunk or another image data stream is open.
+	 * @since 2.7.0
+	 */
+	public OutputStream openImageDataStream(int chunkLength)
+	{
+		if (chunkLength < 1)
+			throw new IllegalArgumentException("Chunk length must be at least 1.");
+		if (chunkName != null)
+			throw new IllegalStateException("Chunk " + chunkName + " is still open.");
+		if (imageDataStream != null)
+			throw new IllegalStateException("An image data stream is still open.");
+		imageDataStream = new ImageDataOutputStream(chunkLength);
+		return imageDataStream;
+	}
+
+	/**
+	 * A stream that buffers image data and writes it out as IDAT chunks.
+	 */
+	private class ImageDataOutputStream extends OutputStream
+	{
+		/** The chunk payload buffer. */
+		private byte[] buffer;
+		/** Amount of bytes in the buffer. */
+		private int length;
+		/** Amount of chunks written. */
+		private int chunks;
+		/** If true, this stream is closed. */
+		private boolean closed;
+
+		private ImageDataOutputStream(int chunkLength)
+		{
+			this.buffer = new byte[chunkLength];
+			this.length = 0;
+			this.chunks = 0;
+			this.closed = false;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (closed)
+				throw new IOException("Stream is closed.");
+			if (length == buffer.length)
+				writeBuffer();
+			buffer[length++] = (byte)b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			if (off < 0 || len < 0 || off > b.length - len)
+				throw new IndexOutOfBoundsException("Offset " + off + " and length " + len + " are outside of the array.");
+			if (closed)
+				throw new IOException("Stream is closed.");
+			while (len > 0)
+			{
+				if (length == buffer.length)
+					writeBuffer();
+				// full chunks pass straight through when nothing is buffered.
+				if (length == 0 && len >= buffer.length)
+				{
+					writeChunk("IDAT", b, off, buffer.length);
+					off += buffer.length;
+					len -= buffer.length;
+					continue;
+				}
+				int n = Math.min(len, buffer.length - length);
+				System.arraycopy(b, off, buffer, length, n);
+				length += n;
+				off += n;
+				len -= n;
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (closed)
+				return;
+			if (length > 0 || chunks == 0)
+				writeBuffer();
+			closed = true;
+			imageDataStream = null;
+		}
+
+		private void writeBuffer() throws IOException
+		{
+			writeChunk("IDAT", buffer, 0, length);
+			length = 0;
+		}
+
+		private void writeChunk(String name, byte[] b, int off, int len) throws IOException
+		{
+			startChunk(name, len);
+			writeChunkData(b, off, len);
+			endChunk();
+			chunks++;
+		}
 	}
 
 }
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.container;
+
+/**
+ * Which PNG chunks have their CRCs checked when they are read by a {@link PNGContainerReader}.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public enum PNGValidationMode
+{
+	/** No CRCs are checked. */
+	NONE,
+
+	/**
+	 * Only critical chunks (IHDR, PLTE, IDAT, IEND, and anything else with an uppercase first letter) are checked.
+	 * Corrupt image data is caught, and corrupt metadata is left for whoever reads it.
+	 */
+	CRITICAL,
+
+	/** All chunks are checked. */
+	ALL;
+
+	/**
+	 * Returns true if this mode checks the CRC of a chunk.
+	 * @param name the chunk name.
+	 */
+	boolean validates(String name)
+	{
+		switch (this)
+		{
+			case ALL:
+				return true;
+			case CRITICAL:
+				return Character.isUpperCase(name.charAt(0));
+			default:
+				return false;
+		}
+	}
+
+}
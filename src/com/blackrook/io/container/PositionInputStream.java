@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.container;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * An input stream that keeps track of how many bytes have been read or skipped,
+ * and skips with the wrapped stream's {@link InputStream#skip(long)} (a seek, for files).
+ * Marking is not supported.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+class PositionInputStream extends FilterInputStream
+{
+	/** Current position. */
+	private long position;
+
+	/**
+	 * Creates a new stream.
+	 * @param in the stream to wrap.
+	 */
+	PositionInputStream(InputStream in)
+	{
+		super(in);
+		this.position = 0L;
+	}
+
+	/**
+	 * @return the amount of bytes read or skipped so far.
+	 */
+	long position()
+	{
+		return position;
+	}
+
+	/**
+	 * Reads until the length is read or the end of the stream is reached.
+	 * @param b the target array.
+	 * @param offset the offset into the array.
+	 * @param length the amount of bytes to read.
+	 * @return the amount of bytes read.
+	 * @throws IOException if a read error occurs.
+	 */
+	int readFully(byte[] b, int offset, int length) throws IOException
+	{
+		int total = 0;
+		while (total < length)
+		{
+			int n = read(b, offset + total, length - total);
+			if (n < 0)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Skips exactly an amount of bytes.
+	 * @param n the amount of bytes to skip.
+	 * @throws IOException if a read error occurs.
+	 * @throws SuperReader.EOSException if the end of the stream is reached first.
+	 */
+	void skipFully(long n) throws IOException
+	{
+		while (n > 0)
+		{
+			long skipped = skip(n);
+			if (skipped <= 0)
+			{
+				// skip() may return 0 for reasons other than the end of the stream: read one byte to find out.
+				if (read() < 0)
+					throw new SuperReader.EOSException("Unexpected end of stream.");
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		int out = in.read();
+		if (out >= 0)
+			position++;
+		return out;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		int out = in.read(b, off, len);
+		if (out > 0)
+			position += out;
+		return out;
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		long out = in.skip(n);
+		if (out > 0)
+			position += out;
+		return out;
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit)
+	{
+		// Do nothing.
+	}
+
+	@Override
+	public synchronized void reset() throws IOException
+	{
+		throw new IOException("Mark/reset not supported.");
+	}
+
+}
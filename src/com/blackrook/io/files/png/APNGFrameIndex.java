@@ -0,0 +1,492 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.blackrook.io.container.PNGChunkIndex;
+
+/**
+ * An index of the frames of an animated PNG (APNG) file, for random access to single frames.
+ * The index is built from a {@link PNGChunkIndex}, so building it only reads chunk headers and the small
+ * acTL and fcTL payloads. Each frame's compressed data (IDAT or fdAT payloads) is only read when the frame's
+ * stream is, straight from the file's memory mapping.
+ * <pre>
+ * APNGFrameIndex index = new APNGFrameIndex(file);
+ * PNGImageDecoder decoder = index.openFrameDecoder(index.getFrameCount() / 2);
+ * ...
+ * </pre>
+ * Frames are returned as stored: each covers its own region of the canvas, and has to be composed over
+ * the previous frames according to its dispose and blend operations to get the full animation frame.
+ * This class is thread-safe.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class APNGFrameIndex
+{
+	/** Length of the sequence number at the start of an fdAT payload. */
+	private static final int SEQUENCE_LENGTH = 4;
+	/** Length of an acTL payload. */
+	private static final int ACTL_LENGTH = 8;
+	/** Length of an fcTL payload. */
+	private static final int FCTL_LENGTH = 26;
+
+	/** The chunk index. */
+	private PNGChunkIndex chunks;
+	/** The image header. */
+	private PNGImageHeader header;
+	/** The PLTE payload, if any. */
+	private byte[] palette;
+	/** The tRNS payload, if any. */
+	private byte[] transparency;
+	/** Amount of times to play the animation, 0 for forever. */
+	private int playCount;
+	/** The frames. */
+	private Frame[] frames;
+	/** If true, the default image (IDAT) is the first frame. */
+	private boolean defaultImageFrame;
+
+	/**
+	 * Maps and indexes an animated PNG file.
+	 * @param file the file to index.
+	 * @throws IOException if the file can't be read or mapped, is larger than 2 GB, or is not an animated PNG file.
+	 */
+	public APNGFrameIndex(File file) throws IOException
+	{
+		this(new PNGChunkIndex(file));
+	}
+
+	/**
+	 * Indexes the frames of an animated PNG from its chunk index.
+	 * @param chunks the chunk index.
+	 * @throws IOException if the chunks do not make up an animated PNG.
+	 */
+	public APNGFrameIndex(PNGChunkIndex chunks) throws IOException
+	{
+		this.chunks = chunks;
+		if (chunks.size() == 0 || !chunks.getName(0).equals("IHDR"))
+			throw new IOException("PNG does not start with an IHDR chunk.");
+		this.header = PNGImageHeader.read(toByteArray(chunks.getPayload(0)));
+		this.palette = null;
+		this.transparency = null;
+		this.defaultImageFrame = false;
+
+		int frameCount = -1;
+		List<Frame> frameList = new ArrayList<Frame>();
+		Frame frame = null;
+		int[] data = new int[4];
+		int dataCount = 0;
+		boolean imageDataSeen = false;
+
+		for (int i = 1; i < chunks.size(); i++)
+		{
+			switch (chunks.getName(i))
+			{
+				case "acTL":
+				{
+					ByteBuffer buf = chunks.getPayload(i);
+					if (buf.remaining() != ACTL_LENGTH)
+						throw new IOException("Bad acTL length: " + buf.remaining());
+					frameCount = buf.getInt();
+					playCount = buf.getInt();
+					break;
+				}
+				case "PLTE":
+					palette = toByteArray(chunks.getPayload(i));
+					break;
+				case "tRNS":
+					transparency = toByteArray(chunks.getPayload(i));
+					break;
+				case "fcTL":
+					if (frame != null)
+						frame.dataChunks = Arrays.copyOf(data, dataCount);
+					frame = readFrame(frameList.size(), chunks.getPayload(i));
+					frameList.add(frame);
+					dataCount = 0;
+					break;
+				case "IDAT":
+					// the default image is the first frame only if its fcTL comes before it.
+					if (!imageDataSeen && frame != null && frameList.size() == 1 && dataCount == 0)
+						defaultImageFrame = true;
+					imageDataSeen = true;
+					if (defaultImageFrame && frameList.size() == 1)
+					{
+						if (dataCount == data.length)
+							data = Arrays.copyOf(data, dataCount * 2);
+						data[dataCount++] = i;
+					}
+					break;
+				case "fdAT":
+					if (frame == null || (defaultImageFrame && frameList.size() == 1))
+						throw new IOException("fdAT chunk at offset " + chunks.getOffset(i) + " does not belong to a frame.");
+					if (chunks.getLength(i) < SEQUENCE_LENGTH)
+						throw new IOException("Bad fdAT length: " + chunks.getLength(i));
+					if (dataCount == data.length)
+						data = Arrays.copyOf(data, dataCount * 2);
+					data[dataCount++] = i;
+					break;
+			}
+		}
+		if (frame != null)
+			frame.dataChunks = Arrays.copyOf(data, dataCount);
+
+		if (frameCount < 0)
+			throw new IOException("PNG has no acTL chunk. It is not animated.");
+		if (frameCount != frameList.size())
+			throw new IOException("PNG acTL chunk says " + frameCount + " frames, but has " + frameList.size() + ".");
+		if (header.getColorType() == PNGImageHeader.COLOR_PALETTE && palette == null)
+			throw new IOException("PNG palette image has no PLTE chunk.");
+		for (Frame f : frameList)
+			if (f.dataChunks.length == 0)
+				throw new IOException("APNG frame " + f.index + " has no image data.");
+		this.frames = frameList.toArray(new Frame[frameList.size()]);
+	}
+
+	/**
+	 * Returns the image header. Frame headers are the same, except for their width and height.
+	 */
+	public PNGImageHeader getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * Returns the PLTE chunk payload (RGB triples), or null if the image has none. All frames share it.
+	 */
+	public byte[] getPalette()
+	{
+		return palette;
+	}
+
+	/**
+	 * Returns the tRNS chunk payload, or null if the image has none. All frames share it.
+	 */
+	public byte[] getTransparency()
+	{
+		return transparency;
+	}
+
+	/**
+	 * Returns the amount of times that the animation plays, or 0 if it loops forever.
+	 */
+	public int getPlayCount()
+	{
+		return playCount;
+	}
+
+	/**
+	 * Returns the amount of frames in the animation.
+	 */
+	public int getFrameCount()
+	{
+		return frames.length;
+	}
+
+	/**
+	 * Returns true if the default image (what non-APNG decoders show) is the animation's first frame,
+	 * false if it is only a fallback image and is not part of the animation.
+	 */
+	public boolean isDefaultImageFrame()
+	{
+		return defaultImageFrame;
+	}
+
+	/**
+	 * Returns a frame's control information.
+	 * @param index the frame index.
+	 * @return the frame.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the frame count.
+	 */
+	public Frame getFrame(int index)
+	{
+		return frames[index];
+	}
+
+	/**
+	 * Returns the image header for a frame's data: the image header, with the frame's width and height.
+	 * @param index the frame index.
+	 * @return the header.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the frame count.
+	 */
+	public PNGImageHeader getFrameHeader(int index)
+	{
+		Frame frame = frames[index];
+		return new PNGImageHeader(frame.width, frame.height, header.getBitDepth(), header.getColorType(), header.getInterlaceMethod());
+	}
+
+	/**
+	 * Opens a stream over a frame's compressed image data: its IDAT or fdAT payloads
+	 * (without fdAT sequence numbers), joined into one zlib stream. Nothing is read until the stream is read.
+	 * @param index the frame index.
+	 * @return a new input stream.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the frame count.
+	 */
+	public InputStream openFrameStream(int index)
+	{
+		return new FrameInputStream(frames[index].dataChunks);
+	}
+
+	/**
+	 * Opens a row decoder for a frame. Rows are the width of the frame, not the canvas.
+	 * Palette and transparency information comes from {@link #getPalette()} and {@link #getTransparency()}.
+	 * @param index the frame index.
+	 * @return a new decoder.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the frame count.
+	 * @throws IllegalArgumentException if the image is interlaced.
+	 */
+	public PNGImageDecoder openFrameDecoder(int index)
+	{
+		return new PNGImageDecoder(getFrameHeader(index), openFrameStream(index));
+	}
+
+	private Frame readFrame(int index, ByteBuffer buf) throws IOException
+	{
+		if (buf.remaining() != FCTL_LENGTH)
+			throw new IOException("Bad fcTL length: " + buf.remaining());
+		Frame out = new Frame();
+		out.index = index;
+		out.sequenceNumber = buf.getInt();
+		out.width = buf.getInt();
+		out.height = buf.getInt();
+		out.xOffset = buf.getInt();
+		out.yOffset = buf.getInt();
+		out.delayNumerator = buf.getShort() & 0x0ffff;
+		out.delayDenominator = buf.getShort() & 0x0ffff;
+		out.disposeOp = buf.get() & 0x0ff;
+		out.blendOp = buf.get() & 0x0ff;
+		if (out.width <= 0 || out.height <= 0 || out.xOffset < 0 || out.yOffset < 0
+			|| (long)out.xOffset + out.width > header.getWidth() || (long)out.yOffset + out.height > header.getHeight())
+			throw new IOException("APNG frame " + index + " is outside of the image.");
+		return out;
+	}
+
+	private static byte[] toByteArray(ByteBuffer buf)
+	{
+		byte[] out = new byte[buf.remaining()];
+		buf.get(out);
+		return out;
+	}
+
+	/**
+	 * The control information of a single frame (from its fcTL chunk).
+	 */
+	public static class Frame
+	{
+		/** Dispose operation: leave the frame's region as it is. */
+		public static final int DISPOSE_NONE = 0;
+		/** Dispose operation: clear the frame's region to transparent black. */
+		public static final int DISPOSE_BACKGROUND = 1;
+		/** Dispose operation: restore the frame's region to what it was before the frame. */
+		public static final int DISPOSE_PREVIOUS = 2;
+		/** Blend operation: replace the frame's region. */
+		public static final int BLEND_SOURCE = 0;
+		/** Blend operation: composite the frame over its region. */
+		public static final int BLEND_OVER = 1;
+
+		private int index;
+		private int sequenceNumber;
+		private int width;
+		private int height;
+		private int xOffset;
+		private int yOffset;
+		private int delayNumerator;
+		private int delayDenominator;
+		private int disposeOp;
+		private int blendOp;
+		/** Chunk indices of the frame's data. */
+		private int[] dataChunks;
+
+		private Frame() {}
+
+		/**
+		 * Returns the frame's index in the animation.
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+
+		/**
+		 * Returns the sequence number of the frame's fcTL chunk.
+		 */
+		public int getSequenceNumber()
+		{
+			return sequenceNumber;
+		}
+
+		/**
+		 * Returns the frame's width in pixels.
+		 */
+		public int getWidth()
+		{
+			return width;
+		}
+
+		/**
+		 * Returns the frame's height in pixels.
+		 */
+		public int getHeight()
+		{
+			return height;
+		}
+
+		/**
+		 * Returns the frame's horizontal offset on the canvas, in pixels.
+		 */
+		public int getXOffset()
+		{
+			return xOffset;
+		}
+
+		/**
+		 * Returns the frame's vertical offset on the canvas, in pixels.
+		 */
+		public int getYOffset()
+		{
+			return yOffset;
+		}
+
+		/**
+		 * Returns the numerator of the frame's delay fraction, in seconds.
+		 */
+		public int getDelayNumerator()
+		{
+			return delayNumerator;
+		}
+
+		/**
+		 * Returns the denominator of the frame's delay fraction, in seconds.
+		 * A stored denominator of 0 means 100.
+		 */
+		public int getDelayDenominator()
+		{
+			return delayDenominator == 0 ? 100 : delayDenominator;
+		}
+
+		/**
+		 * Returns the frame's delay in milliseconds, rounded down.
+		 */
+		public int getDelayMillis()
+		{
+			return delayNumerator * 1000 / getDelayDenominator();
+		}
+
+		/**
+		 * Returns the frame's dispose operation.
+		 * @see #DISPOSE_NONE
+		 * @see #DISPOSE_BACKGROUND
+		 * @see #DISPOSE_PREVIOUS
+		 */
+		public int getDisposeOp()
+		{
+			return disposeOp;
+		}
+
+		/**
+		 * Returns the frame's blend operation.
+		 * @see #BLEND_SOURCE
+		 * @see #BLEND_OVER
+		 */
+		public int getBlendOp()
+		{
+			return blendOp;
+		}
+
+		/**
+		 * Returns the amount of chunks that the frame's data is stored in.
+		 */
+		public int getDataChunkCount()
+		{
+			return dataChunks.length;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "Frame " + index + " " + width + "x" + height + " at " + xOffset + "," + yOffset + " Delay: " + delayNumerator + "/" + getDelayDenominator();
+		}
+	}
+
+	/**
+	 * A stream over a frame's data chunk payloads.
+	 */
+	private class FrameInputStream extends InputStream
+	{
+		/** Chunk indices. */
+		private int[] dataChunks;
+		/** Next chunk to read. */
+		private int next;
+		/** The current payload, or null if none. */
+		private ByteBuffer current;
+
+		private FrameInputStream(int[] dataChunks)
+		{
+			this.dataChunks = dataChunks;
+			this.next = 0;
+			this.current = null;
+		}
+
+		/**
+		 * Moves to the next payload with data left.
+		 * @return false if there is none.
+		 */
+		private boolean advance()
+		{
+			while (current == null || !current.hasRemaining())
+			{
+				if (next >= dataChunks.length)
+					return false;
+				int chunk = dataChunks[next++];
+				current = chunks.getPayload(chunk);
+				if (chunks.getName(chunk).equals("fdAT"))
+					current.position(current.position() + SEQUENCE_LENGTH);
+			}
+			return true;
+		}
+
+		@Override
+		public int read()
+		{
+			return advance() ? current.get() & 0x0ff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if (off < 0 || len < 0 || off > b.length - len)
+				throw new IndexOutOfBoundsException("Offset " + off + " and length " + len + " are outside of the array.");
+			if (len == 0)
+				return 0;
+			if (!advance())
+				return -1;
+			int n = Math.min(len, current.remaining());
+			current.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available()
+		{
+			return current == null ? 0 : current.remaining();
+		}
+
+		@Override
+		public void close()
+		{
+			next = dataChunks.length;
+			current = null;
+		}
+	}
+
+}
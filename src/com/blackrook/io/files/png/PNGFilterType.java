@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+/**
+ * Filter types for {@link PNGImageEncoder}: one of the five PNG scanline filters for every row,
+ * or a filter picked separately for each row.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public enum PNGFilterType
+{
+	/** No filter. */
+	NONE,
+	/** Difference from the byte one pixel to the left. */
+	SUB,
+	/** Difference from the byte above. */
+	UP,
+	/** Difference from the average of left and above. */
+	AVERAGE,
+	/** Difference from the Paeth predictor of left, above and upper left. */
+	PAETH,
+	/**
+	 * Each row is tried with all five filters, and the one with the smallest sum of absolute
+	 * differences (filtered bytes taken as signed) is used. This is the heuristic that the PNG specification suggests,
+	 * and usually compresses photographic and gradient images better than any single filter, for about twice the filtering time.
+	 */
+	ADAPTIVE;
+
+	/**
+	 * Returns the filter type that the PNG specification recommends for an image:
+	 * {@link #NONE} for palette images and images with samples under 8 bits, {@link #ADAPTIVE} for everything else.
+	 * @param header the image header.
+	 * @return the recommended filter type.
+	 */
+	public static PNGFilterType getRecommended(PNGImageHeader header)
+	{
+		return header.getColorType() == PNGImageHeader.COLOR_PALETTE || header.getBitDepth() < 8 ? NONE : ADAPTIVE;
+	}
+
+}
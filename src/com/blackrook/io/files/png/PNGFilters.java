@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+/**
+ * PNG scanline filters. Rows are passed with their filter type byte at index 0 and
+ * their data starting at index 1, and the prior row (all zeroes for the first row) in the same layout.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+final class PNGFilters
+{
+	/** Filter type: none. */
+	static final int NONE = 0;
+	/** Filter type: difference from the byte one pixel to the left. */
+	static final int SUB = 1;
+	/** Filter type: difference from the byte above. */
+	static final int UP = 2;
+	/** Filter type: difference from the average of left and above. */
+	static final int AVERAGE = 3;
+	/** Filter type: difference from the Paeth predictor of left, above and upper left. */
+	static final int PAETH = 4;
+
+	private PNGFilters() {}
+
+	/**
+	 * Reverses a row's filter in place, using the filter type in the row's first byte.
+	 * @param row the filtered row.
+	 * @param prior the prior unfiltered row.
+	 * @param length the length of the row data, not including the filter type byte.
+	 * @param bpp the amount of bytes per pixel, at least 1.
+	 * @return true if the row's filter type was valid, false if not.
+	 */
+	static boolean unfilter(byte[] row, byte[] prior, int length, int bpp)
+	{
+		int end = length + 1;
+		int lead = Math.min(end, bpp + 1);
+		switch (row[0])
+		{
+			case NONE:
+				return true;
+			case SUB:
+				for (int i = lead; i < end; i++)
+					row[i] += row[i - bpp];
+				return true;
+			case UP:
+				for (int i = 1; i < end; i++)
+					row[i] += prior[i];
+				return true;
+			case AVERAGE:
+				for (int i = 1; i < lead; i++)
+					row[i] += (prior[i] & 0x0ff) >>> 1;
+				for (int i = lead; i < end; i++)
+					row[i] += ((row[i - bpp] & 0x0ff) + (prior[i] & 0x0ff)) >>> 1;
+				return true;
+			case PAETH:
+				for (int i = 1; i < lead; i++)
+					row[i] += prior[i];
+				for (int i = lead; i < end; i++)
+					row[i] += paeth(row[i - bpp] & 0x0ff, prior[i] & 0x0ff, prior[i - bpp] & 0x0ff);
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * Filters a row.
+	 * @param type the filter type.
+	 * @param raw the array containing the unfiltered row.
+	 * @param rawOffset the offset of the row in the raw array.
+	 * @param prior the array containing the prior unfiltered row (all zeroes for the first row).
+	 * @param priorOffset the offset of the prior row in its array.
+	 * @param out the output array. The filter type byte is written at the offset, and the filtered data after it.
+	 * @param outOffset the offset into the output array.
+	 * @param length the length of the row data.
+	 * @param bpp the amount of bytes per pixel, at least 1.
+	 */
+	static void filter(int type, byte[] raw, int rawOffset, byte[] prior, int priorOffset, byte[] out, int outOffset, int length, int bpp)
+	{
+		int lead = Math.min(length, bpp);
+		out[outOffset++] = (byte)type;
+		switch (type)
+		{
+			case NONE:
+				System.arraycopy(raw, rawOffset, out, outOffset, length);
+				break;
+			case SUB:
+				System.arraycopy(raw, rawOffset, out, outOffset, lead);
+				for (int i = lead; i < length; i++)
+					out[outOffset + i] = (byte)(raw[rawOffset + i] - raw[rawOffset + i - bpp]);
+				break;
+			case UP:
+				for (int i = 0; i < length; i++)
+					out[outOffset + i] = (byte)(raw[rawOffset + i] - prior[priorOffset + i]);
+				break;
+			case AVERAGE:
+				for (int i = 0; i < lead; i++)
+					out[outOffset + i] = (byte)(raw[rawOffset + i] - ((prior[priorOffset + i] & 0x0ff) >>> 1));
+				for (int i = lead; i < length; i++)
+					out[outOffset + i] = (byte)(raw[rawOffset + i] - (((raw[rawOffset + i - bpp] & 0x0ff) + (prior[priorOffset + i] & 0x0ff)) >>> 1));
+				break;
+			case PAETH:
+				for (int i = 0; i < lead; i++)
+					out[outOffset + i] = (byte)(raw[rawOffset + i] - prior[priorOffset + i]);
+				for (int i = lead; i < length; i++)
+					out[outOffset + i] = (byte)(raw[rawOffset + i] - paeth(raw[rawOffset + i - bpp] & 0x0ff, prior[priorOffset + i] & 0x0ff, prior[priorOffset + i - bpp] & 0x0ff));
+				break;
+			default:
+				throw new IllegalArgumentException("Bad filter type: " + type);
+		}
+	}
+
+	/**
+	 * Picks the filter type for a row with the smallest sum of absolute differences, 
+	 * taking each filtered byte as a signed value. All five filters are measured in one pass.
+	 * @param raw the array containing the unfiltered row.
+	 * @param rawOffset the offset of the row in the raw array.
+	 * @param prior the array containing the prior unfiltered row (all zeroes for the first row).
+	 * @param priorOffset the offset of the prior row in its array.
+	 * @param length the length of the row data.
+	 * @param bpp the amount of bytes per pixel, at least 1.
+	 * @return the filter type.
+	 */
+	static int selectFilter(byte[] raw, int rawOffset, byte[] prior, int priorOffset, int length, int bpp)
+	{
+		long none = 0, sub = 0, up = 0, average = 0, paeth = 0;
+		for (int i = 0; i < length; i++)
+		{
+			int x = raw[rawOffset + i] & 0x0ff;
+			int b = prior[priorOffset + i] & 0x0ff;
+			int a = 0, c = 0;
+			if (i >= bpp)
+			{
+				a = raw[rawOffset + i - bpp] & 0x0ff;
+				c = prior[priorOffset + i - bpp] & 0x0ff;
+			}
+			none += Math.abs((byte)x);
+			sub += Math.abs((byte)(x - a));
+			up += Math.abs((byte)(x - b));
+			average += Math.abs((byte)(x - ((a + b) >>> 1)));
+			paeth += Math.abs((byte)(x - paeth(a, b, c)));
+		}
+
+		int out = NONE;
+		long min = none;
+		if (sub < min)
+		{
+			out = SUB;
+			min = sub;
+		}
+		if (up < min)
+		{
+			out = UP;
+			min = up;
+		}
+		if (average < min)
+		{
+			out = AVERAGE;
+			min = average;
+		}
+		if (paeth < min)
+			out = PAETH;
+		return out;
+	}
+
+	/**
+	 * The Paeth predictor: whichever of left, above or upper left is closest to left + above - upper left.
+	 */
+	static int paeth(int a, int b, int c)
+	{
+		int pa = Math.abs(b - c);
+		int pb = Math.abs(a - c);
+		int pc = Math.abs(a + b - c - c);
+		if (pa <= pb && pa <= pc)
+			return a;
+		return pb <= pc ? b : c;
+	}
+
+}
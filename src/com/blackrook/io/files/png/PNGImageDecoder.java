@@ -0,0 +1,364 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.container.PNGChunkReader;
+
+/**
+ * A streaming decoder for PNG image data that returns unfiltered rows one at a time.
+ * IDAT payloads are streamed from a {@link PNGChunkReader} through an inflater and unfiltered
+ * a row at a time, so only the current and prior rows are held in memory, however large the image is.
+ * <pre>
+ * PNGImageDecoder decoder = new PNGImageDecoder(file);
+ * try {
+ *     byte[] row = new byte[decoder.getRowLength()];
+ *     int y;
+ *     while ((y = decoder.nextRow(row)) &gt;= 0)
+ *         process(y, row);
+ * } finally {
+ *     decoder.close();
+ * }
+ * </pre>
+ * Rows are returned as they are stored: packed samples for bit depths under 8, big-endian samples
+ * for bit depth 16, and palette indices for palette images (see {@link #getPalette()}).
+ * Interlaced images are not supported, since their rows are not stored in order.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class PNGImageDecoder implements Closeable
+{
+	/** Size of the compressed input buffer. */
+	private static final int INPUT_BUFFER_SIZE = 16384;
+
+	/** The chunk reader, or null if image data is read from a plain stream. */
+	private PNGChunkReader reader;
+	/** The plain image data stream, or null if image data is read from chunks. */
+	private InputStream imageData;
+	/** The image header. */
+	private PNGImageHeader header;
+	/** The PLTE payload, if any. */
+	private byte[] palette;
+	/** The tRNS payload, if any. */
+	private byte[] transparency;
+
+	/** The inflater, or null if released. */
+	private Inflater inflater;
+	/** The stream over the current IDAT payload, or null if there are no more. */
+	private InputStream idat;
+	/** Compressed input buffer. */
+	private byte[] input;
+
+	/** Row data length, not including the filter type byte. */
+	private int rowLength;
+	/** Bytes per pixel, for the filters. */
+	private int bpp;
+	/** The current row, filter type byte first. */
+	private byte[] row;
+	/** The prior row, same layout. */
+	private byte[] prior;
+	/** The next row index. */
+	private int y;
+
+	/**
+	 * Creates a new decoder that reads a PNG file.
+	 * @param f the file to read.
+	 * @throws IOException if the file can't be read, is not a PNG file, or its image can't be decoded.
+	 */
+	public PNGImageDecoder(File f) throws IOException
+	{
+		this(new PNGChunkReader(f));
+	}
+
+	/**
+	 * Creates a new decoder that reads a PNG stream.
+	 * @param in the stream to read.
+	 * @throws IOException if the stream can't be read, is not a PNG file, or its image can't be decoded.
+	 */
+	public PNGImageDecoder(InputStream in) throws IOException
+	{
+		this(new PNGChunkReader(in));
+	}
+
+	/**
+	 * Creates a new decoder that reads image data from a chunk reader.
+	 * The reader must not have read any chunks yet. It is read up to the first IDAT chunk by this constructor,
+	 * and is closed when this decoder is closed, or if this constructor fails.
+	 * @param reader the chunk reader.
+	 * @throws IOException if the chunks can't be read, or the image can't be decoded.
+	 */
+	public PNGImageDecoder(PNGChunkReader reader) throws IOException
+	{
+		this.reader = reader;
+		this.imageData = null;
+		this.palette = null;
+		this.transparency = null;
+		this.idat = null;
+
+		try {
+			PNGChunkReader.Chunk chunk = reader.getNextChunk();
+			if (chunk == null || !chunk.getName().equals("IHDR"))
+				throw new IOException("PNG does not start with an IHDR chunk.");
+			this.header = PNGImageHeader.read(chunk.getPayload());
+			if (header.isInterlaced())
+				throw new IOException("Interlaced PNG images can't be decoded by row.");
+
+			while (idat == null)
+			{
+				if ((chunk = reader.getNextChunk()) == null)
+					throw new SuperReader.EOSException("PNG has no image data.");
+				switch (chunk.getName())
+				{
+					case "PLTE":
+						palette = chunk.getPayload();
+						break;
+					case "tRNS":
+						transparency = chunk.getPayload();
+						break;
+					case "IDAT":
+						idat = chunk.getStream();
+						break;
+					case "IEND":
+						throw new IOException("PNG has no image data.");
+				}
+			}
+			if (header.getColorType() == PNGImageHeader.COLOR_PALETTE && palette == null)
+				throw new IOException("PNG palette image has no PLTE chunk.");
+		} catch (IOException | RuntimeException e) {
+			try {
+				reader.close();
+			} catch (IOException ce) {
+				e.addSuppressed(ce);
+			}
+			throw e;
+		}
+		init();
+	}
+
+	/**
+	 * Creates a new decoder that reads compressed image data (the concatenated payloads of IDAT chunks, 
+	 * or their equivalent) from a stream, for image data that isn't stored as a plain PNG file, 
+	 * such as the frames of an animated PNG. {@link #getPalette()} and {@link #getTransparency()} return null.
+	 * The stream is closed when this decoder is closed.
+	 * @param header the image header that describes the data.
+	 * @param imageData the stream of compressed image data.
+	 * @throws IllegalArgumentException if the image is interlaced.
+	 */
+	public PNGImageDecoder(PNGImageHeader header, InputStream imageData)
+	{
+		if (header.isInterlaced())
+			throw new IllegalArgumentException("Interlaced PNG images can't be decoded by row.");
+		this.reader = null;
+		this.imageData = imageData;
+		this.header = header;
+		this.palette = null;
+		this.transparency = null;
+		this.idat = imageData;
+		init();
+	}
+
+	private void init()
+	{
+		this.rowLength = (int)header.getRowLength();
+		this.bpp = header.getBytesPerPixel();
+		this.row = new byte[rowLength + 1];
+		this.prior = new byte[rowLength + 1];
+		this.input = new byte[INPUT_BUFFER_SIZE];
+		this.inflater = ZlibPool.acquireInflater();
+		this.y = 0;
+	}
+
+	/**
+	 * Returns the image header.
+	 */
+	public PNGImageHeader getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * Returns the PLTE chunk payload (RGB triples), or null if the image has none.
+	 */
+	public byte[] getPalette()
+	{
+		return palette;
+	}
+
+	/**
+	 * Returns the tRNS chunk payload, or null if the image has none.
+	 */
+	public byte[] getTransparency()
+	{
+		return transparency;
+	}
+
+	/**
+	 * Returns the length of each row returned by this decoder, in bytes.
+	 */
+	public int getRowLength()
+	{
+		return rowLength;
+	}
+
+	/**
+	 * Returns the index of the next row to be decoded.
+	 * This is equal to the image height once all rows are decoded.
+	 */
+	public int getRowIndex()
+	{
+		return y;
+	}
+
+	/**
+	 * Decodes the next row into an array.
+	 * @param out the output array, at least {@link #getRowLength()} bytes long.
+	 * @return the row's index, or -1 if all rows were decoded.
+	 * @throws IOException if the image data can't be read or is malformed.
+	 * @throws IndexOutOfBoundsException if the array is too short.
+	 */
+	public int nextRow(byte[] out) throws IOException
+	{
+		return nextRow(out, 0);
+	}
+
+	/**
+	 * Decodes the next row into an array.
+	 * @param out the output array.
+	 * @param offset the offset into the array to write the row at.
+	 * @return the row's index, or -1 if all rows were decoded.
+	 * @throws IOException if the image data can't be read or is malformed.
+	 * @throws IndexOutOfBoundsException if the row does not fit in the array at the offset.
+	 */
+	public int nextRow(byte[] out, int offset) throws IOException
+	{
+		if (offset < 0 || offset > out.length - rowLength)
+			throw new IndexOutOfBoundsException("Row of " + rowLength + " bytes does not fit at offset " + offset + ".");
+		if (!decodeRow())
+			return -1;
+		System.arraycopy(row, 1, out, offset, rowLength);
+		return y - 1;
+	}
+
+	/**
+	 * Decodes all remaining rows, passing each to a listener.
+	 * The listener receives this decoder's row buffer, so no rows are copied.
+	 * @param listener the listener to call for each row.
+	 * @return the amount of rows decoded.
+	 * @throws IOException if the image data can't be read or is malformed, or the listener throws one.
+	 */
+	public int readRows(PNGRowListener listener) throws IOException
+	{
+		int start = y;
+		while (decodeRow())
+			listener.onRow(y - 1, row, 1, rowLength);
+		return y - start;
+	}
+
+	/**
+	 * Releases the inflater and closes the chunk reader (or image data stream).
+	 * @throws IOException if the reader can't be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		releaseInflater();
+		if (reader != null)
+			reader.close();
+		else
+			imageData.close();
+	}
+
+	/**
+	 * Inflates and unfilters the next row into the row buffer, swapping the previous row into the prior buffer.
+	 * @return true if a row was decoded, false if all rows were decoded.
+	 */
+	private boolean decodeRow() throws IOException
+	{
+		if (y >= header.getHeight())
+			return false;
+		if (inflater == null)
+			throw new IOException("Decoder is closed.");
+
+		byte[] swap = prior;
+		prior = row;
+		row = swap;
+
+		inflateFully(row, row.length);
+		if (!PNGFilters.unfilter(row, prior, rowLength, bpp))
+			throw new IOException("Bad filter type " + (row[0] & 0x0ff) + " on row " + y + ".");
+		if (++y == header.getHeight())
+			releaseInflater();
+		return true;
+	}
+
+	private void inflateFully(byte[] b, int length) throws IOException
+	{
+		int off = 0;
+		while (off < length)
+		{
+			int n;
+			try {
+				n = inflater.inflate(b, off, length - off);
+			} catch (DataFormatException e) {
+				throw new IOException("Bad PNG image data: " + e.getMessage(), e);
+			}
+			if (n == 0)
+			{
+				if (inflater.finished())
+					throw new SuperReader.EOSException("PNG image data ends at row " + y + " of " + header.getHeight() + ".");
+				else if (inflater.needsDictionary())
+					throw new IOException("PNG image data needs a preset dictionary.");
+				else if (inflater.needsInput())
+					fill();
+			}
+			off += n;
+		}
+	}
+
+	/**
+	 * Feeds the inflater from the current IDAT payload, moving to the next IDAT chunk when it runs out.
+	 */
+	private void fill() throws IOException
+	{
+		while (idat != null)
+		{
+			int n = idat.read(input, 0, input.length);
+			if (n > 0)
+			{
+				inflater.setInput(input, 0, n);
+				return;
+			}
+			else if (n < 0 && reader == null)
+			{
+				idat = null;
+			}
+			else if (n < 0)
+			{
+				PNGChunkReader.Chunk chunk = reader.getNextChunk();
+				idat = chunk != null && chunk.getName().equals("IDAT") ? chunk.getStream() : null;
+			}
+		}
+		throw new SuperReader.EOSException("PNG image data ends at row " + y + " of " + header.getHeight() + ".");
+	}
+
+	private void releaseInflater()
+	{
+		if (inflater == null)
+			return;
+		ZlibPool.release(inflater);
+		inflater = null;
+	}
+
+}
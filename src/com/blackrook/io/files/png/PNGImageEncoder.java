@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+import com.blackrook.io.container.PNGContainerWriter;
+
+/**
+ * An encoder that filters and compresses PNG image rows on several threads at once.
+ * Rows are collected into blocks, and each block is filtered and deflated as a separate task on a
+ * {@link ForkJoinPool}. Each block's deflater is primed with the last 32 KB of the previous block's data
+ * as a preset dictionary and ends with a sync flush, so the blocks join into one zlib stream
+ * that compresses almost as well as a single-threaded one. Rows are filtered according to a {@link PNGFilterType};
+ * {@link PNGFilterType#ADAPTIVE} picks a filter for each row, and since that happens in each block's task, 
+ * the extra filtering work is spread over the pool as well.
+ * <pre>
+ * PNGContainerWriter writer = new PNGContainerWriter(file);
+ * PNGImageEncoder encoder = new PNGImageEncoder(writer, header);
+ * for (int y = 0; y &lt; header.getHeight(); y++)
+ *     encoder.writeRow(rows[y]);
+ * encoder.finish();
+ * writer.writeChunk("IEND", new byte[0]);
+ * writer.close();
+ * </pre>
+ * The encoder writes the IHDR chunk when it is created. Chunks that belong before the image data (PLTE, for instance)
+ * can be written to the container after that and before the first row, and no chunks can be written
+ * between the first row and {@link #finish()}. At most a few blocks per pool thread are held in memory at once.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class PNGImageEncoder implements Closeable
+{
+	/** Default amount of filtered image data per compressed block, in bytes. */
+	public static final int DEFAULT_BLOCK_SIZE = 131072;
+	/** Deflate window size, and the largest useful preset dictionary. */
+	private static final int WINDOW_SIZE = 32768;
+
+	/** The image header. */
+	private PNGImageHeader header;
+	/** The pool to run tasks on. */
+	private ForkJoinPool pool;
+	/** Compression level. */
+	private int level;
+	/** Filter type. */
+	private PNGFilterType filterType;
+
+	/** Row data length. */
+	private int rowLength;
+	/** Bytes per pixel. */
+	private int bpp;
+	/** Rows per block. */
+	private int blockRows;
+	/** Maximum amount of blocks in flight. */
+	private int maxPending;
+
+	/** The IDAT stream. */
+	private OutputStream idat;
+	/** Checksum of all filtered data, for the zlib trailer. */
+	private Adler32 adler;
+	/** The block being filled. */
+	private Block current;
+	/** The last unfiltered row of the previous block. */
+	private byte[] prior;
+	/** The previous block's filter task. */
+	private CompletableFuture<Block> previous;
+	/** Blocks in flight, in order. */
+	private ArrayDeque<CompletableFuture<Block>> pending;
+	/** The next row index. */
+	private int y;
+	/** If true, the image data is complete. */
+	private boolean finished;
+
+	/**
+	 * Creates a new encoder with the default compression level and block size and the recommended filter type 
+	 * (see {@link PNGFilterType#getRecommended(PNGImageHeader)}), running on the common pool.
+	 * @param writer the container writer to write the IHDR chunk and image data to.
+	 * @param header the image header.
+	 * @throws IOException if the IHDR chunk can't be written.
+	 * @throws IllegalArgumentException if the image is interlaced.
+	 */
+	public PNGImageEncoder(PNGContainerWriter writer, PNGImageHeader header) throws IOException
+	{
+		this(writer, header, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, PNGFilterType.getRecommended(header), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a new encoder with the recommended filter type (see {@link PNGFilterType#getRecommended(PNGImageHeader)}).
+	 * @param writer the container writer to write the IHDR chunk and image data to.
+	 * @param header the image header.
+	 * @param level the compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param blockSize the approximate amount of filtered image data per block, in bytes. Blocks are made of whole rows.
+	 * 		Blocks much smaller than 32 KB compress worse.
+	 * @param pool the pool to filter and compress blocks on.
+	 * @throws IOException if the IHDR chunk can't be written.
+	 * @throws IllegalArgumentException if the image is interlaced, the level is out of range, or blockSize is less than 1.
+	 */
+	public PNGImageEncoder(PNGContainerWriter writer, PNGImageHeader header, int level, int blockSize, ForkJoinPool pool) throws IOException
+	{
+		this(writer, header, level, blockSize, PNGFilterType.getRecommended(header), pool);
+	}
+
+	/**
+	 * Creates a new encoder.
+	 * @param writer the container writer to write the IHDR chunk and image data to.
+	 * @param header the image header.
+	 * @param level the compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param blockSize the approximate amount of filtered image data per block, in bytes. Blocks are made of whole rows.
+	 * 		Blocks much smaller than 32 KB compress worse.
+	 * @param filterType the filter type to use on rows.
+	 * @param pool the pool to filter and compress blocks on.
+	 * @throws IOException if the IHDR chunk can't be written.
+	 * @throws IllegalArgumentException if the image is interlaced, the level is out of range, or blockSize is less than 1.
+	 */
+	public PNGImageEncoder(PNGContainerWriter writer, PNGImageHeader header, int level, int blockSize, PNGFilterType filterType, ForkJoinPool pool) throws IOException
+	{
+		if (header.isInterlaced())
+			throw new IllegalArgumentException("Interlaced PNG images can't be encoded by row.");
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("Bad compression level: " + level);
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Block size must be at least 1.");
+
+		this.header = header;
+		this.pool = pool;
+		this.level = level;
+		this.filterType = filterType;
+		this.rowLength = (int)header.getRowLength();
+		this.bpp = header.getBytesPerPixel();
+		this.blockRows = (int)Math.max(1, Math.min(header.getHeight(), blockSize / (rowLength + 1L)));
+		this.maxPending = 2 * pool.getParallelism() + 1;
+
+		this.adler = new Adler32();
+		this.prior = new byte[rowLength];
+		this.previous = null;
+		this.pending = new ArrayDeque<CompletableFuture<Block>>(maxPending + 1);
+		this.current = null;
+		this.y = 0;
+		this.finished = false;
+
+		writer.writeChunk("IHDR", header.toByteArray());
+		this.idat = writer.openImageDataStream();
+		idat.write(0x78);
+		idat.write(zlibFlags(level));
+	}
+
+	/**
+	 * Returns the image header.
+	 */
+	public PNGImageHeader getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * Returns the filter type used on rows.
+	 */
+	public PNGFilterType getFilterType()
+	{
+		return filterType;
+	}
+
+	/**
+	 * Returns the index of the next row to be written.
+	 */
+	public int getRowIndex()
+	{
+		return y;
+	}
+
+	/**
+	 * Writes the next row of the image.
+	 * @param row the row data, at least {@link PNGImageHeader#getRowLength()} bytes long.
+	 * @throws IOException if compressed data can't be written.
+	 * @throws IllegalStateException if all rows have been written.
+	 * @throws IndexOutOfBoundsException if the array is too short.
+	 */
+	public void writeRow(byte[] row) throws IOException
+	{
+		writeRow(row, 0);
+	}
+
+	/**
+	 * Writes the next row of the image. Rows are laid out as the decoder returns them
+	 * (see {@link PNGImageDecoder}), and are copied, so the array can be reused right away.
+	 * @param row the array containing the row data.
+	 * @param offset the offset of the row data in the array.
+	 * @throws IOException if compressed data can't be written.
+	 * @throws IllegalStateException if all rows have been written.
+	 * @throws IndexOutOfBoundsException if the row does not fit in the array at the offset.
+	 */
+	public void writeRow(byte[] row, int offset) throws IOException
+	{
+		if (offset < 0 || offset > row.length - rowLength)
+			throw new IndexOutOfBoundsException("Row of " + rowLength + " bytes does not fit at offset " + offset + ".");
+		if (y >= header.getHeight())
+			throw new IllegalStateException("All rows have been written.");
+
+		if (current == null)
+			current = new Block(Math.min(blockRows, header.getHeight() - y), rowLength, prior);
+		System.arraycopy(row, offset, current.raw, current.rows * rowLength, rowLength);
+		y++;
+		if (++current.rows == current.raw.length / rowLength)
+			submit();
+	}
+
+	/**
+	 * Waits for all blocks to be compressed and writes the rest of the image data.
+	 * Does not write the IEND chunk or close the container writer.
+	 * @throws IOException if compressed data can't be written, or not all rows were written.
+	 */
+	public void finish() throws IOException
+	{
+		if (finished)
+			return;
+		if (y < header.getHeight())
+			throw new IOException("Only " + y + " of " + header.getHeight() + " rows were written.");
+		while (!pending.isEmpty())
+			drain();
+		long checksum = adler.getValue();
+		idat.write((int)(checksum >>> 24));
+		idat.write((int)(checksum >>> 16));
+		idat.write((int)(checksum >>> 8));
+		idat.write((int)checksum);
+		idat.close();
+		finished = true;
+	}
+
+	/**
+	 * Calls {@link #finish()}. The container writer is not closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		finish();
+	}
+
+	/**
+	 * Starts the filter and compression tasks for the current block.
+	 */
+	private void submit() throws IOException
+	{
+		final Block block = current;
+		current = null;
+		block.last = y == header.getHeight();
+		prior = Arrays.copyOfRange(block.raw, block.raw.length - rowLength, block.raw.length);
+
+		CompletableFuture<Block> filtered = CompletableFuture.supplyAsync(() -> filter(block), pool);
+		CompletableFuture<Block> compressed = previous == null
+			? filtered.thenApplyAsync((b) -> deflate(b, null), pool)
+			: filtered.thenCombineAsync(previous, (b, p) -> deflate(b, p), pool);
+		previous = filtered;
+		pending.add(compressed);
+		while (pending.size() > maxPending)
+			drain();
+	}
+
+	/**
+	 * Waits for the oldest block and writes its compressed data.
+	 */
+	private void drain() throws IOException
+	{
+		Block block;
+		try {
+			block = pending.poll().join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			throw new IOException("Could not compress PNG image data.", cause);
+		}
+		adler.update(block.filtered, 0, block.filtered.length);
+		idat.write(block.compressed, 0, block.compressedLength);
+	}
+
+	private Block filter(Block block)
+	{
+		int stride = rowLength + 1;
+		block.filtered = new byte[block.rows * stride];
+		filterRow(block.raw, 0, block.prior, 0, block.filtered, 0);
+		for (int r = 1; r < block.rows; r++)
+			filterRow(block.raw, r * rowLength, block.raw, (r - 1) * rowLength, block.filtered, r * stride);
+		block.prior = null;
+		return block;
+	}
+
+	private void filterRow(byte[] raw, int rawOffset, byte[] prior, int priorOffset, byte[] out, int outOffset)
+	{
+		int type = filterType == PNGFilterType.ADAPTIVE 
+			? PNGFilters.selectFilter(raw, rawOffset, prior, priorOffset, rowLength, bpp)
+			: filterType.ordinal();
+		PNGFilters.filter(type, raw, rawOffset, prior, priorOffset, out, outOffset, rowLength, bpp);
+	}
+
+	private Block deflate(Block block, Block previous)
+	{
+		Deflater deflater = ZlibPool.acquireDeflater(level);
+		try {
+			if (previous != null)
+			{
+				int dictionary = Math.min(WINDOW_SIZE, previous.filtered.length);
+				deflater.setDictionary(previous.filtered, previous.filtered.length - dictionary, dictionary);
+			}
+			int length = block.filtered.length;
+			deflater.setInput(block.filtered, 0, length);
+			if (block.last)
+				deflater.finish();
+
+			byte[] out = new byte[length + (length >> 12) + (length >> 14) + 64];
+			int n = 0;
+			while (true)
+			{
+				if (n == out.length)
+					out = Arrays.copyOf(out, out.length * 2);
+				if (block.last)
+				{
+					n += deflater.deflate(out, n, out.length - n);
+					if (deflater.finished())
+						break;
+				}
+				else
+				{
+					n += deflater.deflate(out, n, out.length - n, Deflater.SYNC_FLUSH);
+					if (n < out.length)
+						break;
+				}
+			}
+			block.compressed = out;
+			block.compressedLength = n;
+			return block;
+		} finally {
+			ZlibPool.release(deflater, level);
+		}
+	}
+
+	/**
+	 * Returns the second zlib header byte (FLG) for a compression level, after a CMF byte of 0x78.
+	 */
+	private static int zlibFlags(int level)
+	{
+		int flevel;
+		if (level == Deflater.DEFAULT_COMPRESSION || level == 6)
+			flevel = 2;
+		else if (level < 2)
+			flevel = 0;
+		else if (level < 6)
+			flevel = 1;
+		else
+			flevel = 3;
+		int flags = flevel << 6;
+		return flags + (31 - (0x78 << 8 | flags) % 31) % 31;
+	}
+
+	/**
+	 * A block of rows.
+	 */
+	private static class Block
+	{
+		/** Unfiltered rows. */
+		private byte[] raw;
+		/** Amount of rows filled. */
+		private int rows;
+		/** The unfiltered row before this block. */
+		private byte[] prior;
+		/** Filtered rows. */
+		private byte[] filtered;
+		/** Compressed data. */
+		private byte[] compressed;
+		/** Compressed data length. */
+		private int compressedLength;
+		/** If true, this is the last block. */
+		private boolean last;
+
+		private Block(int rows, int rowLength, byte[] prior)
+		{
+			this.raw = new byte[rows * rowLength];
+			this.rows = 0;
+			this.prior = prior;
+		}
+	}
+
+}
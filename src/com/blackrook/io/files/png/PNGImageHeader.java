@@ -0,0 +1,276 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.IOException;
+
+/**
+ * The image information in a PNG file's IHDR chunk.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class PNGImageHeader
+{
+	/** Color type: grayscale. */
+	public static final int COLOR_GRAYSCALE = 0;
+	/** Color type: red, green, blue. */
+	public static final int COLOR_RGB = 2;
+	/** Color type: palette indices. */
+	public static final int COLOR_PALETTE = 3;
+	/** Color type: grayscale and alpha. */
+	public static final int COLOR_GRAYSCALE_ALPHA = 4;
+	/** Color type: red, green, blue, alpha. */
+	public static final int COLOR_RGBA = 6;
+
+	/** Interlace method: none. */
+	public static final int INTERLACE_NONE = 0;
+	/** Interlace method: Adam7. */
+	public static final int INTERLACE_ADAM7 = 1;
+
+	/** Length of an IHDR payload. */
+	static final int LENGTH = 13;
+
+	private int width;
+	private int height;
+	private int bitDepth;
+	private int colorType;
+	private int compressionMethod;
+	private int filterMethod;
+	private int interlaceMethod;
+
+	/**
+	 * Creates a new image header.
+	 * @param width the image width in pixels.
+	 * @param height the image height in pixels.
+	 * @param bitDepth the bits per sample (or palette index).
+	 * @param colorType the color type.
+	 * @param interlaceMethod the interlace method.
+	 * @throws IllegalArgumentException if the dimensions are not positive,
+	 * 		or the bit depth, color type or interlace method is invalid.
+	 */
+	public PNGImageHeader(int width, int height, int bitDepth, int colorType, int interlaceMethod)
+	{
+		this(width, height, bitDepth, colorType, 0, 0, interlaceMethod);
+	}
+
+	private PNGImageHeader(int width, int height, int bitDepth, int colorType, int compressionMethod, int filterMethod, int interlaceMethod)
+	{
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Bad image dimensions: " + (width & 0xffffffffL) + "x" + (height & 0xffffffffL));
+		if (!isValidDepth(bitDepth, colorType))
+			throw new IllegalArgumentException("Bad bit depth " + bitDepth + " for color type " + colorType + ".");
+		if (compressionMethod != 0)
+			throw new IllegalArgumentException("Unknown compression method: " + compressionMethod);
+		if (filterMethod != 0)
+			throw new IllegalArgumentException("Unknown filter method: " + filterMethod);
+		if (interlaceMethod != INTERLACE_NONE && interlaceMethod != INTERLACE_ADAM7)
+			throw new IllegalArgumentException("Unknown interlace method: " + interlaceMethod);
+		this.width = width;
+		this.height = height;
+		this.bitDepth = bitDepth;
+		this.colorType = colorType;
+		this.compressionMethod = compressionMethod;
+		this.filterMethod = filterMethod;
+		this.interlaceMethod = interlaceMethod;
+		if (getRowLength() > Integer.MAX_VALUE - 1)
+			throw new IllegalArgumentException("Image rows are too long: " + width + " pixels.");
+	}
+
+	/**
+	 * Reads an image header from an IHDR chunk payload.
+	 * @param payload the IHDR payload.
+	 * @return the header.
+	 * @throws IOException if the payload is the wrong length or contains invalid values.
+	 */
+	public static PNGImageHeader read(byte[] payload) throws IOException
+	{
+		if (payload.length != LENGTH)
+			throw new IOException("Bad IHDR length: " + payload.length);
+		try {
+			return new PNGImageHeader(
+				readInt(payload, 0),
+				readInt(payload, 4),
+				payload[8] & 0x0ff,
+				payload[9] & 0x0ff,
+				payload[10] & 0x0ff,
+				payload[11] & 0x0ff,
+				payload[12] & 0x0ff
+			);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Bad IHDR chunk. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns this header as an IHDR chunk payload.
+	 */
+	public byte[] toByteArray()
+	{
+		byte[] out = new byte[LENGTH];
+		writeInt(out, 0, width);
+		writeInt(out, 4, height);
+		out[8] = (byte)bitDepth;
+		out[9] = (byte)colorType;
+		out[10] = (byte)compressionMethod;
+		out[11] = (byte)filterMethod;
+		out[12] = (byte)interlaceMethod;
+		return out;
+	}
+
+	/**
+	 * Returns the image width in pixels.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+
+	/**
+	 * Returns the image height in pixels.
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	/**
+	 * Returns the bits per sample, or per palette index.
+	 */
+	public int getBitDepth()
+	{
+		return bitDepth;
+	}
+
+	/**
+	 * Returns the color type.
+	 * @see #COLOR_GRAYSCALE
+	 * @see #COLOR_RGB
+	 * @see #COLOR_PALETTE
+	 * @see #COLOR_GRAYSCALE_ALPHA
+	 * @see #COLOR_RGBA
+	 */
+	public int getColorType()
+	{
+		return colorType;
+	}
+
+	/**
+	 * Returns the compression method. Always 0 (zlib).
+	 */
+	public int getCompressionMethod()
+	{
+		return compressionMethod;
+	}
+
+	/**
+	 * Returns the filter method. Always 0 (adaptive, five filter types).
+	 */
+	public int getFilterMethod()
+	{
+		return filterMethod;
+	}
+
+	/**
+	 * Returns the interlace method.
+	 * @see #INTERLACE_NONE
+	 * @see #INTERLACE_ADAM7
+	 */
+	public int getInterlaceMethod()
+	{
+		return interlaceMethod;
+	}
+
+	/**
+	 * Returns true if this image is interlaced.
+	 */
+	public boolean isInterlaced()
+	{
+		return interlaceMethod != INTERLACE_NONE;
+	}
+
+	/**
+	 * Returns the amount of samples per pixel.
+	 */
+	public int getChannels()
+	{
+		switch (colorType)
+		{
+			case COLOR_RGB:
+				return 3;
+			case COLOR_GRAYSCALE_ALPHA:
+				return 2;
+			case COLOR_RGBA:
+				return 4;
+			default:
+				return 1;
+		}
+	}
+
+	/**
+	 * Returns the amount of bits per pixel.
+	 */
+	public int getBitsPerPixel()
+	{
+		return getChannels() * bitDepth;
+	}
+
+	/**
+	 * Returns the amount of whole bytes per pixel, rounded up to 1.
+	 * This is the distance that the Sub, Average and Paeth filters look back in a row.
+	 */
+	public int getBytesPerPixel()
+	{
+		return Math.max(1, getBitsPerPixel() >> 3);
+	}
+
+	/**
+	 * Returns the length of one unfiltered row of image data in bytes,
+	 * not including the filter type byte.
+	 */
+	public long getRowLength()
+	{
+		return ((long)width * getBitsPerPixel() + 7) >> 3;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PNGImageHeader " + width + "x" + height + " Depth: " + bitDepth + " Color: " + colorType + " Interlace: " + interlaceMethod;
+	}
+
+	private static boolean isValidDepth(int bitDepth, int colorType)
+	{
+		switch (colorType)
+		{
+			case COLOR_GRAYSCALE:
+				return bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+			case COLOR_PALETTE:
+				return bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+			case COLOR_RGB:
+			case COLOR_GRAYSCALE_ALPHA:
+			case COLOR_RGBA:
+				return bitDepth == 8 || bitDepth == 16;
+			default:
+				return false;
+		}
+	}
+
+	private static int readInt(byte[] b, int offset)
+	{
+		return (b[offset] & 0x0ff) << 24 | (b[offset + 1] & 0x0ff) << 16 | (b[offset + 2] & 0x0ff) << 8 | (b[offset + 3] & 0x0ff);
+	}
+
+	private static void writeInt(byte[] b, int offset, int value)
+	{
+		b[offset] = (byte)(value >>> 24);
+		b[offset + 1] = (byte)(value >>> 16);
+		b[offset + 2] = (byte)(value >>> 8);
+		b[offset + 3] = (byte)value;
+	}
+
+}
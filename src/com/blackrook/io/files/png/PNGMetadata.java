@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The metadata of a PNG file that comes before its image data: image header, text and physical pixel dimensions.
+ * Created by {@link PNGMetadataProbe}.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class PNGMetadata
+{
+	/** Physical unit: none given (pHYs chunk missing). */
+	public static final int UNIT_NONE = -1;
+	/** Physical unit: unknown (pixel aspect ratio only). */
+	public static final int UNIT_UNKNOWN = 0;
+	/** Physical unit: meter. */
+	public static final int UNIT_METER = 1;
+
+	private File file;
+	private long fileLength;
+	private long imageDataOffset;
+	private PNGImageHeader header;
+	private Map<String, String> text;
+	private int pixelsPerUnitX;
+	private int pixelsPerUnitY;
+	private int unit;
+
+	PNGMetadata(File file, long fileLength, long imageDataOffset, PNGImageHeader header, Map<String, String> text, int pixelsPerUnitX, int pixelsPerUnitY, int unit)
+	{
+		this.file = file;
+		this.fileLength = fileLength;
+		this.imageDataOffset = imageDataOffset;
+		this.header = header;
+		this.text = text.isEmpty() ? Collections.<String, String>emptyMap() : Collections.unmodifiableMap(text);
+		this.pixelsPerUnitX = pixelsPerUnitX;
+		this.pixelsPerUnitY = pixelsPerUnitY;
+		this.unit = unit;
+	}
+
+	/**
+	 * Returns the file that this was read from.
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Returns the file's length in bytes.
+	 */
+	public long getFileLength()
+	{
+		return fileLength;
+	}
+
+	/**
+	 * Returns the offset of the first IDAT chunk in the file, or -1 if the file has none.
+	 */
+	public long getImageDataOffset()
+	{
+		return imageDataOffset;
+	}
+
+	/**
+	 * Returns the image header.
+	 */
+	public PNGImageHeader getHeader()
+	{
+		return header;
+	}
+
+	/**
+	 * Returns the text from tEXt, zTXt and iTXt chunks before the image data, by keyword, in file order.
+	 * If a keyword appears more than once, the first one is kept. The map is unmodifiable.
+	 */
+	public Map<String, String> getText()
+	{
+		return text;
+	}
+
+	/**
+	 * Returns true if the file has a pHYs chunk before its image data.
+	 */
+	public boolean hasPhysicalDimensions()
+	{
+		return unit != UNIT_NONE;
+	}
+
+	/**
+	 * Returns the horizontal pixels per unit (from pHYs), or 0 if there is no pHYs chunk.
+	 */
+	public int getPixelsPerUnitX()
+	{
+		return pixelsPerUnitX;
+	}
+
+	/**
+	 * Returns the vertical pixels per unit (from pHYs), or 0 if there is no pHYs chunk.
+	 */
+	public int getPixelsPerUnitY()
+	{
+		return pixelsPerUnitY;
+	}
+
+	/**
+	 * Returns the physical unit.
+	 * @see #UNIT_NONE
+	 * @see #UNIT_UNKNOWN
+	 * @see #UNIT_METER
+	 */
+	public int getUnit()
+	{
+		return unit;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PNGMetadata " + file.getPath() + " " + header.getWidth() + "x" + header.getHeight() + " Text: " + text.keySet();
+	}
+
+}
@@ -0,0 +1,419 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * Reads the metadata of PNG files without reading their image data.
+ * Only the chunks before the first IDAT chunk are looked at, with small positional reads,
+ * and only IHDR, tEXt, zTXt, iTXt and pHYs payloads are read; everything else is skipped.
+ * Whole directory trees can be probed at once on a bounded amount of threads:
+ * <pre>
+ * PNGMetadataProbe.probeTree(directory, 16, new PNGProbeListener()
+ * {
+ *     public void onMetadata(PNGMetadata metadata) { index.add(metadata); }
+ *     public void onError(File file, IOException exception) { log(file, exception); }
+ * });
+ * </pre>
+ * Text chunks that are longer than {@link #MAX_TEXT_LENGTH} (compressed or not) or malformed are skipped.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public final class PNGMetadataProbe
+{
+	/** Longest text chunk payload or decompressed text that is read, in bytes. */
+	public static final int MAX_TEXT_LENGTH = 1024 * 1024;
+	/** Size of each positional read. Most PNG metadata fits in one. */
+	private static final int WINDOW_SIZE = 4096;
+	/** PNG file signature. */
+	private static final byte[] SIGNATURE = {
+		(byte)0x089, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A
+	};
+
+	private PNGMetadataProbe() {}
+
+	/**
+	 * Reads the metadata of a PNG file.
+	 * @param file the file to read.
+	 * @return the file's metadata.
+	 * @throws IOException if the file can't be read, is not a PNG file, or has no valid IHDR chunk.
+	 */
+	public static PNGMetadata probe(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			return probe(file, channel);
+		}
+	}
+
+	/**
+	 * Reads the metadata of every file ending in ".png" (in any case) in a directory tree,
+	 * on a fixed amount of threads. Files are handed to the threads as the tree is walked, and the walk waits
+	 * whenever there are twice as many files queued as threads, so memory use does not grow with the tree.
+	 * This returns after every file has been probed, even if the walk fails partway.
+	 * Subdirectories that can't be read are passed to the listener as errors, and skipped.
+	 * @param directory the root of the tree.
+	 * @param parallelism the amount of threads to probe files on.
+	 * @param listener the listener to pass results and errors to. Called from the probe threads.
+	 * @return the amount of files probed, including ones that failed (not counting unreadable subdirectories).
+	 * @throws IOException if the root directory can't be walked, or the calling thread is interrupted.
+	 * @throws IllegalArgumentException if parallelism is less than 1.
+	 */
+	public static int probeTree(File directory, int parallelism, PNGProbeListener listener) throws IOException
+	{
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+
+		final AtomicInteger threadCount = new AtomicInteger(0);
+		final AtomicReference<RuntimeException> listenerException = new AtomicReference<RuntimeException>();
+		final Semaphore queued = new Semaphore(parallelism * 2);
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, (runnable) -> {
+			Thread out = new Thread(runnable, "PNGMetadataProbe-" + threadCount.incrementAndGet());
+			out.setDaemon(true);
+			return out;
+		});
+
+		final Path root = directory.toPath();
+		final int[] files = {0};
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>()
+			{
+				@Override
+				public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException
+				{
+					if (!attributes.isRegularFile() || !path.getFileName().toString().toLowerCase().endsWith(".png"))
+						return FileVisitResult.CONTINUE;
+					if (listenerException.get() != null)
+						return FileVisitResult.TERMINATE;
+
+					final File file = path.toFile();
+					files[0]++;
+					submit(() -> {
+						PNGMetadata metadata;
+						try {
+							metadata = probe(file);
+						} catch (IOException e) {
+							listener.onError(file, e);
+							return;
+						}
+						listener.onMetadata(metadata);
+					});
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path path, IOException exception) throws IOException
+				{
+					if (path.equals(root))
+						throw exception;
+					boolean png = path.getFileName() != null && path.getFileName().toString().toLowerCase().endsWith(".png");
+					if (!png && !Files.isDirectory(path))
+						return FileVisitResult.CONTINUE;
+					if (listenerException.get() != null)
+						return FileVisitResult.TERMINATE;
+
+					final File file = path.toFile();
+					if (png)
+						files[0]++;
+					submit(() -> listener.onError(file, exception));
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory(Path path, IOException exception) throws IOException
+				{
+					if (exception == null)
+						return FileVisitResult.CONTINUE;
+					if (path.equals(root))
+						throw exception;
+					if (listenerException.get() != null)
+						return FileVisitResult.TERMINATE;
+
+					final File file = path.toFile();
+					submit(() -> listener.onError(file, exception));
+					return FileVisitResult.CONTINUE;
+				}
+
+				// Runs listener calls on a probe thread, waiting if too many are queued.
+				private void submit(Runnable task) throws IOException
+				{
+					try {
+						queued.acquire();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException("Interrupted while probing " + directory.getPath());
+					}
+					executor.execute(() -> {
+						try {
+							task.run();
+						} catch (RuntimeException e) {
+							listenerException.compareAndSet(null, e);
+						} finally {
+							queued.release();
+						}
+					});
+				}
+			});
+		} catch (IOException | RuntimeException | Error e) {
+			// let the files already handed out finish, so that nothing calls the listener after this returns.
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException ie) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			throw e;
+		}
+
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			throw new InterruptedIOException("Interrupted while probing " + directory.getPath());
+		}
+		if (listenerException.get() != null)
+			throw listenerException.get();
+		return files[0];
+	}
+
+	private static PNGMetadata probe(File file, FileChannel channel) throws IOException
+	{
+		Window window = new Window(channel);
+		if (window.size < SIGNATURE.length)
+			throw new IOException("Not a PNG file. Header may be corrupt.");
+		ByteBuffer buf = window.get(0, SIGNATURE.length);
+		for (int i = 0; i < SIGNATURE.length; i++)
+			if (buf.get() != SIGNATURE[i])
+				throw new IOException("Not a PNG file. Header may be corrupt.");
+
+		PNGImageHeader header = null;
+		Map<String, String> text = new LinkedHashMap<String, String>(4);
+		long imageDataOffset = -1L;
+		int pixelsPerUnitX = 0;
+		int pixelsPerUnitY = 0;
+		int unit = PNGMetadata.UNIT_NONE;
+
+		long position = SIGNATURE.length;
+		while (position + 8 <= window.size)
+		{
+			buf = window.get(position, 8);
+			int length = buf.getInt();
+			if (length < 0)
+				throw new IOException("Bad PNG chunk length at offset " + position + ": " + (length & 0xffffffffL));
+			byte[] nameBytes = new byte[4];
+			buf.get(nameBytes);
+			String name = new String(nameBytes, StandardCharsets.US_ASCII);
+
+			if (name.equals("IDAT"))
+			{
+				imageDataOffset = position;
+				break;
+			}
+			else if (name.equals("IEND"))
+			{
+				break;
+			}
+			else if (name.equals("IHDR"))
+			{
+				if (header == null)
+					header = PNGImageHeader.read(window.read(position + 8, length));
+			}
+			else if (name.equals("pHYs"))
+			{
+				if (length == 9)
+				{
+					buf = window.get(position + 8, 9);
+					pixelsPerUnitX = buf.getInt();
+					pixelsPerUnitY = buf.getInt();
+					unit = buf.get() & 0x0ff;
+				}
+			}
+			else if (name.equals("tEXt") || name.equals("zTXt") || name.equals("iTXt"))
+			{
+				if (length <= MAX_TEXT_LENGTH)
+					readText(name, window.read(position + 8, length), text);
+			}
+			position += 12L + length;
+		}
+
+		if (header == null)
+			throw new IOException("PNG has no IHDR chunk: " + file.getPath());
+		return new PNGMetadata(file, window.size, imageDataOffset, header, text, pixelsPerUnitX, pixelsPerUnitY, unit);
+	}
+
+	/**
+	 * Reads a text chunk payload into a map, skipping it if it is malformed.
+	 */
+	private static void readText(String name, byte[] payload, Map<String, String> text)
+	{
+		int keywordEnd = indexOf(payload, 0);
+		if (keywordEnd <= 0)
+			return;
+		String keyword = new String(payload, 0, keywordEnd, StandardCharsets.ISO_8859_1);
+		if (text.containsKey(keyword))
+			return;
+
+		String value;
+		switch (name)
+		{
+			case "tEXt":
+				value = new String(payload, keywordEnd + 1, payload.length - keywordEnd - 1, StandardCharsets.ISO_8859_1);
+				break;
+			case "zTXt":
+			{
+				byte[] data = keywordEnd + 2 <= payload.length ? inflate(payload, keywordEnd + 2) : null;
+				if (data == null)
+					return;
+				value = new String(data, StandardCharsets.ISO_8859_1);
+				break;
+			}
+			default: // iTXt
+			{
+				int offset = keywordEnd + 3;
+				if (offset > payload.length)
+					return;
+				boolean compressed = payload[keywordEnd + 1] != 0;
+				int languageEnd = indexOf(payload, offset);
+				int translatedEnd = languageEnd < 0 ? -1 : indexOf(payload, languageEnd + 1);
+				if (translatedEnd < 0)
+					return;
+				if (compressed)
+				{
+					byte[] data = inflate(payload, translatedEnd + 1);
+					if (data == null)
+						return;
+					value = new String(data, StandardCharsets.UTF_8);
+				}
+				else
+				{
+					value = new String(payload, translatedEnd + 1, payload.length - translatedEnd - 1, StandardCharsets.UTF_8);
+				}
+				break;
+			}
+		}
+		text.put(keyword, value);
+	}
+
+	/**
+	 * Inflates zlib data from an offset to the end of an array.
+	 * @return the inflated data, or null if it is malformed or too long.
+	 */
+	private static byte[] inflate(byte[] b, int offset)
+	{
+		Inflater inflater = ZlibPool.acquireInflater();
+		try {
+			inflater.setInput(b, offset, b.length - offset);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(MAX_TEXT_LENGTH, (b.length - offset) * 4));
+			byte[] chunk = new byte[WINDOW_SIZE];
+			while (!inflater.finished())
+			{
+				int n = inflater.inflate(chunk);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					return null;
+				out.write(chunk, 0, n);
+				if (out.size() > MAX_TEXT_LENGTH)
+					return null;
+			}
+			return out.toByteArray();
+		} catch (DataFormatException e) {
+			return null;
+		} finally {
+			ZlibPool.release(inflater);
+		}
+	}
+
+	private static int indexOf(byte[] b, int offset)
+	{
+		for (int i = offset; i < b.length; i++)
+			if (b[i] == 0)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * A buffered window on a file channel, filled by positional reads.
+	 */
+	private static class Window
+	{
+		private FileChannel channel;
+		private long size;
+		private ByteBuffer buffer;
+		/** File offset of the start of the buffer. */
+		private long start;
+
+		private Window(FileChannel channel) throws IOException
+		{
+			this.channel = channel;
+			this.size = channel.size();
+			this.buffer = ByteBuffer.allocate(WINDOW_SIZE);
+			this.buffer.limit(0);
+			this.start = 0L;
+		}
+
+		/**
+		 * Returns a buffer positioned at a file offset with at least the requested amount of bytes remaining.
+		 * The buffer is only valid until the next call.
+		 */
+		private ByteBuffer get(long position, int length) throws IOException
+		{
+			if (position < start || position + length > start + buffer.limit())
+			{
+				if (position + length > size)
+					throw new SuperReader.EOSException("PNG chunk at offset " + position + " runs past the end of the file.");
+				if (length > buffer.capacity())
+					buffer = ByteBuffer.allocate(length);
+				buffer.clear();
+				buffer.limit((int)Math.min(buffer.capacity(), size - position));
+				while (buffer.hasRemaining())
+					if (channel.read(buffer, position + buffer.position()) < 0)
+						throw new SuperReader.EOSException("PNG file ended early at offset " + (position + buffer.position()) + ".");
+				buffer.flip();
+				start = position;
+			}
+			buffer.position((int)(position - start));
+			return buffer;
+		}
+
+		/**
+		 * Reads bytes at a file offset into a new array.
+		 */
+		private byte[] read(long position, int length) throws IOException
+		{
+			byte[] out = new byte[length];
+			get(position, length).get(out);
+			return out;
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A listener that receives the results of a directory probe with {@link PNGMetadataProbe}.
+ * Methods are called from the probe's worker threads, so implementations must be thread-safe.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public interface PNGProbeListener
+{
+	/**
+	 * Called for each file that was probed.
+	 * @param metadata the file's metadata.
+	 */
+	public void onMetadata(PNGMetadata metadata);
+
+	/**
+	 * Called for each file that could not be probed, and for each subdirectory that could not be read.
+	 * The probe continues with the next file.
+	 * @param file the file or directory.
+	 * @param exception the exception that occurred.
+	 */
+	public void onError(File file, IOException exception);
+
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.io.IOException;
+
+/**
+ * A listener that receives the decoded rows of a PNG image, top to bottom.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see PNGImageDecoder#readRows(PNGRowListener)
+ */
+public interface PNGRowListener
+{
+	/**
+	 * Called for each decoded row.
+	 * The row array belongs to the decoder and is overwritten after this returns, so it must be copied to be kept.
+	 * @param y the row index.
+	 * @param row the array containing the unfiltered row data.
+	 * @param offset the offset of the row data in the array.
+	 * @param length the length of the row data in bytes.
+	 * @throws IOException if the listener fails, which stops decoding.
+	 */
+	public void onRow(int y, byte[] row, int offset, int length) throws IOException;
+
+}
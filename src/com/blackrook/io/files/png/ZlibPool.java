@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.png;
+
+import java.util.ArrayDeque;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Per-thread pools of {@link Inflater}s and {@link Deflater}s, which hold native memory and are costly to create.
+ * Objects are reset on release, and objects released past the pool's capacity are ended.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+final class ZlibPool
+{
+	/** Amount of objects of each kind to keep per thread. */
+	private static final int CAPACITY = 4;
+
+	/** Per-thread pools. */
+	private static final ThreadLocal<ZlibPool> LOCAL = new ThreadLocal<ZlibPool>()
+	{
+		@Override
+		protected ZlibPool initialValue()
+		{
+			return new ZlibPool();
+		}
+	};
+
+	private ArrayDeque<Inflater> inflaters;
+	/** Deflaters by compression level, offset by one (for {@link Deflater#DEFAULT_COMPRESSION}). */
+	private ArrayDeque<Deflater>[] deflaters;
+
+	@SuppressWarnings("unchecked")
+	private ZlibPool()
+	{
+		this.inflaters = new ArrayDeque<Inflater>(CAPACITY);
+		this.deflaters = (ArrayDeque<Deflater>[])new ArrayDeque<?>[Deflater.BEST_COMPRESSION + 2];
+		for (int i = 0; i < deflaters.length; i++)
+			deflaters[i] = new ArrayDeque<Deflater>(CAPACITY);
+	}
+
+	/**
+	 * Gets an inflater for zlib-wrapped data from the current thread's pool, or a new one if the pool is empty.
+	 * @return an inflater.
+	 */
+	static Inflater acquireInflater()
+	{
+		ArrayDeque<Inflater> pool = LOCAL.get().inflaters;
+		return pool.isEmpty() ? new Inflater() : pool.pop();
+	}
+
+	/**
+	 * Returns an inflater to the current thread's pool.
+	 * @param inflater the inflater to release.
+	 */
+	static void release(Inflater inflater)
+	{
+		ArrayDeque<Inflater> pool = LOCAL.get().inflaters;
+		if (pool.size() >= CAPACITY)
+		{
+			inflater.end();
+			return;
+		}
+		inflater.reset();
+		pool.push(inflater);
+	}
+
+	/**
+	 * Gets a raw deflater (no zlib header or trailer) from the current thread's pool, or a new one if the pool is empty.
+	 * Deflaters are pooled by level, since changing the level of a used deflater can flush it.
+	 * @param level the compression level, 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @return a deflater.
+	 * @throws IllegalArgumentException if the level is out of range.
+	 */
+	static Deflater acquireDeflater(int level)
+	{
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("Bad compression level: " + level);
+		ArrayDeque<Deflater> pool = LOCAL.get().deflaters[level + 1];
+		return pool.isEmpty() ? new Deflater(level, true) : pool.pop();
+	}
+
+	/**
+	 * Returns a deflater acquired with {@link #acquireDeflater(int)} to the current thread's pool.
+	 * @param deflater the deflater to release.
+	 * @param level the level it was acquired with.
+	 */
+	static void release(Deflater deflater, int level)
+	{
+		ArrayDeque<Deflater> pool = LOCAL.get().deflaters[level + 1];
+		if (pool.size() >= CAPACITY)
+		{
+			deflater.end();
+			return;
+		}
+		deflater.reset();
+		pool.push(deflater);
+	}
+
+}
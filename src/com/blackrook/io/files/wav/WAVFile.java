@@ -7,7 +7,6 @@
  ******************************************************************************/
 package com.blackrook.io.files.wav;
 
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -16,10 +15,17 @@ import java.io.InputStream;
 import java.io.RandomAccessFile;
 
 import com.blackrook.commons.math.RMath;
+import com.blackrook.io.BufferPool;
+import com.blackrook.io.BufferPools;
+import com.blackrook.io.ReusableByteArrayInputStream;
+import com.blackrook.io.SuperPool;
 import com.blackrook.io.SuperReader;
 import com.blackrook.io.files.SoundFileInfo;
 import com.blackrook.io.files.SoundFileInfo.SampleEndian;
 import com.blackrook.io.files.SoundFileInfo.SampleType;
+import com.blackrook.io.jfr.EventSupport;
+import com.blackrook.io.jfr.WAVOpenEvent;
+import com.blackrook.io.jfr.WAVReadEvent;
 
 /**
  * A WAV File reading class.
@@ -45,6 +51,20 @@ public class WAVFile extends RandomAccessFile implements Closeable
 			{0, 65536},
 			// signed
 			{-32768, 32767},
+		},
+		// 3
+		{
+			// unsigned
+			{0, 16777215},
+			// signed
+			{-8388608, 8388607},
+		},
+		// 4
+		{
+			// unsigned
+			{0, 4294967295L},
+			// signed
+			{-2147483648L, 2147483647L},
 		}
 	};
 	
@@ -53,6 +73,8 @@ public class WAVFile extends RandomAccessFile implements Closeable
 	{
 		256,
 		65536,
+		16777216,
+		4294967296L,
 	};
 	
 	/** Sound info. */
@@ -86,6 +108,9 @@ public class WAVFile extends RandomAccessFile implements Closeable
 	public WAVFile(File f) throws IOException
 	{
 		super(f, "r");
+		WAVOpenEvent event = EventSupport.ENABLED ? new WAVOpenEvent() : null;
+		if (event != null)
+			event.begin();
 		seek(0);
 
 		byte[] buffer = new byte[4];
@@ -124,16 +149,23 @@ public class WAVFile extends RandomAccessFile implements Closeable
 		read(buffer);
 		int len = SuperReader.bytesToInt(buffer,SuperReader.LITTLE_ENDIAN);
 
-		byte[] formatChunkData = new byte[len];
-		read(formatChunkData);
-		
-		soundInfo = readFormat(new ByteArrayInputStream(formatChunkData));
+		BufferPool pool = BufferPools.getDefault();
+		byte[] formatChunkData = pool.acquireArray(len);
+		try {
+			readFully(formatChunkData, 0, len);
+			ReusableByteArrayInputStream formatIn = SuperPool.local().acquireInputStream(formatChunkData, 0, len);
+			try {
+				soundInfo = readFormat(formatIn);
+			} finally {
+				SuperPool.local().release(formatIn);
+			}
+		} finally {
+			pool.release(formatChunkData);
+		}
 		if (soundInfo == null)
 			throw new IOException("Unsupported data type in WAV.");
 
 		soundInfo.setEndianMode(endian);
-		soundInfo.setSampleType(soundInfo.getBitsPerSample() == 16 ? 
-				SampleType.INTEGER_SIGNED : SampleType.INTEGER_UNSIGNED);
 		
 		// skip chunks until we find "data"
 		read(buffer);
@@ -161,28 +193,56 @@ public class WAVFile extends RandomAccessFile implements Closeable
 		dataLength |= read() << 24;
 		
 		dataOffset = getFilePointer();
+
+		if (event != null)
+			event.end();
+		if (event != null && event.shouldCommit())
+		{
+			event.path = f.getPath();
+			event.channels = soundInfo.getChannels();
+			event.sampleRate = soundInfo.getSampleRate();
+			event.dataLength = dataLength;
+			event.commit();
+		}
 	}
 	
 	/**
 	 * Reads the format chunk.
+	 * Integer PCM (1) is 8-bit unsigned or 16/24/32-bit signed, and IEEE floating point (3) is 32/64-bit.
+	 * @return the info, or null if the format is not supported.
 	 */
 	private SoundFileInfo readFormat(InputStream in) throws IOException
 	{
 		SoundFileInfo info = new SoundFileInfo();
-		SuperReader sr = new SuperReader(in, SuperReader.LITTLE_ENDIAN);
-		
-		// must be 1 for PCM.
-		if (sr.readUnsignedShort() != 1)
-			return null;
-		
-		info.setChannels(sr.readUnsignedShort());
-		info.setSampleRate(sr.readInt());
-		
-		info.setBytesPerSecond(sr.readInt());
-		info.setBitsPerSecond(info.getBytesPerSecond() * 8);
-		
-		info.setBytesPerSample(sr.readUnsignedShort() / info.getChannels());
-		info.setBitsPerSample(sr.readUnsignedShort());
+		SuperPool pool = SuperPool.local();
+		SuperReader sr = pool.acquireReader(in, SuperReader.LITTLE_ENDIAN);
+		try {
+			// 1 for PCM, 3 for IEEE float.
+			int format = sr.readUnsignedShort();
+			
+			info.setChannels(sr.readUnsignedShort());
+			info.setSampleRate(sr.readInt());
+			
+			info.setBytesPerSecond(sr.readInt());
+			info.setBitsPerSecond(info.getBytesPerSecond() * 8);
+			
+			info.setBytesPerSample(sr.readUnsignedShort() / info.getChannels());
+			info.setBitsPerSample(sr.readUnsignedShort());
+
+			int bits = info.getBitsPerSample();
+			if (format == 1 && bits == 8)
+				info.setSampleType(SampleType.INTEGER_UNSIGNED);
+			else if (format == 1 && (bits == 16 || bits == 24 || bits == 32))
+				info.setSampleType(SampleType.INTEGER_SIGNED);
+			else if (format == 3 && (bits == 32 || bits == 64))
+				info.setSampleType(SampleType.FLOATING_POINT);
+			else
+				return null;
+			if (info.getBytesPerSample() != bits / 8)
+				return null;
+		} finally {
+			pool.release(sr);
+		}
 				
 		return info;
 	}
@@ -253,19 +313,32 @@ public class WAVFile extends RandomAccessFile implements Closeable
 			return 0;
 		
 		boolean signed = soundInfo.getSampleType() == SampleType.INTEGER_SIGNED;
+		boolean floating = soundInfo.getSampleType() == SampleType.FLOATING_POINT;
 		boolean le = soundInfo.getEndianMode() == SampleEndian.LITTLE_ENDIAN;
 		int bytes = soundInfo.getBytesPerSample();
 		int channels = soundInfo.getChannels();
 		
+		WAVReadEvent event = EventSupport.ENABLED ? new WAVReadEvent() : null;
+		if (event != null)
+			event.begin();
+
 		int out = 0;
 		while (out < dl && ptr < ptrend)
 		{
 			for (int c = 0; c < channels; c++)
-				sampleOut[c][out] = readPCM(bytes, signed, le);
+				sampleOut[c][out] = floating ? readFloatingPoint(bytes, le) : readPCM(bytes, signed, le);
 			ptr += channels * bytes;
 			out++;
 		}
 		
+		if (event != null)
+			event.end();
+		if (event != null && event.shouldCommit())
+		{
+			event.samples = out;
+			event.bytes = (long)out * channels * bytes;
+			event.commit();
+		}
 		return out;
 	}
 	
@@ -285,7 +358,7 @@ public class WAVFile extends RandomAccessFile implements Closeable
 		for (int i = 0; i < bytes; i++)
 		{
 			if (littleEndian)
-				readLong |= read() << (i * 8);
+				readLong |= (long)read() << (i * 8);
 			else
 			{
 				readLong |= read();
@@ -300,4 +373,23 @@ public class WAVFile extends RandomAccessFile implements Closeable
 		return RMath.getInterpolationFactor(readLong, lo, hi) * 2.0 - 1.0;
 	}
 
+	/**
+	 * Reads a chunk of IEEE floating-point data.
+	 * @param bytes the number of bytes to read (4 or 8).
+	 * @param littleEndian if true, read bytes as little-endian, else big-endian.
+	 * @return the read sample.
+	 */
+	private double readFloatingPoint(int bytes, boolean littleEndian) throws IOException
+	{
+		long readLong = 0L;
+		for (int i = 0; i < bytes; i++)
+		{
+			if (littleEndian)
+				readLong |= (long)read() << (i * 8);
+			else
+				readLong = (readLong << 8) | read();
+		}
+		return bytes == 4 ? Float.intBitsToFloat((int)readLong) : Double.longBitsToDouble(readLong);
+	}
+
 }
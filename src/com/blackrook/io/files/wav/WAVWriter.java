@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.files.wav;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import com.blackrook.io.files.SoundFileInfo;
+import com.blackrook.io.files.SoundFileInfo.SampleEndian;
+import com.blackrook.io.files.SoundFileInfo.SampleType;
+
+/**
+ * A WAV File writing class.
+ * Writes PCM data (8-bit unsigned, 16/24/32-bit signed) or IEEE floating-point data (32/64-bit),
+ * in little-endian RIFF format. The chunk lengths in the header are filled in on {@link #close()}.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class WAVWriter implements Closeable
+{
+	/** Format tag for integer PCM. */
+	private static final int FORMAT_PCM = 1;
+	/** Format tag for IEEE floating point. */
+	private static final int FORMAT_FLOAT = 3;
+	/** Offset of the RIFF chunk length. */
+	private static final int RIFF_LENGTH_OFFSET = 4;
+	/** Offset of the data chunk length. */
+	private static final int DATA_LENGTH_OFFSET = 40;
+	/** Length of the header (RIFF, fmt, and data chunk headers). */
+	private static final int HEADER_LENGTH = 44;
+	/** Maximum data length (the RIFF length, including the pad byte, is an unsigned 32-bit integer). */
+	private static final long MAX_DATA_LENGTH = 0xffffffffL - (HEADER_LENGTH - 8) - 1;
+	/** Size of the write buffer. */
+	private static final int BUFFER_SIZE = 65536;
+
+	/** The file to write to. */
+	private RandomAccessFile file;
+	/** Sound info. */
+	private SoundFileInfo soundInfo;
+	/** Data length. */
+	private long dataLength;
+
+	/** Write buffer. */
+	private byte[] buffer;
+	/** Write buffer position. */
+	private int bufferPosition;
+
+	/**
+	 * Creates a new WAV file at a path.
+	 * @param path the path to the file.
+	 * @param info the format of the sound data. The channels, sample rate, bits per sample, 
+	 * 		and sample type are used.
+	 * @throws IOException if the file can't be written.
+	 * @throws FileNotFoundException if the file can't be created.
+	 * @throws IllegalArgumentException if the format is not supported.
+	 */
+	public WAVWriter(String path, SoundFileInfo info) throws IOException
+	{
+		this(new File(path), info);
+	}
+
+	/**
+	 * Creates a new WAV file.
+	 * @param f the file.
+	 * @param info the format of the sound data. The channels, sample rate, bits per sample, 
+	 * 		and sample type are used.
+	 * @throws IOException if the file can't be written.
+	 * @throws FileNotFoundException if the file can't be created.
+	 * @throws IllegalArgumentException if the format is not supported.
+	 */
+	public WAVWriter(File f, SoundFileInfo info) throws IOException
+	{
+		int bits = info.getBitsPerSample();
+		if (info.getChannels() < 1)
+			throw new IllegalArgumentException("Channels must be 1 or greater.");
+		if (info.getSampleRate() < 1)
+			throw new IllegalArgumentException("Sample rate must be 1 or greater.");
+		if (info.getSampleType() == SampleType.FLOATING_POINT)
+		{
+			if (bits != 32 && bits != 64)
+				throw new IllegalArgumentException("Floating point samples must be 32 or 64 bits.");
+		}
+		else if (info.getSampleType() == SampleType.INTEGER_UNSIGNED)
+		{
+			if (bits != 8)
+				throw new IllegalArgumentException("Unsigned integer samples must be 8 bits.");
+		}
+		else if (info.getSampleType() == SampleType.INTEGER_SIGNED)
+		{
+			if (bits != 16 && bits != 24 && bits != 32)
+				throw new IllegalArgumentException("Signed integer samples must be 16, 24, or 32 bits.");
+		}
+		else
+			throw new IllegalArgumentException("Unsupported sample type.");
+
+		soundInfo = new SoundFileInfo();
+		soundInfo.setChannels(info.getChannels());
+		soundInfo.setSampleRate(info.getSampleRate());
+		soundInfo.setSampleType(info.getSampleType());
+		soundInfo.setEndianMode(SampleEndian.LITTLE_ENDIAN);
+		soundInfo.setBitsPerSample(bits);
+		soundInfo.setBytesPerSample(bits / 8);
+		soundInfo.setBytesPerSecond(info.getSampleRate() * info.getChannels() * (bits / 8));
+		soundInfo.setBitsPerSecond(soundInfo.getBytesPerSecond() * 8);
+
+		dataLength = 0L;
+		buffer = new byte[BUFFER_SIZE];
+		bufferPosition = 0;
+
+		file = new RandomAccessFile(f, "rw");
+		file.setLength(0L);
+		writeHeader();
+	}
+
+	// Writes the header with zero lengths.
+	private void writeHeader() throws IOException
+	{
+		int channels = soundInfo.getChannels();
+		int bytes = soundInfo.getBytesPerSample();
+		writeASCII("RIFF");
+		writeInt(0);
+		writeASCII("WAVE");
+		writeASCII("fmt ");
+		writeInt(16);
+		writeShort(soundInfo.getSampleType() == SampleType.FLOATING_POINT ? FORMAT_FLOAT : FORMAT_PCM);
+		writeShort(channels);
+		writeInt(soundInfo.getSampleRate());
+		writeInt(soundInfo.getBytesPerSecond());
+		writeShort(channels * bytes);
+		writeShort(soundInfo.getBitsPerSample());
+		writeASCII("data");
+		writeInt(0);
+	}
+
+	/**
+	 * Returns the sound info object for this WAV file.
+	 */
+	public SoundFileInfo getSoundInfo()
+	{
+		return soundInfo;
+	}
+
+	/**
+	 * Gets the length of the sample data written so far, in bytes.
+	 */
+	public long getDataLength()
+	{
+		return dataLength;
+	}
+
+	/**
+	 * Writes a bunch of samples to the WAV file from <code>samples</code>, in channel order,
+	 * interleaving the channels. This method expects the length of the first dimension of <code>samples</code>
+	 * to be equal to the number of channels. Samples are expected to be from -1 to 1, and are clamped if not.
+	 * @param samples the arrays to get the samples from.
+	 * @throws IOException if the data cannot be written, or the data would exceed the maximum WAV size.
+	 * @throws IllegalArgumentException if samples.length != <code>getSoundInfo().getChannels()</code>,
+	 * 		or the arrays in samples are not the same length.
+	 */
+	public void writeSamples(double[] ... samples) throws IOException
+	{
+		if (samples.length != soundInfo.getChannels())
+			throw new IllegalArgumentException("Input dimensions do not equal channels.");
+		int len = samples[0].length;
+		for (double[] d : samples)
+			if (len != d.length)
+				throw new IllegalArgumentException("Input arrays do not have equal dimensions.");
+		writeSamples(len, samples);
+	}
+
+	/**
+	 * Writes a bunch of samples to the WAV file from <code>samples</code>, in channel order,
+	 * interleaving the channels. This method expects the length of the first dimension of <code>samples</code>
+	 * to be equal to the number of channels. Samples are expected to be from -1 to 1, and are clamped if not.
+	 * @param count the amount of samples to write from each channel array.
+	 * @param samples the arrays to get the samples from.
+	 * @throws IOException if the data cannot be written, or the data would exceed the maximum WAV size.
+	 * @throws IllegalArgumentException if samples.length != <code>getSoundInfo().getChannels()</code>,
+	 * 		or the arrays in samples are shorter than <code>count</code>.
+	 */
+	public void writeSamples(int count, double[] ... samples) throws IOException
+	{
+		int channels = soundInfo.getChannels();
+		if (samples.length != channels)
+			throw new IllegalArgumentException("Input dimensions do not equal channels.");
+		for (double[] d : samples)
+			if (d.length < count)
+				throw new IllegalArgumentException("Input arrays are shorter than the sample count.");
+
+		int bytes = soundInfo.getBytesPerSample();
+		if (dataLength + (long)count * channels * bytes > MAX_DATA_LENGTH)
+			throw new IOException("Too much sample data for a WAV file.");
+
+		SampleType type = soundInfo.getSampleType();
+		for (int i = 0; i < count; i++)
+			for (int c = 0; c < channels; c++)
+			{
+				double d = samples[c][i];
+				d = d < -1.0 ? -1.0 : (d > 1.0 ? 1.0 : d);
+				if (type == SampleType.FLOATING_POINT)
+				{
+					if (bytes == 4)
+						writeInt(Float.floatToIntBits((float)d));
+					else
+						writeLong(Double.doubleToLongBits(d));
+				}
+				else if (type == SampleType.INTEGER_UNSIGNED)
+					writeByte((int)Math.round((d + 1.0) * 127.5));
+				else switch (bytes)
+				{
+					case 2:
+						writeShort((int)Math.round(d * 32767.0));
+						break;
+					case 3:
+					{
+						int v = (int)Math.round(d * 8388607.0);
+						writeByte(v);
+						writeByte(v >> 8);
+						writeByte(v >> 16);
+						break;
+					}
+					default:
+						writeInt((int)Math.round(d * 2147483647.0));
+						break;
+				}
+			}
+
+		dataLength += (long)count * channels * bytes;
+	}
+
+	/**
+	 * Writes any buffered data, fills in the header lengths, and closes the file.
+	 * @throws IOException if the file could not be written or closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try {
+			flushBuffer();
+			// pad byte for odd-length data.
+			if ((dataLength & 1L) != 0)
+				file.write(0);
+			file.seek(RIFF_LENGTH_OFFSET);
+			writeInt((int)(dataLength + (dataLength & 1L) + HEADER_LENGTH - 8));
+			flushBuffer();
+			file.seek(DATA_LENGTH_OFFSET);
+			writeInt((int)dataLength);
+			flushBuffer();
+		} finally {
+			file.close();
+		}
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		file.write(buffer, 0, bufferPosition);
+		bufferPosition = 0;
+	}
+
+	private void writeByte(int b) throws IOException
+	{
+		if (bufferPosition == buffer.length)
+			flushBuffer();
+		buffer[bufferPosition++] = (byte)b;
+	}
+
+	private void writeShort(int s) throws IOException
+	{
+		writeByte(s);
+		writeByte(s >> 8);
+	}
+
+	private void writeInt(int i) throws IOException
+	{
+		writeShort(i);
+		writeShort(i >> 16);
+	}
+
+	private void writeLong(long l) throws IOException
+	{
+		writeInt((int)l);
+		writeInt((int)(l >> 32));
+	}
+
+	private void writeASCII(String s) throws IOException
+	{
+		for (int i = 0; i < s.length(); i++)
+			writeByte(s.charAt(i));
+	}
+
+}
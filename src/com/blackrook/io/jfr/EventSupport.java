@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.jfr;
+
+/**
+ * Checks once whether this JVM has Flight Recorder support.
+ * The readers and handlers in this library only create events if {@link #ENABLED} is true,
+ * so the event classes (and <code>jdk.jfr</code>) are never loaded on JVMs without it.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public final class EventSupport
+{
+	/** True if Flight Recorder events can be created on this JVM. */
+	public static final boolean ENABLED = isFlightRecorderPresent();
+
+	private EventSupport() {}
+
+	private static boolean isFlightRecorderPresent()
+	{
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+}
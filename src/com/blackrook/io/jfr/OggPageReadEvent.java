@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for reading a single Ogg page.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Name("com.blackrook.io.OggPageRead")
+@Label("Ogg Page Read")
+@Description("A page read by OggContainerReader.nextChunk().")
+@Category({"Black Rook", "Common I/O"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class OggPageReadEvent extends Event
+{
+	/** The logical stream serial number. */
+	@Label("Serial Number")
+	public int serialNumber;
+
+	/** The page sequence number. */
+	@Label("Sequence Number")
+	public int sequenceNumber;
+
+	/** The amount of segments in the page. */
+	@Label("Segments")
+	public int segments;
+
+	/** The amount of payload bytes read. */
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+}
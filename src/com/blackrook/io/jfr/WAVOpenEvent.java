@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for opening a WAV file and reading its headers.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Name("com.blackrook.io.WAVOpen")
+@Label("WAV File Open")
+@Description("Opening a WAVFile and finding its data chunk.")
+@Category({"Black Rook", "Common I/O"})
+@Threshold("10 ms")
+@StackTrace(false)
+public class WAVOpenEvent extends Event
+{
+	/** The path to the file. */
+	@Label("Path")
+	public String path;
+
+	/** The amount of channels. */
+	@Label("Channels")
+	public int channels;
+
+	/** The sample rate. */
+	@Label("Sample Rate")
+	public int sampleRate;
+
+	/** The length of the data chunk. */
+	@Label("Data Length")
+	@DataAmount
+	public long dataLength;
+
+}
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for reading samples from a WAV file.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Name("com.blackrook.io.WAVRead")
+@Label("WAV Samples Read")
+@Description("A call to WAVFile.readSamples().")
+@Category({"Black Rook", "Common I/O"})
+@Threshold("5 ms")
+@StackTrace(false)
+public class WAVReadEvent extends Event
+{
+	/** The amount of samples read per channel. */
+	@Label("Samples")
+	public int samples;
+
+	/** The amount of bytes read. */
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+}
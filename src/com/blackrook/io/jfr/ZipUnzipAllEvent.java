@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for unzipping a set of zip entries.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Name("com.blackrook.io.ZipUnzipAll")
+@Label("Zip Unzip All")
+@Description("A call to ZipFileHandler.unzipAllFiles().")
+@Category({"Black Rook", "Common I/O"})
+@Threshold("50 ms")
+@StackTrace(false)
+public class ZipUnzipAllEvent extends Event
+{
+	/** The name of the zip file. */
+	@Label("Zip File")
+	public String zipFile;
+
+	/** The amount of entries unzipped. */
+	@Label("Entries")
+	public int entries;
+
+	/** The amount of bytes written. */
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for unzipping a single zip entry.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+@Name("com.blackrook.io.ZipUnzip")
+@Label("Zip Entry Unzip")
+@Description("A call to ZipFileHandler.unzip().")
+@Category({"Black Rook", "Common I/O"})
+@Threshold("10 ms")
+@StackTrace(false)
+public class ZipUnzipEvent extends Event
+{
+	/** The name of the zip file. */
+	@Label("Zip File")
+	public String zipFile;
+
+	/** The name of the entry. */
+	@Label("Entry Name")
+	public String entryName;
+
+	/** The compressed size of the entry, or -1 if unknown. */
+	@Label("Compressed Bytes")
+	@DataAmount
+	public long compressedBytes;
+
+	/** The amount of bytes written. */
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+}
@@ -0,0 +1,16 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/**
+ * Contains Java Flight Recorder events emitted by the readers and handlers in this library.
+ * Each event has a default threshold so that only slow operations are recorded, which can be
+ * changed through JFR recording settings (for example,
+ * <code>com.blackrook.io.PNGChunkRead#threshold=0 ms</code>).
+ * These events require a JVM with Flight Recorder support (Java 11+, or Java 8u262+). On other JVMs,
+ * {@link com.blackrook.io.jfr.EventSupport#ENABLED} is false and no events are created.
+ */
+package com.blackrook.io.jfr;
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Log file format constants and shared functions.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+final class LogFile
+{
+	/** File magic number, at the start of the file. */
+	static final byte[] MAGIC = "BRLG".getBytes(StandardCharsets.US_ASCII);
+	/** Format version. */
+	static final int VERSION = 1;
+	/** Length of the header in bytes. */
+	static final int HEADER_LENGTH = 8;
+	/** Length of a record frame header in bytes. */
+	static final int FRAME_HEADER_LENGTH = 8;
+	/** Maximum record length. */
+	static final int MAX_RECORD_LENGTH = 0x3fffffff;
+
+	private LogFile() {}
+
+	/**
+	 * Checks if part of an array matches the magic number.
+	 * @param b the array.
+	 * @param offset the offset into the array.
+	 * @return true if so, false if not.
+	 */
+	static boolean isMagic(byte[] b, int offset)
+	{
+		for (int i = 0; i < MAGIC.length; i++)
+			if (b[offset + i] != MAGIC[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Creates a file header.
+	 * @param endianMode the record endian mode.
+	 * @return the header bytes.
+	 */
+	static byte[] header(boolean endianMode)
+	{
+		byte[] out = new byte[HEADER_LENGTH];
+		System.arraycopy(MAGIC, 0, out, 0, MAGIC.length);
+		out[4] = (byte)VERSION;
+		out[5] = (byte)(endianMode ? 1 : 0);
+		return out;
+	}
+
+	/**
+	 * Reads a little-endian int from an array.
+	 * @param b the array.
+	 * @param offset the offset into the array.
+	 * @return the int read.
+	 */
+	static int getInt(byte[] b, int offset)
+	{
+		return (b[offset] & 0x0ff) | (b[offset + 1] & 0x0ff) << 8 | (b[offset + 2] & 0x0ff) << 16 | (b[offset + 3] & 0x0ff) << 24;
+	}
+
+	/**
+	 * Writes a little-endian int to an array.
+	 * @param b the array.
+	 * @param offset the offset into the array.
+	 * @param value the value to write.
+	 */
+	static void putInt(byte[] b, int offset, int value)
+	{
+		b[offset] = (byte)value;
+		b[offset + 1] = (byte)(value >>> 8);
+		b[offset + 2] = (byte)(value >>> 16);
+		b[offset + 3] = (byte)(value >>> 24);
+	}
+
+	/**
+	 * Calculates the checksum of a frame: the length field, then the data.
+	 * The frame header must already have its length.
+	 * @param crc the checksum to use (it is reset first).
+	 * @param frame the array containing the frame header and data.
+	 * @param offset the offset of the frame header in the array.
+	 * @param length the length of the data.
+	 * @return the checksum.
+	 */
+	static int checksum(CRC32 crc, byte[] frame, int offset, int length)
+	{
+		crc.reset();
+		crc.update(frame, offset, Integer.BYTES);
+		crc.update(frame, offset + FRAME_HEADER_LENGTH, length);
+		return (int)crc.getValue();
+	}
+
+}
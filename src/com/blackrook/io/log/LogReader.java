@@ -0,0 +1,271 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+import com.blackrook.io.ReusableByteArrayInputStream;
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.codec.BinaryCodec;
+
+/**
+ * Reads the records of a log file written by {@link LogWriter}, in order, validating each record's
+ * framing and checksum.
+ * <p>Reading stops at the first record that is incomplete or fails its checksum (after a crash, this is
+ * normally a torn write at the end of the log): {@link #hasNext()} returns false, and {@link #isCorrupt()} 
+ * returns true. {@link #getValidLength()} is then the length of the log up to the last valid record, 
+ * and {@link #recover(File)} truncates a log file to that length.
+ * <p>This class is not thread-safe.
+ * @param <T> the record type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see LogWriter
+ */
+public class LogReader<T> implements Closeable
+{
+	/** Size of the read buffer. */
+	private static final int BUFFER_SIZE = 65536;
+
+	/** The record codec. */
+	private BinaryCodec<T> codec;
+	/** The endian mode of the records. */
+	private boolean endianMode;
+	/** Input stream. */
+	private InputStream in;
+	/** File length when opened. */
+	private long fileLength;
+
+	/** Frame buffer (header and data). */
+	private byte[] frame;
+	/** Current record data length. */
+	private int recordLength;
+	/** Checksum. */
+	private CRC32 crc;
+	/** Record data stream. */
+	private ReusableByteArrayInputStream recordStream;
+	/** Record data reader, passed to the codec. */
+	private SuperReader recordReader;
+
+	/** Position of the next frame to be read. */
+	private long position;
+	/** End of the last valid record. */
+	private long validLength;
+	/** If true, a valid record has been read and not returned. */
+	private boolean ready;
+	/** If true, there are no more valid records. */
+	private boolean done;
+	/** If true, reading stopped before the end of the file. */
+	private boolean corrupt;
+
+	/**
+	 * Opens a log file.
+	 * @param file the file to open.
+	 * @param codec the codec for decoding records.
+	 * @throws IOException if the file can't be read, or is not a log file.
+	 */
+	public LogReader(File file, BinaryCodec<T> codec) throws IOException
+	{
+		this.codec = codec;
+		this.fileLength = file.length();
+		this.in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+		this.frame = new byte[256];
+		this.crc = new CRC32();
+		this.recordStream = new ReusableByteArrayInputStream();
+		try {
+			byte[] header = new byte[LogFile.HEADER_LENGTH];
+			if (readFully(header, 0, header.length) < header.length || !LogFile.isMagic(header, 0))
+				throw new IOException("Not a log file.");
+			if (header[4] != LogFile.VERSION)
+				throw new IOException("Unsupported log file version: " + header[4]);
+			endianMode = header[5] != 0;
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		this.recordReader = new SuperReader(recordStream, endianMode);
+		this.position = LogFile.HEADER_LENGTH;
+		this.validLength = LogFile.HEADER_LENGTH;
+	}
+
+	/**
+	 * Scans a log file, and truncates it after its last valid record.
+	 * @param file the log file.
+	 * @return the amount of bytes removed from the end of the file (0 if the log was intact).
+	 * @throws IOException if the file can't be read or written, or is not a log file.
+	 */
+	public static long recover(File file) throws IOException
+	{
+		long validLength;
+		try (LogReader<?> reader = new LogReader<Object>(file, null))
+		{
+			while (reader.hasNext())
+				reader.skip();
+			validLength = reader.getValidLength();
+		}
+		long removed;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+		{
+			removed = raf.length() - validLength;
+			if (removed > 0)
+				raf.setLength(validLength);
+		}
+		return removed;
+	}
+
+	/**
+	 * @return the endian mode of the reader passed to the codec.
+	 */
+	public boolean getEndianMode()
+	{
+		return endianMode;
+	}
+
+	/**
+	 * @return the file offset of the end of the last valid record read (or of the header, if none).
+	 */
+	public long getValidLength()
+	{
+		return validLength;
+	}
+
+	/**
+	 * @return true if reading stopped at an incomplete or corrupt record, false if not (so far).
+	 */
+	public boolean isCorrupt()
+	{
+		return corrupt;
+	}
+
+	/**
+	 * Checks for another valid record. This reads and validates the next record.
+	 * @return true if there is another valid record, false if the end of the log or a bad record was reached.
+	 * @throws IOException if the file can't be read.
+	 */
+	public boolean hasNext() throws IOException
+	{
+		if (ready)
+			return true;
+		if (done)
+			return false;
+		checkOpen();
+
+		int n = readFully(frame, 0, LogFile.FRAME_HEADER_LENGTH);
+		if (n == 0)
+			return end(false);
+		if (n < LogFile.FRAME_HEADER_LENGTH)
+			return end(true);
+
+		int length = LogFile.getInt(frame, 0);
+		if (length < 0 || length > LogFile.MAX_RECORD_LENGTH || length > fileLength - position - LogFile.FRAME_HEADER_LENGTH)
+			return end(true);
+		if (LogFile.FRAME_HEADER_LENGTH + length > frame.length)
+			frame = Arrays.copyOf(frame, Math.max(LogFile.FRAME_HEADER_LENGTH + length, frame.length * 2));
+		if (readFully(frame, LogFile.FRAME_HEADER_LENGTH, length) < length)
+			return end(true);
+		if (LogFile.checksum(crc, frame, 0, length) != LogFile.getInt(frame, Integer.BYTES))
+			return end(true);
+
+		recordLength = length;
+		position += LogFile.FRAME_HEADER_LENGTH + length;
+		ready = true;
+		return true;
+	}
+
+	private boolean end(boolean corrupt)
+	{
+		this.done = true;
+		this.corrupt = corrupt;
+		return false;
+	}
+
+	/**
+	 * Reads and decodes the next record.
+	 * @return the decoded record.
+	 * @throws IOException if the record can't be read or decoded.
+	 * @throws NoSuchElementException if there are no more valid records.
+	 */
+	public T next() throws IOException
+	{
+		take();
+		recordStream.setBuffer(frame, LogFile.FRAME_HEADER_LENGTH, recordLength);
+		recordReader.reset(recordStream);
+		return codec.read(recordReader);
+	}
+
+	/**
+	 * Reads the next record's encoded data.
+	 * @return the record data.
+	 * @throws IOException if the record can't be read.
+	 * @throws NoSuchElementException if there are no more valid records.
+	 */
+	public byte[] nextBytes() throws IOException
+	{
+		take();
+		return Arrays.copyOfRange(frame, LogFile.FRAME_HEADER_LENGTH, LogFile.FRAME_HEADER_LENGTH + recordLength);
+	}
+
+	/**
+	 * Skips the next record.
+	 * @throws IOException if the record can't be read.
+	 * @throws NoSuchElementException if there are no more valid records.
+	 */
+	public void skip() throws IOException
+	{
+		take();
+	}
+
+	private void take() throws IOException
+	{
+		if (!hasNext())
+			throw new NoSuchElementException("No more records.");
+		ready = false;
+		validLength = position;
+	}
+
+	// Reads until the length is read or the end of the stream. Returns the amount read.
+	private int readFully(byte[] b, int offset, int length) throws IOException
+	{
+		int total = 0;
+		while (total < length)
+		{
+			int n = in.read(b, offset + total, length - total);
+			if (n < 0)
+				break;
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Closes the file. Calling this more than once has no effect.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (in == null)
+			return;
+		in.close();
+		in = null;
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (in == null)
+			throw new IOException("Log reader is closed.");
+	}
+
+}
@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.log;
+
+/**
+ * When a {@link LogWriter} syncs written records to the storage device.
+ * Append futures complete after the record is written and, unless the mode is {@link #NONE}, synced.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public enum LogSyncMode
+{
+	/** 
+	 * Never sync (the operating system writes data to the device when it wants). 
+	 * Records may be lost if the system crashes, but not if only the program does. 
+	 */
+	NONE,
+	
+	/** 
+	 * Sync after each batch of writes. Every record queued while a sync is running goes in the next batch, 
+	 * so the amount of syncs depends on the device, not on the amount of producers. 
+	 */
+	BATCH,
+	
+	/** 
+	 * Sync at most once per sync delay, batching everything written in between. 
+	 * Trades latency for fewer syncs. 
+	 */
+	INTERVAL;
+
+}
@@ -0,0 +1,506 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.blackrook.io.BufferPool;
+import com.blackrook.io.BufferPools;
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.codec.BinaryCodec;
+
+/**
+ * Appends records to a log file from any amount of threads.
+ * <p>Records are encoded with a {@link BinaryCodec} through a {@link SuperWriter}, framed and checksummed on 
+ * the appending thread, and queued. A single writer thread takes everything in the queue, writes it to the file 
+ * in large writes, syncs it to the device according to the {@link LogSyncMode}, and then completes the 
+ * futures returned by the append calls. Since each sync covers every record queued before it, the amount of 
+ * syncs does not grow with the amount of appending threads.
+ * <pre>
+ * LogWriter&lt;Event&gt; log = new LogWriter&lt;Event&gt;(file, EventCodec.INSTANCE);
+ * log.append(event).join(); // returns after the event is on the device
+ * </pre>
+ * <p>If the file already exists, it is checked and truncated after its last valid record (see 
+ * {@link LogReader#recover(File)}), and new records are appended after it.
+ * <p>This class is thread-safe.
+ * @param <T> the record type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see LogReader
+ */
+public class LogWriter<T> implements Closeable
+{
+	/** Default capacity of the append queue, in records. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16384;
+	/** Default delay between syncs for {@link LogSyncMode#INTERVAL}, in milliseconds. */
+	public static final long DEFAULT_SYNC_DELAY_MILLIS = 10L;
+	/** Size of the batch write buffer. */
+	private static final int BATCH_SIZE = 1 << 20;
+	/** Initial size of each thread's record encoding buffer. */
+	private static final int RECORD_BUFFER_SIZE = 256;
+	/** Queue marker for closing. */
+	private static final Pending CLOSE = new Pending(null);
+	/** Space for a frame header, before encoding. */
+	private static final byte[] EMPTY_FRAME_HEADER = new byte[LogFile.FRAME_HEADER_LENGTH];
+	/** Each appending thread's encoder, shared by all writers. */
+	private static final ThreadLocal<Encoder> ENCODERS = ThreadLocal.withInitial(Encoder::new);
+
+	/** The record codec. */
+	private BinaryCodec<T> codec;
+	/** The endian mode of the records. */
+	private boolean endianMode;
+	/** The sync mode. */
+	private LogSyncMode syncMode;
+	/** The sync delay for INTERVAL. */
+	private long syncDelayNanos;
+
+	/** The file channel. */
+	private FileChannel channel;
+	/** The pool for the batch buffer. */
+	private BufferPool bufferPool;
+	/** The append queue. */
+	private BlockingQueue<Pending> queue;
+	/** The writer thread. */
+	private Thread thread;
+
+	/** If true, no more appends are accepted. */
+	private volatile boolean closed;
+	/** If true, the writer thread has stopped taking appends. */
+	private volatile boolean terminated;
+	/** The error that stopped the writer thread, if any. */
+	private volatile IOException failure;
+
+	/** Log length, including buffered writes (writer thread only). */
+	private long position;
+	/** File position of the next channel write (writer thread only). */
+	private long writePosition;
+
+	/**
+	 * Opens a log file for appending, with little-endian records, syncing after each batch.
+	 * @param file the file to create or append to.
+	 * @param codec the codec for encoding records.
+	 * @throws IOException if the file can't be read or written, or is not a log file.
+	 */
+	public LogWriter(File file, BinaryCodec<T> codec) throws IOException
+	{
+		this(file, codec, SuperWriter.LITTLE_ENDIAN, LogSyncMode.BATCH, DEFAULT_SYNC_DELAY_MILLIS);
+	}
+
+	/**
+	 * Opens a log file for appending.
+	 * @param file the file to create or append to.
+	 * @param codec the codec for encoding records.
+	 * @param endianMode the endian mode of the writer passed to the codec (stored in the file for readers).
+	 * @param syncMode when to sync written records to the device.
+	 * @param syncDelayMillis for {@link LogSyncMode#INTERVAL}, the longest time to wait between the first 
+	 * 		unsynced write and the sync that covers it, in milliseconds.
+	 * @throws IOException if the file can't be read or written, is not a log file, or has a different endian mode.
+	 * @throws IllegalArgumentException if syncDelayMillis is less than 0.
+	 */
+	public LogWriter(File file, BinaryCodec<T> codec, boolean endianMode, LogSyncMode syncMode, long syncDelayMillis) throws IOException
+	{
+		this(file, codec, endianMode, syncMode, syncDelayMillis, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Opens a log file for appending.
+	 * @param file the file to create or append to.
+	 * @param codec the codec for encoding records.
+	 * @param endianMode the endian mode of the writer passed to the codec (stored in the file for readers).
+	 * @param syncMode when to sync written records to the device.
+	 * @param syncDelayMillis for {@link LogSyncMode#INTERVAL}, the longest time to wait between the first 
+	 * 		unsynced write and the sync that covers it, in milliseconds.
+	 * @param queueCapacity the amount of records that can be queued before appending threads wait.
+	 * @throws IOException if the file can't be read or written, is not a log file, or has a different endian mode.
+	 * @throws IllegalArgumentException if syncDelayMillis is less than 0 or queueCapacity is less than 1.
+	 */
+	public LogWriter(File file, BinaryCodec<T> codec, boolean endianMode, LogSyncMode syncMode, long syncDelayMillis, int queueCapacity) throws IOException
+	{
+		if (syncDelayMillis < 0)
+			throw new IllegalArgumentException("Sync delay must be 0 or greater.");
+		if (queueCapacity < 1)
+			throw new IllegalArgumentException("Queue capacity must be 1 or greater.");
+
+		this.codec = codec;
+		this.endianMode = endianMode;
+		this.syncMode = syncMode;
+		this.syncDelayNanos = syncMode == LogSyncMode.INTERVAL ? TimeUnit.MILLISECONDS.toNanos(syncDelayMillis) : 0L;
+		this.bufferPool = BufferPools.getDefault();
+		this.queue = new LinkedBlockingQueue<Pending>(queueCapacity);
+		this.closed = false;
+		this.terminated = false;
+		this.failure = null;
+		
+		open(file);
+
+		this.thread = new Thread(this::run, "LogWriter " + file.getName());
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void open(File file) throws IOException
+	{
+		if (file.exists() && file.length() > 0)
+		{
+			long validLength;
+			try (LogReader<T> reader = new LogReader<T>(file, codec))
+			{
+				if (reader.getEndianMode() != endianMode)
+					throw new IOException("Log file endian mode does not match.");
+				while (reader.hasNext())
+					reader.skip();
+				validLength = reader.getValidLength();
+			}
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+			channel.truncate(validLength);
+			position = writePosition = validLength;
+		}
+		else
+		{
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				ByteBuffer header = ByteBuffer.wrap(LogFile.header(endianMode));
+				while (header.hasRemaining())
+					channel.write(header, header.position());
+				channel.force(true);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			position = writePosition = LogFile.HEADER_LENGTH;
+		}
+	}
+
+	/**
+	 * @return the sync mode.
+	 */
+	public LogSyncMode getSyncMode()
+	{
+		return syncMode;
+	}
+
+	/**
+	 * Encodes a record on the calling thread, and queues it for writing.
+	 * This waits if the queue is full.
+	 * @param record the record to append.
+	 * @return a future that completes with the record's offset in the file once it is written (and synced, 
+	 * 		depending on the sync mode), or completes exceptionally if it can't be written.
+	 * @throws IOException if the record can't be encoded, or this writer is closed or has failed.
+	 * @throws InterruptedIOException if the calling thread is interrupted while waiting for room in the queue.
+	 * @throws IllegalArgumentException if the encoded record is too long.
+	 */
+	public CompletableFuture<Long> append(T record) throws IOException
+	{
+		checkOpen();
+		return enqueue(ENCODERS.get().encode(codec, endianMode, record));
+	}
+
+	/**
+	 * Queues an already-encoded record for writing.
+	 * This waits if the queue is full.
+	 * @param b the record data.
+	 * @return a future that completes with the record's offset in the file once it is written (and synced, 
+	 * 		depending on the sync mode), or completes exceptionally if it can't be written.
+	 * @throws IOException if this writer is closed or has failed.
+	 * @throws InterruptedIOException if the calling thread is interrupted while waiting for room in the queue.
+	 * @throws IllegalArgumentException if the record is too long.
+	 */
+	public CompletableFuture<Long> appendBytes(byte[] b) throws IOException
+	{
+		return appendBytes(b, 0, b.length);
+	}
+
+	/**
+	 * Queues an already-encoded record for writing.
+	 * This waits if the queue is full.
+	 * @param b the array containing the record data.
+	 * @param offset the offset into the array.
+	 * @param length the length of the record data.
+	 * @return a future that completes with the record's offset in the file once it is written (and synced, 
+	 * 		depending on the sync mode), or completes exceptionally if it can't be written.
+	 * @throws IOException if this writer is closed or has failed.
+	 * @throws InterruptedIOException if the calling thread is interrupted while waiting for room in the queue.
+	 * @throws IllegalArgumentException if the record is too long.
+	 */
+	public CompletableFuture<Long> appendBytes(byte[] b, int offset, int length) throws IOException
+	{
+		checkOpen();
+		if (length > LogFile.MAX_RECORD_LENGTH)
+			throw new IllegalArgumentException("Record is too long: " + length + " bytes.");
+		byte[] frame = new byte[LogFile.FRAME_HEADER_LENGTH + length];
+		System.arraycopy(b, offset, frame, LogFile.FRAME_HEADER_LENGTH, length);
+		ENCODERS.get().frame(frame, length);
+		return enqueue(frame);
+	}
+
+	/**
+	 * Queues a sync of everything appended before this call, whatever the sync mode.
+	 * @return a future that completes with the log length once the sync is done.
+	 * @throws IOException if this writer is closed or has failed.
+	 * @throws InterruptedIOException if the calling thread is interrupted while waiting for room in the queue.
+	 */
+	public CompletableFuture<Long> sync() throws IOException
+	{
+		checkOpen();
+		return enqueue(null);
+	}
+
+	private CompletableFuture<Long> enqueue(byte[] frame) throws IOException
+	{
+		Pending pending = new Pending(frame);
+		try {
+			queue.put(pending);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to append to the log.");
+		}
+		// the writer thread stopped while we were queueing: nobody else will complete this.
+		if (terminated)
+			failQueued();
+		return pending.future;
+	}
+
+	// The writer thread.
+	private void run()
+	{
+		ByteBuffer buffer = bufferPool.acquireDirect(BATCH_SIZE);
+		List<Pending> batch = new ArrayList<Pending>();
+		List<Pending> unsynced = new ArrayList<Pending>();
+		long deadline = 0L;
+		boolean forceSync = false;
+		boolean closing = false;
+		try {
+			while (!closing)
+			{
+				Pending first;
+				if (unsynced.isEmpty())
+					first = queue.take();
+				else
+					first = queue.poll(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+				if (first != null)
+				{
+					batch.add(first);
+					queue.drainTo(batch);
+					for (int i = 0; i < batch.size(); i++)
+					{
+						Pending p = batch.get(i);
+						if (p == CLOSE)
+						{
+							closing = true;
+							continue;
+						}
+						if (p.frame == null)
+							forceSync = true;
+						else
+						{
+							p.position = position;
+							write(buffer, p.frame);
+						}
+						if (unsynced.isEmpty())
+							deadline = System.nanoTime() + syncDelayNanos;
+						unsynced.add(p);
+					}
+					batch.clear();
+					flush(buffer);
+				}
+
+				if (!unsynced.isEmpty() && (forceSync || closing || deadline - System.nanoTime() <= 0L))
+				{
+					if (forceSync || syncMode != LogSyncMode.NONE)
+						channel.force(false);
+					for (int i = 0; i < unsynced.size(); i++)
+					{
+						Pending p = unsynced.get(i);
+						p.future.complete(p.frame != null ? p.position : position);
+					}
+					unsynced.clear();
+					forceSync = false;
+				}
+			}
+		} catch (IOException e) {
+			failure = e;
+			fail(batch, e);
+			fail(unsynced, e);
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Log writer thread was interrupted.");
+			fail(batch, failure);
+			fail(unsynced, failure);
+		} finally {
+			bufferPool.release(buffer);
+			terminated = true;
+			failQueued();
+		}
+	}
+
+	// Adds a frame to the batch buffer, writing the buffer when it is full.
+	private void write(ByteBuffer buffer, byte[] frame) throws IOException
+	{
+		if (frame.length > buffer.remaining())
+			flush(buffer);
+		if (frame.length > buffer.capacity())
+			writeFully(ByteBuffer.wrap(frame));
+		else
+			buffer.put(frame);
+		position += frame.length;
+	}
+
+	private void flush(ByteBuffer buffer) throws IOException
+	{
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+			writePosition += channel.write(buffer, writePosition);
+	}
+
+	private static void fail(List<Pending> pending, IOException e)
+	{
+		for (int i = 0; i < pending.size(); i++)
+			pending.get(i).future.completeExceptionally(e);
+		pending.clear();
+	}
+
+	// Fails anything left in the queue after the writer thread stops.
+	private void failQueued()
+	{
+		IOException e = failure != null ? new IOException("Log writer failed.", failure) : new IOException("Log writer is closed.");
+		Pending p;
+		while ((p = queue.poll()) != null)
+			p.future.completeExceptionally(e);
+	}
+
+	/**
+	 * Writes and syncs everything queued, stops the writer thread, and closes the file.
+	 * Appends made after this is called fail. Calling this more than once has no effect.
+	 * @throws IOException if the writer thread failed, or the file can't be closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		synchronized (this)
+		{
+			if (closed)
+				return;
+			closed = true;
+		}
+
+		boolean interrupted = false;
+		while (true)
+		{
+			try {
+				if (!terminated)
+					queue.put(CLOSE);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		while (true)
+		{
+			try {
+				thread.join();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		channel.close();
+		if (failure != null)
+			throw new IOException("Log writer failed.", failure);
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (failure != null)
+			throw new IOException("Log writer failed.", failure);
+		if (closed)
+			throw new IOException("Log writer is closed.");
+	}
+
+	/**
+	 * A queued record or sync.
+	 */
+	private static class Pending
+	{
+		/** The framed record, or null for a sync. */
+		final byte[] frame;
+		/** The future to complete. */
+		final CompletableFuture<Long> future;
+		/** The record's file offset. */
+		long position;
+
+		Pending(byte[] frame)
+		{
+			this.frame = frame;
+			this.future = new CompletableFuture<Long>();
+		}
+	}
+
+	/**
+	 * An appending thread's encoding state.
+	 * This holds no reference to a writer, so that threads that outlive a writer do not keep it reachable.
+	 */
+	private static class Encoder
+	{
+		private ByteArrayOutputStream buffer;
+		private SuperWriter writer;
+		private CRC32 crc;
+
+		Encoder()
+		{
+			this.buffer = new ByteArrayOutputStream(RECORD_BUFFER_SIZE);
+			this.writer = new SuperWriter(buffer, SuperWriter.LITTLE_ENDIAN);
+			this.crc = new CRC32();
+		}
+
+		// Encodes and frames a record.
+		<T> byte[] encode(BinaryCodec<T> codec, boolean endianMode, T record) throws IOException
+		{
+			buffer.reset();
+			writer.setEndianMode(endianMode);
+			buffer.write(EMPTY_FRAME_HEADER, 0, EMPTY_FRAME_HEADER.length);
+			codec.write(writer, record);
+			int length = buffer.size() - LogFile.FRAME_HEADER_LENGTH;
+			if (length > LogFile.MAX_RECORD_LENGTH)
+				throw new IllegalArgumentException("Record is too long: " + length + " bytes.");
+			byte[] frame = buffer.toByteArray();
+			frame(frame, length);
+			return frame;
+		}
+
+		// Fills in a frame header.
+		void frame(byte[] frame, int length)
+		{
+			LogFile.putInt(frame, 0, length);
+			LogFile.putInt(frame, Integer.BYTES, LogFile.checksum(crc, frame, 0, length));
+		}
+	}
+
+}
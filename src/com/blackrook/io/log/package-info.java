@@ -0,0 +1,20 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/**
+ * Contains classes for append-only log files: records appended by many threads are batched by a single 
+ * writer thread into large writes, with group syncing to disk, and are framed with checksums so that a 
+ * log can be recovered after a crash.
+ * <p>Log file layout (all framing values are little-endian):
+ * <pre>
+ * Header:  "BRLG" (4 bytes), version (1 byte), record endian mode (1 byte), reserved (2 bytes)
+ * Records: length (4 bytes), CRC-32 of the length and data (4 bytes), data (length bytes) - repeated
+ * </pre>
+ * <p>A record is valid if its whole frame is in the file and its checksum matches. Reading stops at the first
+ * record that is not valid, which is normally a torn write at the end of the log.
+ */
+package com.blackrook.io.log;
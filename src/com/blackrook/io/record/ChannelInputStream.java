@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.record;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.blackrook.io.BufferPool;
+
+/**
+ * An input stream over a range of a {@link FileChannel}, using positional reads.
+ * The channel's own position is not used or changed, so many of these can read the same channel
+ * from different threads. Closing this stream does not close the channel.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+class ChannelInputStream extends InputStream
+{
+	/** The channel to read. */
+	private FileChannel channel;
+	/** The pool to return the buffer to. */
+	private BufferPool bufferPool;
+	/** The read buffer. */
+	private ByteBuffer buffer;
+	/** Channel position of the end of the buffered data. */
+	private long position;
+	/** Channel position to stop reading at. */
+	private long end;
+
+	/**
+	 * Creates a new stream.
+	 * @param channel the channel to read.
+	 * @param bufferPool the pool to get a buffer from.
+	 * @param bufferSize the size of the read buffer.
+	 * @param start the starting position in the channel.
+	 * @param end the position to stop reading at.
+	 */
+	ChannelInputStream(FileChannel channel, BufferPool bufferPool, int bufferSize, long start, long end)
+	{
+		this.channel = channel;
+		this.bufferPool = bufferPool;
+		this.buffer = bufferPool.acquire(bufferSize);
+		this.buffer.limit(0);
+		this.position = start;
+		this.end = end;
+	}
+
+	/**
+	 * @return the channel position of the next byte to be read.
+	 */
+	long position()
+	{
+		return position - buffer.remaining();
+	}
+
+	/**
+	 * Moves the stream to another position in the channel.
+	 * @param newPosition the new position.
+	 * @param newEnd the new position to stop reading at.
+	 */
+	void seek(long newPosition, long newEnd)
+	{
+		long bufferStart = position - buffer.limit();
+		if (newPosition >= bufferStart && newPosition <= position)
+			buffer.position((int)(newPosition - bufferStart));
+		else
+		{
+			buffer.limit(0);
+			position = newPosition;
+		}
+		end = newEnd;
+	}
+
+	// Refills the buffer. Returns false on the end of the range.
+	private boolean fill() throws IOException
+	{
+		if (position >= end)
+			return false;
+		buffer.clear();
+		if (end - position < buffer.capacity())
+			buffer.limit((int)(end - position));
+		while (buffer.hasRemaining())
+		{
+			int n = channel.read(buffer, position + buffer.position());
+			if (n < 0)
+				break;
+		}
+		buffer.flip();
+		position += buffer.limit();
+		return buffer.hasRemaining();
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		if (!buffer.hasRemaining() && !fill())
+			return -1;
+		return buffer.get() & 0x0ff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if (len == 0)
+			return 0;
+		if (!buffer.hasRemaining() && !fill())
+			return -1;
+		int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		if (n <= 0)
+			return 0;
+		long skipped = Math.min(n, end - position());
+		seek(position() + skipped, end);
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException
+	{
+		return buffer.remaining();
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (buffer != null)
+		{
+			bufferPool.release(buffer);
+			buffer = null;
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.record;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import com.blackrook.io.BufferPool;
+import com.blackrook.io.ReusableByteArrayInputStream;
+import com.blackrook.io.SuperReader;
+
+/**
+ * A cursor over a range of records in a record file, opened from a {@link RecordFileReader}.
+ * Records are read lazily, in order, through a buffered channel-backed reader, and decoded through 
+ * a single reusable {@link SuperReader}.
+ * <p>This class is not thread-safe.
+ * @param <T> the record type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class RecordCursor<T> implements Closeable
+{
+	/** The record file. */
+	private RecordFileReader<T> file;
+	/** Buffer pool for record data. */
+	private BufferPool bufferPool;
+
+	/** The framing stream. */
+	private ChannelInputStream in;
+	/** The framing reader. */
+	private SuperReader reader;
+
+	/** Record data buffer. */
+	private byte[] recordData;
+	/** Record data stream. */
+	private ReusableByteArrayInputStream recordStream;
+	/** Record data reader, passed to the codec. */
+	private SuperReader recordReader;
+
+	/** Next record number. */
+	private long next;
+	/** End record number (exclusive). */
+	private long end;
+
+	RecordCursor(RecordFileReader<T> file)
+	{
+		this.file = file;
+		this.bufferPool = file.getBufferPool();
+		this.in = new ChannelInputStream(file.getChannel(), bufferPool, RecordFileReader.BUFFER_SIZE, file.getDataEnd(), file.getDataEnd());
+		this.reader = new SuperReader(in, SuperReader.LITTLE_ENDIAN);
+		this.recordData = bufferPool.acquireArray(256);
+		this.recordStream = new ReusableByteArrayInputStream();
+		this.recordReader = new SuperReader(recordStream, file.getEndianMode());
+		this.next = 0L;
+		this.end = 0L;
+	}
+
+	/**
+	 * Moves this cursor to another range of records.
+	 * This only reads forward from the nearest index entry, or from the current record if that is closer.
+	 * @param start the first record number (inclusive).
+	 * @param end the last record number (exclusive).
+	 * @throws IOException if the records between the index entry and the first record can't be read.
+	 * @throws IndexOutOfBoundsException if start or end are out of bounds, or end is less than start.
+	 */
+	public void seek(long start, long end) throws IOException
+	{
+		long count = file.getRecordCount();
+		if (start < 0 || end > count || start > end)
+			throw new IndexOutOfBoundsException("Bad record range: " + start + " to " + end + " of " + count);
+		checkOpen();
+
+		if (start == end)
+		{
+			// the stream is no longer at record "next", so park it at the end to keep the next seek from continuing from it.
+			in.seek(file.getDataEnd(), file.getDataEnd());
+			this.next = this.end = start;
+			return;
+		}
+
+		int entry = file.findIndexEntry(start);
+		long record = file.getIndexRecord(entry);
+		// no need to go back to the index if we are closer.
+		if (start >= next && next >= record && next < count && in.position() < file.getDataEnd())
+			in.seek(in.position(), file.getDataEnd());
+		else
+		{
+			in.seek(file.getIndexOffset(entry), file.getDataEnd());
+			next = record;
+		}
+		while (next < start)
+		{
+			in.skip(reader.readVariableLengthInt());
+			next++;
+		}
+		this.end = end;
+	}
+
+	/**
+	 * @return true if there are more records in this cursor's range, false if not.
+	 */
+	public boolean hasNext()
+	{
+		return next < end;
+	}
+
+	/**
+	 * @return the record number of the next record.
+	 */
+	public long getNextRecordNumber()
+	{
+		return next;
+	}
+
+	/**
+	 * Reads and decodes the next record.
+	 * @return the decoded record.
+	 * @throws IOException if the record can't be read or decoded.
+	 * @throws NoSuchElementException if there are no more records in the range.
+	 */
+	public T next() throws IOException
+	{
+		int length = readNextRecord();
+		recordStream.setBuffer(recordData, 0, length);
+		recordReader.reset(recordStream);
+		return file.getCodec().read(recordReader);
+	}
+
+	/**
+	 * Reads the next record's encoded data.
+	 * @return a new array containing the record data.
+	 * @throws IOException if the record can't be read.
+	 * @throws NoSuchElementException if there are no more records in the range.
+	 */
+	public byte[] nextBytes() throws IOException
+	{
+		int length = readNextRecord();
+		return Arrays.copyOf(recordData, length);
+	}
+
+	/**
+	 * Skips the next record without reading or decoding it.
+	 * @throws IOException if the record length can't be read.
+	 * @throws NoSuchElementException if there are no more records in the range.
+	 */
+	public void skip() throws IOException
+	{
+		if (!hasNext())
+			throw new NoSuchElementException("No more records.");
+		checkOpen();
+		in.skip(reader.readVariableLengthInt());
+		next++;
+	}
+
+	// Reads the next record into the record buffer, returns its length.
+	private int readNextRecord() throws IOException
+	{
+		if (!hasNext())
+			throw new NoSuchElementException("No more records.");
+		checkOpen();
+		int length = reader.readVariableLengthInt();
+		if (length > recordData.length)
+		{
+			bufferPool.release(recordData);
+			recordData = bufferPool.acquireArray(length);
+		}
+		int offset = 0;
+		while (offset < length)
+		{
+			int n = in.read(recordData, offset, length - offset);
+			if (n < 0)
+				throw new SuperReader.EOSException("Unexpected end of record data.");
+			offset += n;
+		}
+		next++;
+		return length;
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (in == null)
+			throw new IOException("Record cursor is closed.");
+	}
+
+	/**
+	 * Closes this cursor and returns its buffers. The record file is not closed.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (in == null)
+			return;
+		in.close();
+		in = null;
+		recordStream.clear();
+		bufferPool.release(recordData);
+		recordData = null;
+	}
+
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.record;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Record file format constants.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+final class RecordFile
+{
+	/** File magic number, at the start and end of the file. */
+	static final byte[] MAGIC = "BRRF".getBytes(StandardCharsets.US_ASCII);
+	/** Format version. */
+	static final int VERSION = 1;
+	/** Length of the header in bytes. */
+	static final int HEADER_LENGTH = 8;
+	/** Length of the footer in bytes. */
+	static final int FOOTER_LENGTH = 24;
+	/** Length of each index entry in bytes. */
+	static final int INDEX_ENTRY_LENGTH = 16;
+	/** Maximum record length (limit of a variable-length int). */
+	static final int MAX_RECORD_LENGTH = 0x0fffffff;
+
+	private RecordFile() {}
+
+	/**
+	 * Checks if part of an array matches the magic number.
+	 * @param b the array.
+	 * @param offset the offset into the array.
+	 * @return true if so, false if not.
+	 */
+	static boolean isMagic(byte[] b, int offset)
+	{
+		for (int i = 0; i < MAGIC.length; i++)
+			if (b[offset + i] != MAGIC[i])
+				return false;
+		return true;
+	}
+
+}
@@ -0,0 +1,375 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.record;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.blackrook.io.BufferPool;
+import com.blackrook.io.BufferPools;
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.codec.BinaryCodec;
+
+/**
+ * Reads a record file written by {@link RecordFileWriter}.
+ * <p>The sparse index is read when the file is opened. Finding a record is a binary search of the index, 
+ * then a short skip over the records between the index entry and the record. Records are read lazily
+ * through {@link RecordCursor}s, using positional reads on a {@link FileChannel}.
+ * <p>Records can also be decoded in parallel with {@link #stream(boolean)}: the file is split into
+ * ranges at index entries, and each range is decoded by a different worker with its own cursor.
+ * <p>This class is thread-safe (many threads can read the same file with their own cursors), 
+ * but {@link RecordCursor}s are not.
+ * @param <T> the record type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see RecordFileWriter
+ */
+public class RecordFileReader<T> implements Closeable
+{
+	/** Size of each cursor's read buffer. */
+	static final int BUFFER_SIZE = 65536;
+
+	/** The file channel. */
+	private FileChannel channel;
+	/** The record codec. */
+	private BinaryCodec<T> codec;
+	/** The buffer pool for cursor buffers. */
+	private BufferPool bufferPool;
+	/** The endian mode of the records. */
+	private boolean endianMode;
+
+	/** Amount of records. */
+	private long recordCount;
+	/** End of the record data (start of the index). */
+	private long dataEnd;
+	/** Index record numbers. */
+	private long[] indexRecords;
+	/** Index record offsets. */
+	private long[] indexOffsets;
+
+	/**
+	 * Opens a record file.
+	 * @param file the file to open.
+	 * @param codec the codec for decoding records.
+	 * @throws IOException if the file can't be read, or is not a record file.
+	 */
+	public RecordFileReader(File file, BinaryCodec<T> codec) throws IOException
+	{
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		this.codec = codec;
+		this.bufferPool = BufferPools.getDefault();
+		try {
+			readIndex();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private void readIndex() throws IOException
+	{
+		long size = channel.size();
+		if (size < RecordFile.HEADER_LENGTH + RecordFile.FOOTER_LENGTH)
+			throw new IOException("Not a record file.");
+
+		byte[] header = readFully(0L, RecordFile.HEADER_LENGTH);
+		if (!RecordFile.isMagic(header, 0))
+			throw new IOException("Not a record file.");
+		if (header[4] != RecordFile.VERSION)
+			throw new IOException("Unsupported record file version: " + header[4]);
+		endianMode = header[5] != 0;
+
+		byte[] footer = readFully(size - RecordFile.FOOTER_LENGTH, RecordFile.FOOTER_LENGTH);
+		if (!RecordFile.isMagic(footer, RecordFile.FOOTER_LENGTH - RecordFile.MAGIC.length))
+			throw new IOException("Record file has no footer. It may be incomplete.");
+		SuperReader sr = new SuperReader(new ByteArrayInputStream(footer), SuperReader.LITTLE_ENDIAN);
+		dataEnd = sr.readLong();
+		recordCount = sr.readLong();
+		int indexCount = sr.readInt();
+		if (dataEnd < RecordFile.HEADER_LENGTH || recordCount < 0 || indexCount < 0 
+			|| dataEnd + (long)indexCount * RecordFile.INDEX_ENTRY_LENGTH != size - RecordFile.FOOTER_LENGTH)
+			throw new IOException("Bad record file footer.");
+
+		indexRecords = new long[indexCount];
+		indexOffsets = new long[indexCount];
+		sr = new SuperReader(new ByteArrayInputStream(readFully(dataEnd, indexCount * RecordFile.INDEX_ENTRY_LENGTH)), SuperReader.LITTLE_ENDIAN);
+		for (int i = 0; i < indexCount; i++)
+		{
+			indexRecords[i] = sr.readLong();
+			indexOffsets[i] = sr.readLong();
+		}
+	}
+
+	private byte[] readFully(long position, int length) throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new SuperReader.EOSException("Unexpected end of record file.");
+		return buffer.array();
+	}
+
+	/**
+	 * @return the amount of records in the file.
+	 */
+	public long getRecordCount()
+	{
+		return recordCount;
+	}
+
+	/**
+	 * @return the endian mode of the reader passed to the codec.
+	 */
+	public boolean getEndianMode()
+	{
+		return endianMode;
+	}
+
+	/**
+	 * @return the amount of entries in the sparse index.
+	 */
+	public int getIndexSize()
+	{
+		return indexRecords.length;
+	}
+
+	/**
+	 * Sets the buffer pool used for cursor read buffers and record data.
+	 * By default, this is {@link BufferPools#getDefault()}.
+	 * @param bufferPool the buffer pool to use.
+	 */
+	public void setBufferPool(BufferPool bufferPool)
+	{
+		this.bufferPool = bufferPool;
+	}
+
+	/**
+	 * @return the buffer pool used for cursor read buffers and record data.
+	 */
+	public BufferPool getBufferPool()
+	{
+		return bufferPool;
+	}
+
+	/**
+	 * Reads a single record.
+	 * For reading many records, use a {@link RecordCursor}, which avoids repeating the index search.
+	 * @param index the record number.
+	 * @return the decoded record.
+	 * @throws IOException if the record can't be read or decoded.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the record count.
+	 */
+	public T read(long index) throws IOException
+	{
+		checkIndex(index);
+		try (RecordCursor<T> cursor = cursor(index, index + 1))
+		{
+			return cursor.next();
+		}
+	}
+
+	/**
+	 * Reads a single record's encoded data.
+	 * @param index the record number.
+	 * @return the record data.
+	 * @throws IOException if the record can't be read.
+	 * @throws IndexOutOfBoundsException if index is less than 0 or greater than or equal to the record count.
+	 */
+	public byte[] readBytes(long index) throws IOException
+	{
+		checkIndex(index);
+		try (RecordCursor<T> cursor = cursor(index, index + 1))
+		{
+			return cursor.nextBytes();
+		}
+	}
+
+	/**
+	 * Opens a cursor over all of the records.
+	 * @return a new cursor. Close it when done.
+	 * @throws IOException if the cursor can't be opened.
+	 */
+	public RecordCursor<T> cursor() throws IOException
+	{
+		return cursor(0L, recordCount);
+	}
+
+	/**
+	 * Opens a cursor over the records from a starting record to the end.
+	 * @param start the first record number.
+	 * @return a new cursor. Close it when done.
+	 * @throws IOException if the cursor can't be opened.
+	 * @throws IndexOutOfBoundsException if start is less than 0 or greater than the record count.
+	 */
+	public RecordCursor<T> cursor(long start) throws IOException
+	{
+		return cursor(start, recordCount);
+	}
+
+	/**
+	 * Opens a cursor over a range of records.
+	 * @param start the first record number (inclusive).
+	 * @param end the last record number (exclusive).
+	 * @return a new cursor. Close it when done.
+	 * @throws IOException if the cursor can't be opened.
+	 * @throws IndexOutOfBoundsException if start or end are out of bounds, or end is less than start.
+	 */
+	public RecordCursor<T> cursor(long start, long end) throws IOException
+	{
+		if (start < 0 || end > recordCount || start > end)
+			throw new IndexOutOfBoundsException("Bad record range: " + start + " to " + end + " of " + recordCount);
+		checkOpen();
+		RecordCursor<T> out = new RecordCursor<T>(this);
+		try {
+			out.seek(start, end);
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+		return out;
+	}
+
+	/**
+	 * Creates a {@link Spliterator} over all of the records.
+	 * @return a new spliterator.
+	 * @see RecordSpliterator
+	 */
+	public RecordSpliterator<T> spliterator()
+	{
+		return spliterator(0L, recordCount);
+	}
+
+	/**
+	 * Creates a {@link Spliterator} over a range of records.
+	 * @param start the first record number (inclusive).
+	 * @param end the last record number (exclusive).
+	 * @return a new spliterator.
+	 * @throws IndexOutOfBoundsException if start or end are out of bounds, or end is less than start.
+	 * @see RecordSpliterator
+	 */
+	public RecordSpliterator<T> spliterator(long start, long end)
+	{
+		if (start < 0 || end > recordCount || start > end)
+			throw new IndexOutOfBoundsException("Bad record range: " + start + " to " + end + " of " + recordCount);
+		return new RecordSpliterator<T>(this, start, end);
+	}
+
+	/**
+	 * Creates a sequential stream of all of the decoded records.
+	 * I/O errors are thrown as {@link java.io.UncheckedIOException}s.
+	 * @return a new stream.
+	 */
+	public Stream<T> stream()
+	{
+		return stream(false);
+	}
+
+	/**
+	 * Creates a stream of all of the decoded records.
+	 * Parallel streams decode ranges of the file on the common fork-join pool, each with its own reader.
+	 * I/O errors are thrown as {@link java.io.UncheckedIOException}s.
+	 * @param parallel if true, the stream is parallel. If false, it is sequential.
+	 * @return a new stream.
+	 */
+	public Stream<T> stream(boolean parallel)
+	{
+		return StreamSupport.stream(spliterator(), parallel);
+	}
+
+	/**
+	 * Finds the index entry at or before a record.
+	 * @param record the record number.
+	 * @return the index entry number.
+	 */
+	int findIndexEntry(long record)
+	{
+		int i = Arrays.binarySearch(indexRecords, record);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	/**
+	 * Finds the index entry at or before a file offset.
+	 * @param offset the file offset.
+	 * @return the index entry number, or -1 if the offset is before the first entry.
+	 */
+	int findIndexEntryAtOffset(long offset)
+	{
+		int i = Arrays.binarySearch(indexOffsets, offset);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	/**
+	 * @param entry the index entry number.
+	 * @return the record number of an index entry.
+	 */
+	long getIndexRecord(int entry)
+	{
+		return indexRecords[entry];
+	}
+
+	/**
+	 * @param entry the index entry number.
+	 * @return the file offset of an index entry.
+	 */
+	long getIndexOffset(int entry)
+	{
+		return indexOffsets[entry];
+	}
+
+	/**
+	 * @return the end of the record data in the file.
+	 */
+	long getDataEnd()
+	{
+		return dataEnd;
+	}
+
+	/**
+	 * @return the file channel.
+	 */
+	FileChannel getChannel()
+	{
+		return channel;
+	}
+
+	/**
+	 * @return the record codec.
+	 */
+	BinaryCodec<T> getCodec()
+	{
+		return codec;
+	}
+
+	private void checkIndex(long index)
+	{
+		if (index < 0 || index >= recordCount)
+			throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (!channel.isOpen())
+			throw new IOException("Record file reader is closed.");
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+}
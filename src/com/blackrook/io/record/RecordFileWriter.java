@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.record;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.codec.BinaryCodec;
+
+/**
+ * Writes a record file: each record is encoded with a {@link BinaryCodec} through a {@link SuperWriter},
+ * and written with its length. A sparse index of record offsets is kept as records are written,
+ * and written at the end of the file (along with a footer) on {@link #close()}.
+ * <p>An index entry is added on the first record, and on the first record after each 
+ * <code>indexInterval</code> bytes of record data, so a reader never has to skip more than about 
+ * that many bytes to reach a record.
+ * <p>This class is not thread-safe.
+ * @param <T> the record type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see RecordFileReader
+ */
+public class RecordFileWriter<T> implements Closeable, Flushable
+{
+	/** Default amount of record bytes between index entries. */
+	public static final int DEFAULT_INDEX_INTERVAL = 65536;
+	/** Size of the write buffer. */
+	private static final int BUFFER_SIZE = 65536;
+	/** Initial size of the record encoding buffer. */
+	private static final int RECORD_BUFFER_SIZE = 1024;
+
+	/** The record codec. */
+	private BinaryCodec<T> codec;
+	/** The amount of record bytes between index entries. */
+	private int indexInterval;
+
+	/** Output stream. */
+	private OutputStream out;
+	/** Writer for framing and the index. */
+	private SuperWriter writer;
+	/** Current file position. */
+	private long position;
+
+	/** Buffer for encoding records. */
+	private RecordBuffer recordBuffer;
+	/** Writer for encoding records. */
+	private SuperWriter recordWriter;
+
+	/** Amount of records written. */
+	private long recordCount;
+	/** Index record numbers. */
+	private long[] indexRecords;
+	/** Index record offsets. */
+	private long[] indexOffsets;
+	/** Index entry count. */
+	private int indexCount;
+	/** Offset of the last index entry. */
+	private long lastIndexOffset;
+
+	/**
+	 * Creates a new record file, with little-endian records and the default index interval.
+	 * @param file the file to create.
+	 * @param codec the codec for encoding records.
+	 * @throws IOException if the file can't be written.
+	 * @throws FileNotFoundException if the file can't be created.
+	 */
+	public RecordFileWriter(File file, BinaryCodec<T> codec) throws IOException
+	{
+		this(file, codec, SuperWriter.LITTLE_ENDIAN, DEFAULT_INDEX_INTERVAL);
+	}
+
+	/**
+	 * Creates a new record file.
+	 * @param file the file to create.
+	 * @param codec the codec for encoding records.
+	 * @param endianMode the endian mode of the writer passed to the codec (stored in the file for readers).
+	 * @param indexInterval the amount of record bytes between index entries.
+	 * @throws IOException if the file can't be written.
+	 * @throws FileNotFoundException if the file can't be created.
+	 * @throws IllegalArgumentException if indexInterval is less than 1.
+	 */
+	public RecordFileWriter(File file, BinaryCodec<T> codec, boolean endianMode, int indexInterval) throws IOException
+	{
+		if (indexInterval < 1)
+			throw new IllegalArgumentException("Index interval must be 1 or greater.");
+
+		this.codec = codec;
+		this.indexInterval = indexInterval;
+		this.out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		this.writer = new SuperWriter(out, SuperWriter.LITTLE_ENDIAN);
+		this.recordBuffer = new RecordBuffer();
+		this.recordWriter = new SuperWriter(recordBuffer, endianMode);
+		this.recordCount = 0L;
+		this.indexRecords = new long[64];
+		this.indexOffsets = new long[64];
+		this.indexCount = 0;
+		this.lastIndexOffset = 0L;
+
+		writer.writeBytes(RecordFile.MAGIC);
+		writer.writeByte((byte)RecordFile.VERSION);
+		writer.writeBoolean(endianMode);
+		writer.writeShort((short)0);
+		this.position = RecordFile.HEADER_LENGTH;
+	}
+
+	/**
+	 * Encodes and writes a record.
+	 * @param record the record to write.
+	 * @return the record number of the written record (starting at 0).
+	 * @throws IOException if the record can't be encoded or written.
+	 * @throws IllegalArgumentException if the encoded record is too long.
+	 */
+	public long write(T record) throws IOException
+	{
+		checkOpen();
+		recordBuffer.reset();
+		codec.write(recordWriter, record);
+		return writeRecord(recordBuffer.getBuffer(), 0, recordBuffer.size());
+	}
+
+	/**
+	 * Writes an already-encoded record.
+	 * @param b the record data.
+	 * @return the record number of the written record (starting at 0).
+	 * @throws IOException if the record can't be written.
+	 * @throws IllegalArgumentException if the record is too long.
+	 */
+	public long writeBytes(byte[] b) throws IOException
+	{
+		return writeBytes(b, 0, b.length);
+	}
+
+	/**
+	 * Writes an already-encoded record.
+	 * @param b the array containing the record data.
+	 * @param offset the offset into the array.
+	 * @param length the length of the record data.
+	 * @return the record number of the written record (starting at 0).
+	 * @throws IOException if the record can't be written.
+	 * @throws IllegalArgumentException if the record is too long.
+	 */
+	public long writeBytes(byte[] b, int offset, int length) throws IOException
+	{
+		checkOpen();
+		return writeRecord(b, offset, length);
+	}
+
+	private long writeRecord(byte[] b, int offset, int length) throws IOException
+	{
+		if (length > RecordFile.MAX_RECORD_LENGTH)
+			throw new IllegalArgumentException("Record is too long: " + length + " bytes.");
+
+		if (indexCount == 0 || position - lastIndexOffset >= indexInterval)
+			addIndexEntry();
+
+		writer.writeVariableLengthInt(length);
+		out.write(b, offset, length);
+		position += variableLengthIntSize(length) + length;
+		return recordCount++;
+	}
+
+	private void addIndexEntry()
+	{
+		if (indexCount == indexRecords.length)
+		{
+			indexRecords = Arrays.copyOf(indexRecords, indexCount * 2);
+			indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+		}
+		indexRecords[indexCount] = recordCount;
+		indexOffsets[indexCount] = position;
+		indexCount++;
+		lastIndexOffset = position;
+	}
+
+	/**
+	 * @return the amount of records written so far.
+	 */
+	public long getRecordCount()
+	{
+		return recordCount;
+	}
+
+	/**
+	 * Flushes written records to the file.
+	 * The file is not readable until it is closed (the index and footer are written on close).
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		checkOpen();
+		out.flush();
+	}
+
+	/**
+	 * Writes the index and footer, and closes the file.
+	 * Calling this more than once has no effect.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (out == null)
+			return;
+
+		try {
+			long indexOffset = position;
+			for (int i = 0; i < indexCount; i++)
+			{
+				writer.writeLong(indexRecords[i]);
+				writer.writeLong(indexOffsets[i]);
+			}
+			writer.writeLong(indexOffset);
+			writer.writeLong(recordCount);
+			writer.writeInt(indexCount);
+			writer.writeBytes(RecordFile.MAGIC);
+			out.flush();
+		} finally {
+			out.close();
+			out = null;
+		}
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (out == null)
+			throw new IOException("Record file writer is closed.");
+	}
+
+	// Size of a variable-length int, as written by SuperWriter.
+	private static int variableLengthIntSize(int i)
+	{
+		int out = 1;
+		while ((i >>>= 7) != 0)
+			out++;
+		return out;
+	}
+
+	/**
+	 * Record encoding buffer with an accessible backing array.
+	 */
+	private static class RecordBuffer extends ByteArrayOutputStream
+	{
+		RecordBuffer()
+		{
+			super(RECORD_BUFFER_SIZE);
+		}
+
+		byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.record;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Spliterator} over a range of records in a record file.
+ * <p>Splitting divides the range at sparse index entries (record boundaries with known file offsets), 
+ * as close to the middle of the range's bytes as possible, so each half can be opened and decoded 
+ * without reading the other. Each spliterator reads through its own {@link RecordCursor}, 
+ * which is opened on the first traversal and closed when the range is finished.
+ * <p>I/O errors during traversal are thrown as {@link UncheckedIOException}s.
+ * @param <T> the record type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see RecordFileReader#spliterator()
+ * @see RecordFileReader#stream(boolean)
+ */
+public class RecordSpliterator<T> implements Spliterator<T>
+{
+	/** The record file. */
+	private RecordFileReader<T> file;
+	/** Next record number. */
+	private long start;
+	/** End record number (exclusive). */
+	private long end;
+	/** The cursor, opened on traversal. */
+	private RecordCursor<T> cursor;
+
+	RecordSpliterator(RecordFileReader<T> file, long start, long end)
+	{
+		this.file = file;
+		this.start = start;
+		this.end = end;
+		this.cursor = null;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super T> action)
+	{
+		if (start >= end)
+			return false;
+		try {
+			openCursor();
+			T record = cursor.next();
+			start++;
+			if (start >= end)
+				closeCursor();
+			action.accept(record);
+			return true;
+		} catch (IOException e) {
+			closeQuietly();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super T> action)
+	{
+		if (start >= end)
+			return;
+		try {
+			openCursor();
+			while (start < end)
+			{
+				T record = cursor.next();
+				start++;
+				action.accept(record);
+			}
+			closeCursor();
+		} catch (IOException e) {
+			closeQuietly();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>Returns null if traversal has started, or if there are no index entries inside the remaining range.
+	 */
+	@Override
+	public Spliterator<T> trySplit()
+	{
+		if (cursor != null || end - start < 2)
+			return null;
+
+		int first = file.findIndexEntry(start);
+		int last = file.findIndexEntry(end - 1);
+		if (first == last)
+			return null;
+
+		long startOffset = file.getIndexOffset(first);
+		long endOffset = last + 1 < file.getIndexSize() ? file.getIndexOffset(last + 1) : file.getDataEnd();
+		int split = file.findIndexEntryAtOffset(startOffset + (endOffset - startOffset) / 2);
+		// entries in (first, last] start after this range's first record.
+		if (split <= first)
+			split = first + 1;
+		else if (split > last)
+			split = last;
+
+		long mid = file.getIndexRecord(split);
+		RecordSpliterator<T> prefix = new RecordSpliterator<T>(file, start, mid);
+		start = mid;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize()
+	{
+		return end - start;
+	}
+
+	@Override
+	public int characteristics()
+	{
+		return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+	}
+
+	private void openCursor() throws IOException
+	{
+		if (cursor == null)
+			cursor = file.cursor(start, end);
+	}
+
+	private void closeCursor() throws IOException
+	{
+		if (cursor != null)
+		{
+			cursor.close();
+			cursor = null;
+		}
+	}
+
+	private void closeQuietly()
+	{
+		try {
+			closeCursor();
+		} catch (IOException e) {
+			// Do nothing.
+		}
+	}
+
+}
@@ -0,0 +1,19 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/**
+ * Contains classes for reading and writing record files: sequences of length-prefixed records
+ * followed by a sparse index of record offsets, for random access.
+ * <p>Record file layout (header, footer, and index values are little-endian):
+ * <pre>
+ * Header:  "BRRF" (4 bytes), version (1 byte), record endian mode (1 byte), reserved (2 bytes)
+ * Records: length (variable-length int), data (length bytes) - repeated
+ * Index:   record number (8 bytes), record offset (8 bytes) - repeated
+ * Footer:  index offset (8 bytes), record count (8 bytes), index entry count (4 bytes), "BRRF" (4 bytes)
+ * </pre>
+ */
+package com.blackrook.io.record;
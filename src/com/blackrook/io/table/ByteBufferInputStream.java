@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.table;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads from a {@link ByteBuffer}, starting at its position and ending at its limit.
+ * Reads move the buffer's position, and moving the position moves this stream.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+class ByteBufferInputStream extends InputStream
+{
+	/** The buffer to read. */
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a new stream.
+	 * @param buffer the buffer to read.
+	 */
+	ByteBufferInputStream(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Changes the buffer to read.
+	 * @param buffer the new buffer.
+	 */
+	void reset(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	@Override
+	public int read()
+	{
+		return buffer.hasRemaining() ? buffer.get() & 0x0ff : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len)
+	{
+		if (len == 0)
+			return 0;
+		if (!buffer.hasRemaining())
+			return -1;
+		int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n)
+	{
+		if (n <= 0)
+			return 0;
+		int skipped = (int)Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available()
+	{
+		return buffer.remaining();
+	}
+
+}
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.table;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.blackrook.io.SuperReader;
+
+/**
+ * A cursor over a range of entries in a table file, in key order. 
+ * Created by {@link TableFileReader#cursor(byte[], byte[])}.
+ * <pre>
+ * TableCursor&lt;V&gt; cursor = reader.cursor(fromKey, toKey);
+ * while (cursor.next())
+ *     process(cursor.getKey(), cursor.getValue());
+ * </pre>
+ * <p>Blocks are read from the mapped file as the cursor reaches them.
+ * <p>This class is not thread-safe.
+ * @param <V> the value type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+public class TableCursor<V>
+{
+	/** The table file. */
+	private TableFileReader<V> file;
+
+	/** Current block index. */
+	private int blockIndex;
+	/** Current block. */
+	private ByteBuffer block;
+	/** End of the current block's entries (start of the restart offsets). */
+	private int entriesEnd;
+	/** Amount of restarts in the current block. */
+	private int restartCount;
+	/** Value stream (created on first use). */
+	private ByteBufferInputStream valueStream;
+	/** Value reader, passed to the codec (created on first use). */
+	private SuperReader valueReader;
+
+	/** Current key buffer. */
+	private byte[] key;
+	/** Current key length. */
+	private int keyLength;
+	/** Current value offset in the block. */
+	private int valueOffset;
+	/** Current value length. */
+	private int valueLength;
+
+	/** Last key (exclusive), or null for none. */
+	private byte[] toKey;
+	/** If true, the current entry was found by a seek, and is returned by the next call to next(). */
+	private boolean pending;
+	/** If true, there is a current entry. */
+	private boolean current;
+	/** If true, there are no more entries. */
+	private boolean done;
+
+	TableCursor(TableFileReader<V> file)
+	{
+		this.file = file;
+		this.blockIndex = -1;
+		this.key = new byte[64];
+		this.keyLength = 0;
+	}
+
+	/**
+	 * Moves this cursor to a range of keys.
+	 * @param fromKey the first key (inclusive), or null to start at the first entry.
+	 * @param toKey the last key (exclusive), or null to end at the last entry.
+	 * @throws IOException if the first block can't be read.
+	 */
+	void seek(byte[] fromKey, byte[] toKey) throws IOException
+	{
+		this.toKey = toKey;
+		this.pending = false;
+		this.current = false;
+		this.done = false;
+
+		int first = fromKey != null ? file.findBlock(fromKey) : 0;
+		if (first >= file.getBlockCount())
+		{
+			done = true;
+			return;
+		}
+		loadBlock(first);
+		if (fromKey == null)
+			return;
+
+		// binary search for the last restart before the key, then scan forward.
+		int lo = 0;
+		int hi = restartCount - 1;
+		while (lo < hi)
+		{
+			int mid = (lo + hi + 1) >>> 1;
+			if (compareRestart(mid, fromKey) < 0)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+		block.position(restartOffset(lo));
+		keyLength = 0;
+		while (block.position() < entriesEnd)
+		{
+			readEntry();
+			if (TableFile.compare(key, 0, keyLength, fromKey, 0, fromKey.length) >= 0)
+			{
+				pending = true;
+				return;
+			}
+		}
+		// past every key in this block (the index says this shouldn't happen).
+		throw new IOException("Bad table file block.");
+	}
+
+	private void loadBlock(int index) throws IOException
+	{
+		blockIndex = index;
+		block = file.getBlock(index);
+		int length = block.limit();
+		restartCount = block.getInt(length - Integer.BYTES);
+		entriesEnd = length - Integer.BYTES - restartCount * Integer.BYTES;
+		if (restartCount < 1 || entriesEnd < 0)
+			throw new IOException("Bad table file block.");
+		block.position(0);
+		keyLength = 0;
+	}
+
+	private int restartOffset(int restart) throws IOException
+	{
+		int offset = block.getInt(entriesEnd + restart * Integer.BYTES);
+		if (offset < 0 || offset >= entriesEnd)
+			throw new IOException("Bad table file block.");
+		return offset;
+	}
+
+	// Compares the key of a restart entry to another key.
+	private int compareRestart(int restart, byte[] other) throws IOException
+	{
+		block.position(restartOffset(restart));
+		if (TableFile.readVariableLengthInt(block) != 0)
+			throw new IOException("Bad table file block.");
+		int length = TableFile.readVariableLengthInt(block);
+		TableFile.readVariableLengthInt(block);
+		int start = block.position();
+		if (length > entriesEnd - start)
+			throw new IOException("Bad table file block.");
+		int len = Math.min(length, other.length);
+		for (int i = 0; i < len; i++)
+		{
+			int c = (block.get(start + i) & 0x0ff) - (other[i] & 0x0ff);
+			if (c != 0)
+				return c;
+		}
+		return length - other.length;
+	}
+
+	// Reads the entry at the block position.
+	private void readEntry() throws IOException
+	{
+		int shared = TableFile.readVariableLengthInt(block);
+		int unshared = TableFile.readVariableLengthInt(block);
+		int length = TableFile.readVariableLengthInt(block);
+		if (shared > keyLength || unshared < 0 || length < 0 || (long)unshared + length > entriesEnd - block.position())
+			throw new IOException("Bad table file block.");
+		if (shared + unshared > key.length)
+			key = Arrays.copyOf(key, Math.max(shared + unshared, key.length * 2));
+		block.get(key, shared, unshared);
+		keyLength = shared + unshared;
+		valueOffset = block.position();
+		valueLength = length;
+		block.position(valueOffset + length);
+	}
+
+	/**
+	 * Moves to the next entry.
+	 * @return true if there is a next entry, false if this cursor is at the end of its range.
+	 * @throws IOException if the next block can't be read.
+	 */
+	public boolean next() throws IOException
+	{
+		if (done)
+			return false;
+		if (pending)
+			pending = false;
+		else
+		{
+			if (block.position() >= entriesEnd)
+			{
+				if (blockIndex + 1 >= file.getBlockCount())
+					return end();
+				loadBlock(blockIndex + 1);
+			}
+			readEntry();
+		}
+		if (toKey != null && TableFile.compare(key, 0, keyLength, toKey, 0, toKey.length) >= 0)
+			return end();
+		current = true;
+		return true;
+	}
+
+	private boolean end()
+	{
+		current = false;
+		done = true;
+		return false;
+	}
+
+	/**
+	 * Checks if the current key is equal to another key, without copying it.
+	 * @param other the other key.
+	 * @return true if so, false if not.
+	 */
+	boolean keyEquals(byte[] other)
+	{
+		return current && TableFile.compare(key, 0, keyLength, other, 0, other.length) == 0;
+	}
+
+	/**
+	 * @return a copy of the current entry's key.
+	 * @throws IllegalStateException if there is no current entry.
+	 */
+	public byte[] getKey()
+	{
+		checkCurrent();
+		return Arrays.copyOf(key, keyLength);
+	}
+
+	/**
+	 * @return a copy of the current entry's value data.
+	 * @throws IllegalStateException if there is no current entry.
+	 */
+	public byte[] getValueBytes()
+	{
+		checkCurrent();
+		byte[] out = new byte[valueLength];
+		ByteBuffer value = block.duplicate();
+		value.position(valueOffset);
+		value.get(out);
+		return out;
+	}
+
+	/**
+	 * Decodes the current entry's value, directly from the mapped file.
+	 * @return the decoded value.
+	 * @throws IOException if the value can't be decoded.
+	 * @throws IllegalStateException if there is no current entry.
+	 */
+	public V getValue() throws IOException
+	{
+		checkCurrent();
+		ByteBuffer value = block.duplicate();
+		value.limit(valueOffset + valueLength);
+		value.position(valueOffset);
+		if (valueReader == null)
+		{
+			valueStream = new ByteBufferInputStream(value);
+			valueReader = new SuperReader(valueStream, file.getEndianMode());
+		}
+		else
+		{
+			valueStream.reset(value);
+			valueReader.reset(valueStream);
+		}
+		return file.getCodec().read(valueReader);
+	}
+
+	private void checkCurrent()
+	{
+		if (!current)
+			throw new IllegalStateException("No current entry. Call next() first.");
+	}
+
+}
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.table;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Table file format constants and shared functions.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ */
+final class TableFile
+{
+	/** File magic number, at the start and end of the file. */
+	static final byte[] MAGIC = "BRST".getBytes(StandardCharsets.US_ASCII);
+	/** Format version. */
+	static final int VERSION = 1;
+	/** Length of the header in bytes. */
+	static final int HEADER_LENGTH = 8;
+	/** Length of the footer in bytes. */
+	static final int FOOTER_LENGTH = 32;
+	/** Maximum key or value length (limit of a variable-length int). */
+	static final int MAX_LENGTH = 0x0fffffff;
+	/** Maximum block size setting. */
+	static final int MAX_BLOCK_SIZE = 1 << 24;
+	/** Size of each mapped segment of a table file. Mappings overlap by the longest block length. */
+	static final long SEGMENT_SIZE = 1L << 30;
+	/** Maximum amount of bloom filter probes. */
+	static final int MAX_BLOOM_PROBES = 30;
+
+	private TableFile() {}
+
+	/**
+	 * Checks if part of an array matches the magic number.
+	 * @param b the array.
+	 * @param offset the offset into the array.
+	 * @return true if so, false if not.
+	 */
+	static boolean isMagic(byte[] b, int offset)
+	{
+		for (int i = 0; i < MAGIC.length; i++)
+			if (b[offset + i] != MAGIC[i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Compares two keys, as unsigned bytes in lexicographical order.
+	 * @param a the first array.
+	 * @param aOffset the offset into the first array.
+	 * @param aLength the length of the first key.
+	 * @param b the second array.
+	 * @param bOffset the offset into the second array.
+	 * @param bLength the length of the second key.
+	 * @return less than 0, 0, or greater than 0 if the first key is less than, equal to, or greater than the second.
+	 */
+	static int compare(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength)
+	{
+		int len = Math.min(aLength, bLength);
+		for (int i = 0; i < len; i++)
+		{
+			int c = (a[aOffset + i] & 0x0ff) - (b[bOffset + i] & 0x0ff);
+			if (c != 0)
+				return c;
+		}
+		return aLength - bLength;
+	}
+
+	/**
+	 * Returns the bloom filter hash of a key.
+	 * @param key the key.
+	 * @return the 64-bit hash.
+	 */
+	static long hash(byte[] key)
+	{
+		// FNV-1a, then a 64-bit finalizer for better spread in the upper bits.
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length; i++)
+			h = (h ^ (key[i] & 0x0ff)) * 0x100000001b3L;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * Returns the bit index of a bloom filter probe for a hash.
+	 * @param hash the key hash.
+	 * @param probe the probe number.
+	 * @param bits the amount of bits in the filter.
+	 * @return the bit index.
+	 */
+	static long bloomBit(long hash, int probe, long bits)
+	{
+		long h1 = hash & 0xffffffffL;
+		long h2 = hash >>> 32;
+		return (h1 + probe * h2) % bits;
+	}
+
+	/**
+	 * Reads a variable-length int from a buffer, as read by {@link com.blackrook.io.SuperReader#readVariableLengthInt()}.
+	 * This is for block entry framing, where going through a reader for each byte costs more than the rest of the lookup.
+	 * @param buffer the buffer to read from, at its position.
+	 * @return the value read.
+	 * @throws IOException if the end of the buffer is reached, or the value is longer than 5 bytes.
+	 */
+	static int readVariableLengthInt(ByteBuffer buffer) throws IOException
+	{
+		int out = 0;
+		for (int i = 0; i < 5; i++)
+		{
+			if (!buffer.hasRemaining())
+				throw new IOException("Bad table file block.");
+			byte b = buffer.get();
+			out |= b & 0x7f;
+			if ((b & 0x80) == 0)
+				return out;
+			out <<= 7;
+		}
+		throw new IOException("Bad table file block.");
+	}
+
+	/**
+	 * Returns the size of a variable-length int, as written by {@link com.blackrook.io.SuperWriter#writeVariableLengthInt(int)}.
+	 * @param i the value.
+	 * @return the size in bytes.
+	 */
+	static int variableLengthIntSize(int i)
+	{
+		int out = 1;
+		while ((i >>>= 7) != 0)
+			out++;
+		return out;
+	}
+
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.table;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.blackrook.io.SuperReader;
+import com.blackrook.io.codec.BinaryCodec;
+
+/**
+ * Reads a table file written by {@link TableFileWriter}.
+ * <p>The file is memory-mapped when it is opened, and the block index and bloom filter are read into memory 
+ * (their size depends on the amount of blocks and keys, not on the size of the values). A lookup checks the 
+ * bloom filter, binary searches the block index, then binary searches the restarts of one block and scans 
+ * forward, so only one block is touched per lookup. Range scans with {@link TableCursor}s read blocks in order,
+ * starting at the block that contains the first key.
+ * <p>Files larger than 2 GB are mapped in overlapping segments, so a block never crosses the end of a mapping.
+ * <p>This class is thread-safe (many threads can read the same file with their own cursors), 
+ * but {@link TableCursor}s are not. Mapped memory is released when this object is garbage-collected, not on
+ * {@link #close()}.
+ * @param <V> the value type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see TableFileWriter
+ */
+public class TableFileReader<V> implements Closeable
+{
+	/** The value codec. */
+	private BinaryCodec<V> codec;
+	/** The endian mode of the values. */
+	private boolean endianMode;
+	/** Mapped file segments. */
+	private MappedByteBuffer[] segments;
+
+	/** Amount of entries. */
+	private long entryCount;
+	/** Concatenated last keys of each block. */
+	private byte[] indexKeys;
+	/** Offsets into indexKeys of each block's last key (plus one at the end). */
+	private int[] indexKeyOffsets;
+	/** Block offsets. */
+	private long[] blockOffsets;
+	/** Block lengths. */
+	private int[] blockLengths;
+
+	/** Bloom filter, or null if none. */
+	private long[] bloomFilter;
+	/** Bloom filter probes. */
+	private int bloomProbes;
+
+	/**
+	 * Opens a table file.
+	 * @param file the file to open.
+	 * @param codec the codec for decoding values.
+	 * @throws IOException if the file can't be read or mapped, or is not a table file.
+	 */
+	public TableFileReader(File file, BinaryCodec<V> codec) throws IOException
+	{
+		this.codec = codec;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+		{
+			open(channel);
+		}
+	}
+
+	private void open(FileChannel channel) throws IOException
+	{
+		long size = channel.size();
+		if (size < TableFile.HEADER_LENGTH + TableFile.FOOTER_LENGTH)
+			throw new IOException("Not a table file.");
+
+		byte[] header = new byte[TableFile.HEADER_LENGTH];
+		channel.map(FileChannel.MapMode.READ_ONLY, 0L, TableFile.HEADER_LENGTH).get(header);
+		if (!TableFile.isMagic(header, 0))
+			throw new IOException("Not a table file.");
+		if (header[4] != TableFile.VERSION)
+			throw new IOException("Unsupported table file version: " + header[4]);
+		endianMode = header[5] != 0;
+
+		long footerOffset = size - TableFile.FOOTER_LENGTH;
+		ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, footerOffset, TableFile.FOOTER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		byte[] magic = new byte[TableFile.MAGIC.length];
+		footer.position(TableFile.FOOTER_LENGTH - magic.length);
+		footer.get(magic);
+		if (!TableFile.isMagic(magic, 0))
+			throw new IOException("Table file has no footer. It may be incomplete.");
+		long indexOffset = footer.getLong(0);
+		long bloomOffset = footer.getLong(8);
+		entryCount = footer.getLong(16);
+		int maxBlockLength = footer.getInt(24);
+		long indexEnd = bloomOffset != 0L ? bloomOffset : footerOffset;
+		if (indexOffset < TableFile.HEADER_LENGTH || indexEnd < indexOffset || indexEnd > footerOffset 
+			|| indexEnd - indexOffset > Integer.MAX_VALUE || footerOffset - indexEnd > Integer.MAX_VALUE
+			|| entryCount < 0 || maxBlockLength < 0 || maxBlockLength >= TableFile.SEGMENT_SIZE)
+			throw new IOException("Bad table file footer.");
+
+		readIndex(channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, indexEnd - indexOffset), indexOffset);
+		if (bloomOffset != 0L)
+			readBloomFilter(channel.map(FileChannel.MapMode.READ_ONLY, bloomOffset, footerOffset - bloomOffset));
+
+		// map the block data in segments that overlap by the longest block.
+		int segmentCount = (int)((indexOffset + TableFile.SEGMENT_SIZE - 1) / TableFile.SEGMENT_SIZE);
+		segments = new MappedByteBuffer[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			long start = i * TableFile.SEGMENT_SIZE;
+			long end = Math.min(start + TableFile.SEGMENT_SIZE + maxBlockLength, indexOffset);
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		}
+	}
+
+	private void readIndex(ByteBuffer buffer, long indexOffset) throws IOException
+	{
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		SuperReader sr = new SuperReader(new ByteBufferInputStream(buffer), SuperReader.LITTLE_ENDIAN);
+		int blockCount = sr.readInt();
+		if (blockCount < 0 || blockCount > buffer.remaining())
+			throw new IOException("Bad table file index.");
+
+		indexKeys = new byte[buffer.remaining()];
+		indexKeyOffsets = new int[blockCount + 1];
+		blockOffsets = new long[blockCount];
+		blockLengths = new int[blockCount];
+		int keyOffset = 0;
+		long next = TableFile.HEADER_LENGTH;
+		for (int i = 0; i < blockCount; i++)
+		{
+			int length = sr.readVariableLengthInt();
+			if (length < 0 || length > buffer.remaining())
+				throw new IOException("Bad table file index.");
+			buffer.get(indexKeys, keyOffset, length);
+			indexKeyOffsets[i] = keyOffset;
+			keyOffset += length;
+			blockOffsets[i] = sr.readLong();
+			blockLengths[i] = sr.readInt();
+			if (blockOffsets[i] != next || blockLengths[i] < Integer.BYTES || blockOffsets[i] + blockLengths[i] > indexOffset)
+				throw new IOException("Bad table file index.");
+			next = blockOffsets[i] + blockLengths[i];
+		}
+		indexKeyOffsets[blockCount] = keyOffset;
+		indexKeys = Arrays.copyOf(indexKeys, keyOffset);
+	}
+
+	private void readBloomFilter(ByteBuffer buffer) throws IOException
+	{
+		SuperReader sr = new SuperReader(new ByteBufferInputStream(buffer), SuperReader.LITTLE_ENDIAN);
+		bloomProbes = sr.readByte();
+		bloomFilter = sr.readBitmap();
+		if (bloomProbes < 1 || bloomProbes > TableFile.MAX_BLOOM_PROBES || bloomFilter == null || bloomFilter.length == 0)
+			throw new IOException("Bad table file bloom filter.");
+	}
+
+	/**
+	 * @return the amount of entries in the table.
+	 */
+	public long getEntryCount()
+	{
+		return entryCount;
+	}
+
+	/**
+	 * @return the amount of blocks in the table.
+	 */
+	public int getBlockCount()
+	{
+		return blockOffsets.length;
+	}
+
+	/**
+	 * @return the endian mode of the reader passed to the codec.
+	 */
+	public boolean getEndianMode()
+	{
+		return endianMode;
+	}
+
+	/**
+	 * @return true if this table has a bloom filter, false if not.
+	 */
+	public boolean hasBloomFilter()
+	{
+		return bloomFilter != null;
+	}
+
+	/**
+	 * Checks the bloom filter for a key. This never reads any blocks.
+	 * @param key the key.
+	 * @return false if the key is definitely not in the table, true if it might be (or if there is no bloom filter).
+	 */
+	public boolean mightContain(byte[] key)
+	{
+		if (bloomFilter == null)
+			return true;
+		long hash = TableFile.hash(key);
+		long bits = (long)bloomFilter.length * Long.SIZE;
+		for (int p = 0; p < bloomProbes; p++)
+		{
+			long bit = TableFile.bloomBit(hash, p, bits);
+			if ((bloomFilter[(int)(bit >>> 6)] & (1L << bit)) == 0L)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Looks up a value.
+	 * @param key the key.
+	 * @return the decoded value, or null if the key is not in the table.
+	 * @throws IOException if the table is closed, or the block or value can't be read or decoded.
+	 */
+	public V get(byte[] key) throws IOException
+	{
+		TableCursor<V> cursor = find(key);
+		return cursor != null ? cursor.getValue() : null;
+	}
+
+	/**
+	 * Looks up a value's encoded data.
+	 * @param key the key.
+	 * @return the value data, or null if the key is not in the table.
+	 * @throws IOException if the table is closed, or the block can't be read.
+	 */
+	public byte[] getBytes(byte[] key) throws IOException
+	{
+		TableCursor<V> cursor = find(key);
+		return cursor != null ? cursor.getValueBytes() : null;
+	}
+
+	/**
+	 * Checks if a key is in the table.
+	 * @param key the key.
+	 * @return true if so, false if not.
+	 * @throws IOException if the table is closed, or the block can't be read.
+	 */
+	public boolean containsKey(byte[] key) throws IOException
+	{
+		return find(key) != null;
+	}
+
+	// Returns a cursor at the key, or null if not found.
+	private TableCursor<V> find(byte[] key) throws IOException
+	{
+		checkOpen();
+		if (!mightContain(key))
+			return null;
+		TableCursor<V> cursor = new TableCursor<V>(this);
+		cursor.seek(key, null);
+		return cursor.next() && cursor.keyEquals(key) ? cursor : null;
+	}
+
+	/**
+	 * Creates a cursor over all of the entries in the table, in key order.
+	 * @return a new cursor.
+	 * @throws IOException if the table is closed, or the first block can't be read.
+	 */
+	public TableCursor<V> cursor() throws IOException
+	{
+		return cursor(null, null);
+	}
+
+	/**
+	 * Creates a cursor over a range of entries in the table, in key order.
+	 * @param fromKey the first key (inclusive), or null to start at the first entry.
+	 * @param toKey the last key (exclusive), or null to end at the last entry.
+	 * @return a new cursor.
+	 * @throws IOException if the table is closed, or the first block can't be read.
+	 */
+	public TableCursor<V> cursor(byte[] fromKey, byte[] toKey) throws IOException
+	{
+		checkOpen();
+		TableCursor<V> cursor = new TableCursor<V>(this);
+		cursor.seek(fromKey, toKey);
+		return cursor;
+	}
+
+	/**
+	 * Finds the first block that could contain a key.
+	 * @param key the key.
+	 * @return the block index, or the block count if the key is greater than every key in the table.
+	 */
+	int findBlock(byte[] key)
+	{
+		int lo = 0;
+		int hi = blockOffsets.length;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			int start = indexKeyOffsets[mid];
+			if (TableFile.compare(indexKeys, start, indexKeyOffsets[mid + 1] - start, key, 0, key.length) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Returns a block's data, as a new little-endian buffer over the mapped file.
+	 * @param block the block index.
+	 * @return the block buffer.
+	 * @throws IOException if the table is closed.
+	 */
+	ByteBuffer getBlock(int block) throws IOException
+	{
+		MappedByteBuffer[] segments = this.segments;
+		if (segments == null)
+			throw new IOException("Table file reader is closed.");
+		long offset = blockOffsets[block];
+		int segment = (int)(offset / TableFile.SEGMENT_SIZE);
+		int position = (int)(offset - segment * TableFile.SEGMENT_SIZE);
+		ByteBuffer out = segments[segment].duplicate();
+		out.limit(position + blockLengths[block]);
+		out.position(position);
+		return out.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return the value codec.
+	 */
+	BinaryCodec<V> getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * Drops this reader's references to the mapped file.
+	 * Lookups and new cursors will fail after this is called. Calling this more than once has no effect.
+	 */
+	@Override
+	public void close()
+	{
+		segments = null;
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (segments == null)
+			throw new IOException("Table file reader is closed.");
+	}
+
+}
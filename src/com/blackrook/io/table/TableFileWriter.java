@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+package com.blackrook.io.table;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import com.blackrook.io.SuperWriter;
+import com.blackrook.io.codec.BinaryCodec;
+
+/**
+ * Writes a table file: an immutable, sorted key/value table. Keys are byte arrays, and must be written 
+ * in strictly ascending order (compared as unsigned bytes, so UTF-8 Strings sort by code point). 
+ * Values are encoded with a {@link BinaryCodec} through a {@link SuperWriter}, or written as raw bytes.
+ * <p>Entries are grouped into prefix-compressed blocks of about <code>blockSize</code> bytes. The block index 
+ * and bloom filter are kept as entries are written, and written at the end of the file (along with a footer) 
+ * on {@link #close()}. The bloom filter costs about <code>bloomBitsPerKey</code> bits per key, and with 10 bits 
+ * per key, about 1% of lookups for missing keys will read a block.
+ * <p>This class is not thread-safe.
+ * @param <V> the value type.
+ * @author Matthew Tropiano
+ * @since 2.7.0
+ * @see TableFileReader
+ */
+public class TableFileWriter<V> implements Closeable, Flushable
+{
+	/** Default block size in bytes. */
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+	/** Default amount of bloom filter bits per key. */
+	public static final int DEFAULT_BLOOM_BITS_PER_KEY = 10;
+	/** Amount of entries between restarts (entries with whole keys). */
+	private static final int RESTART_INTERVAL = 16;
+	/** Size of the write buffer. */
+	private static final int BUFFER_SIZE = 65536;
+	/** Initial size of the value encoding buffer. */
+	private static final int VALUE_BUFFER_SIZE = 1024;
+
+	/** The value codec. */
+	private BinaryCodec<V> codec;
+	/** The target block size. */
+	private int blockSize;
+	/** Bloom filter bits per key (0 is no filter). */
+	private int bloomBitsPerKey;
+
+	/** Output stream. */
+	private OutputStream out;
+	/** Writer for framing, the index, and the bloom filter. */
+	private SuperWriter writer;
+	/** Current file position. */
+	private long position;
+
+	/** Buffer for encoding values. */
+	private DataBuffer valueBuffer;
+	/** Writer for encoding values. */
+	private SuperWriter valueWriter;
+
+	/** Buffer for the current block. */
+	private DataBuffer blockBuffer;
+	/** Writer for the current block. */
+	private SuperWriter blockWriter;
+	/** Restart offsets in the current block. */
+	private int[] restarts;
+	/** Restart count in the current block. */
+	private int restartCount;
+	/** Entry count in the current block. */
+	private int blockEntryCount;
+
+	/** Previous key. */
+	private byte[] lastKey;
+	/** Amount of entries written. */
+	private long entryCount;
+
+	/** Index buffer. */
+	private DataBuffer indexBuffer;
+	/** Index writer. */
+	private SuperWriter indexWriter;
+	/** Index block count. */
+	private int blockCount;
+	/** Longest block. */
+	private int maxBlockLength;
+
+	/** Key hashes for the bloom filter. */
+	private long[] hashes;
+
+	/**
+	 * Creates a new table file, with little-endian values, the default block size, and a bloom filter
+	 * with the default amount of bits per key.
+	 * @param file the file to create.
+	 * @param codec the codec for encoding values.
+	 * @throws IOException if the file can't be written.
+	 * @throws FileNotFoundException if the file can't be created.
+	 */
+	public TableFileWriter(File file, BinaryCodec<V> codec) throws IOException
+	{
+		this(file, codec, SuperWriter.LITTLE_ENDIAN, DEFAULT_BLOCK_SIZE, DEFAULT_BLOOM_BITS_PER_KEY);
+	}
+
+	/**
+	 * Creates a new table file.
+	 * @param file the file to create.
+	 * @param codec the codec for encoding values.
+	 * @param endianMode the endian mode of the writer passed to the codec (stored in the file for readers).
+	 * @param blockSize the target size of each block in bytes. Larger blocks compress keys better, smaller blocks read less per lookup.
+	 * @param bloomBitsPerKey the amount of bloom filter bits per key, or 0 for no bloom filter.
+	 * @throws IOException if the file can't be written.
+	 * @throws FileNotFoundException if the file can't be created.
+	 * @throws IllegalArgumentException if blockSize is less than 1 or greater than 16 MB, or bloomBitsPerKey is less than 0.
+	 */
+	public TableFileWriter(File file, BinaryCodec<V> codec, boolean endianMode, int blockSize, int bloomBitsPerKey) throws IOException
+	{
+		if (blockSize < 1 || blockSize > TableFile.MAX_BLOCK_SIZE)
+			throw new IllegalArgumentException("Block size must be between 1 and " + TableFile.MAX_BLOCK_SIZE + ".");
+		if (bloomBitsPerKey < 0)
+			throw new IllegalArgumentException("Bloom filter bits per key must be 0 or greater.");
+
+		this.codec = codec;
+		this.blockSize = blockSize;
+		this.bloomBitsPerKey = bloomBitsPerKey;
+		this.out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		this.writer = new SuperWriter(out, SuperWriter.LITTLE_ENDIAN);
+		this.valueBuffer = new DataBuffer(VALUE_BUFFER_SIZE);
+		this.valueWriter = new SuperWriter(valueBuffer, endianMode);
+		this.blockBuffer = new DataBuffer(Math.min(blockSize, BUFFER_SIZE) + VALUE_BUFFER_SIZE);
+		this.blockWriter = new SuperWriter(blockBuffer, SuperWriter.LITTLE_ENDIAN);
+		this.restarts = new int[16];
+		this.restartCount = 0;
+		this.blockEntryCount = 0;
+		this.lastKey = null;
+		this.entryCount = 0L;
+		this.indexBuffer = new DataBuffer(VALUE_BUFFER_SIZE);
+		this.indexWriter = new SuperWriter(indexBuffer, SuperWriter.LITTLE_ENDIAN);
+		this.blockCount = 0;
+		this.maxBlockLength = 0;
+		this.hashes = bloomBitsPerKey > 0 ? new long[1024] : null;
+
+		writer.writeBytes(TableFile.MAGIC);
+		writer.writeByte((byte)TableFile.VERSION);
+		writer.writeBoolean(endianMode);
+		writer.writeShort((short)0);
+		this.position = TableFile.HEADER_LENGTH;
+	}
+
+	/**
+	 * Encodes and writes an entry.
+	 * @param key the entry key. Must be greater than the previous key.
+	 * @param value the value to write.
+	 * @throws IOException if the value can't be encoded or the entry can't be written.
+	 * @throws IllegalArgumentException if the key is not greater than the previous key, or the key or encoded value is too long.
+	 */
+	public void put(byte[] key, V value) throws IOException
+	{
+		checkOpen();
+		checkKey(key);
+		valueBuffer.reset();
+		codec.write(valueWriter, value);
+		writeEntry(key, valueBuffer.getBuffer(), 0, valueBuffer.size());
+	}
+
+	/**
+	 * Writes an entry with an already-encoded value.
+	 * @param key the entry key. Must be greater than the previous key.
+	 * @param value the value data.
+	 * @throws IOException if the entry can't be written.
+	 * @throws IllegalArgumentException if the key is not greater than the previous key, or the key or value is too long.
+	 */
+	public void putBytes(byte[] key, byte[] value) throws IOException
+	{
+		checkOpen();
+		checkKey(key);
+		writeEntry(key, value, 0, value.length);
+	}
+
+	private void checkKey(byte[] key)
+	{
+		if (key.length > TableFile.MAX_LENGTH)
+			throw new IllegalArgumentException("Key is too long: " + key.length + " bytes.");
+		if (lastKey != null && TableFile.compare(key, 0, key.length, lastKey, 0, lastKey.length) <= 0)
+			throw new IllegalArgumentException("Keys must be written in ascending order, with no duplicates.");
+	}
+
+	private void writeEntry(byte[] key, byte[] value, int offset, int length) throws IOException
+	{
+		if (length > TableFile.MAX_LENGTH)
+			throw new IllegalArgumentException("Value is too long: " + length + " bytes.");
+
+		int shared = 0;
+		if (blockEntryCount % RESTART_INTERVAL == 0)
+		{
+			if (restartCount == restarts.length)
+				restarts = Arrays.copyOf(restarts, restartCount * 2);
+			restarts[restartCount++] = blockBuffer.size();
+		}
+		else
+		{
+			int max = Math.min(key.length, lastKey.length);
+			while (shared < max && key[shared] == lastKey[shared])
+				shared++;
+		}
+
+		blockWriter.writeVariableLengthInt(shared);
+		blockWriter.writeVariableLengthInt(key.length - shared);
+		blockWriter.writeVariableLengthInt(length);
+		blockBuffer.write(key, shared, key.length - shared);
+		blockBuffer.write(value, offset, length);
+		blockEntryCount++;
+
+		if (hashes != null)
+		{
+			if (entryCount == hashes.length)
+				hashes = Arrays.copyOf(hashes, hashes.length * 2);
+			hashes[(int)entryCount] = TableFile.hash(key);
+		}
+		lastKey = key.clone();
+		entryCount++;
+
+		if (blockBuffer.size() >= blockSize)
+			finishBlock();
+	}
+
+	// Writes the current block and adds it to the index.
+	private void finishBlock() throws IOException
+	{
+		if (blockEntryCount == 0)
+			return;
+		for (int i = 0; i < restartCount; i++)
+			blockWriter.writeInt(restarts[i]);
+		blockWriter.writeInt(restartCount);
+
+		int length = blockBuffer.size();
+		out.write(blockBuffer.getBuffer(), 0, length);
+
+		indexWriter.writeVariableLengthInt(lastKey.length);
+		indexBuffer.write(lastKey, 0, lastKey.length);
+		indexWriter.writeLong(position);
+		indexWriter.writeInt(length);
+		blockCount++;
+		maxBlockLength = Math.max(maxBlockLength, length);
+
+		position += length;
+		blockBuffer.reset();
+		restartCount = 0;
+		blockEntryCount = 0;
+	}
+
+	/**
+	 * @return the amount of entries written so far.
+	 */
+	public long getEntryCount()
+	{
+		return entryCount;
+	}
+
+	/**
+	 * Flushes written blocks to the file. The current, unfinished block is not written.
+	 * The file is not readable until it is closed (the index and footer are written on close).
+	 */
+	@Override
+	public void flush() throws IOException
+	{
+		checkOpen();
+		out.flush();
+	}
+
+	/**
+	 * Writes the last block, the index, the bloom filter, and the footer, and closes the file.
+	 * Calling this more than once has no effect.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (out == null)
+			return;
+
+		try {
+			finishBlock();
+
+			long indexOffset = position;
+			writer.writeInt(blockCount);
+			out.write(indexBuffer.getBuffer(), 0, indexBuffer.size());
+			position += Integer.BYTES + indexBuffer.size();
+
+			long bloomOffset = 0L;
+			if (hashes != null && entryCount > 0)
+			{
+				bloomOffset = position;
+				writeBloomFilter();
+			}
+
+			writer.writeLong(indexOffset);
+			writer.writeLong(bloomOffset);
+			writer.writeLong(entryCount);
+			writer.writeInt(maxBlockLength);
+			writer.writeBytes(TableFile.MAGIC);
+			out.flush();
+		} finally {
+			out.close();
+			out = null;
+		}
+	}
+
+	private void writeBloomFilter() throws IOException
+	{
+		long bits = Math.max(entryCount * bloomBitsPerKey, Long.SIZE);
+		int words = (int)Math.min((bits + Long.SIZE - 1) / Long.SIZE, (long)Integer.MAX_VALUE / Long.SIZE);
+		bits = (long)words * Long.SIZE;
+		int probes = Math.max(1, Math.min((int)Math.round(bloomBitsPerKey * Math.log(2)), TableFile.MAX_BLOOM_PROBES));
+
+		long[] filter = new long[words];
+		for (int i = 0; i < entryCount; i++)
+			for (int p = 0; p < probes; p++)
+			{
+				long bit = TableFile.bloomBit(hashes[i], p, bits);
+				filter[(int)(bit >>> 6)] |= 1L << bit;
+			}
+		writer.writeByte((byte)probes);
+		writer.writeBitmap(filter);
+	}
+
+	private void checkOpen() throws IOException
+	{
+		if (out == null)
+			throw new IOException("Table file writer is closed.");
+	}
+
+	/**
+	 * Encoding buffer with an accessible backing array.
+	 */
+	private static class DataBuffer extends ByteArrayOutputStream
+	{
+		DataBuffer(int size)
+		{
+			super(size);
+		}
+
+		byte[] getBuffer()
+		{
+			return buf;
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+/*******************************************************************************
+ * Copyright (c) 2009-2019 Black Rook Software
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the GNU Lesser Public License v2.1
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ ******************************************************************************/
+/**
+ * Contains classes for reading and writing table files: immutable, sorted key/value tables
+ * stored as prefix-compressed blocks, followed by a block index and an optional bloom filter.
+ * Table files are read through memory-mapped buffers, and lookups only touch the blocks they need.
+ * <p>Table file layout (all framing values are little-endian, and variable-length ints are as written by 
+ * {@link com.blackrook.io.SuperWriter#writeVariableLengthInt(int)}):
+ * <pre>
+ * Header:  "BRST" (4 bytes), version (1 byte), value endian mode (1 byte), reserved (2 bytes)
+ * Blocks:  entries, restart offsets (4 bytes each), restart count (4 bytes) - repeated
+ * Entry:   shared key length (variable-length int), unshared key length (variable-length int), 
+ *          value length (variable-length int), unshared key bytes, value bytes
+ * Index:   block count (4 bytes), then per block: last key length (variable-length int), 
+ *          last key bytes, block offset (8 bytes), block length (4 bytes)
+ * Bloom:   probe count (1 byte), filter bitmap (as written by {@link com.blackrook.io.SuperWriter#writeBitmap(long[])})
+ * Footer:  index offset (8 bytes), bloom filter offset (8 bytes, 0 if none), entry count (8 bytes), 
+ *          longest block length (4 bytes), "BRST" (4 bytes)
+ * </pre>
+ * <p>Each entry's key shares <code>shared</code> bytes with the key before it. Every few entries, a 
+ * "restart" entry stores its whole key, so lookups can binary search the restarts in a block before 
+ * scanning forward.
+ */
+package com.blackrook.io.table;